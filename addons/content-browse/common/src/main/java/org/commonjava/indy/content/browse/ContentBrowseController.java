@@ -211,6 +211,7 @@ public class ContentBrowseController
         result.setBaseBrowseUrl( browseServiceUrl );
         result.setBaseContentUrl( contentServiceUrl );
         result.setSources( sources );
+        result.setPartial( Boolean.TRUE.equals( eventMetadata.get( ContentManager.GROUP_LISTING_PARTIAL ) ) );
 
         return result;
     }
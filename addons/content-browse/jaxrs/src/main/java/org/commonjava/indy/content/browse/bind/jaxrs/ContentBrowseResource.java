@@ -57,6 +57,7 @@ import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 
 import java.util.Date;
+import java.util.Map;
 
 @Api( value = "Indy Directory Content Browse", description = "Browse directory content in indy repository" )
 @Path( "/api/browse/{packageType}/{type: (hosted|group|remote)}/{name}" )
@@ -158,6 +159,8 @@ public class ContentBrowseResource
 
             final AcceptInfo acceptInfo = jaxRsRequestHelper.findAccept( request, ApplicationContent.application_json );
             final String content = mapper.writeValueAsString( result );
+            final Map<ContentDigest, String> digests =
+                    contentDigester.digest( result.getStoreKey(), path, new EventMetadata() ).getDigests();
             Response.ResponseBuilder builder = Response.ok()
                                                        .header( ApplicationHeader.content_type.key(),
                                                                 acceptInfo.getRawAccept() )
@@ -166,9 +169,9 @@ public class ContentBrowseResource
                                                        .header( ApplicationHeader.last_modified.key(),
                                                                 HttpUtils.formatDateHeader( new Date() ) )
                                                       .header(ApplicationHeader.md5.key(),
-                                                        contentDigester.digest(result.getStoreKey(), path, new EventMetadata()).getDigests().get(ContentDigest.MD5).toUpperCase() )
+                                                        digests.get(ContentDigest.MD5).toUpperCase() )
                                                       .header(ApplicationHeader.sha1.key(),
-                                                        contentDigester.digest(result.getStoreKey(), path, new EventMetadata()).getDigests().get(ContentDigest.SHA_1).toUpperCase() )
+                                                        digests.get(ContentDigest.SHA_1).toUpperCase() )
                                                       ;
               ;
             response = builder.build();
@@ -44,6 +44,8 @@ public class ContentBrowseResult
 
     private List<ListingURLResult> listingUrls;
 
+    private boolean partial;
+
     public StoreKey getStoreKey()
     {
         return storeKey;
@@ -143,6 +145,19 @@ public class ContentBrowseResult
         this.listingUrls = listingUrls;
     }
 
+    /**
+     * Whether some members of a group were left out of the listing because they didn't answer in time.
+     */
+    public boolean isPartial()
+    {
+        return partial;
+    }
+
+    public void setPartial( boolean partial )
+    {
+        this.partial = partial;
+    }
+
     public static class ListingURLResult
     {
         private String path;
@@ -91,4 +91,11 @@ public class ContentIndexActions
         indexManager.clearIndexedPathFrom( path, affectedGroups, null );
     }
 
+    @Override
+    @Measure
+    public void clearGroupContent( Group group )
+    {
+        indexManager.clearAllIndexedPathInStore( group );
+    }
+
 }
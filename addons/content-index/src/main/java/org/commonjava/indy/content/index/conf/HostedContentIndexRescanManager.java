@@ -15,6 +15,10 @@
  */
 package org.commonjava.indy.content.index.conf;
 
+import org.commonjava.cdi.util.weft.DrainingExecutorCompletionService;
+import org.commonjava.cdi.util.weft.ExecutorConfig;
+import org.commonjava.cdi.util.weft.WeftExecutorService;
+import org.commonjava.cdi.util.weft.WeftManaged;
 import org.commonjava.indy.IndyWorkflowException;
 import org.commonjava.indy.change.event.ArtifactStorePostRescanEvent;
 import org.commonjava.indy.change.event.ArtifactStorePreRescanEvent;
@@ -38,10 +42,17 @@ import org.slf4j.LoggerFactory;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.event.Observes;
 import javax.inject.Inject;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * This component will handle the content index for the hosted repo during its rescan. It will rebuild all relevant
@@ -52,6 +63,10 @@ public class HostedContentIndexRescanManager implements ContentIndexRescanManage
 {
     private final Logger LOGGER = LoggerFactory.getLogger( this.getClass() );
 
+    private static final int INDEX_BATCH_SIZE = 500;
+
+    private static final int MAX_PENDING_BATCHES = 16;
+
     @Inject
     private StoreDataManager storeDataManager;
 
@@ -64,6 +79,11 @@ public class HostedContentIndexRescanManager implements ContentIndexRescanManage
     @Inject
     private DownloadManager downloadManager;
 
+    @Inject
+    @WeftManaged
+    @ExecutorConfig( named = "content-index-rescan", threads = 8, priority = 4 )
+    private WeftExecutorService rescanExecutor;
+
     protected HostedContentIndexRescanManager()
     {
     }
@@ -113,15 +133,13 @@ public class HostedContentIndexRescanManager implements ContentIndexRescanManage
                 final HostedRepository hosted = (HostedRepository) repo;
                 try
                 {
-                    List<Transfer> transfers = downloadManager.listRecursively( hosted.getKey(), DownloadManager.ROOT_PATH );
                     Set<Group> affected = storeDataManager.query().getGroupsAffectedBy( hosted.getKey() );
                     Set<StoreKey> affetctedGroupKeys =
                             affected.stream().map( g -> g.getKey() ).collect( Collectors.toSet() );
                     StoreKey[] gKeys = affetctedGroupKeys.toArray( new StoreKey[affetctedGroupKeys.size()] );
-                    transfers.forEach(
-                            txfr -> contentIndexManager.indexPathInStores( txfr.getPath(), hosted.getKey(), gKeys ) );
+                    indexAll( hosted.getKey(), gKeys );
                 }
-                catch ( IndyWorkflowException ex )
+                catch ( IndyWorkflowException | UncheckedIOException ex )
                 {
                     LOGGER.error( String.format( "Can not list resource correctly for hosted repo %s due to %s",
                                                  hosted.getKey(), ex.getMessage() ), ex );
@@ -134,4 +152,66 @@ public class HostedContentIndexRescanManager implements ContentIndexRescanManage
             }
         }
     }
+
+    /**
+     * Walk the store on this thread and index the paths in batches on the rescan executor, which carries the thread
+     * context over to its workers. No more than {@link #MAX_PENDING_BATCHES} batches are queued or running at a time,
+     * so the walk never gets far ahead of the indexing and the paths of a large store are never all held at once.
+     */
+    private void indexAll( final StoreKey key, final StoreKey[] gKeys )
+            throws IndyWorkflowException
+    {
+        final DrainingExecutorCompletionService<Integer> indexing =
+                new DrainingExecutorCompletionService<>( rescanExecutor );
+        final Semaphore pending = new Semaphore( MAX_PENDING_BATCHES );
+        try (Stream<Transfer> transfers = downloadManager.streamRecursively( key, DownloadManager.ROOT_PATH ))
+        {
+            final Iterator<Transfer> it = transfers.iterator();
+            List<String> batch = new ArrayList<>( INDEX_BATCH_SIZE );
+            while ( it.hasNext() )
+            {
+                batch.add( it.next().getPath() );
+                if ( batch.size() >= INDEX_BATCH_SIZE || !it.hasNext() )
+                {
+                    pending.acquire();
+                    final List<String> paths = batch;
+                    indexing.submit( () -> {
+                        try
+                        {
+                            paths.forEach( path -> contentIndexManager.indexPathInStores( path, key, gKeys ) );
+                            return paths.size();
+                        }
+                        finally
+                        {
+                            pending.release();
+                        }
+                    } );
+                    batch = new ArrayList<>( INDEX_BATCH_SIZE );
+                }
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            LOGGER.warn( "Interrupted while rebuilding content index for {}", key );
+            Thread.currentThread().interrupt();
+        }
+        finally
+        {
+            final AtomicInteger count = new AtomicInteger();
+            try
+            {
+                indexing.drain( count::addAndGet );
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+            catch ( ExecutionException e )
+            {
+                LOGGER.error( String.format( "Failed to rebuild content index for %s due to %s", key,
+                                             e.getMessage() ), e );
+            }
+            LOGGER.debug( "Indexed {} paths for hosted repo {}", count.get(), key );
+        }
+    }
 }
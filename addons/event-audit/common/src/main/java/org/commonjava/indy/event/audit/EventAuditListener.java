@@ -82,6 +82,9 @@ public class EventAuditListener
     @Inject
     IndyConfiguration indyConfig;
 
+    @Inject
+    EventAuditPipeline pipeline;
+
     private final Logger logger = LoggerFactory.getLogger( getClass() );
 
     public void onFileAccess( @Observes final FileAccessEvent event )
@@ -91,10 +94,7 @@ public class EventAuditListener
         {
             return;
         }
-        FileEvent fileEvent = new FileEvent( FileEventType.ACCESS );
-        transformFileEvent( event, fileEvent );
-        eventPublisher.publishFileEvent( fileEvent );
-
+        audit( event, FileEventType.ACCESS );
     }
 
     public void onFileUpload( @Observes final FileStorageEvent event )
@@ -111,9 +111,7 @@ public class EventAuditListener
             return;
         }
 
-        FileEvent fileEvent = new FileEvent( FileEventType.STORAGE );
-        transformFileEvent( event, fileEvent );
-        eventPublisher.publishFileEvent( fileEvent );
+        audit( event, FileEventType.STORAGE );
     }
 
     public void onPromoteComplete( @Observes final PromoteCompleteEvent event )
@@ -136,59 +134,95 @@ public class EventAuditListener
         }
     }
 
-    private void transformFileEvent( org.commonjava.maven.galley.event.FileEvent event, FileEvent fileEvent )
+    private void audit( final org.commonjava.maven.galley.event.FileEvent event, final FileEventType type )
+    {
+        if ( eventAuditConfig.isAsyncEnabled() )
+        {
+            PendingFileEvent pending = capture( event, type );
+            if ( pending != null )
+            {
+                pipeline.offer( pending );
+            }
+            return;
+        }
+
+        FileEvent fileEvent = new FileEvent( type );
+        transformFileEvent( event, type, fileEvent );
+        eventPublisher.publishFileEvent( fileEvent );
+    }
+
+    /**
+     * Check the event is audited and keep what can only be known on the request thread.
+     *
+     * @return null if the event is not audited
+     */
+    private PendingFileEvent capture( org.commonjava.maven.galley.event.FileEvent event, FileEventType type )
     {
         EventMetadata metadata = event.getEventMetadata();
         final TrackingKey trackingKey = (TrackingKey) metadata.get( EventConstants.TRACKING_KEY );
         if ( trackingKey == null )
         {
             logger.trace( "No tracking key. Skip audit." );
-            return;
+            return null;
         }
 
         Transfer transfer = event.getTransfer();
         if ( transfer == null )
         {
             logger.trace( "No transfer. Skip audit." );
-            return;
+            return null;
         }
 
         final Location location = transfer.getLocation();
         if ( !( location instanceof KeyedLocation ) )
         {
             logger.trace( "Not in a keyed location: {}", transfer );
+            return null;
+        }
+
+        final StoreKey affectedStore = ( (KeyedLocation) location ).getKey();
+        if ( affectedStore.getType() == group )
+        {
+            logger.trace( "Not auditing content stored directly in group: {}. This content is generally aggregated metadata, and can be recalculated. Groups may not be stable in some build environments",
+                          affectedStore );
+            return null;
+        }
+
+        String storeEffect = event instanceof FileStorageEvent ? ( (FileStorageEvent) event ).getType().name() : null;
+        return new PendingFileEvent( type, trackingKey.getId(), affectedStore, transfer, storeEffect );
+    }
+
+    private void transformFileEvent( org.commonjava.maven.galley.event.FileEvent event, FileEventType type,
+                                     FileEvent fileEvent )
+    {
+        PendingFileEvent pending = capture( event, type );
+        if ( pending == null )
+        {
             return;
         }
 
         try
         {
-            final KeyedLocation keyedLocation = (KeyedLocation) location;
-            final StoreKey affectedStore = keyedLocation.getKey();
-            if ( affectedStore.getType() == group )
-            {
-                logger.trace( "Not auditing content stored directly in group: {}. This content is generally aggregated metadata, and can be recalculated. Groups may not be stable in some build environments",
-                              affectedStore );
-                return;
-            }
-
+            final StoreKey affectedStore = pending.storeKey;
+            final Transfer transfer = pending.transfer;
             final String path = transfer.getPath();
 
             fileEvent.setTargetPath( path );
             //TODO figure out what's the NodeId
             fileEvent.setNodeId( indyConfig.getNodeId() );
-            fileEvent.setSessionId( trackingKey.getId() );
+            fileEvent.setSessionId( pending.sessionId );
             fileEvent.setTimestamp( new Date() );
 
-            TransferMetadata artifactData = contentDigester.digest( affectedStore, path, metadata );
+            TransferMetadata artifactData = contentDigester.digest( affectedStore, path, event.getEventMetadata() );
             fileEvent.setMd5( artifactData.getDigests().get( ContentDigest.MD5 ) );
             fileEvent.setSha1( artifactData.getDigests().get( ContentDigest.SHA_1 ) );
             fileEvent.setChecksum( artifactData.getDigests().get( ContentDigest.SHA_256 ) );
             fileEvent.setSize( artifactData.getSize() );
             fileEvent.setStoreKey( affectedStore.toString() );
             Map<String, String> extra = new HashMap<>();
-            if ( event instanceof FileStorageEvent )
+            if ( pending.storeEffect != null )
             {
-                extra.put( EventConstants.STORE_EFFECT, ( (FileStorageEvent) event ).getType().name() );
+                extra.put( EventConstants.STORE_EFFECT, pending.storeEffect );
             }
 
             if ( StoreType.remote == affectedStore.getType())
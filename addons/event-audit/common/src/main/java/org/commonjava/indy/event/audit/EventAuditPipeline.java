@@ -0,0 +1,497 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.event.audit;
+
+import org.commonjava.auditquery.fileevent.FileEvent;
+import org.commonjava.cdi.util.weft.ExecutorConfig;
+import org.commonjava.cdi.util.weft.NamedThreadFactory;
+import org.commonjava.cdi.util.weft.PoolWeftExecutorService;
+import org.commonjava.cdi.util.weft.WeftExecutorService;
+import org.commonjava.cdi.util.weft.WeftManaged;
+import org.commonjava.indy.IndyWorkflowException;
+import org.commonjava.indy.action.IndyLifecycleException;
+import org.commonjava.indy.action.StartupAction;
+import org.commonjava.indy.conf.IndyConfiguration;
+import org.commonjava.indy.content.ContentDigester;
+import org.commonjava.indy.data.IndyDataException;
+import org.commonjava.indy.data.StoreDataManager;
+import org.commonjava.indy.event.audit.conf.EventAuditConfig;
+import org.commonjava.indy.model.core.ArtifactStore;
+import org.commonjava.indy.model.core.RemoteRepository;
+import org.commonjava.indy.model.core.StoreKey;
+import org.commonjava.indy.model.core.StoreType;
+import org.commonjava.maven.galley.event.EventMetadata;
+import org.commonjava.maven.galley.io.checksum.ContentDigest;
+import org.commonjava.maven.galley.io.checksum.TransferMetadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Instance;
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Audits file events off the request thread. Listeners only {@link #offer} what they know; a worker takes the events
+ * from a bounded queue in batches (up to async.batch.size, or whatever arrived within async.flush.interval.millis),
+ * adds the checksums recorded during the transfer and the remote URLs, and hands the batch to each configured
+ * {@link EventAuditSink}. When the queue is full, events are dropped and counted instead of blocking the request.
+ * <p>
+ * Events with no recorded checksums need the file to be read again. That is left to a second worker with its own
+ * bounded queue (async.digest.queue.size), which publishes them in batches of their own, so a slow disk never holds up
+ * the other events. When that queue is full, or its size is 0, the event is published without checksums.
+ */
+@ApplicationScoped
+public class EventAuditPipeline
+        implements StartupAction
+{
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    private static final int DROPPED_LOG_INTERVAL = 1000;
+
+    private static final String WORKER_EXECUTOR = "event-audit-pipeline";
+
+    @Inject
+    private EventAuditConfig config;
+
+    @Inject
+    private IndyConfiguration indyConfig;
+
+    @Inject
+    private ContentDigester contentDigester;
+
+    @Inject
+    private StoreDataManager storeManager;
+
+    @Inject
+    private Instance<EventAuditSink> sinkInstances;
+
+    /**
+     * Runs the batch and digest loops, one thread each, for as long as the pipeline runs.
+     */
+    @Inject
+    @WeftManaged
+    @ExecutorConfig( named = WORKER_EXECUTOR, threads = 2, priority = 4, daemon = true )
+    private WeftExecutorService workerExecutor;
+
+    private Iterable<? extends EventAuditSink> availableSinks;
+
+    private BlockingQueue<PendingFileEvent> queue;
+
+    private BlockingQueue<Undigested> digestQueue;
+
+    private List<EventAuditSink> sinks;
+
+    private List<Future<?>> workers;
+
+    private volatile boolean running;
+
+    private volatile boolean batching;
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final AtomicLong undigested = new AtomicLong();
+
+    protected EventAuditPipeline()
+    {
+    }
+
+    public EventAuditPipeline( final EventAuditConfig config, final IndyConfiguration indyConfig,
+                               final ContentDigester contentDigester, final StoreDataManager storeManager,
+                               final List<? extends EventAuditSink> sinks )
+    {
+        this.config = config;
+        this.indyConfig = indyConfig;
+        this.contentDigester = contentDigester;
+        this.storeManager = storeManager;
+        this.availableSinks = sinks;
+        this.workerExecutor = new PoolWeftExecutorService( WORKER_EXECUTOR, (ThreadPoolExecutor) Executors.newFixedThreadPool(
+                2, new NamedThreadFactory( WORKER_EXECUTOR, new ThreadGroup( WORKER_EXECUTOR ), true, 4 ) ) );
+    }
+
+    @Override
+    public String getId()
+    {
+        return "Event audit pipeline";
+    }
+
+    @Override
+    public int getStartupPriority()
+    {
+        return 10;
+    }
+
+    /**
+     * Start the workers, after starting each configured sink. A sink that cannot work with the current configuration
+     * fails the startup rather than silently dropping every batch.
+     */
+    @Override
+    public void start()
+            throws IndyLifecycleException
+    {
+        if ( !config.isEnabled() || !config.isAsyncEnabled() )
+        {
+            return;
+        }
+
+        final Set<String> names = Arrays.stream( config.getAsyncSinks().split( "," ) )
+                                        .map( String::trim )
+                                        .filter( s -> !s.isEmpty() )
+                                        .collect( Collectors.toSet() );
+        sinks = new ArrayList<>();
+        ( availableSinks == null ? sinkInstances : availableSinks ).forEach( sink -> {
+            if ( names.contains( sink.getName() ) )
+            {
+                sinks.add( sink );
+            }
+        } );
+
+        for ( EventAuditSink sink : sinks )
+        {
+            sink.start();
+        }
+
+        queue = new ArrayBlockingQueue<>( config.getAsyncQueueSize() );
+        final int digestQueueSize = config.getAsyncDigestQueueSize();
+        digestQueue = digestQueueSize > 0 ? new ArrayBlockingQueue<>( digestQueueSize ) : null;
+        running = true;
+        batching = true;
+
+        if ( workerExecutor.getCorePoolSize() < 2 )
+        {
+            logger.warn( "The {} pool has fewer than 2 threads; events won't be digested until the pipeline stops",
+                         WORKER_EXECUTOR );
+        }
+        workers = Arrays.asList( workerExecutor.submit( this::batchLoop ), workerExecutor.submit( this::digestLoop ) );
+
+        logger.info( "Event audit pipeline started, sinks: {}", sinks.stream()
+                                                                     .map( EventAuditSink::getName )
+                                                                     .collect( Collectors.toList() ) );
+    }
+
+    @PreDestroy
+    public void stop()
+    {
+        if ( workers == null )
+        {
+            return;
+        }
+
+        running = false;
+        final long deadline = System.currentTimeMillis() + config.getAsyncFlushIntervalMillis() * 2 + 5000;
+        try
+        {
+            for ( Future<?> worker : workers )
+            {
+                worker.get( Math.max( 0, deadline - System.currentTimeMillis() ), TimeUnit.MILLISECONDS );
+            }
+        }
+        catch ( TimeoutException e )
+        {
+            logger.warn( "Event audit pipeline did not finish in time, {} events left unpublished",
+                         queue.size() + ( digestQueue == null ? 0 : digestQueue.size() ) );
+            workers.forEach( worker -> worker.cancel( true ) );
+        }
+        catch ( ExecutionException e )
+        {
+            logger.error( "Event audit pipeline worker failed", e.getCause() );
+            workers.forEach( worker -> worker.cancel( true ) );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Queue the event without waiting.
+     *
+     * @return false if the pipeline is not running or is full, in which case the event is dropped
+     */
+    public boolean offer( final PendingFileEvent event )
+    {
+        if ( queue == null || !running )
+        {
+            return false;
+        }
+
+        if ( queue.offer( event ) )
+        {
+            return true;
+        }
+
+        final long count = dropped.incrementAndGet();
+        if ( count % DROPPED_LOG_INTERVAL == 1 )
+        {
+            logger.warn( "Event audit queue is full, {} events dropped so far", count );
+        }
+        return false;
+    }
+
+    public long getDropped()
+    {
+        return dropped.get();
+    }
+
+    /**
+     * @return how many events were published without checksums because the digest worker was full or disabled
+     */
+    public long getUndigested()
+    {
+        return undigested.get();
+    }
+
+    private void batchLoop()
+    {
+        try
+        {
+            drain( queue, () -> running, this::publishBatch );
+        }
+        finally
+        {
+            // nothing is handed to the digest worker any more, so it can stop once its queue is empty
+            batching = false;
+        }
+    }
+
+    private void digestLoop()
+    {
+        if ( digestQueue != null )
+        {
+            drain( digestQueue, () -> batching, this::digestBatch );
+        }
+    }
+
+    /**
+     * Take batches from the queue until it is closed and empty, or until the thread is interrupted.
+     */
+    private <T> void drain( final BlockingQueue<T> from, final BooleanSupplier open, final Consumer<List<T>> handler )
+    {
+        final int batchSize = config.getAsyncBatchSize();
+        final long flushInterval = config.getAsyncFlushIntervalMillis();
+        final List<T> batch = new ArrayList<>( batchSize );
+
+        boolean interrupted = false;
+        while ( ( !interrupted && open.getAsBoolean() ) || !from.isEmpty() )
+        {
+            try
+            {
+                final T first = from.poll( flushInterval, TimeUnit.MILLISECONDS );
+                if ( first == null )
+                {
+                    continue;
+                }
+
+                batch.add( first );
+                final long deadline = System.currentTimeMillis() + flushInterval;
+                while ( batch.size() < batchSize )
+                {
+                    from.drainTo( batch, batchSize - batch.size() );
+                    final long wait = deadline - System.currentTimeMillis();
+                    if ( batch.size() >= batchSize || wait <= 0 || interrupted || !open.getAsBoolean() )
+                    {
+                        break;
+                    }
+
+                    final T next = from.poll( wait, TimeUnit.MILLISECONDS );
+                    if ( next == null )
+                    {
+                        break;
+                    }
+                    batch.add( next );
+                }
+            }
+            catch ( InterruptedException e )
+            {
+                logger.debug( "Event audit pipeline interrupted" );
+                interrupted = true;
+            }
+
+            if ( !batch.isEmpty() )
+            {
+                handler.accept( batch );
+                batch.clear();
+            }
+        }
+    }
+
+    private void publishBatch( final List<PendingFileEvent> batch )
+    {
+        final Map<StoreKey, Optional<String>> remoteUrls = new HashMap<>();
+        final List<FileEvent> events = new ArrayList<>( batch.size() );
+        for ( PendingFileEvent pending : batch )
+        {
+            final FileEvent event = toFileEvent( pending, remoteUrls );
+            final TransferMetadata metadata = contentDigester.getContentMetadata( pending.transfer );
+            if ( metadata != null )
+            {
+                setDigests( event, metadata );
+            }
+            else if ( digestQueue != null && digestQueue.offer( new Undigested( pending, event ) ) )
+            {
+                continue;
+            }
+            else
+            {
+                final long count = undigested.incrementAndGet();
+                if ( count % DROPPED_LOG_INTERVAL == 1 )
+                {
+                    logger.warn( "Event audit digest queue is full, {} events published without checksums so far",
+                                 count );
+                }
+            }
+            events.add( event );
+        }
+
+        publish( events );
+    }
+
+    private void digestBatch( final List<Undigested> batch )
+    {
+        final List<FileEvent> events = new ArrayList<>( batch.size() );
+        for ( Undigested entry : batch )
+        {
+            final StoreKey storeKey = entry.pending.storeKey;
+            final String path = entry.pending.transfer.getPath();
+            try
+            {
+                setDigests( entry.event, contentDigester.digest( storeKey, path, new EventMetadata() ) );
+            }
+            catch ( IndyWorkflowException e )
+            {
+                logger.error( String.format( "Failed to digest %s:%s for audit. Reason: %s", storeKey, path,
+                                             e.getMessage() ), e );
+            }
+            events.add( entry.event );
+        }
+
+        publish( events );
+    }
+
+    private void publish( final List<FileEvent> events )
+    {
+        if ( events.isEmpty() )
+        {
+            return;
+        }
+
+        for ( EventAuditSink sink : sinks )
+        {
+            try
+            {
+                sink.publish( events );
+            }
+            catch ( Exception e )
+            {
+                logger.error( String.format( "Failed to publish %d audit events to %s. Reason: %s", events.size(),
+                                             sink.getName(), e.getMessage() ), e );
+            }
+        }
+    }
+
+    /**
+     * Build the audited event, without checksums. Remote URLs are looked up once per store in the given map.
+     */
+    FileEvent toFileEvent( final PendingFileEvent pending, final Map<StoreKey, Optional<String>> remoteUrls )
+    {
+        final StoreKey storeKey = pending.storeKey;
+        final String path = pending.transfer.getPath();
+
+        final FileEvent fileEvent = new FileEvent( pending.type );
+        fileEvent.setTargetPath( path );
+        fileEvent.setNodeId( indyConfig.getNodeId() );
+        fileEvent.setSessionId( pending.sessionId );
+        fileEvent.setTimestamp( pending.timestamp );
+        fileEvent.setStoreKey( storeKey.toString() );
+
+        final Map<String, String> extra = new HashMap<>();
+        if ( pending.storeEffect != null )
+        {
+            extra.put( EventConstants.STORE_EFFECT, pending.storeEffect );
+        }
+
+        if ( StoreType.remote == storeKey.getType() )
+        {
+            remoteUrls.computeIfAbsent( storeKey, this::getRemoteUrl ).ifPresent( url -> {
+                fileEvent.setSourceLocation( url );
+                fileEvent.setSourcePath( path );
+            } );
+        }
+
+        //TODO fix this, it should be the url of indy, or recalculate it in AuditQuery side.
+        fileEvent.setTargetLocation( "" );
+        fileEvent.setExtra( extra );
+
+        return fileEvent;
+    }
+
+    private static void setDigests( final FileEvent fileEvent, final TransferMetadata artifactData )
+    {
+        fileEvent.setMd5( artifactData.getDigests().get( ContentDigest.MD5 ) );
+        fileEvent.setSha1( artifactData.getDigests().get( ContentDigest.SHA_1 ) );
+        fileEvent.setChecksum( artifactData.getDigests().get( ContentDigest.SHA_256 ) );
+        fileEvent.setSize( artifactData.getSize() );
+    }
+
+    private Optional<String> getRemoteUrl( final StoreKey key )
+    {
+        try
+        {
+            final ArtifactStore store = storeManager.getArtifactStore( key );
+            return store instanceof RemoteRepository ?
+                            Optional.ofNullable( ( (RemoteRepository) store ).getUrl() ) :
+                            Optional.empty();
+        }
+        catch ( IndyDataException e )
+        {
+            logger.error( String.format( "Failed to retrieve store: %s for audit. Reason: %s", key, e.getMessage() ),
+                          e );
+            return Optional.empty();
+        }
+    }
+
+    private static final class Undigested
+    {
+        private final PendingFileEvent pending;
+
+        private final FileEvent event;
+
+        Undigested( final PendingFileEvent pending, final FileEvent event )
+        {
+            this.pending = pending;
+            this.event = event;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.event.audit;
+
+import org.commonjava.auditquery.fileevent.FileEvent;
+import org.commonjava.indy.action.IndyLifecycleException;
+
+import java.util.List;
+
+/**
+ * Destination of the batches published by {@link EventAuditPipeline}, picked by name in the async.sinks setting of
+ * [event-audit].
+ */
+public interface EventAuditSink
+{
+    String getName();
+
+    /**
+     * Called once when the pipeline starts; throw if the sink cannot work with the current configuration.
+     */
+    default void start()
+            throws IndyLifecycleException
+    {
+    }
+
+    void publish( List<FileEvent> events )
+            throws Exception;
+}
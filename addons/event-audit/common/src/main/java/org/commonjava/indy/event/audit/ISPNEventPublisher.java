@@ -22,9 +22,11 @@ import org.commonjava.auditquery.fileevent.FileGroupingEvent;
 import org.commonjava.indy.subsys.infinispan.CacheHandle;
 
 import javax.inject.Inject;
+import java.util.List;
 
-public class ISPNEventPublisher implements FileEventPublisher
+public class ISPNEventPublisher implements FileEventPublisher, EventAuditSink
 {
+    public static final String NAME = "ispn";
 
     @Inject
     @FileEventCache
@@ -45,4 +47,19 @@ public class ISPNEventPublisher implements FileEventPublisher
     {
         fileGroupingEventCache.put( fileGroupingEvent.getEventId().toString(), fileGroupingEvent );
     }
+
+    @Override
+    public String getName()
+    {
+        return NAME;
+    }
+
+    @Override
+    public void publish( List<FileEvent> events ) throws FileEventPublisherException
+    {
+        for ( FileEvent event : events )
+        {
+            publishFileEvent( event );
+        }
+    }
 }
@@ -0,0 +1,81 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.event.audit;
+
+import org.commonjava.auditquery.fileevent.FileEvent;
+import org.commonjava.indy.action.IndyLifecycleException;
+import org.commonjava.indy.event.audit.conf.EventAuditConfig;
+import org.commonjava.indy.model.core.io.IndyObjectMapper;
+import org.commonjava.indy.subsys.kafka.IndyKafkaProducer;
+import org.commonjava.indy.subsys.kafka.conf.KafkaConfig;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.util.List;
+
+/**
+ * Sends each event as JSON to the configured topic without waiting, then flushes once per batch, so the producer
+ * batches the sends on its own and the pipeline waits once per batch. The producer silently discards everything while
+ * the [kafka] section is disabled, so the pipeline refuses to start with this sink in that case.
+ */
+@ApplicationScoped
+public class KafkaEventAuditSink
+        implements EventAuditSink
+{
+    public static final String NAME = "kafka";
+
+    @Inject
+    private IndyKafkaProducer kafkaProducer;
+
+    @Inject
+    private IndyObjectMapper objectMapper;
+
+    @Inject
+    private EventAuditConfig config;
+
+    @Inject
+    private KafkaConfig kafkaConfig;
+
+    @Override
+    public String getName()
+    {
+        return NAME;
+    }
+
+    @Override
+    public void start()
+            throws IndyLifecycleException
+    {
+        if ( !kafkaConfig.isEnabled() )
+        {
+            throw new IndyLifecycleException(
+                    "Event audit sink '{}' is configured in async.sinks of [event-audit], but [kafka] is not enabled",
+                    NAME );
+        }
+    }
+
+    @Override
+    public void publish( final List<FileEvent> events )
+            throws Exception
+    {
+        final String topic = config.getKafkaTopic();
+        for ( FileEvent event : events )
+        {
+            kafkaProducer.send( topic, objectMapper.writeValueAsString( event ) );
+        }
+        kafkaProducer.flush();
+    }
+}
@@ -0,0 +1,51 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.event.audit;
+
+import org.commonjava.auditquery.fileevent.FileEventType;
+import org.commonjava.indy.model.core.StoreKey;
+import org.commonjava.maven.galley.model.Transfer;
+
+import java.util.Date;
+
+/**
+ * What is known about an audited file event on the request thread; checksums and the remote URL are looked up later,
+ * when it is turned into a {@link org.commonjava.auditquery.fileevent.FileEvent}.
+ */
+public final class PendingFileEvent
+{
+    final FileEventType type;
+
+    final String sessionId;
+
+    final StoreKey storeKey;
+
+    final Transfer transfer;
+
+    final String storeEffect;
+
+    final Date timestamp = new Date();
+
+    PendingFileEvent( final FileEventType type, final String sessionId, final StoreKey storeKey,
+                      final Transfer transfer, final String storeEffect )
+    {
+        this.type = type;
+        this.sessionId = sessionId;
+        this.storeKey = storeKey;
+        this.transfer = transfer;
+        this.storeEffect = storeEffect;
+    }
+}
@@ -30,8 +30,36 @@ public class EventAuditConfig implements IndyConfigInfo
 
     public static final boolean DEFAULT_ENABLED = false;
 
+    public static final boolean DEFAULT_ASYNC_ENABLED = false;
+
+    public static final int DEFAULT_ASYNC_QUEUE_SIZE = 10000;
+
+    public static final int DEFAULT_ASYNC_BATCH_SIZE = 500;
+
+    public static final long DEFAULT_ASYNC_FLUSH_INTERVAL_MILLIS = 1000;
+
+    public static final int DEFAULT_ASYNC_DIGEST_QUEUE_SIZE = 1000;
+
+    public static final String DEFAULT_ASYNC_SINKS = "ispn";
+
+    public static final String DEFAULT_KAFKA_TOPIC = "indy-file-events";
+
     private Boolean enabled;
 
+    private Boolean asyncEnabled;
+
+    private Integer asyncQueueSize;
+
+    private Integer asyncBatchSize;
+
+    private Long asyncFlushIntervalMillis;
+
+    private Integer asyncDigestQueueSize;
+
+    private String asyncSinks;
+
+    private String kafkaTopic;
+
     public EventAuditConfig()
     {
 
@@ -53,6 +81,99 @@ public class EventAuditConfig implements IndyConfigInfo
         this.enabled = enabled;
     }
 
+    /**
+     * Audit file events off the request thread, in batches (see {@link org.commonjava.indy.event.audit.EventAuditPipeline}).
+     */
+    public boolean isAsyncEnabled()
+    {
+        return asyncEnabled == null ? DEFAULT_ASYNC_ENABLED : asyncEnabled;
+    }
+
+    @ConfigName( "async.enabled" )
+    public void setAsyncEnabled( final boolean asyncEnabled )
+    {
+        this.asyncEnabled = asyncEnabled;
+    }
+
+    /**
+     * Events waiting for the pipeline; further events are dropped while it is full.
+     */
+    public int getAsyncQueueSize()
+    {
+        return asyncQueueSize == null ? DEFAULT_ASYNC_QUEUE_SIZE : asyncQueueSize;
+    }
+
+    @ConfigName( "async.queue.size" )
+    public void setAsyncQueueSize( final int asyncQueueSize )
+    {
+        this.asyncQueueSize = asyncQueueSize;
+    }
+
+    public int getAsyncBatchSize()
+    {
+        return asyncBatchSize == null ? DEFAULT_ASYNC_BATCH_SIZE : asyncBatchSize;
+    }
+
+    @ConfigName( "async.batch.size" )
+    public void setAsyncBatchSize( final int asyncBatchSize )
+    {
+        this.asyncBatchSize = asyncBatchSize;
+    }
+
+    /**
+     * Longest time an event waits for its batch to fill before the batch is published.
+     */
+    public long getAsyncFlushIntervalMillis()
+    {
+        return asyncFlushIntervalMillis == null ? DEFAULT_ASYNC_FLUSH_INTERVAL_MILLIS : asyncFlushIntervalMillis;
+    }
+
+    @ConfigName( "async.flush.interval.millis" )
+    public void setAsyncFlushIntervalMillis( final long asyncFlushIntervalMillis )
+    {
+        this.asyncFlushIntervalMillis = asyncFlushIntervalMillis;
+    }
+
+    /**
+     * Events waiting for their file to be read for checksums, which were not recorded during the transfer; further
+     * events are published without checksums while it is full. 0 never reads files for the audit.
+     */
+    public int getAsyncDigestQueueSize()
+    {
+        return asyncDigestQueueSize == null ? DEFAULT_ASYNC_DIGEST_QUEUE_SIZE : asyncDigestQueueSize;
+    }
+
+    @ConfigName( "async.digest.queue.size" )
+    public void setAsyncDigestQueueSize( final int asyncDigestQueueSize )
+    {
+        this.asyncDigestQueueSize = asyncDigestQueueSize;
+    }
+
+    /**
+     * Comma-separated names of the sinks batches are published to, e.g. "ispn,kafka".
+     */
+    public String getAsyncSinks()
+    {
+        return asyncSinks == null ? DEFAULT_ASYNC_SINKS : asyncSinks;
+    }
+
+    @ConfigName( "async.sinks" )
+    public void setAsyncSinks( final String asyncSinks )
+    {
+        this.asyncSinks = asyncSinks;
+    }
+
+    public String getKafkaTopic()
+    {
+        return kafkaTopic == null ? DEFAULT_KAFKA_TOPIC : kafkaTopic;
+    }
+
+    @ConfigName( "kafka.topic" )
+    public void setKafkaTopic( final String kafkaTopic )
+    {
+        this.kafkaTopic = kafkaTopic;
+    }
+
     @Override
     public String getDefaultConfigFileName()
     {
@@ -0,0 +1,289 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.event.audit;
+
+import org.commonjava.auditquery.fileevent.FileEvent;
+import org.commonjava.auditquery.fileevent.FileEventType;
+import org.commonjava.indy.conf.DefaultIndyConfiguration;
+import org.commonjava.indy.content.ContentDigester;
+import org.commonjava.indy.event.audit.conf.EventAuditConfig;
+import org.commonjava.indy.model.core.HostedRepository;
+import org.commonjava.indy.model.core.StoreKey;
+import org.commonjava.indy.util.LocationUtils;
+import org.commonjava.maven.galley.event.EventMetadata;
+import org.commonjava.maven.galley.io.checksum.ContentDigest;
+import org.commonjava.maven.galley.io.checksum.TransferMetadata;
+import org.commonjava.maven.galley.model.ConcreteResource;
+import org.commonjava.maven.galley.model.Transfer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.commonjava.indy.pkg.maven.model.MavenPackageTypeDescriptor.MAVEN_PKG_KEY;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class EventAuditPipelineTest
+{
+    private static final String KNOWN = "/org/foo/known.jar";
+
+    private static final String MISSING = "/org/foo/missing.jar";
+
+    private final HostedRepository hosted = new HostedRepository( MAVEN_PKG_KEY, "hosted" );
+
+    private EventAuditConfig config;
+
+    private RecordingSink recording;
+
+    private EventAuditPipeline pipeline;
+
+    @Before
+    public void setup()
+    {
+        config = new EventAuditConfig();
+        config.setEnabled( true );
+        config.setAsyncEnabled( true );
+        config.setAsyncFlushIntervalMillis( 500 );
+        recording = new RecordingSink( "recording" );
+    }
+
+    @After
+    public void shutdown()
+    {
+        if ( pipeline != null )
+        {
+            pipeline.stop();
+        }
+    }
+
+    @Test
+    public void publishedInBatchesOfBatchSize()
+            throws Exception
+    {
+        config.setAsyncBatchSize( 3 );
+        start( Collections.singletonList( recording ) );
+
+        for ( int i = 0; i < 7; i++ )
+        {
+            assertThat( pipeline.offer( pending( KNOWN ) ), equalTo( true ) );
+        }
+        pipeline.stop();
+
+        assertThat( recording.batchSizes(), equalTo( Arrays.asList( 3, 3, 1 ) ) );
+    }
+
+    @Test
+    public void droppedWhileQueueIsFull()
+            throws Exception
+    {
+        config.setAsyncBatchSize( 1 );
+        config.setAsyncQueueSize( 2 );
+        BlockingSink blocking = new BlockingSink();
+        start( Arrays.asList( blocking, recording ) );
+
+        pipeline.offer( pending( KNOWN ) );
+        assertThat( blocking.entered.await( 5, TimeUnit.SECONDS ), equalTo( true ) );
+
+        // the worker is stuck in the sink, so only the queue's capacity is accepted
+        assertThat( pipeline.offer( pending( KNOWN ) ), equalTo( true ) );
+        assertThat( pipeline.offer( pending( KNOWN ) ), equalTo( true ) );
+        assertThat( pipeline.offer( pending( KNOWN ) ), equalTo( false ) );
+        assertThat( pipeline.getDropped(), equalTo( 1L ) );
+
+        blocking.release.countDown();
+        pipeline.stop();
+
+        assertThat( recording.events().size(), equalTo( 3 ) );
+    }
+
+    @Test
+    public void failingSinkDoesNotStopTheOthers()
+            throws Exception
+    {
+        config.setAsyncBatchSize( 1 );
+        EventAuditSink failing = new RecordingSink( "failing" )
+        {
+            @Override
+            public void publish( final List<FileEvent> events )
+            {
+                throw new IllegalStateException( "unavailable" );
+            }
+        };
+        start( Arrays.asList( failing, recording ) );
+
+        pipeline.offer( pending( KNOWN ) );
+        pipeline.offer( pending( KNOWN ) );
+        pipeline.stop();
+
+        assertThat( recording.events().size(), equalTo( 2 ) );
+    }
+
+    @Test
+    public void missingChecksumsReadOnTheDigestWorker()
+            throws Exception
+    {
+        config.setAsyncBatchSize( 10 );
+        start( Collections.singletonList( recording ) );
+
+        pipeline.offer( pending( KNOWN ) );
+        pipeline.offer( pending( MISSING ) );
+        pipeline.stop();
+
+        // the event waiting for its file to be read comes in a batch of its own
+        assertThat( recording.batchSizes(), equalTo( Arrays.asList( 1, 1 ) ) );
+        Map<String, String> md5s = recording.events()
+                                            .stream()
+                                            .collect( Collectors.toMap( FileEvent::getTargetPath, FileEvent::getMd5 ) );
+        assertThat( md5s.get( KNOWN ), equalTo( "known" ) );
+        assertThat( md5s.get( MISSING ), equalTo( "digested" ) );
+        assertThat( pipeline.getUndigested(), equalTo( 0L ) );
+    }
+
+    @Test
+    public void publishedWithoutChecksumsWhenDigestingIsOff()
+            throws Exception
+    {
+        config.setAsyncDigestQueueSize( 0 );
+        start( Collections.singletonList( recording ) );
+
+        pipeline.offer( pending( MISSING ) );
+        pipeline.stop();
+
+        assertThat( recording.events().size(), equalTo( 1 ) );
+        assertThat( recording.events().get( 0 ).getMd5(), nullValue() );
+        assertThat( pipeline.getUndigested(), equalTo( 1L ) );
+    }
+
+    private void start( final List<? extends EventAuditSink> sinks )
+            throws Exception
+    {
+        config.setAsyncSinks( sinks.stream().map( EventAuditSink::getName ).collect( Collectors.joining( "," ) ) );
+        pipeline = new EventAuditPipeline( config, new DefaultIndyConfiguration(), new StubDigester(), null, sinks );
+        pipeline.start();
+    }
+
+    private PendingFileEvent pending( final String path )
+    {
+        Transfer transfer = new Transfer( new ConcreteResource( LocationUtils.toLocation( hosted ), path ), null, null,
+                                          null );
+        return new PendingFileEvent( FileEventType.ACCESS, "session", hosted.getKey(), transfer, null );
+    }
+
+    private static TransferMetadata metadata( final String md5 )
+    {
+        return new TransferMetadata( Collections.singletonMap( ContentDigest.MD5, md5 ), 1L );
+    }
+
+    private static class RecordingSink
+            implements EventAuditSink
+    {
+        private final String name;
+
+        private final List<List<FileEvent>> batches = Collections.synchronizedList( new ArrayList<>() );
+
+        RecordingSink( final String name )
+        {
+            this.name = name;
+        }
+
+        @Override
+        public String getName()
+        {
+            return name;
+        }
+
+        @Override
+        public void publish( final List<FileEvent> events )
+        {
+            batches.add( new ArrayList<>( events ) );
+        }
+
+        List<Integer> batchSizes()
+        {
+            return batches.stream().map( List::size ).collect( Collectors.toList() );
+        }
+
+        List<FileEvent> events()
+        {
+            return batches.stream().flatMap( List::stream ).collect( Collectors.toList() );
+        }
+    }
+
+    private static final class BlockingSink
+            implements EventAuditSink
+    {
+        private final CountDownLatch entered = new CountDownLatch( 1 );
+
+        private final CountDownLatch release = new CountDownLatch( 1 );
+
+        @Override
+        public String getName()
+        {
+            return "blocking";
+        }
+
+        @Override
+        public void publish( final List<FileEvent> events )
+                throws InterruptedException
+        {
+            entered.countDown();
+            release.await();
+        }
+    }
+
+    private static final class StubDigester
+            implements ContentDigester
+    {
+        @Override
+        public TransferMetadata getContentMetadata( final Transfer transfer )
+        {
+            return KNOWN.equals( transfer.getPath() ) ? metadata( "known" ) : null;
+        }
+
+        @Override
+        public TransferMetadata digest( final StoreKey affectedStore, final String path,
+                                        final EventMetadata eventMetadata )
+        {
+            return metadata( "digested" );
+        }
+
+        @Override
+        public boolean needsMetadataFor( final Transfer transfer )
+        {
+            return false;
+        }
+
+        @Override
+        public void addMetadata( final Transfer transfer, final TransferMetadata transferData )
+        {
+        }
+
+        @Override
+        public void removeMetadata( final Transfer transfer )
+        {
+        }
+    }
+}
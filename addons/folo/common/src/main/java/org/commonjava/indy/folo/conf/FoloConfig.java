@@ -31,10 +31,20 @@ public class FoloConfig
 
     public static final boolean DEFAULT_ENABLED = true;
 
+    public static final int DEFAULT_INCREMENTAL_SEALING_IDLE_MINUTES = 60;
+
+    public static final int DEFAULT_INCREMENTAL_SEALING_MAX_RECORDS = 1000;
+
     private Boolean enabled;
 
     private Boolean trackGroupContent;
 
+    private Boolean incrementalSealing;
+
+    private Integer incrementalSealingIdleMinutes;
+
+    private Integer incrementalSealingMaxRecords;
+
     public FoloConfig()
     {
     }
@@ -71,6 +81,48 @@ public class FoloConfig
         return trackGroupContent;
     }
 
+    public boolean isIncrementalSealing()
+    {
+        return Boolean.TRUE.equals( incrementalSealing );
+    }
+
+    @ConfigName( "incremental.sealing" )
+    public void setIncrementalSealing( final Boolean incrementalSealing )
+    {
+        this.incrementalSealing = incrementalSealing;
+    }
+
+    public Boolean getIncrementalSealing()
+    {
+        return incrementalSealing;
+    }
+
+    public int getIncrementalSealingIdleMinutes()
+    {
+        return incrementalSealingIdleMinutes == null ?
+                DEFAULT_INCREMENTAL_SEALING_IDLE_MINUTES :
+                incrementalSealingIdleMinutes;
+    }
+
+    @ConfigName( "incremental.sealing.idle.minutes" )
+    public void setIncrementalSealingIdleMinutes( final Integer incrementalSealingIdleMinutes )
+    {
+        this.incrementalSealingIdleMinutes = incrementalSealingIdleMinutes;
+    }
+
+    public int getIncrementalSealingMaxRecords()
+    {
+        return incrementalSealingMaxRecords == null ?
+                DEFAULT_INCREMENTAL_SEALING_MAX_RECORDS :
+                incrementalSealingMaxRecords;
+    }
+
+    @ConfigName( "incremental.sealing.max.records" )
+    public void setIncrementalSealingMaxRecords( final Integer incrementalSealingMaxRecords )
+    {
+        this.incrementalSealingMaxRecords = incrementalSealingMaxRecords;
+    }
+
     @Override
     public String getDefaultConfigFileName()
     {
@@ -64,6 +64,7 @@ import java.util.TreeSet;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -279,6 +280,44 @@ public class FoloAdminController
         return constructContentDTO( recordManager.get( tk ), baseUrl );
     }
 
+    /**
+     * Retrieve one page of the sealed record's entries for the given effect, in a stable (natural) order. Only the
+     * stored pages of the record that cover it are read.
+     * @return null if there is no sealed record for the id
+     */
+    public List<TrackedContentEntryDTO> getRecordEntries( final String id, final StoreEffect effect, final int page,
+                                                          final int pageSize, final String baseUrl )
+    {
+        final List<TrackedContentEntry> entries =
+                recordManager.getSealedEntries( new TrackingKey( id ), effect, (long) page * pageSize, pageSize );
+        if ( entries == null )
+        {
+            return null;
+        }
+
+        return entries.stream()
+                      .map( entry -> constructContentEntryDTO( entry, baseUrl ) )
+                      .collect( Collectors.toList() );
+    }
+
+    /**
+     * Lazily render the sealed record's entries for the given effect, in natural order. The record is read a stored
+     * page at a time and DTOs are constructed as the stream is consumed, so callers can write huge records out entry by
+     * entry.
+     * @return null if there is no sealed record for the id
+     */
+    public Stream<TrackedContentEntryDTO> streamRecordEntries( final String id, final StoreEffect effect,
+                                                              final String baseUrl )
+    {
+        final Stream<TrackedContentEntry> entries = recordManager.streamSealedEntries( new TrackingKey( id ), effect );
+        if ( entries == null )
+        {
+            return null;
+        }
+
+        return entries.map( entry -> constructContentEntryDTO( entry, baseUrl ) );
+    }
+
     public void clearRecord( final String id )
             throws FoloContentException
     {
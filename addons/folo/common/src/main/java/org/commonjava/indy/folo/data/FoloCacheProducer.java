@@ -34,6 +34,7 @@ import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.inject.Produces;
 import javax.inject.Inject;
 import java.lang.annotation.ElementType;
+import java.util.List;
 
 /**
  * This ISPN cache producer has some self-defined indexing logic. This directly uses ISPN/hibernate search api
@@ -47,6 +48,8 @@ public class FoloCacheProducer
 
     private static final String IN_PROGRESS_NAME = "folo-in-progress";
 
+    private static final String SEALED_PAGES_NAME = "folo-sealed-pages";
+
     @Inject
     private CacheProducer cacheProducer;
 
@@ -109,4 +112,12 @@ public class FoloCacheProducer
     {
         return cacheProducer.getCache( SEALED_NAME );
     }
+
+    @FoloSealedPageCache
+    @Produces
+    @ApplicationScoped
+    public CacheHandle<String, List<TrackedContentEntry>> sealedFoloRecordPageCacheCfg()
+    {
+        return cacheProducer.getCache( SEALED_PAGES_NAME );
+    }
 }
@@ -18,6 +18,7 @@ package org.commonjava.indy.folo.data;
 import org.commonjava.indy.IndyWorkflowException;
 import org.commonjava.indy.folo.change.FoloBackupListener;
 import org.commonjava.indy.folo.change.FoloExpirationWarningListener;
+import org.commonjava.indy.folo.conf.FoloConfig;
 import org.commonjava.indy.folo.model.StoreEffect;
 import org.commonjava.indy.folo.model.TrackedContent;
 import org.commonjava.indy.folo.model.TrackedContentEntry;
@@ -26,6 +27,11 @@ import org.commonjava.o11yphant.metrics.annotation.Measure;
 import org.commonjava.indy.subsys.infinispan.CacheHandle;
 import org.infinispan.Cache;
 import org.infinispan.commons.api.BasicCache;
+import org.infinispan.notifications.Listener;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryExpired;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryRemoved;
+import org.infinispan.notifications.cachelistener.event.CacheEntryExpiredEvent;
+import org.infinispan.notifications.cachelistener.event.CacheEntryRemovedEvent;
 import org.infinispan.query.Search;
 import org.infinispan.query.dsl.Query;
 import org.infinispan.query.dsl.QueryBuilder;
@@ -36,18 +42,73 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.SortedSet;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @ApplicationScoped
 public class FoloRecordCache
 {
 
+    private static final int LOCK_STRIPES = 64;
+
+    private static final int KNOWN_IN_PROGRESS_LIMIT = 10000;
+
+    // entries per stored page of a sealed record; changing it invalidates the pages already stored
+    private static final int PAGE_SIZE = 500;
+
+    private static final long RUNNING_RECORD_SWEEP_MILLIS = TimeUnit.MINUTES.toMillis( 1 );
+
     private final Logger logger = LoggerFactory.getLogger( getClass() );
 
+    // tracking records are independent of each other, so only operations on the same key need to serialize
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+
+    {
+        for ( int i = 0; i < LOCK_STRIPES; i++ )
+        {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    // keys seen (on this node) with in-progress entries, each with one of those entries, to spare hasInProgressRecord()
+    // an ISPN query. A hit is only trusted while its entry is still in the cache, since the record may have been sealed
+    // or cleared elsewhere; the least recently used keys are forgotten, and are simply queried again.
+    private final Map<TrackingKey, TrackedContentEntry> knownInProgress =
+            Collections.synchronizedMap( new LinkedHashMap<TrackingKey, TrackedContentEntry>( 16, 0.75f, true )
+            {
+                @Override
+                protected boolean removeEldestEntry( final Map.Entry<TrackingKey, TrackedContentEntry> eldest )
+                {
+                    return size() > KNOWN_IN_PROGRESS_LIMIT;
+                }
+            } );
+
+    // sealed upload/download sets maintained as entries are recorded, when incremental sealing is enabled
+    private final Map<TrackingKey, RunningRecord> runningRecords = new ConcurrentHashMap<>();
+
+    private volatile long lastRunningRecordSweep = System.currentTimeMillis();
+
     @FoloInprogressCache
     @Inject
     private CacheHandle<TrackedContentEntry, TrackedContentEntry> inProgressRecordCache;
@@ -56,6 +117,13 @@ public class FoloRecordCache
     @Inject
     private CacheHandle<TrackingKey, TrackedContent> sealedRecordCache;
 
+    // sealed records again, split into sorted pages of entries, so they can be read a page at a time. Pages are keyed by
+    // the record's version and written on the first paged read, so pages of a record deleted or resealed elsewhere are
+    // never read back
+    @FoloSealedPageCache
+    @Inject
+    private CacheHandle<String, List<TrackedContentEntry>> sealedPageCache;
+
     protected FoloRecordCache()
     {
     }
@@ -66,6 +134,9 @@ public class FoloRecordCache
     @Inject
     private FoloExpirationWarningListener expirationWarningListener;
 
+    @Inject
+    private FoloConfig config;
+
     @PostConstruct
     private void init()
     {
@@ -76,15 +147,27 @@ public class FoloRecordCache
 
         inProgressRecordCache.executeCache( (cache) ->{
             cache.addListener( expirationWarningListener );
+            cache.addListener( new RunningRecordListener() );
             return null;
         } );
     }
 
     public FoloRecordCache( final Cache<TrackedContentEntry, TrackedContentEntry> inProgressRecordCache,
-                            final Cache<TrackingKey, TrackedContent> sealedRecordCache )
+                            final Cache<TrackingKey, TrackedContent> sealedRecordCache,
+                            final Cache<String, List<TrackedContentEntry>> sealedPageCache )
     {
         this.inProgressRecordCache = new CacheHandle("folo-in-progress", inProgressRecordCache);
         this.sealedRecordCache = new CacheHandle( "folo-sealed", sealedRecordCache );
+        this.sealedPageCache = new CacheHandle( "folo-sealed-pages", sealedPageCache );
+        inProgressRecordCache.addListener( new RunningRecordListener() );
+    }
+
+    public FoloRecordCache( final Cache<TrackedContentEntry, TrackedContentEntry> inProgressRecordCache,
+                            final Cache<TrackingKey, TrackedContent> sealedRecordCache,
+                            final Cache<String, List<TrackedContentEntry>> sealedPageCache, final FoloConfig config )
+    {
+        this( inProgressRecordCache, sealedRecordCache, sealedPageCache );
+        this.config = config;
     }
 
     /**
@@ -94,70 +177,200 @@ public class FoloRecordCache
      * @return True if a new record was stored, otherwise false
      */
     @Measure
-    public synchronized boolean recordArtifact( final TrackedContentEntry entry )
+    public boolean recordArtifact( final TrackedContentEntry entry )
             throws FoloContentException,IndyWorkflowException
     {
-        if ( sealedRecordCache.containsKey( entry.getTrackingKey() ) )
+        final TrackingKey key = entry.getTrackingKey();
+        final ReentrantLock lock = lockFor( key );
+        lock.lock();
+        try
         {
-            throw new FoloContentException( "Tracking record: {} is already sealed!", entry.getTrackingKey() );
-        }
-
-        Logger logger = LoggerFactory.getLogger( getClass() );
-        logger.debug( "Adding tracking entry: {}", entry );
-        return inProgressRecordCache.executeCache( (cache)->{
-            TrackedContentEntry existing = cache.get( entry );
-            if ( existing != null )
-            {
-                existing.merge( entry );
-                cache.put( existing, existing );
-            }
-            else
+            if ( sealedRecordCache.containsKey( key ) )
             {
-                cache.put( entry, entry );
+                throw new FoloContentException( "Tracking record: {} is already sealed!", key );
             }
 
+            Logger logger = LoggerFactory.getLogger( getClass() );
+            logger.debug( "Adding tracking entry: {}", entry );
+            final RunningRecord running = runningRecordFor( key );
+            final TrackedContentEntry recorded = inProgressRecordCache.executeCache( ( cache ) -> {
+                TrackedContentEntry existing = cache.get( entry );
+                if ( existing != null )
+                {
+                    existing.merge( entry );
+                    cache.put( existing, existing );
+                }
+                else
+                {
+                    existing = entry;
+                    cache.put( entry, entry );
+                }
+
+                if ( running != null && running.complete )
+                {
+                    running.add( existing );
+                }
+
+                return existing;
+            } );
+
+            knownInProgress.put( key, recorded );
             return true;
-        } );
+        }
+        finally
+        {
+            lock.unlock();
+        }
     }
 
     @Measure
-    public synchronized void delete( final TrackingKey key )
+    public void delete( final TrackingKey key )
     {
-        sealedRecordCache.remove( key );
-        inProgressByTrackingKey( key, (qb, ch)->{
-            qb.build().list().forEach( item -> ch.execute( cache -> cache.remove( item ) ) );
-            return false;
+        withLock( key, () -> {
+            removePages( sealedRecordCache.remove( key ) );
+            knownInProgress.remove( key );
+            runningRecords.remove( key );
+            return inProgressByTrackingKey( key, ( qb, ch ) -> {
+                qb.build().list().forEach( item -> ch.execute( cache -> cache.remove( item ) ) );
+                return false;
+            } );
         } );
     }
 
-    public synchronized void replaceTrackingRecord( final TrackedContent record )
+    public void replaceTrackingRecord( final TrackedContent record )
     {
-        sealedRecordCache.put( record.getKey(), record );
+        withLock( record.getKey(), () -> {
+            putSealed( record );
+            return null;
+        } );
     }
 
-    public synchronized boolean hasRecord( final TrackingKey key )
+    public boolean hasRecord( final TrackingKey key )
     {
         return hasSealedRecord( key ) || hasInProgressRecord( key );
     }
 
-    public synchronized boolean hasSealedRecord( final TrackingKey key )
+    public boolean hasSealedRecord( final TrackingKey key )
     {
         return sealedRecordCache.containsKey( key );
     }
 
     @Measure
-    public synchronized boolean hasInProgressRecord( final TrackingKey key )
+    public boolean hasInProgressRecord( final TrackingKey key )
     {
-        return !sealedRecordCache.containsKey( key ) && inProgressByTrackingKey( key, (qb, cacheHandle)->qb.build().getResultSize() > 0);
+        if ( sealedRecordCache.containsKey( key ) )
+        {
+            return false;
+        }
+
+        final TrackedContentEntry known = knownInProgress.get( key );
+        if ( known != null )
+        {
+            if ( inProgressRecordCache.containsKey( known ) )
+            {
+                return true;
+            }
+
+            knownInProgress.remove( key, known );
+        }
+
+        // entries recorded before a restart or on another node; one hit is enough, no need to count them all
+        final TrackedContentEntry found = firstInProgressEntry( key );
+        if ( found != null )
+        {
+            knownInProgress.put( key, found );
+            return true;
+        }
+
+        return false;
     }
 
-    public synchronized TrackedContent get( final TrackingKey key )
+    public TrackedContent get( final TrackingKey key )
     {
         return sealedRecordCache.get( key );
     }
 
+    /**
+     * Read the sealed record's uploads or downloads from the given offset, in natural order, fetching only the stored
+     * pages that cover them rather than the whole record.
+     * @return null if there is no sealed record for the key
+     */
+    public List<TrackedContentEntry> getSealedEntries( final TrackingKey key, final StoreEffect effect,
+                                                      final long offset, final int limit )
+    {
+        final TrackedContent record = pagedRecord( key );
+        if ( record == null )
+        {
+            return null;
+        }
+
+        final List<TrackedContentEntry> result = new ArrayList<>( Math.min( limit, PAGE_SIZE ) );
+        long page = offset / PAGE_SIZE;
+        int from = (int) ( offset % PAGE_SIZE );
+        while ( result.size() < limit && page <= Integer.MAX_VALUE )
+        {
+            final List<TrackedContentEntry> entries = sealedPageCache.get( pageKey( record, effect, (int) page++ ) );
+            if ( entries == null || from >= entries.size() )
+            {
+                break;
+            }
+
+            result.addAll( entries.subList( from, Math.min( entries.size(), from + limit - result.size() ) ) );
+            from = 0;
+        }
+
+        return result;
+    }
+
+    /**
+     * Lazily read all of the sealed record's uploads or downloads, in natural order, one stored page at a time.
+     * @return null if there is no sealed record for the key
+     */
+    public Stream<TrackedContentEntry> streamSealedEntries( final TrackingKey key, final StoreEffect effect )
+    {
+        final TrackedContent record = pagedRecord( key );
+        if ( record == null )
+        {
+            return null;
+        }
+
+        final Iterator<List<TrackedContentEntry>> pages = new Iterator<List<TrackedContentEntry>>()
+        {
+            private int page = 0;
+
+            private List<TrackedContentEntry> next = sealedPageCache.get( pageKey( record, effect, page ) );
+
+            @Override
+            public boolean hasNext()
+            {
+                return next != null;
+            }
+
+            @Override
+            public List<TrackedContentEntry> next()
+            {
+                if ( next == null )
+                {
+                    throw new NoSuchElementException();
+                }
+
+                final List<TrackedContentEntry> current = next;
+                next = sealedPageCache.get( pageKey( record, effect, ++page ) );
+                return current;
+            }
+        };
+
+        return StreamSupport.stream( Spliterators.spliteratorUnknownSize( pages, Spliterator.ORDERED ), false )
+                            .flatMap( List::stream );
+    }
+
     @Measure
     public TrackedContent seal( final TrackingKey trackingKey )
+    {
+        return withLock( trackingKey, () -> doSeal( trackingKey ) );
+    }
+
+    private TrackedContent doSeal( final TrackingKey trackingKey )
     {
         TrackedContent record = sealedRecordCache.get( trackingKey );
 
@@ -168,6 +381,22 @@ public class FoloRecordCache
             return record;
         }
 
+        RunningRecord running = runningRecords.remove( trackingKey );
+        if ( running != null && running.complete )
+        {
+            logger.debug( "Sealing record for: {} from {} incrementally maintained entries", trackingKey,
+                          running.size() );
+            TrackedContent created =
+                    putSealed( new TrackedContent( trackingKey, running.uploads, running.downloads ) );
+            knownInProgress.remove( trackingKey );
+
+            running.forEach( ( entry ) -> {
+                logger.trace( "Removing in-progress entry: {}", entry );
+                inProgressRecordCache.remove( entry );
+            } );
+            return created;
+        }
+
         logger.debug( "Listing unsealed tracking record entries for: {}...", trackingKey );
         return inProgressByTrackingKey( trackingKey, (qb, cacheHandle)-> {
             Query query = qb.build();
@@ -194,11 +423,187 @@ public class FoloRecordCache
             }
 
             logger.debug( "Sealing record for: {}", trackingKey );
-            sealedRecordCache.put( trackingKey, created );
+            created = putSealed( created );
+            knownInProgress.remove( trackingKey );
             return created;
         });
     }
 
+    /**
+     * Retrieve (or start) the running record for the given key, if incremental sealing is enabled. A new running record
+     * is only complete if this key has no in-progress entries yet; otherwise some of them were recorded before a restart
+     * or on another node, and sealing has to fall back to the query. Must be called while holding the key's lock.
+     */
+    private RunningRecord runningRecordFor( final TrackingKey key )
+    {
+        if ( config == null || !config.isIncrementalSealing() )
+        {
+            return null;
+        }
+
+        RunningRecord running = runningRecords.get( key );
+        if ( running == null )
+        {
+            sweepRunningRecords();
+            boolean complete = !knownInProgress.containsKey( key ) && firstInProgressEntry( key ) == null;
+            running = new RunningRecord( complete );
+            runningRecords.put( key, running );
+        }
+
+        running.lastUsed = System.currentTimeMillis();
+        return running;
+    }
+
+    /**
+     * Drop running records that haven't been used for a while (abandoned builds, mostly), and the least recently used
+     * ones beyond the configured maximum. Dropping one is always safe: sealing that key falls back to the query, and
+     * so does a new running record for it, as its entries are still in the cache.
+     */
+    private void sweepRunningRecords()
+    {
+        final long now = System.currentTimeMillis();
+        final int max = config.getIncrementalSealingMaxRecords();
+        if ( now - lastRunningRecordSweep < RUNNING_RECORD_SWEEP_MILLIS && runningRecords.size() < max )
+        {
+            return;
+        }
+
+        lastRunningRecordSweep = now;
+        final long idleBefore = now - TimeUnit.MINUTES.toMillis( config.getIncrementalSealingIdleMinutes() );
+        runningRecords.entrySet().removeIf( e -> e.getValue().lastUsed < idleBefore );
+
+        int excess = runningRecords.size() - max + 1;
+        if ( excess > 0 )
+        {
+            runningRecords.entrySet()
+                          .stream()
+                          .sorted( Comparator.comparingLong( e -> e.getValue().lastUsed ) )
+                          .limit( excess )
+                          .collect( Collectors.toList() )
+                          .forEach( e -> runningRecords.remove( e.getKey(), e.getValue() ) );
+        }
+    }
+
+    /**
+     * Store a copy of the sealed record under a new version, dropping the pages of the one it replaces. The given
+     * record is left alone, since it may be the stored one. Must be called while holding the key's lock.
+     * @return the stored record
+     */
+    private TrackedContent putSealed( final TrackedContent record )
+    {
+        if ( record == null )
+        {
+            return null;
+        }
+
+        // version 0 is left to records sealed before records were versioned
+        long version;
+        do
+        {
+            version = ThreadLocalRandom.current().nextLong();
+        }
+        while ( version == 0 );
+
+        final TrackedContent sealed = new TrackedContent( record.getKey(), record.getUploads(), record.getDownloads() );
+        sealed.setVersion( version );
+        removePages( sealedRecordCache.put( sealed.getKey(), sealed ) );
+        return sealed;
+    }
+
+    /**
+     * @return the sealed record for the key, or null if there is none; its pages are written here if this is the first
+     * paged read of this version of it
+     */
+    private TrackedContent pagedRecord( final TrackingKey key )
+    {
+        final TrackedContent record = sealedRecordCache.get( key );
+        if ( record == null || sealedPageCache.containsKey( pageKey( record, StoreEffect.DOWNLOAD, 0 ) ) )
+        {
+            return record;
+        }
+
+        return withLock( key, () -> {
+            final TrackedContent current = sealedRecordCache.get( key );
+            if ( current != null && !sealedPageCache.containsKey( pageKey( current, StoreEffect.DOWNLOAD, 0 ) ) )
+            {
+                logger.debug( "Storing pages of tracking record: {} version {}", key, current.getVersion() );
+                writePages( current, StoreEffect.UPLOAD, current.getUploads() );
+                // the first download page is written last; its presence marks this version as paged
+                writePages( current, StoreEffect.DOWNLOAD, current.getDownloads() );
+            }
+
+            return current;
+        } );
+    }
+
+    private void writePages( final TrackedContent record, final StoreEffect effect,
+                             final Set<TrackedContentEntry> entries )
+    {
+        final List<TrackedContentEntry> sorted = entries == null ? new ArrayList<>() : new ArrayList<>( entries );
+        if ( !( entries instanceof SortedSet ) )
+        {
+            Collections.sort( sorted );
+        }
+
+        // an empty record still gets its (empty) first page
+        final int pages = Math.max( 1, ( sorted.size() + PAGE_SIZE - 1 ) / PAGE_SIZE );
+        for ( int page = pages - 1; page >= 0; page-- )
+        {
+            sealedPageCache.put( pageKey( record, effect, page ), new ArrayList<>(
+                    sorted.subList( page * PAGE_SIZE, Math.min( sorted.size(), ( page + 1 ) * PAGE_SIZE ) ) ) );
+        }
+    }
+
+    private void removePages( final TrackedContent record )
+    {
+        if ( record == null )
+        {
+            return;
+        }
+
+        // download pages first, so this version no longer counts as paged while its upload pages go
+        for ( final StoreEffect effect : new StoreEffect[] { StoreEffect.DOWNLOAD, StoreEffect.UPLOAD } )
+        {
+            for ( int page = 0; sealedPageCache.remove( pageKey( record, effect, page ) ) != null; page++ )
+            {
+                logger.trace( "Removed page {} of {} {} version {}", page, record.getKey(), effect,
+                              record.getVersion() );
+            }
+        }
+    }
+
+    private static String pageKey( final TrackedContent record, final StoreEffect effect, final int page )
+    {
+        return record.getKey().getId() + "/" + record.getVersion() + "/" + effect.name() + "/" + page;
+    }
+
+    private TrackedContentEntry firstInProgressEntry( final TrackingKey key )
+    {
+        return inProgressByTrackingKey( key, ( qb, cacheHandle ) -> {
+            List<TrackedContentEntry> found = qb.maxResults( 1 ).build().list();
+            return found.isEmpty() ? null : found.get( 0 );
+        } );
+    }
+
+    private ReentrantLock lockFor( final TrackingKey key )
+    {
+        return locks[( key.hashCode() & Integer.MAX_VALUE ) % LOCK_STRIPES];
+    }
+
+    private <R> R withLock( final TrackingKey key, final Supplier<R> operation )
+    {
+        final ReentrantLock lock = lockFor( key );
+        lock.lock();
+        try
+        {
+            return operation.get();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
     public Set<TrackingKey> getInProgressTrackingKey()
     {
         return inProgressRecordCache.execute( BasicCache::keySet )
@@ -234,6 +639,87 @@ public class FoloRecordCache
 
     public void addSealedRecord( TrackedContent record )
     {
-        sealedRecordCache.put( record.getKey(), record );
+        withLock( record.getKey(), () -> {
+            putSealed( record );
+            return null;
+        } );
+    }
+
+    /**
+     * Upload / download sets of a tracking record that hasn't been sealed yet. These become the sealed record's sets,
+     * so they are only touched while holding the tracking key's lock.
+     */
+    private static final class RunningRecord
+    {
+        private final Set<TrackedContentEntry> uploads = new TreeSet<>();
+
+        private final Set<TrackedContentEntry> downloads = new TreeSet<>();
+
+        private final boolean complete;
+
+        private volatile long lastUsed;
+
+        private RunningRecord( final boolean complete )
+        {
+            this.complete = complete;
+        }
+
+        private void add( final TrackedContentEntry entry )
+        {
+            Set<TrackedContentEntry> target;
+            if ( StoreEffect.UPLOAD == entry.getEffect() )
+            {
+                target = uploads;
+            }
+            else if ( StoreEffect.DOWNLOAD == entry.getEffect() )
+            {
+                target = downloads;
+            }
+            else
+            {
+                return;
+            }
+
+            // merged entries are equal to the original, so replace it to keep the latest checksums and timestamps
+            target.remove( entry );
+            target.add( entry );
+        }
+
+        private int size()
+        {
+            return uploads.size() + downloads.size();
+        }
+
+        private void forEach( final Consumer<TrackedContentEntry> action )
+        {
+            uploads.forEach( action );
+            downloads.forEach( action );
+        }
+    }
+
+    /**
+     * In-progress entries that expire or are removed behind the running record's back (not by sealing or deleting the
+     * record, which drop it themselves) would leave it out of date, so it's dropped in favour of the query.
+     */
+    @Listener
+    public final class RunningRecordListener
+    {
+        @CacheEntryExpired
+        public void onExpired( final CacheEntryExpiredEvent<TrackedContentEntry, TrackedContentEntry> event )
+        {
+            if ( !event.isPre() )
+            {
+                runningRecords.remove( event.getKey().getTrackingKey() );
+            }
+        }
+
+        @CacheEntryRemoved
+        public void onRemoved( final CacheEntryRemovedEvent<TrackedContentEntry, TrackedContentEntry> event )
+        {
+            if ( !event.isPre() )
+            {
+                runningRecords.remove( event.getKey().getTrackingKey() );
+            }
+        }
     }
 }
@@ -15,6 +15,7 @@
  */
 package org.commonjava.indy.folo.data;
 
+import org.commonjava.indy.folo.conf.FoloConfig;
 import org.commonjava.indy.folo.model.StoreEffect;
 import org.commonjava.indy.folo.model.TrackedContent;
 import org.commonjava.indy.folo.model.TrackedContentEntry;
@@ -31,7 +32,10 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
+import java.util.TreeSet;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.notNullValue;
@@ -49,6 +53,8 @@ public class FoloRecordCacheTest
 
     private static Cache<TrackedContentEntry, TrackedContentEntry> inProgress;
 
+    private static Cache<String, List<TrackedContentEntry>> pages;
+
     //    @Rule
     //    public TemporaryFolder temp = new TemporaryFolder();
 
@@ -60,13 +66,14 @@ public class FoloRecordCacheTest
 
         sealed = cacheManager.getCache( "sealed", true );
         inProgress = cacheManager.getCache( "in-progress", true );
+        pages = cacheManager.getCache( "sealed-pages", true );
     }
 
     @Before
     public void setup()
             throws Exception
     {
-        cache = new FoloRecordCache( inProgress, sealed );
+        cache = new FoloRecordCache( inProgress, sealed, pages );
     }
 
     @After
@@ -74,6 +81,7 @@ public class FoloRecordCacheTest
     {
         inProgress.clear();
         sealed.clear();
+        pages.clear();
     }
 
     @Test
@@ -147,6 +155,165 @@ public class FoloRecordCacheTest
         assertThat( cache.get( key ), nullValue() );
     }
 
+    @Test
+    public void incrementalSealUsesRunningRecord()
+            throws Exception
+    {
+        final FoloConfig config = new FoloConfig();
+        config.setIncrementalSealing( true );
+        cache = new FoloRecordCache( inProgress, sealed, pages, config );
+
+        final TrackingKey key = newKey();
+        final StoreKey storeKey = new StoreKey( StoreType.remote, "foo" );
+        cache.recordArtifact( new TrackedContentEntry( key, storeKey, AccessChannel.MAVEN_REPO, "", "/path",
+                                                       StoreEffect.DOWNLOAD, 125L, "", "", "" ) );
+        cache.recordArtifact( new TrackedContentEntry( key, storeKey, AccessChannel.MAVEN_REPO, "", "/path",
+                                                       StoreEffect.DOWNLOAD, 126L, "", "", "" ) );
+        cache.recordArtifact( new TrackedContentEntry( key, new StoreKey( StoreType.hosted, "bar" ),
+                                                       AccessChannel.MAVEN_REPO, "", "/other/path",
+                                                       StoreEffect.UPLOAD, 10L, "", "", "" ) );
+
+        TrackedContent record = cache.seal( key );
+        assertThat( record, notNullValue() );
+        assertThat( record.getDownloads().size(), equalTo( 1 ) );
+        assertThat( record.getDownloads().iterator().next().getSize(), equalTo( 126L ) );
+        assertThat( record.getUploads().size(), equalTo( 1 ) );
+        assertThat( cache.hasInProgressRecord( key ), equalTo( false ) );
+        assertThat( cache.hasSealedRecord( key ), equalTo( true ) );
+        assertThat( inProgress.isEmpty(), equalTo( true ) );
+    }
+
+    @Test
+    public void knownInProgressKeyIsRecheckedAgainstCache()
+            throws Exception
+    {
+        final TrackingKey key = newKey();
+        cache.recordArtifact( new TrackedContentEntry( key, new StoreKey( StoreType.remote, "foo" ),
+                                                       AccessChannel.MAVEN_REPO, "", "/path",
+                                                       StoreEffect.DOWNLOAD, 128L, "", "", "" ) );
+        assertThat( cache.hasInProgressRecord( key ), equalTo( true ) );
+
+        // e.g. sealed or cleared by another node sharing the in-progress cache
+        inProgress.clear();
+
+        assertThat( cache.hasInProgressRecord( key ), equalTo( false ) );
+    }
+
+    @Test
+    public void runningRecordDroppedWhenEntriesRemovedElsewhere()
+            throws Exception
+    {
+        final FoloConfig config = new FoloConfig();
+        config.setIncrementalSealing( true );
+        cache = new FoloRecordCache( inProgress, sealed, pages, config );
+
+        final TrackingKey key = newKey();
+        final StoreKey storeKey = new StoreKey( StoreType.remote, "foo" );
+        final TrackedContentEntry gone =
+                new TrackedContentEntry( key, storeKey, AccessChannel.MAVEN_REPO, "", "/gone", StoreEffect.DOWNLOAD,
+                                         1L, "", "", "" );
+        cache.recordArtifact( gone );
+        inProgress.remove( gone );
+        cache.recordArtifact( new TrackedContentEntry( key, storeKey, AccessChannel.MAVEN_REPO, "", "/kept",
+                                                       StoreEffect.DOWNLOAD, 2L, "", "", "" ) );
+
+        TrackedContent record = cache.seal( key );
+        assertThat( record.getDownloads().size(), equalTo( 1 ) );
+        assertThat( record.getDownloads().iterator().next().getPath(), equalTo( "/kept" ) );
+    }
+
+    @Test
+    public void sealedEntriesReadAcrossPages()
+            throws Exception
+    {
+        final TrackingKey key = newKey();
+        final Set<TrackedContentEntry> downloads = new TreeSet<>();
+        for ( int i = 0; i < 1234; i++ )
+        {
+            downloads.add( new TrackedContentEntry( key, new StoreKey( StoreType.remote, "foo" ),
+                                                    AccessChannel.MAVEN_REPO, "", String.format( "/path/%04d", i ),
+                                                    StoreEffect.DOWNLOAD, 1L, "", "", "" ) );
+        }
+        cache.addSealedRecord( new TrackedContent( key, new TreeSet<>(), downloads ) );
+
+        List<TrackedContentEntry> page = cache.getSealedEntries( key, StoreEffect.DOWNLOAD, 490, 20 );
+        assertThat( page.size(), equalTo( 20 ) );
+        assertThat( page.get( 0 ).getPath(), equalTo( "/path/0490" ) );
+        assertThat( page.get( 19 ).getPath(), equalTo( "/path/0509" ) );
+
+        assertThat( cache.getSealedEntries( key, StoreEffect.DOWNLOAD, 1230, 10 ).size(), equalTo( 4 ) );
+        assertThat( cache.getSealedEntries( key, StoreEffect.DOWNLOAD, 5000, 10 ).size(), equalTo( 0 ) );
+        assertThat( cache.getSealedEntries( key, StoreEffect.UPLOAD, 0, 10 ).size(), equalTo( 0 ) );
+        assertThat( cache.streamSealedEntries( key, StoreEffect.DOWNLOAD ).count(), equalTo( 1234L ) );
+    }
+
+    @Test
+    public void sealedEntriesPagedOnDemandAndDroppedOnDelete()
+            throws Exception
+    {
+        final TrackingKey key = newKey();
+        final TrackedContentEntry upload =
+                new TrackedContentEntry( key, new StoreKey( StoreType.hosted, "bar" ), AccessChannel.MAVEN_REPO, "",
+                                         "/path", StoreEffect.UPLOAD, 1L, "", "", "" );
+        // stored before records were paged
+        sealed.put( key, new TrackedContent( key, Collections.singleton( upload ), Collections.emptySet() ) );
+
+        assertThat( cache.getSealedEntries( key, StoreEffect.UPLOAD, 0, 10 ).size(), equalTo( 1 ) );
+        assertThat( pages.isEmpty(), equalTo( false ) );
+
+        cache.delete( key );
+        assertThat( pages.isEmpty(), equalTo( true ) );
+        assertThat( cache.getSealedEntries( key, StoreEffect.UPLOAD, 0, 10 ), nullValue() );
+        assertThat( cache.streamSealedEntries( key, StoreEffect.UPLOAD ), nullValue() );
+    }
+
+    @Test
+    public void pagesOfRecordResealedOnAnotherInstanceAreNotRead()
+            throws Exception
+    {
+        // another node: same sealed records, its own pages
+        final Cache<String, List<TrackedContentEntry>> otherPages = cacheManager.getCache( "other-sealed-pages", true );
+        final FoloRecordCache other = new FoloRecordCache( inProgress, sealed, otherPages );
+        try
+        {
+            final TrackingKey key = newKey();
+            cache.addSealedRecord( new TrackedContent( key, new TreeSet<>(), downloads( key, "/first" ) ) );
+            assertThat( cache.getSealedEntries( key, StoreEffect.DOWNLOAD, 0, 10 ).get( 0 ).getPath(),
+                        equalTo( "/first" ) );
+
+            other.replaceTrackingRecord( new TrackedContent( key, new TreeSet<>(), downloads( key, "/second" ) ) );
+            assertThat( cache.getSealedEntries( key, StoreEffect.DOWNLOAD, 0, 10 ).get( 0 ).getPath(),
+                        equalTo( "/second" ) );
+            assertThat( cache.streamSealedEntries( key, StoreEffect.DOWNLOAD ).findFirst().get().getPath(),
+                        equalTo( "/second" ) );
+
+            other.delete( key );
+            assertThat( cache.getSealedEntries( key, StoreEffect.DOWNLOAD, 0, 10 ), nullValue() );
+
+            other.addSealedRecord( new TrackedContent( key, new TreeSet<>(), downloads( key, "/third" ) ) );
+            assertThat( cache.getSealedEntries( key, StoreEffect.DOWNLOAD, 0, 10 ).get( 0 ).getPath(),
+                        equalTo( "/third" ) );
+        }
+        finally
+        {
+            otherPages.clear();
+        }
+    }
+
+    @Test
+    public void replacingRecordDropsPagesOfPreviousVersion()
+            throws Exception
+    {
+        final TrackingKey key = newKey();
+        cache.addSealedRecord( new TrackedContent( key, new TreeSet<>(), downloads( key, "/first" ) ) );
+        cache.getSealedEntries( key, StoreEffect.DOWNLOAD, 0, 10 );
+        assertThat( pages.isEmpty(), equalTo( false ) );
+
+        cache.replaceTrackingRecord( cache.get( key ) );
+        assertThat( pages.isEmpty(), equalTo( true ) );
+        assertThat( cache.getSealedEntries( key, StoreEffect.DOWNLOAD, 0, 10 ).size(), equalTo( 1 ) );
+    }
+
     @Test
     public void getRecordReturnsNullIfNoneExists()
             throws Exception
@@ -163,6 +330,14 @@ public class FoloRecordCacheTest
         assertThat( cache.hasRecord( key ), equalTo( false ) );
     }
 
+    private Set<TrackedContentEntry> downloads( final TrackingKey key, final String path )
+    {
+        final Set<TrackedContentEntry> downloads = new TreeSet<>();
+        downloads.add( new TrackedContentEntry( key, new StoreKey( StoreType.remote, "foo" ), AccessChannel.MAVEN_REPO,
+                                                "", path, StoreEffect.DOWNLOAD, 1L, "", "", "" ) );
+        return downloads;
+    }
+
     private TrackingKey newKey()
     {
         final String id = "track";
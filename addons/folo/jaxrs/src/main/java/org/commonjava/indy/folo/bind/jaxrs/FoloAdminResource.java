@@ -15,6 +15,7 @@
  */
 package org.commonjava.indy.folo.bind.jaxrs;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiImplicitParam;
 import io.swagger.annotations.ApiOperation;
@@ -33,6 +34,8 @@ import org.commonjava.indy.folo.data.FoloContentException;
 import org.commonjava.indy.folo.dto.TrackedContentDTO;
 import org.commonjava.indy.folo.dto.TrackedContentEntryDTO;
 import org.commonjava.indy.folo.dto.TrackingIdsDTO;
+import org.commonjava.indy.folo.model.StoreEffect;
+import org.commonjava.indy.folo.model.TrackingKey;
 import org.commonjava.indy.model.core.BatchDeleteRequest;
 import org.commonjava.indy.model.core.io.IndyObjectMapper;
 import org.commonjava.maven.galley.event.EventMetadata;
@@ -43,21 +46,26 @@ import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
 import java.io.File;
 import java.io.IOException;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.commonjava.indy.folo.ctl.FoloConstants.ALL;
 import static org.commonjava.indy.folo.ctl.FoloConstants.TRACKING_TYPE.IN_PROGRESS;
@@ -73,6 +81,8 @@ public class FoloAdminResource
         implements IndyResources
 {
 
+    private static final String DEFAULT_PAGE_SIZE = "1000";
+
     private final Logger logger = LoggerFactory.getLogger( getClass() );
 
     @Inject
@@ -254,6 +264,94 @@ public class FoloAdminResource
         return response;
     }
 
+    @ApiOperation( "Retrieve one page of the uploads or downloads in the sealed tracking record for the specified key" )
+    @ApiResponses( { @ApiResponse( code = 404, message = "No such sealed tracking record exists." ),
+                           @ApiResponse( code = 200, message = "Tracking record entries",
+                                         response = TrackedContentEntryDTO.class, responseContainer = "List" ), } )
+    @Path( "/{id}/record/{effect: uploads|downloads}" )
+    @GET
+    @Produces( application_json )
+    public Response getRecordEntries(
+            @ApiParam( "User-assigned tracking session key" ) final @PathParam( "id" ) String id,
+            @ApiParam( "Which entries to list, should be uploads|downloads" ) final @PathParam( "effect" ) String effect,
+            @ApiParam( "Zero-based page number" ) final @QueryParam( "page" ) @DefaultValue( "0" ) int page,
+            @ApiParam( "Entries per page" ) final @QueryParam( "size" ) @DefaultValue( DEFAULT_PAGE_SIZE ) int size,
+            @Context final UriInfo uriInfo )
+    {
+        if ( page < 0 || size < 1 )
+        {
+            return Response.status( Status.BAD_REQUEST ).build();
+        }
+
+        final String baseUrl = uriInfo.getBaseUriBuilder().path( "api" ).build().toString();
+        final List<TrackedContentEntryDTO> entries =
+                controller.getRecordEntries( id, toStoreEffect( effect ), page, size, baseUrl );
+        if ( entries == null )
+        {
+            return Response.status( Status.NOT_FOUND ).build();
+        }
+
+        return responseHelper.formatOkResponseWithJsonEntity( entries );
+    }
+
+    @ApiOperation( "Stream the sealed tracking record for the specified key, in the same format as /{id}/record, "
+                           + "without rendering the whole record in memory first" )
+    @ApiResponses( { @ApiResponse( code = 404, message = "No such sealed tracking record exists." ),
+                           @ApiResponse( code = 200, message = "Tracking record",
+                                         response = TrackedContentDTO.class ), } )
+    @Path( "/{id}/record/stream" )
+    @GET
+    @Produces( application_json )
+    public Response streamRecord(
+            @ApiParam( "User-assigned tracking session key" ) final @PathParam( "id" ) String id,
+            @Context final UriInfo uriInfo )
+    {
+        final String baseUrl = uriInfo.getBaseUriBuilder().path( "api" ).build().toString();
+        final Stream<TrackedContentEntryDTO> uploads =
+                controller.streamRecordEntries( id, StoreEffect.UPLOAD, baseUrl );
+        final Stream<TrackedContentEntryDTO> downloads =
+                controller.streamRecordEntries( id, StoreEffect.DOWNLOAD, baseUrl );
+        if ( uploads == null || downloads == null )
+        {
+            return Response.status( Status.NOT_FOUND ).build();
+        }
+
+        final StreamingOutput out = ( output ) -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator( output ))
+            {
+                generator.writeStartObject();
+                generator.writeObjectField( "key", new TrackingKey( id ) );
+                writeEntries( generator, "uploads", uploads );
+                writeEntries( generator, "downloads", downloads );
+                generator.writeEndObject();
+            }
+        };
+
+        return Response.ok( out ).type( application_json ).build();
+    }
+
+    private void writeEntries( final JsonGenerator generator, final String field,
+                               final Stream<TrackedContentEntryDTO> entries )
+            throws IOException
+    {
+        generator.writeArrayFieldStart( field );
+        if ( entries != null )
+        {
+            Iterator<TrackedContentEntryDTO> it = entries.iterator();
+            while ( it.hasNext() )
+            {
+                generator.writeObject( it.next() );
+            }
+        }
+        generator.writeEndArray();
+        generator.flush();
+    }
+
+    private StoreEffect toStoreEffect( final String effect )
+    {
+        return "uploads".equals( effect ) ? StoreEffect.UPLOAD : StoreEffect.DOWNLOAD;
+    }
+
     @Path( "/{id}/record" )
     @DELETE
     public Response clearRecord( @ApiParam( "User-assigned tracking session key" ) final @PathParam( "id" ) String id )
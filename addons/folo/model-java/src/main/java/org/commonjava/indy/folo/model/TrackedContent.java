@@ -15,6 +15,7 @@
  */
 package org.commonjava.indy.folo.model;
 
+import java.io.EOFException;
 import java.io.Externalizable;
 import java.io.IOException;
 import java.io.ObjectInput;
@@ -32,6 +33,9 @@ public class TrackedContent
 
     private Set<TrackedContentEntry> downloads;
 
+    // changes each time the record is (re)sealed, so anything derived from an earlier version can tell it is stale
+    private long version;
+
     public TrackedContent(){}
 
     public TrackedContent( final TrackingKey key, final Set<TrackedContentEntry> uploads,
@@ -57,6 +61,16 @@ public class TrackedContent
         return downloads;
     }
 
+    public long getVersion()
+    {
+        return version;
+    }
+
+    public void setVersion( final long version )
+    {
+        this.version = version;
+    }
+
     @Override
     public boolean equals( Object o )
     {
@@ -88,6 +102,7 @@ public class TrackedContent
         objectOutput.writeObject( key );
         objectOutput.writeObject( uploads );
         objectOutput.writeObject( downloads );
+        objectOutput.writeLong( version );
     }
 
     @Override
@@ -100,5 +115,15 @@ public class TrackedContent
 
         Set<TrackedContentEntry> downs = (Set<TrackedContentEntry>) objectInput.readObject();
         downloads = downs == null ? new HashSet<>() : new HashSet<>( downs );
+
+        try
+        {
+            version = objectInput.readLong();
+        }
+        catch ( EOFException e )
+        {
+            // written before records were versioned
+            version = 0;
+        }
     }
 }
@@ -44,6 +44,12 @@ public class HttproxConfig
 
     private static final int DEFAULT_MITM_SO_TIMEOUT_MINUTES = 30;
 
+    private static final int DEFAULT_MITM_CERT_CACHE_SIZE = 1000;
+
+    private static final int DEFAULT_MITM_CERT_CACHE_TTL_MINUTES = 720;
+
+    private static final boolean DEFAULT_MITM_TUNNEL_RELAY_ENABLED = false;
+
     private String proxyRealm;
 
     private Boolean enabled;
@@ -68,6 +74,12 @@ public class HttproxConfig
 
     private Integer MITMSoTimeoutMinutes;
 
+    private Integer MITMCertCacheSize;
+
+    private Integer MITMCertCacheTtlMinutes;
+
+    private Boolean MITMTunnelRelayEnabled;
+
     public TrackingType getTrackingType()
     {
         return TrackingType.valueOf( trackingType == null ? DEFAULT_TRACKING_TYPE : trackingType.toUpperCase() );
@@ -218,4 +230,37 @@ public class HttproxConfig
     {
         this.MITMSoTimeoutMinutes = MITMSoTimeoutMinutes;
     }
+
+    public Integer getMITMCertCacheSize()
+    {
+        return MITMCertCacheSize == null ? DEFAULT_MITM_CERT_CACHE_SIZE : MITMCertCacheSize;
+    }
+
+    @ConfigName( "MITM.cert.cache.size" )
+    public void setMITMCertCacheSize( Integer MITMCertCacheSize )
+    {
+        this.MITMCertCacheSize = MITMCertCacheSize;
+    }
+
+    public Integer getMITMCertCacheTtlMinutes()
+    {
+        return MITMCertCacheTtlMinutes == null ? DEFAULT_MITM_CERT_CACHE_TTL_MINUTES : MITMCertCacheTtlMinutes;
+    }
+
+    @ConfigName( "MITM.cert.cache.ttl.minutes" )
+    public void setMITMCertCacheTtlMinutes( Integer MITMCertCacheTtlMinutes )
+    {
+        this.MITMCertCacheTtlMinutes = MITMCertCacheTtlMinutes;
+    }
+
+    public boolean isMITMTunnelRelayEnabled()
+    {
+        return MITMTunnelRelayEnabled == null ? DEFAULT_MITM_TUNNEL_RELAY_ENABLED : MITMTunnelRelayEnabled;
+    }
+
+    @ConfigName( "MITM.tunnel.relay.enabled" )
+    public void setMITMTunnelRelayEnabled( Boolean MITMTunnelRelayEnabled )
+    {
+        this.MITMTunnelRelayEnabled = MITMTunnelRelayEnabled;
+    }
 }
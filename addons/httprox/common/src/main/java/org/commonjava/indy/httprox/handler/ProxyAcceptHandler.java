@@ -29,6 +29,7 @@ import org.commonjava.indy.subsys.template.IndyGroovyException;
 import org.commonjava.indy.subsys.template.ScriptEngine;
 import org.commonjava.maven.galley.spi.cache.CacheProvider;
 import org.commonjava.o11yphant.metrics.MetricsManager;
+import org.commonjava.o11yphant.metrics.DefaultMetricsManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xnio.ChannelListener;
@@ -93,6 +94,12 @@ public class ProxyAcceptHandler
     @Inject
     private ProxyTransfersExecutor proxyExecutor;
 
+    @Inject
+    private ProxyMITMSSLListener mitmListener;
+
+    @Inject
+    private ProxySSLTunnelRelay tunnelRelay;
+
     protected ProxyAcceptHandler()
     {
     }
@@ -114,6 +121,10 @@ public class ProxyAcceptHandler
         this.metricsManager = metricsManager;
         this.cacheProducer = cacheProducer;
         this.proxyExecutor = executor;
+        this.mitmListener = new ProxyMITMSSLListener( config, metricsManager instanceof DefaultMetricsManager ?
+                (DefaultMetricsManager) metricsManager :
+                null, metricsConfig );
+        this.tunnelRelay = new ProxySSLTunnelRelay( config );
     }
 
     public ProxyRepositoryCreator createRepoCreator()
@@ -176,7 +187,8 @@ public class ProxyAcceptHandler
                         new ProxyResponseWriter( config, storeManager, contentController, proxyAuthenticator,
                                                  cacheProvider, mdcManager, creator, accepted,
                                                  metricsConfig, metricsManager, sliMetricSet, cacheProducer, start,
-                                                 proxyExecutor.getExecutor() );
+                                                 proxyExecutor.getExecutor(), mitmListener,
+                                                 tunnelRelay );
 
         logger.debug( "Setting writer: {}", writer );
         sink.getWriteSetter().set( writer );
@@ -0,0 +1,418 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.httprox.handler;
+
+import org.commonjava.cdi.util.weft.ExecutorConfig;
+import org.commonjava.cdi.util.weft.NamedThreadFactory;
+import org.commonjava.cdi.util.weft.PoolWeftExecutorService;
+import org.commonjava.cdi.util.weft.WeftExecutorService;
+import org.commonjava.cdi.util.weft.WeftManaged;
+import org.commonjava.indy.httprox.conf.HttproxConfig;
+import org.commonjava.indy.httprox.util.MITMCertificateCache;
+import org.commonjava.indy.subsys.metrics.conf.IndyMetricsConfig;
+import org.commonjava.o11yphant.metrics.DefaultMetricsManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.net.ssl.ExtendedSSLSession;
+import javax.net.ssl.SNIHostName;
+import javax.net.ssl.SNIServerName;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.X509ExtendedKeyManager;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.channels.SocketChannel;
+import java.security.Principal;
+import java.security.PrivateKey;
+import java.security.cert.X509Certificate;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.commonjava.indy.httprox.util.CertUtils.KEY_TYPE_RSA;
+import static org.commonjava.propulsor.boot.PortFinder.findOpenPort;
+
+/**
+ * Single, long-lived SSL listener (on the loopback interface) shared by all MITM connections. Each CONNECT opens a
+ * socket to it through {@link #connect(String)}; the accepted SSL socket is handed back to that connection, matched by
+ * the client socket's local port. The server certificate is picked per connection from the SNI host name sent by the
+ * client (falling back to the CONNECT host), out of a bounded {@link MITMCertificateCache}. Accepting and sweeping
+ * unclaimed sockets each take one thread of a managed executor.
+ */
+@ApplicationScoped
+public class ProxyMITMSSLListener
+{
+    private static final int FIND_OPEN_PORT_MAX_RETRIES = 16;
+
+    private static final String EXECUTOR_NAME = "httprox-mitm-listener";
+
+    private static final long SWEEP_INTERVAL_SECONDS = 30;
+
+    private static final long UNCLAIMED_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis( 1 );
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    @Inject
+    private HttproxConfig config;
+
+    @Inject
+    private DefaultMetricsManager metricsManager;
+
+    @Inject
+    private IndyMetricsConfig metricsConfig;
+
+    @Inject
+    @WeftManaged
+    @ExecutorConfig( named = EXECUTOR_NAME, threads = 2, priority = 5, daemon = true )
+    private WeftExecutorService listenerExecutor;
+
+    private MITMCertificateCache certificates;
+
+    private SSLServerSocket serverSocket;
+
+    private CountDownLatch stopLatch;
+
+    private final Map<Integer, Connection> connections = new ConcurrentHashMap<>();
+
+    protected ProxyMITMSSLListener()
+    {
+    }
+
+    public ProxyMITMSSLListener( final HttproxConfig config, final DefaultMetricsManager metricsManager,
+                                 final IndyMetricsConfig metricsConfig )
+    {
+        this.config = config;
+        this.metricsManager = metricsManager;
+        this.metricsConfig = metricsConfig;
+    }
+
+    /**
+     * Open a socket to the listener for a CONNECT to the given host. The returned connection yields the accepted
+     * (server side) SSL socket once the listener has picked it up.
+     */
+    public Connection connect( final String host )
+            throws IOException
+    {
+        final int port = start();
+
+        final SocketChannel channel = SocketChannel.open( new InetSocketAddress( InetAddress.getLoopbackAddress(), port ) );
+        final int localPort = ( (InetSocketAddress) channel.getLocalAddress() ).getPort();
+
+        final Connection connection = connections.computeIfAbsent( localPort, Connection::new );
+        connection.host = host;
+        connection.channel = channel;
+        return connection;
+    }
+
+    public MITMCertificateCache getCertificates()
+    {
+        return certificates;
+    }
+
+    @PreDestroy
+    public synchronized void stop()
+    {
+        if ( serverSocket != null )
+        {
+            try
+            {
+                serverSocket.close();
+            }
+            catch ( IOException e )
+            {
+                logger.warn( "Failed to close MITM listener", e );
+            }
+            serverSocket = null;
+            stopLatch.countDown();
+        }
+    }
+
+    private synchronized int start()
+            throws IOException
+    {
+        if ( serverSocket != null )
+        {
+            return serverSocket.getLocalPort();
+        }
+
+        certificates = new MITMCertificateCache( config, metricsManager, metricsConfig );
+
+        final SSLContext sc;
+        try
+        {
+            sc = SSLContext.getInstance( "TLS" );
+            sc.init( new X509ExtendedKeyManager[] { new HostKeyManager() }, null, null );
+        }
+        catch ( Exception e )
+        {
+            throw new IOException( "Failed to initialize MITM SSL context", e );
+        }
+
+        final int port = findOpenPort( FIND_OPEN_PORT_MAX_RETRIES );
+        final SSLServerSocket socket = (SSLServerSocket) sc.getServerSocketFactory()
+                                                           .createServerSocket( port, 0,
+                                                                                InetAddress.getLoopbackAddress() );
+        serverSocket = socket;
+
+        if ( listenerExecutor == null )
+        {
+            listenerExecutor = new PoolWeftExecutorService( EXECUTOR_NAME, (ThreadPoolExecutor) Executors.newFixedThreadPool(
+                    2, new NamedThreadFactory( EXECUTOR_NAME, new ThreadGroup( EXECUTOR_NAME ), true, 5 ) ) );
+        }
+
+        final CountDownLatch latch = new CountDownLatch( 1 );
+        stopLatch = latch;
+        listenerExecutor.execute( () -> acceptLoop( socket ) );
+        listenerExecutor.execute( () -> sweepLoop( latch ) );
+
+        logger.info( "MITM listener started on port: {}", port );
+        return port;
+    }
+
+    private void acceptLoop( final SSLServerSocket socket )
+    {
+        while ( !socket.isClosed() )
+        {
+            try
+            {
+                final Socket accepted = socket.accept();
+                final Connection connection = connections.computeIfAbsent( accepted.getPort(), Connection::new );
+                connection.accepted.complete( accepted );
+                logger.debug( "MITM listener accepted: {}", accepted );
+            }
+            catch ( SocketException e )
+            {
+                logger.debug( "MITM listener closed: {}", e.getMessage() );
+            }
+            catch ( IOException e )
+            {
+                logger.warn( "MITM listener failed to accept connection", e );
+            }
+        }
+    }
+
+    private void sweepLoop( final CountDownLatch latch )
+    {
+        try
+        {
+            while ( !latch.await( SWEEP_INTERVAL_SECONDS, TimeUnit.SECONDS ) )
+            {
+                sweep();
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Drop sockets nobody claimed (a connection to the listener that wasn't made through {@link #connect(String)}).
+     */
+    private void sweep()
+    {
+        final long now = System.currentTimeMillis();
+        connections.values().removeIf( connection -> {
+            if ( connection.host == null && now - connection.created > UNCLAIMED_TIMEOUT_MILLIS )
+            {
+                connection.close();
+                return true;
+            }
+            return false;
+        } );
+    }
+
+    /**
+     * One CONNECT through the listener, keyed by the port of the client side of the socket.
+     */
+    public final class Connection
+    {
+        private final int port;
+
+        private final long created = System.currentTimeMillis();
+
+        private final CompletableFuture<Socket> accepted = new CompletableFuture<>();
+
+        private volatile String host;
+
+        private volatile SocketChannel channel;
+
+        private Connection( final int port )
+        {
+            this.port = port;
+        }
+
+        public SocketChannel getChannel()
+        {
+            return channel;
+        }
+
+        public String getHost()
+        {
+            return host;
+        }
+
+        public Socket awaitAccepted( final long timeout, final TimeUnit unit )
+                throws Exception
+        {
+            return accepted.get( timeout, unit );
+        }
+
+        public void close()
+        {
+            connections.remove( port, this );
+            if ( !accepted.cancel( false ) )
+            {
+                try
+                {
+                    accepted.get().close();
+                }
+                catch ( Exception e )
+                {
+                    logger.debug( "Failed to close MITM socket: {}", e.getMessage() );
+                }
+            }
+        }
+    }
+
+    /**
+     * Serves the certificate for the SNI host name of the handshake, or the CONNECT host if the client sent none.
+     */
+    private final class HostKeyManager
+            extends X509ExtendedKeyManager
+    {
+        @Override
+        public String chooseServerAlias( final String keyType, final Principal[] issuers, final Socket socket )
+        {
+            if ( !KEY_TYPE_RSA.equals( keyType ) || !( socket instanceof SSLSocket ) )
+            {
+                return null;
+            }
+
+            String host = getSNIHost( ( (SSLSocket) socket ).getHandshakeSession() );
+            if ( host == null )
+            {
+                Connection connection = connections.get( socket.getPort() );
+                host = connection == null ? null : connection.host;
+            }
+
+            return host == null ? null : prepare( host );
+        }
+
+        @Override
+        public String chooseEngineServerAlias( final String keyType, final Principal[] issuers, final SSLEngine engine )
+        {
+            if ( !KEY_TYPE_RSA.equals( keyType ) )
+            {
+                return null;
+            }
+
+            String host = getSNIHost( engine.getHandshakeSession() );
+            return host == null ? null : prepare( host );
+        }
+
+        @Override
+        public X509Certificate[] getCertificateChain( final String alias )
+        {
+            final MITMCertificateCache.HostCertificate cert = certificates.getByAlias( alias );
+            if ( cert == null )
+            {
+                logger.warn( "MITM certificate: {} is no longer cached", alias );
+                return null;
+            }
+
+            return cert.getChain();
+        }
+
+        @Override
+        public PrivateKey getPrivateKey( final String alias )
+        {
+            final MITMCertificateCache.HostCertificate cert = certificates.getByAlias( alias );
+            if ( cert == null )
+            {
+                logger.warn( "MITM certificate: {} is no longer cached", alias );
+                return null;
+            }
+
+            return cert.getPrivateKey();
+        }
+
+        @Override
+        public String[] getServerAliases( final String keyType, final Principal[] issuers )
+        {
+            return null;
+        }
+
+        @Override
+        public String[] getClientAliases( final String keyType, final Principal[] issuers )
+        {
+            return null;
+        }
+
+        @Override
+        public String chooseClientAlias( final String[] keyType, final Principal[] issuers, final Socket socket )
+        {
+            return null;
+        }
+
+        /**
+         * Make sure a current (not expired) certificate is cached for the host before the handshake asks for it.
+         * @return the certificate's own alias, so the key and chain the handshake asks for next both come from it
+         */
+        private String prepare( final String host )
+        {
+            try
+            {
+                return certificates.get( host ).getAlias();
+            }
+            catch ( Exception e )
+            {
+                logger.error( "Failed to create MITM certificate for: " + host, e );
+                return null;
+            }
+        }
+
+        private String getSNIHost( final SSLSession session )
+        {
+            if ( session instanceof ExtendedSSLSession )
+            {
+                for ( SNIServerName name : ( (ExtendedSSLSession) session ).getRequestedServerNames() )
+                {
+                    if ( name instanceof SNIHostName )
+                    {
+                        return ( (SNIHostName) name ).getAsciiName();
+                    }
+                }
+            }
+
+            return null;
+        }
+    }
+}
@@ -69,6 +69,8 @@ public final class ProxyRequestReader
 
     private ProxySSLTunnel sslTunnel;
 
+    private boolean throttling;
+
     private List<Character> lastFour = new ArrayList<>();
 
     public ProxyRequestReader( final ProxyResponseWriter writer, final ConduitStreamSinkChannel sinkChannel )
@@ -98,7 +100,7 @@ public final class ProxyRequestReader
             if ( sslTunnel != null )
             {
                 logger.debug( "Send to ssl tunnel, {}, bytes:\n\n {}\n", new String( bytes ), Hex.encodeHexString( bytes ) );
-                directTo( sslTunnel );
+                directTo( sslTunnel, sourceChannel );
                 return;
             }
 
@@ -161,8 +163,15 @@ public final class ProxyRequestReader
         this.sslTunnel = sslTunnel;
     }
 
-    private void directTo( ProxySSLTunnel sslTunnel ) throws IOException
+    private void directTo( ProxySSLTunnel sslTunnel, ConduitStreamSourceChannel sourceChannel ) throws IOException
     {
+        if ( !throttling )
+        {
+            // stop reading from the client while too much of its data waits for a slow target
+            sslTunnel.throttleClient( sourceChannel::suspendReads, sourceChannel::resumeReads );
+            throttling = true;
+        }
+
         byte[] bytes = bReq.toByteArray();
         logger.trace( "Write client data to ssl tunnel, size: {}", bytes.length );
         sslTunnel.write( bytes );
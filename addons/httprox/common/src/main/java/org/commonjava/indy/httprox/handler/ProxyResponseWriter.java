@@ -124,6 +124,10 @@ public final class ProxyResponseWriter
 
     private final WeftExecutorService tunnelAndMITMExecutor;
 
+    private final ProxyMITMSSLListener mitmListener;
+
+    private final ProxySSLTunnelRelay tunnelRelay;
+
     private boolean summaryReported;
 
     // run short-living tunnels and MITM servers
@@ -135,7 +139,8 @@ public final class ProxyResponseWriter
                                 final StreamConnection accepted, final IndyMetricsConfig metricsConfig,
                                 final MetricsManager metricManager, final IndyGoldenSignalsMetricSet sliMetricSet,
                                 final CacheProducer cacheProducer,
-                                final long start, final WeftExecutorService executor )
+                                final long start, final WeftExecutorService executor,
+                                final ProxyMITMSSLListener mitmListener, final ProxySSLTunnelRelay tunnelRelay )
     {
         this.config = config;
         this.contentController = contentController;
@@ -153,6 +158,8 @@ public final class ProxyResponseWriter
         this.cls = ClassUtils.getAbbreviatedName( getClass().getName(), 1 ); // e.g., foo.bar.ClassA -> f.b.ClassA
         this.proxyAuthCache = cacheProducer.getCache( HTTP_PROXY_AUTH_CACHE );
         this.tunnelAndMITMExecutor = executor;
+        this.mitmListener = mitmListener;
+        this.tunnelRelay = tunnelRelay;
     }
 
     public void setProxyRequestReader( ProxyRequestReader proxyRequestReader )
@@ -347,7 +354,7 @@ public final class ProxyResponseWriter
                                     ProxyMITMSSLServer svr =
                                             new ProxyMITMSSLServer( host, port, trackingId, proxyUserPass,
                                                                     proxyResponseHelper, contentController,
-                                                                    cacheProvider, config, meter );
+                                                                    cacheProvider, config, meter, mitmListener );
                                     tunnelAndMITMExecutor.submit( svr );
                                     socketChannel = svr.getSocketChannel();
 
@@ -360,7 +367,14 @@ public final class ProxyResponseWriter
                                     }
 
                                     sslTunnel = new ProxySSLTunnel( sinkChannel, socketChannel, config );
-                                    tunnelAndMITMExecutor.submit( sslTunnel );
+                                    if ( tunnelRelay.isEnabled() )
+                                    {
+                                        tunnelRelay.register( sslTunnel );
+                                    }
+                                    else
+                                    {
+                                        tunnelAndMITMExecutor.submit( sslTunnel );
+                                    }
                                     proxyRequestReader.setProxySSLTunnel( sslTunnel ); // client input will be directed to target socket
 
                                     // When all is ready, send the 200 to client. Client send the SSL handshake to reader,
@@ -32,8 +32,12 @@ import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
 import java.util.Iterator;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.commonjava.indy.httprox.util.ChannelUtils.DEFAULT_READ_BUF_SIZE;
 import static org.commonjava.indy.httprox.util.ChannelUtils.flush;
@@ -43,6 +47,9 @@ import static org.commonjava.indy.httprox.util.ChannelUtils.flush;
  */
 public class ProxySSLTunnel implements Runnable
 {
+    // client bytes queued for the relay to write to the target, beyond which client reads are suspended
+    static final long MAX_OUTBOUND_BYTES = 1024 * 1024;
+
     private final Logger logger = LoggerFactory.getLogger( getClass() );
 
     //private volatile Selector selector; // selecting READ events for target channel
@@ -57,6 +64,18 @@ public class ProxySSLTunnel implements Runnable
 
     private final HttproxConfig config;
 
+    private final Queue<ByteBuffer> outbound = new ConcurrentLinkedQueue<>();
+
+    private volatile Runnable outboundReady;
+
+    private final AtomicLong outboundBytes = new AtomicLong();
+
+    private final AtomicBoolean clientReadsSuspended = new AtomicBoolean();
+
+    private volatile Runnable suspendClientReads;
+
+    private volatile Runnable resumeClientReads;
+
     public ProxySSLTunnel( ConduitStreamSinkChannel sinkChannel, SocketChannel socketChannel, HttproxConfig config )
     {
         this.sinkChannel = sinkChannel;
@@ -128,12 +147,145 @@ public class ProxySSLTunnel implements Runnable
 
         logger.debug( "Write to sink channel complete, transferred: {}", total );
 
+        finish();
+    }
+
+    ConduitStreamSinkChannel getSinkChannel()
+    {
+        return sinkChannel;
+    }
+
+    SocketChannel getSocketChannel()
+    {
+        return socketChannel;
+    }
+
+    HttproxConfig getConfig()
+    {
+        return config;
+    }
+
+    boolean isClosed()
+    {
+        return closed || !socketChannel.isOpen();
+    }
+
+    /**
+     * Target is done sending; flush what's left to the client and close the sink.
+     */
+    void finish() throws IOException
+    {
         flush( sinkChannel );
         sinkChannel.shutdownWrites();
         sinkChannel.close();
 
         closed = true;
+    }
+
+    /**
+     * Same as {@link #finish()}, but never waits on the client: if the sink can't be flushed right away, the rest of
+     * the flush and the close happen in the sink's write listener.
+     */
+    void finishNonBlocking() throws IOException
+    {
+        closed = true;
+
+        sinkChannel.shutdownWrites();
+        if ( sinkChannel.flush() )
+        {
+            sinkChannel.close();
+            return;
+        }
+
+        sinkChannel.getWriteSetter().set( channel -> {
+            try
+            {
+                if ( channel.flush() )
+                {
+                    channel.suspendWrites();
+                    channel.close();
+                }
+            }
+            catch ( IOException e )
+            {
+                logger.debug( "Failed to flush tunnel sink channel: {}", e.toString() );
+                try
+                {
+                    channel.close();
+                }
+                catch ( IOException ce )
+                {
+                    logger.debug( "Failed to close tunnel sink channel: {}", ce.toString() );
+                }
+            }
+        } );
+        sinkChannel.resumeWrites();
+    }
+
+    /**
+     * Hands client-to-target writes to the relay: instead of writing the non-blocking target channel on the caller's
+     * thread, {@link #write(byte[])} queues the bytes and runs the callback so the relay can wait for OP_WRITE.
+     */
+    void relayOutbound( final Runnable outboundReady )
+    {
+        this.outboundReady = outboundReady;
+    }
+
+    /**
+     * How to stop and restart reading from the client, so that at most about {@link #MAX_OUTBOUND_BYTES} of its data
+     * is queued for a target that doesn't keep up. Without them the queue is unbounded.
+     */
+    public void throttleClient( final Runnable suspendReads, final Runnable resumeReads )
+    {
+        this.suspendClientReads = suspendReads;
+        this.resumeClientReads = resumeReads;
+    }
+
+    boolean hasOutbound()
+    {
+        return !outbound.isEmpty();
+    }
+
+    boolean isClientReadsSuspended()
+    {
+        return clientReadsSuspended.get();
+    }
+
+    /**
+     * Writes as much of the queued client data as the target channel takes without blocking.
+     *
+     * @return true if nothing is left queued
+     */
+    boolean drainOutbound() throws IOException
+    {
+        ByteBuffer buf;
+        while ( ( buf = outbound.peek() ) != null )
+        {
+            outboundBytes.addAndGet( -socketChannel.write( buf ) );
+            if ( buf.hasRemaining() )
+            {
+                resumeClientReadsIfDrained();
+                return false;
+            }
+            outbound.poll();
+        }
+
+        resumeClientReadsIfDrained();
+        return true;
+    }
 
+    /**
+     * Read from the client again once the target has taken half of the queued limit.
+     */
+    private void resumeClientReadsIfDrained()
+    {
+        final Runnable resume = resumeClientReads;
+        if ( resume != null && outboundBytes.get() <= MAX_OUTBOUND_BYTES / 2
+                && clientReadsSuspended.compareAndSet( true, false ) )
+        {
+            logger.trace( "Resume client reads, queued: {}", outboundBytes.get() );
+            resume.run();
+        }
     }
 
 /*
@@ -224,9 +376,31 @@ public class ProxySSLTunnel implements Runnable
     }
 */
 
+    /**
+     * Send client data to the target. When relayed, the data is queued for the relay, and client reads are suspended
+     * (see {@link #throttleClient(Runnable, Runnable)}) while more than {@link #MAX_OUTBOUND_BYTES} are queued.
+     */
     public void write( byte[] bytes ) throws IOException
     {
-        socketChannel.write( ByteBuffer.wrap( bytes ) );
+        final Runnable ready = outboundReady;
+        if ( ready == null )
+        {
+            // blocking target channel, the write completes in one call
+            socketChannel.write( ByteBuffer.wrap( bytes ) );
+            return;
+        }
+
+        outbound.offer( ByteBuffer.wrap( bytes ) );
+        final Runnable suspend = suspendClientReads;
+        if ( outboundBytes.addAndGet( bytes.length ) > MAX_OUTBOUND_BYTES && suspend != null
+                && clientReadsSuspended.compareAndSet( false, true ) )
+        {
+            logger.trace( "Suspend client reads, queued: {}", outboundBytes.get() );
+            suspend.run();
+            // the relay may have drained the queue before reads were marked suspended
+            resumeClientReadsIfDrained();
+        }
+        ready.run();
     }
 
     public void close()
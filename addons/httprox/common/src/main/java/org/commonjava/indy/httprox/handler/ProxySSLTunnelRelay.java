@@ -0,0 +1,516 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.httprox.handler;
+
+import org.commonjava.cdi.util.weft.ExecutorConfig;
+import org.commonjava.cdi.util.weft.NamedThreadFactory;
+import org.commonjava.cdi.util.weft.PoolWeftExecutorService;
+import org.commonjava.cdi.util.weft.WeftExecutorService;
+import org.commonjava.cdi.util.weft.WeftManaged;
+import org.commonjava.indy.httprox.conf.HttproxConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xnio.conduits.ConduitStreamSinkChannel;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.commonjava.indy.httprox.util.ChannelUtils.DEFAULT_READ_BUF_SIZE;
+
+/**
+ * Relays target-to-client traffic for many {@link ProxySSLTunnel}s over a few selector threads (one per thread of a
+ * managed executor), instead of one blocked thread per tunnel. Reads go into pooled direct buffers that are written
+ * straight to the client's sink channel. If the client can't take all of it, the tunnel stops reading and keeps the rest
+ * of the buffer until the sink's write listener reports the client can take more, so a slow client never stalls the
+ * other tunnels on the same thread. Client-to-target bytes are queued on the tunnel (up to a limit, see
+ * {@link ProxySSLTunnel#write(byte[])}) and written when the target channel is selected for OP_WRITE, and a finished
+ * tunnel's last flush to the client happens in the sink's write listener, so neither the XNIO read thread nor a relay
+ * thread ever waits on a socket.
+ */
+@ApplicationScoped
+public class ProxySSLTunnelRelay
+{
+    private static final String EXECUTOR_NAME = "httprox-tunnel-relay";
+
+    private static final long SELECT_TIMEOUT_MILLIS = 1000;
+
+    private static final int MAX_POOLED_BUFFERS = 256;
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    @Inject
+    private HttproxConfig config;
+
+    @Inject
+    @WeftManaged
+    @ExecutorConfig( named = EXECUTOR_NAME, threads = 2, priority = 6, daemon = true )
+    private WeftExecutorService relayExecutor;
+
+    private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    private volatile Worker[] workers;
+
+    protected ProxySSLTunnelRelay()
+    {
+    }
+
+    public ProxySSLTunnelRelay( final HttproxConfig config )
+    {
+        this( config, null );
+    }
+
+    public ProxySSLTunnelRelay( final HttproxConfig config, final WeftExecutorService relayExecutor )
+    {
+        this.config = config;
+        this.relayExecutor = relayExecutor;
+    }
+
+    public boolean isEnabled()
+    {
+        return config.isMITMTunnelRelayEnabled();
+    }
+
+    public void register( final ProxySSLTunnel tunnel )
+            throws IOException
+    {
+        final Worker[] ws = start();
+        final Worker worker = ws[Math.floorMod( next.getAndIncrement(), ws.length )];
+
+        tunnel.relayOutbound( () -> worker.outboundReady( tunnel ) );
+        tunnel.getSocketChannel().configureBlocking( false );
+        worker.add( tunnel );
+    }
+
+    @PreDestroy
+    public synchronized void stop()
+    {
+        if ( workers != null )
+        {
+            for ( Worker worker : workers )
+            {
+                worker.stop();
+            }
+            workers = null;
+        }
+    }
+
+    private synchronized Worker[] start()
+            throws IOException
+    {
+        if ( workers == null )
+        {
+            if ( relayExecutor == null )
+            {
+                relayExecutor = new PoolWeftExecutorService( EXECUTOR_NAME, (ThreadPoolExecutor) Executors.newFixedThreadPool(
+                        2, new NamedThreadFactory( EXECUTOR_NAME, new ThreadGroup( EXECUTOR_NAME ), true, 6 ) ) );
+            }
+
+            // each worker holds on to its thread for good
+            final Worker[] ws = new Worker[Math.max( 1, relayExecutor.getCorePoolSize() )];
+            for ( int i = 0; i < ws.length; i++ )
+            {
+                ws[i] = new Worker();
+                relayExecutor.execute( ws[i] );
+            }
+
+            logger.info( "Started {} MITM tunnel relay threads", ws.length );
+            workers = ws;
+        }
+
+        return workers;
+    }
+
+    private ByteBuffer acquire()
+    {
+        final ByteBuffer buf = buffers.poll();
+        if ( buf != null )
+        {
+            pooled.decrementAndGet();
+            return buf;
+        }
+
+        return ByteBuffer.allocateDirect( DEFAULT_READ_BUF_SIZE );
+    }
+
+    private void release( final ByteBuffer buf )
+    {
+        if ( buf == null )
+        {
+            return;
+        }
+
+        if ( pooled.incrementAndGet() <= MAX_POOLED_BUFFERS )
+        {
+            buf.clear();
+            buffers.offer( buf );
+        }
+        else
+        {
+            pooled.decrementAndGet();
+        }
+    }
+
+    /**
+     * Relay state of one tunnel, attached to its selection key.
+     */
+    private static final class Relayed
+    {
+        private final ProxySSLTunnel tunnel;
+
+        private final long idleTimeout;
+
+        private ByteBuffer pending;
+
+        private long lastActivity = System.currentTimeMillis();
+
+        private long total;
+
+        private Relayed( final ProxySSLTunnel tunnel )
+        {
+            this.tunnel = tunnel;
+            this.idleTimeout = TimeUnit.MINUTES.toMillis( tunnel.getConfig().getMITMSoTimeoutMinutes() );
+        }
+    }
+
+    private final class Worker
+            implements Runnable
+    {
+        private final Selector selector;
+
+        private final Queue<ProxySSLTunnel> added = new ConcurrentLinkedQueue<>();
+
+        private final Queue<ProxySSLTunnel> writable = new ConcurrentLinkedQueue<>();
+
+        private final Queue<ProxySSLTunnel> sinkWritable = new ConcurrentLinkedQueue<>();
+
+        private volatile boolean running = true;
+
+        private Worker()
+                throws IOException
+        {
+            this.selector = Selector.open();
+        }
+
+        private void add( final ProxySSLTunnel tunnel )
+        {
+            added.offer( tunnel );
+            selector.wakeup();
+        }
+
+        private void outboundReady( final ProxySSLTunnel tunnel )
+        {
+            writable.offer( tunnel );
+            selector.wakeup();
+        }
+
+        private void sinkReady( final ProxySSLTunnel tunnel )
+        {
+            sinkWritable.offer( tunnel );
+            selector.wakeup();
+        }
+
+        private void stop()
+        {
+            running = false;
+            selector.wakeup();
+        }
+
+        @Override
+        public void run()
+        {
+            long lastSweep = System.currentTimeMillis();
+            while ( running )
+            {
+                try
+                {
+                    selector.select( SELECT_TIMEOUT_MILLIS );
+
+                    registerAdded();
+                    registerWritable();
+                    resumeSinkWritable();
+
+                    final Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                    while ( it.hasNext() )
+                    {
+                        final SelectionKey key = it.next();
+                        it.remove();
+                        if ( key.isValid() && key.isWritable() )
+                        {
+                            drain( key );
+                        }
+                        if ( key.isValid() && key.isReadable() )
+                        {
+                            pump( key );
+                        }
+                    }
+
+                    final long now = System.currentTimeMillis();
+                    if ( now - lastSweep >= SELECT_TIMEOUT_MILLIS )
+                    {
+                        sweep( now );
+                        lastSweep = now;
+                    }
+                }
+                catch ( Exception e )
+                {
+                    logger.error( "MITM tunnel relay loop failed", e );
+                }
+            }
+
+            for ( SelectionKey key : new ArrayList<>( selector.keys() ) )
+            {
+                close( key );
+            }
+
+            try
+            {
+                selector.close();
+            }
+            catch ( IOException e )
+            {
+                logger.debug( "Failed to close relay selector: {}", e.getMessage() );
+            }
+        }
+
+        private void registerAdded()
+        {
+            ProxySSLTunnel tunnel;
+            while ( ( tunnel = added.poll() ) != null )
+            {
+                try
+                {
+                    final SelectionKey key =
+                            tunnel.getSocketChannel().register( selector, SelectionKey.OP_READ, new Relayed( tunnel ) );
+                    updateInterest( key );
+                }
+                catch ( IOException e )
+                {
+                    logger.debug( "Failed to register tunnel: {}", e.toString() );
+                    finish( tunnel );
+                }
+            }
+        }
+
+        private void registerWritable()
+        {
+            ProxySSLTunnel tunnel;
+            while ( ( tunnel = writable.poll() ) != null )
+            {
+                // not registered yet (registerAdded picks the queued bytes up) or already closed
+                final SelectionKey key = tunnel.getSocketChannel().keyFor( selector );
+                if ( key != null && key.isValid() )
+                {
+                    updateInterest( key );
+                }
+            }
+        }
+
+        /**
+         * Carry on relaying to clients whose sink reported it can take more.
+         */
+        private void resumeSinkWritable()
+        {
+            ProxySSLTunnel tunnel;
+            while ( ( tunnel = sinkWritable.poll() ) != null )
+            {
+                final SelectionKey key = tunnel.getSocketChannel().keyFor( selector );
+                if ( key != null && key.isValid() && ( (Relayed) key.attachment() ).pending != null )
+                {
+                    pump( key );
+                }
+            }
+        }
+
+        /**
+         * Have the sink's write listener report back once the client can take the rest of the parked buffer. The
+         * listener runs on an XNIO thread, so it only hands the tunnel back to this worker.
+         */
+        private void awaitSink( final Relayed relayed )
+        {
+            final ConduitStreamSinkChannel sink = relayed.tunnel.getSinkChannel();
+            sink.getWriteSetter().set( channel -> {
+                channel.suspendWrites();
+                sinkReady( relayed.tunnel );
+            } );
+            sink.resumeWrites();
+        }
+
+        /**
+         * Read the target while the client keeps up, and wait for OP_WRITE while client bytes are queued for it.
+         */
+        private void updateInterest( final SelectionKey key )
+        {
+            final Relayed relayed = (Relayed) key.attachment();
+            int ops = relayed.pending == null ? SelectionKey.OP_READ : 0;
+            if ( relayed.tunnel.hasOutbound() )
+            {
+                ops |= SelectionKey.OP_WRITE;
+            }
+            key.interestOps( ops );
+        }
+
+        private void drain( final SelectionKey key )
+        {
+            final Relayed relayed = (Relayed) key.attachment();
+            try
+            {
+                relayed.tunnel.drainOutbound();
+                relayed.lastActivity = System.currentTimeMillis();
+                updateInterest( key );
+            }
+            catch ( IOException e )
+            {
+                logger.debug( "Write to target channel breaks, {}", e.toString() );
+                close( key );
+            }
+        }
+
+        /**
+         * Drop tunnels that were closed from the client side or have been idle too long.
+         */
+        private void sweep( final long now )
+        {
+            for ( SelectionKey key : new ArrayList<>( selector.keys() ) )
+            {
+                final Relayed relayed = (Relayed) key.attachment();
+                if ( !key.isValid() || relayed.tunnel.isClosed() )
+                {
+                    close( key );
+                }
+                else if ( now - relayed.lastActivity > relayed.idleTimeout )
+                {
+                    logger.debug( "Tunnel idle for {} ms, closing", now - relayed.lastActivity );
+                    close( key );
+                }
+            }
+        }
+
+        private void pump( final SelectionKey key )
+        {
+            final Relayed relayed = (Relayed) key.attachment();
+            final SocketChannel target = relayed.tunnel.getSocketChannel();
+
+            ByteBuffer buf = relayed.pending;
+            try
+            {
+                if ( buf != null )
+                {
+                    relayed.tunnel.getSinkChannel().write( buf );
+                    if ( buf.hasRemaining() )
+                    {
+                        awaitSink( relayed );
+                        return;
+                    }
+
+                    relayed.pending = null;
+                    relayed.lastActivity = System.currentTimeMillis();
+                    updateInterest( key );
+                    buf.clear();
+                }
+                else
+                {
+                    buf = acquire();
+                }
+
+                int read;
+                while ( ( read = target.read( buf ) ) > 0 )
+                {
+                    relayed.total += read;
+                    relayed.lastActivity = System.currentTimeMillis();
+
+                    buf.flip();
+                    relayed.tunnel.getSinkChannel().write( buf );
+                    if ( buf.hasRemaining() )
+                    {
+                        // client is slow; park the rest and stop reading until it drains
+                        relayed.pending = buf;
+                        updateInterest( key );
+                        relayed.tunnel.getSinkChannel().flush();
+                        awaitSink( relayed );
+                        return;
+                    }
+                    buf.clear();
+                }
+
+                relayed.tunnel.getSinkChannel().flush();
+                release( buf );
+
+                if ( read < 0 )
+                {
+                    logger.debug( "Write to sink channel complete, transferred: {}", relayed.total );
+                    close( key );
+                }
+            }
+            catch ( IOException e )
+            {
+                logger.debug( "Relay tunnel breaks, {}", e.toString() );
+                if ( relayed.pending == null )
+                {
+                    release( buf );
+                }
+                close( key );
+            }
+        }
+
+        private void close( final SelectionKey key )
+        {
+            final Relayed relayed = (Relayed) key.attachment();
+            key.cancel();
+
+            if ( relayed.pending != null )
+            {
+                release( relayed.pending );
+                relayed.pending = null;
+            }
+
+            finish( relayed.tunnel );
+        }
+
+        private void finish( final ProxySSLTunnel tunnel )
+        {
+            try
+            {
+                if ( tunnel.getSinkChannel().isOpen() )
+                {
+                    tunnel.finishNonBlocking();
+                }
+                tunnel.close();
+            }
+            catch ( IOException e )
+            {
+                logger.debug( "Failed to close tunnel: {}", e.toString() );
+            }
+        }
+    }
+}
@@ -0,0 +1,307 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.httprox.util;
+
+import org.commonjava.indy.httprox.conf.HttproxConfig;
+import org.commonjava.indy.subsys.metrics.conf.IndyMetricsConfig;
+import org.commonjava.o11yphant.metrics.DefaultMetricsManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.security.PrivateKey;
+import java.security.cert.X509Certificate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.commonjava.indy.httprox.util.CertUtils.createSignedCertificateAndKey;
+import static org.commonjava.indy.httprox.util.CertUtils.getPrivateKey;
+import static org.commonjava.indy.httprox.util.CertUtils.loadX509Certificate;
+import static org.commonjava.o11yphant.metrics.util.NameUtils.name;
+
+/**
+ * Host certificates (signed by the MITM CA) generated for the MITM server. Generating one means creating an RSA key
+ * pair, so they are cached, but the cache is bounded by size (least recently used hosts are dropped first) and each
+ * certificate is regenerated after {@link HttproxConfig#getMITMCertCacheTtlMinutes()}. Only one certificate is
+ * generated at a time for a host; threads asking for it meanwhile wait for that one.
+ * <p>
+ * Each certificate has its own alias (host and serial), which a key manager can hand to the handshake and later resolve
+ * to that certificate's key and chain, even if the host's certificate was replaced in between.
+ */
+public final class MITMCertificateCache
+{
+    private static final String METRIC_PREFIX = "httprox.mitm.cert.cache";
+
+    private static final String ALIAS_SEPARATOR = "#";
+
+    @FunctionalInterface
+    interface Generator
+    {
+        HostCertificate generate( String host, String alias )
+                throws Exception;
+    }
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    private final HttproxConfig config;
+
+    private final DefaultMetricsManager metricsManager;
+
+    private final IndyMetricsConfig metricsConfig;
+
+    private final Generator generator;
+
+    // current (or in-flight) certificate of each host
+    private final Map<String, CompletableFuture<HostCertificate>> certificates;
+
+    // certificates by alias, kept a while longer than the host's certificate, for handshakes that already chose one
+    private final Map<String, HostCertificate> aliases;
+
+    private final AtomicLong serials = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private PrivateKey caKey;
+
+    private X509Certificate caCert;
+
+    public MITMCertificateCache( final HttproxConfig config, final DefaultMetricsManager metricsManager,
+                                 final IndyMetricsConfig metricsConfig )
+    {
+        this( config, metricsManager, metricsConfig, null );
+    }
+
+    MITMCertificateCache( final HttproxConfig config, final DefaultMetricsManager metricsManager,
+                          final IndyMetricsConfig metricsConfig, final Generator generator )
+    {
+        this.config = config;
+        this.metricsManager = metricsManager;
+        this.metricsConfig = metricsConfig;
+        this.generator = generator == null ? this::generate : generator;
+
+        final int maxSize = config.getMITMCertCacheSize();
+        this.certificates = new LinkedHashMap<String, CompletableFuture<HostCertificate>>( 16, 0.75f, true )
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry( final Map.Entry<String, CompletableFuture<HostCertificate>> eldest )
+            {
+                return size() > maxSize;
+            }
+        };
+        this.aliases = new LinkedHashMap<String, HostCertificate>( 16, 0.75f, true )
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry( final Map.Entry<String, HostCertificate> eldest )
+            {
+                return size() > maxSize * 2;
+            }
+        };
+    }
+
+    /**
+     * @return a current (not expired) certificate for the host, generating it if needed
+     */
+    public HostCertificate get( final String host )
+            throws Exception
+    {
+        final CompletableFuture<HostCertificate> future;
+        boolean generating = false;
+        synchronized ( certificates )
+        {
+            CompletableFuture<HostCertificate> cached = certificates.get( host );
+            if ( cached != null && ( !cached.isDone() || isCurrent( cached ) ) )
+            {
+                future = cached;
+            }
+            else
+            {
+                future = new CompletableFuture<>();
+                certificates.put( host, future );
+                generating = true;
+            }
+        }
+
+        if ( !generating )
+        {
+            hits.incrementAndGet();
+            mark( "hit" );
+            return join( future );
+        }
+
+        misses.incrementAndGet();
+        mark( "miss" );
+
+        // generate outside the lock; other threads asking for this host wait on the future
+        try
+        {
+            final HostCertificate cert =
+                    generator.generate( host, host + ALIAS_SEPARATOR + serials.incrementAndGet() );
+            synchronized ( certificates )
+            {
+                aliases.put( cert.getAlias(), cert );
+            }
+            future.complete( cert );
+            return cert;
+        }
+        catch ( Exception | Error e )
+        {
+            synchronized ( certificates )
+            {
+                certificates.remove( host, future );
+            }
+            future.completeExceptionally( e );
+            throw e;
+        }
+    }
+
+    /**
+     * The certificate with the given alias (see {@link HostCertificate#getAlias()}), even if it has expired or has been
+     * replaced since, so a handshake that already chose it gets a matching key and chain.
+     * @return null if it is no longer known
+     */
+    public HostCertificate getByAlias( final String alias )
+    {
+        synchronized ( certificates )
+        {
+            return aliases.get( alias );
+        }
+    }
+
+    public long getHits()
+    {
+        return hits.get();
+    }
+
+    public long getMisses()
+    {
+        return misses.get();
+    }
+
+    public int size()
+    {
+        synchronized ( certificates )
+        {
+            return certificates.size();
+        }
+    }
+
+    private boolean isCurrent( final CompletableFuture<HostCertificate> future )
+    {
+        return !future.isCompletedExceptionally() && !future.join().isExpired();
+    }
+
+    private HostCertificate join( final CompletableFuture<HostCertificate> future )
+            throws Exception
+    {
+        try
+        {
+            return future.get();
+        }
+        catch ( ExecutionException e )
+        {
+            final Throwable cause = e.getCause();
+            if ( cause instanceof Exception )
+            {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+
+    private HostCertificate generate( final String host, final String alias )
+            throws Exception
+    {
+        loadCA();
+
+        String dn = config.getMITMDNTemplate().replace( "<host>", host ); // e.g., "CN=<host>, O=Test Org"
+
+        CertificateAndKeys certificateAndKeys = createSignedCertificateAndKey( dn, caCert, caKey, false );
+        X509Certificate signedCertificate = (X509Certificate) certificateAndKeys.getCertificate();
+        logger.debug( "Create signed cert:\n" + signedCertificate.toString() );
+
+        long expires = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis( config.getMITMCertCacheTtlMinutes() );
+        return new HostCertificate( alias, certificateAndKeys.getPrivateKey(),
+                                    new X509Certificate[] { signedCertificate, caCert }, expires );
+    }
+
+    private synchronized void loadCA()
+            throws Exception
+    {
+        if ( caKey == null )
+        {
+            caKey = getPrivateKey( config.getMITMCAKey() );
+            caCert = loadX509Certificate( new File( config.getMITMCACert() ) );
+        }
+    }
+
+    private void mark( final String result )
+    {
+        if ( metricsManager != null && metricsConfig != null )
+        {
+            metricsManager.getMeter( name( metricsConfig.getNodePrefix(), METRIC_PREFIX, result ) ).mark();
+        }
+    }
+
+    public static final class HostCertificate
+    {
+        private final String alias;
+
+        private final PrivateKey privateKey;
+
+        private final X509Certificate[] chain;
+
+        private final long expires;
+
+        HostCertificate( final String alias, final PrivateKey privateKey, final X509Certificate[] chain,
+                         final long expires )
+        {
+            this.alias = alias;
+            this.privateKey = privateKey;
+            this.chain = chain;
+            this.expires = expires;
+        }
+
+        public String getAlias()
+        {
+            return alias;
+        }
+
+        public PrivateKey getPrivateKey()
+        {
+            return privateKey;
+        }
+
+        public X509Certificate[] getChain()
+        {
+            return chain.clone();
+        }
+
+        boolean isExpired()
+        {
+            return System.currentTimeMillis() > expires;
+        }
+    }
+}
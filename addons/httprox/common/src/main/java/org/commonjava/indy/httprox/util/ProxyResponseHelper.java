@@ -166,9 +166,9 @@ public class ProxyResponseHelper
             ArtifactStoreQuery<RemoteRepository> query =
                             storeManager.query().packageType( GENERIC_PKG_KEY ).storeType( RemoteRepository.class );
 
-            remote = query.stream()
-                          .filter( store -> store.getUrl().equals( baseUrl )
-                                          && store.getMetadata( TRACKING_ID ) == null )
+            remote = query.getRemoteRepositoryByExactUrl( baseUrl )
+                          .stream()
+                          .filter( store -> store.getMetadata( TRACKING_ID ) == null )
                           .findFirst()
                           .orElse( null );
 
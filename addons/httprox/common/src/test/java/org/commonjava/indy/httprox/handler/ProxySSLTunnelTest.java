@@ -0,0 +1,156 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.httprox.handler;
+
+import org.commonjava.indy.httprox.conf.HttproxConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class ProxySSLTunnelTest
+{
+    private static final int CHUNK = 64 * 1024;
+
+    private ServerSocketChannel server;
+
+    private SocketChannel target;
+
+    private SocketChannel accepted;
+
+    private final AtomicInteger suspends = new AtomicInteger();
+
+    private final AtomicInteger resumes = new AtomicInteger();
+
+    private final AtomicInteger readies = new AtomicInteger();
+
+    @Before
+    public void setup()
+            throws Exception
+    {
+        server = ServerSocketChannel.open();
+        server.bind( new InetSocketAddress( InetAddress.getLoopbackAddress(), 0 ) );
+        target = SocketChannel.open( server.getLocalAddress() );
+        accepted = server.accept();
+        target.configureBlocking( false );
+    }
+
+    @After
+    public void teardown()
+            throws Exception
+    {
+        target.close();
+        accepted.close();
+        server.close();
+    }
+
+    @Test
+    public void clientReadsSuspendedOverLimitAndResumedOnceDrained()
+            throws Exception
+    {
+        final ProxySSLTunnel tunnel = relayedTunnel();
+        tunnel.throttleClient( suspends::incrementAndGet, resumes::incrementAndGet );
+
+        final int chunks = (int) ( ProxySSLTunnel.MAX_OUTBOUND_BYTES / CHUNK );
+        for ( int i = 0; i < chunks; i++ )
+        {
+            tunnel.write( new byte[CHUNK] );
+        }
+        assertThat( suspends.get(), equalTo( 0 ) );
+
+        tunnel.write( new byte[CHUNK] );
+        tunnel.write( new byte[CHUNK] );
+        assertThat( suspends.get(), equalTo( 1 ) );
+        assertThat( tunnel.isClientReadsSuspended(), equalTo( true ) );
+        assertThat( readies.get(), equalTo( chunks + 2 ) );
+
+        final AtomicLong received = readTarget();
+        final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis( 10 );
+        while ( !tunnel.drainOutbound() && System.currentTimeMillis() < deadline )
+        {
+            Thread.sleep( 10 );
+        }
+
+        assertThat( tunnel.hasOutbound(), equalTo( false ) );
+        assertThat( resumes.get(), equalTo( 1 ) );
+        assertThat( tunnel.isClientReadsSuspended(), equalTo( false ) );
+
+        final long expected = (long) ( chunks + 2 ) * CHUNK;
+        while ( received.get() < expected && System.currentTimeMillis() < deadline )
+        {
+            Thread.sleep( 10 );
+        }
+        assertThat( received.get(), equalTo( expected ) );
+    }
+
+    @Test
+    public void unthrottledTunnelKeepsQueueing()
+            throws Exception
+    {
+        final ProxySSLTunnel tunnel = relayedTunnel();
+
+        final int chunks = (int) ( ProxySSLTunnel.MAX_OUTBOUND_BYTES / CHUNK ) * 2;
+        for ( int i = 0; i < chunks; i++ )
+        {
+            tunnel.write( new byte[CHUNK] );
+        }
+
+        assertThat( tunnel.isClientReadsSuspended(), equalTo( false ) );
+        assertThat( tunnel.hasOutbound(), equalTo( true ) );
+    }
+
+    private ProxySSLTunnel relayedTunnel()
+    {
+        final ProxySSLTunnel tunnel = new ProxySSLTunnel( null, target, new HttproxConfig() );
+        tunnel.relayOutbound( readies::incrementAndGet );
+        return tunnel;
+    }
+
+    private AtomicLong readTarget()
+    {
+        final AtomicLong received = new AtomicLong();
+        final Thread reader = new Thread( () -> {
+            final byte[] buf = new byte[CHUNK];
+            try (InputStream in = accepted.socket().getInputStream())
+            {
+                int read;
+                while ( ( read = in.read( buf ) ) > 0 )
+                {
+                    received.addAndGet( read );
+                }
+            }
+            catch ( IOException e )
+            {
+                // closed by teardown
+            }
+        } );
+        reader.setDaemon( true );
+        reader.start();
+        return received;
+    }
+}
@@ -0,0 +1,147 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.httprox.util;
+
+import org.commonjava.indy.httprox.conf.HttproxConfig;
+import org.junit.Test;
+
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class MITMCertificateCacheTest
+{
+    private static final String HOST = "repo.example.com";
+
+    private final AtomicInteger generated = new AtomicInteger();
+
+    @Test
+    public void concurrentRequestsForAHostGenerateOneCertificate()
+            throws Exception
+    {
+        final CountDownLatch generating = new CountDownLatch( 1 );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        final MITMCertificateCache cache = cache( 60, ( host, alias ) -> {
+            generating.countDown();
+            release.await();
+            return certificate( alias, TimeUnit.MINUTES.toMillis( 60 ) );
+        } );
+
+        final int threads = 8;
+        final ExecutorService executor = Executors.newFixedThreadPool( threads );
+        try
+        {
+            final List<Future<MITMCertificateCache.HostCertificate>> results = new ArrayList<>();
+            for ( int i = 0; i < threads; i++ )
+            {
+                results.add( executor.submit( () -> cache.get( HOST ) ) );
+            }
+
+            assertThat( generating.await( 10, TimeUnit.SECONDS ), equalTo( true ) );
+            // let the other threads reach the in-flight certificate
+            Thread.sleep( 200 );
+            release.countDown();
+
+            final MITMCertificateCache.HostCertificate first = results.get( 0 ).get( 10, TimeUnit.SECONDS );
+            for ( Future<MITMCertificateCache.HostCertificate> result : results )
+            {
+                assertThat( result.get( 10, TimeUnit.SECONDS ), sameInstance( first ) );
+            }
+
+            assertThat( generated.get(), equalTo( 1 ) );
+            assertThat( cache.getByAlias( first.getAlias() ), sameInstance( first ) );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void aliasResolvesItsOwnCertificateAfterReplacement()
+            throws Exception
+    {
+        // expired as soon as generated, so every request replaces it
+        final MITMCertificateCache cache = cache( 0, ( host, alias ) -> certificate( alias, -1 ) );
+
+        final MITMCertificateCache.HostCertificate first = cache.get( HOST );
+        final MITMCertificateCache.HostCertificate second = cache.get( HOST );
+
+        assertThat( second, not( sameInstance( first ) ) );
+        assertThat( second.getAlias(), not( equalTo( first.getAlias() ) ) );
+        assertThat( cache.getByAlias( first.getAlias() ), sameInstance( first ) );
+        assertThat( cache.getByAlias( second.getAlias() ), sameInstance( second ) );
+        assertThat( cache.getByAlias( HOST ), nullValue() );
+        assertThat( cache.size(), equalTo( 1 ) );
+    }
+
+    @Test
+    public void failedGenerationIsRetried()
+            throws Exception
+    {
+        final MITMCertificateCache cache = cache( 60, ( host, alias ) -> {
+            if ( generated.get() == 1 )
+            {
+                throw new IllegalStateException( "CA not available" );
+            }
+            return certificate( alias, TimeUnit.MINUTES.toMillis( 60 ) );
+        } );
+
+        try
+        {
+            cache.get( HOST );
+            fail( "Generation should have failed" );
+        }
+        catch ( IllegalStateException e )
+        {
+            // expected
+        }
+
+        final MITMCertificateCache.HostCertificate cert = cache.get( HOST );
+        assertThat( cache.get( HOST ), sameInstance( cert ) );
+        assertThat( generated.get(), equalTo( 2 ) );
+    }
+
+    private MITMCertificateCache cache( final int ttlMinutes, final MITMCertificateCache.Generator generator )
+    {
+        HttproxConfig config = new HttproxConfig();
+        config.setMITMCertCacheSize( 10 );
+        config.setMITMCertCacheTtlMinutes( ttlMinutes );
+        return new MITMCertificateCache( config, null, null, ( host, alias ) -> {
+            generated.incrementAndGet();
+            return generator.generate( host, alias );
+        } );
+    }
+
+    private MITMCertificateCache.HostCertificate certificate( final String alias, final long ttlMillis )
+    {
+        return new MITMCertificateCache.HostCertificate( alias, null, new X509Certificate[0],
+                                                         System.currentTimeMillis() + ttlMillis );
+    }
+}
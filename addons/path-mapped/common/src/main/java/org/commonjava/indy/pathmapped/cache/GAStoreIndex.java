@@ -0,0 +1,271 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.pathmapped.cache;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-heap copy of the GA table. Store names are swapped for ordinals from a shared dictionary, and each GA keeps a
+ * sorted int array of the ordinals of its stores, so a membership check is a binary search with no allocation. Arrays
+ * are replaced, never changed, and the dictionary only grows, so readers need no locking.
+ * <p>
+ * A reload is bracketed by {@link #beginReload()} and {@link #reset(Map)}. GAs changed in between keep the union of
+ * their current stores and the reloaded ones, so an add made while the table was being read isn't lost. A removal made
+ * meanwhile may come back from the reloaded copy; that only costs a store being checked needlessly until it's removed
+ * again.
+ */
+public final class GAStoreIndex
+{
+    private static final int[] EMPTY = new int[0];
+
+    private final Map<String, Integer> ordinals = new ConcurrentHashMap<>();
+
+    /**
+     * Names by ordinal. Written under the index's lock before the ordinal is handed out, then republished.
+     */
+    private volatile String[] names = new String[16];
+
+    private int nameCount;
+
+    private final Map<String, int[]> gaStores = new ConcurrentHashMap<>();
+
+    private volatile Set<String> changedDuringReload;
+
+    /**
+     * Stores containing the GA, as a read-only view over the index entry at the time of the call.
+     */
+    public Set<String> get( final String ga )
+    {
+        final int[] stores = gaStores.get( ga );
+        return stores == null ? Collections.emptySet() : new StoreSet( stores );
+    }
+
+    public void add( final String ga, final Collection<String> stores )
+    {
+        final int[] added = toOrdinals( stores, true );
+        markChanged( ga );
+        gaStores.merge( ga, added, GAStoreIndex::union );
+    }
+
+    public void remove( final String ga, final Collection<String> stores )
+    {
+        final int[] removed = toOrdinals( stores, false );
+        if ( removed.length > 0 )
+        {
+            markChanged( ga );
+            gaStores.computeIfPresent( ga, ( k, current ) -> {
+                final int[] left = difference( current, removed );
+                return left.length == 0 ? null : left;
+            } );
+        }
+    }
+
+    /**
+     * Start tracking changes, to be merged into the entries passed to the next {@link #reset(Map)}. Call it before
+     * reading the table.
+     */
+    public void beginReload()
+    {
+        changedDuringReload = ConcurrentHashMap.newKeySet();
+    }
+
+    public void abortReload()
+    {
+        changedDuringReload = null;
+    }
+
+    /**
+     * Replace the index with the given entries (e.g. a fresh read of the GA table), keeping what was added since
+     * {@link #beginReload()}.
+     */
+    public void reset( final Map<String, ? extends Collection<String>> entries )
+    {
+        final Set<String> changed = changedDuringReload == null ? Collections.emptySet() : changedDuringReload;
+
+        final Map<String, int[]> fresh = new HashMap<>( entries.size() );
+        entries.forEach( ( ga, stores ) -> fresh.put( ga, toOrdinals( stores, true ) ) );
+
+        // add() marks a GA before touching it, so a change racing this merge is either seen here or applied on top
+        fresh.forEach( ( ga, stores ) -> gaStores.compute( ga, ( k, current ) ->
+                current != null && changed.contains( k ) ? union( current, stores ) : stores ) );
+        gaStores.entrySet().removeIf( e -> !fresh.containsKey( e.getKey() ) && !changed.contains( e.getKey() ) );
+
+        changedDuringReload = null;
+    }
+
+    public int size()
+    {
+        return gaStores.size();
+    }
+
+    private void markChanged( final String ga )
+    {
+        final Set<String> changed = changedDuringReload;
+        if ( changed != null )
+        {
+            changed.add( ga );
+        }
+    }
+
+    private int[] toOrdinals( final Collection<String> stores, final boolean create )
+    {
+        int[] result = new int[stores.size()];
+        int n = 0;
+        for ( String store : stores )
+        {
+            Integer ordinal = ordinals.get( store );
+            if ( ordinal == null && create )
+            {
+                ordinal = ordinalFor( store );
+            }
+            if ( ordinal != null )
+            {
+                result[n++] = ordinal;
+            }
+        }
+
+        result = n == result.length ? result : Arrays.copyOf( result, n );
+        Arrays.sort( result );
+        return dedupe( result );
+    }
+
+    private synchronized int ordinalFor( final String store )
+    {
+        return ordinals.computeIfAbsent( store, s -> {
+            String[] current = names;
+            if ( nameCount == current.length )
+            {
+                current = Arrays.copyOf( current, current.length * 2 );
+            }
+            current[nameCount] = s;
+            names = current;
+            return nameCount++;
+        } );
+    }
+
+    private String nameOf( final int ordinal )
+    {
+        return names[ordinal];
+    }
+
+    private static int[] dedupe( final int[] sorted )
+    {
+        int n = 0;
+        for ( int i = 0; i < sorted.length; i++ )
+        {
+            if ( i == 0 || sorted[i] != sorted[i - 1] )
+            {
+                sorted[n++] = sorted[i];
+            }
+        }
+        return n == sorted.length ? sorted : Arrays.copyOf( sorted, n );
+    }
+
+    static int[] union( final int[] a, final int[] b )
+    {
+        final int[] out = new int[a.length + b.length];
+        int i = 0, j = 0, n = 0;
+        while ( i < a.length || j < b.length )
+        {
+            if ( j >= b.length || ( i < a.length && a[i] < b[j] ) )
+            {
+                out[n++] = a[i++];
+            }
+            else if ( i >= a.length || b[j] < a[i] )
+            {
+                out[n++] = b[j++];
+            }
+            else
+            {
+                out[n++] = a[i++];
+                j++;
+            }
+        }
+        return n == out.length ? out : Arrays.copyOf( out, n );
+    }
+
+    static int[] difference( final int[] a, final int[] b )
+    {
+        final int[] out = new int[a.length];
+        int n = 0;
+        for ( int value : a )
+        {
+            if ( Arrays.binarySearch( b, value ) < 0 )
+            {
+                out[n++] = value;
+            }
+        }
+        return n == 0 ? EMPTY : Arrays.copyOf( out, n );
+    }
+
+    private final class StoreSet
+            extends AbstractSet<String>
+    {
+        private final int[] stores;
+
+        private StoreSet( final int[] stores )
+        {
+            this.stores = stores;
+        }
+
+        @Override
+        public boolean contains( final Object o )
+        {
+            final Integer ordinal = o instanceof String ? ordinals.get( o ) : null;
+            return ordinal != null && Arrays.binarySearch( stores, ordinal ) >= 0;
+        }
+
+        @Override
+        public Iterator<String> iterator()
+        {
+            return new Iterator<String>()
+            {
+                private int next;
+
+                @Override
+                public boolean hasNext()
+                {
+                    return next < stores.length;
+                }
+
+                @Override
+                public String next()
+                {
+                    if ( next >= stores.length )
+                    {
+                        throw new NoSuchElementException();
+                    }
+                    return nameOf( stores[next++] );
+                }
+            };
+        }
+
+        @Override
+        public int size()
+        {
+            return stores.length;
+        }
+    }
+}
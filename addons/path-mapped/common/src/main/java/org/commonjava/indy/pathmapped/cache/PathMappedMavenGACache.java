@@ -18,9 +18,15 @@ package org.commonjava.indy.pathmapped.cache;
 import com.datastax.driver.core.BoundStatement;
 import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
-import com.google.common.collect.Lists;
+import com.datastax.driver.core.SimpleStatement;
+import org.commonjava.cdi.util.weft.ExecutorConfig;
+import org.commonjava.cdi.util.weft.NamedThreadFactory;
+import org.commonjava.cdi.util.weft.PoolWeftExecutorService;
+import org.commonjava.cdi.util.weft.WeftExecutorService;
+import org.commonjava.cdi.util.weft.WeftManaged;
 import org.commonjava.indy.action.IndyLifecycleException;
 import org.commonjava.indy.action.StartupAction;
 import org.commonjava.indy.conf.IndyConfiguration;
@@ -45,7 +51,6 @@ import javax.inject.Inject;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -53,6 +58,12 @@ import java.util.Map;
 import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.stream.Collectors;
 
 import static java.util.Collections.emptySet;
@@ -71,7 +82,9 @@ public class PathMappedMavenGACache
 
     public static final String SCANNED_STORES = "scanned-stores";
 
-    private static final int SCAN_BATCH_SIZE = 100;
+    private static final String SCAN_EXECUTOR = "ga-cache-scan";
+
+    private static final int INDEX_LOAD_FETCH_SIZE = 5000;
 
     private static final int TIMER_PERIOD_MINUTES = 60;
 
@@ -105,6 +118,11 @@ public class PathMappedMavenGACache
     @Inject
     private CacheProducer cacheProducer;
 
+    @Inject
+    @WeftManaged
+    @ExecutorConfig( named = SCAN_EXECUTOR, threads = 8, priority = 4, daemon = true )
+    private WeftExecutorService scanExecutor;
+
     private CacheHandle<String, Set<String>> inMemoryCache;
 
     private String gaStorePattern;
@@ -115,6 +133,18 @@ public class PathMappedMavenGACache
 
     private boolean started;
 
+    private Semaphore inFlightWrites;
+
+    private final GAStoreIndex index = new GAStoreIndex();
+
+    private volatile boolean indexLoaded;
+
+    // stores whose GAs are all in the index: scanned before a load read the table, or scanned here since
+    private final Set<String> indexedStores = ConcurrentHashMap.newKeySet();
+
+    // stores in the index's 'scanned-stores' but not in indexedStores, refreshed whenever either changes; normally empty
+    private volatile Set<String> uncoveredStores = emptySet();
+
     public PathMappedMavenGACache()
     {
     }
@@ -130,6 +160,8 @@ public class PathMappedMavenGACache
         this.gaStorePattern = config.getGACacheStorePattern();
         this.keyspace = config.getCacheKeyspace();
         this.cacheProvider = cacheProvider;
+        this.scanExecutor = new PoolWeftExecutorService( SCAN_EXECUTOR, (ThreadPoolExecutor) Executors.newFixedThreadPool(
+                8, new NamedThreadFactory( SCAN_EXECUTOR, new ThreadGroup( SCAN_EXECUTOR ), true, 4 ) ) );
         init();
     }
 
@@ -165,6 +197,8 @@ public class PathMappedMavenGACache
         preparedStoresIncrement = session.prepare( "UPDATE " + keyspace + ".ga SET stores = stores + ? WHERE ga=?;" );
         preparedStoresReduction = session.prepare( "UPDATE " + keyspace + ".ga SET stores = stores - ? WHERE ga=?;" );
 
+        inFlightWrites = new Semaphore( Math.max( 1, config.getGACacheScanMaxInFlightWrites() ) );
+
         if ( cacheProvider instanceof PathMappedCacheProvider )
         {
             pathMappedFileManager = ( (PathMappedCacheProvider) cacheProvider ).getPathMappedFileManager();
@@ -179,6 +213,7 @@ public class PathMappedMavenGACache
             logger.info( "Skip GA cache start" );
             return;
         }
+        loadIndex();
         fill();
         startTimer();
         started = true;
@@ -210,6 +245,7 @@ public class PathMappedMavenGACache
             public void run()
             {
                 fill();
+                loadIndex();
             }
         }, MINUTES.toMillis( TIMER_PERIOD_MINUTES ), MINUTES.toMillis( TIMER_PERIOD_MINUTES ) );
     }
@@ -244,14 +280,7 @@ public class PathMappedMavenGACache
 
         if ( !notScanned.isEmpty() )
         {
-            List<List<String>> batches = Lists.partition( notScanned, SCAN_BATCH_SIZE );
-            batches.forEach( batch -> {
-                boolean success = scanAndUpdate( batch );
-                if ( !success )
-                {
-                    logger.warn( "Scan failed for: {}", batch ); // just log it, timer task will try the failed later
-                }
-            } );
+            scanAll( notScanned );
             scanned = getScannedStores(); // refresh scanned
         }
 
@@ -277,26 +306,127 @@ public class PathMappedMavenGACache
         return matched;
     }
 
-    private boolean scanAndUpdate( Collection<String> notScanned )
+    /**
+     * Scan the stores in batches of {@link IndyConfiguration#getGACacheScanBatchSize()}, in parallel on the
+     * {@link #SCAN_EXECUTOR} pool. The GAs found in a batch are merged, so each is written once with all of the
+     * batch's stores containing it, and the batch's stores are added to 'scanned-stores' once those writes are done. A
+     * failed or interrupted fill only re-scans the stores of the batches it didn't finish.
+     */
+    private void scanAll( List<String> notScanned )
+    {
+        int batchSize = Math.max( 1, config.getGACacheScanBatchSize() );
+        int failed = 0;
+        try
+        {
+            for ( int i = 0; i < notScanned.size(); i += batchSize )
+            {
+                // just log the failed, timer task will try them later
+                failed += scanBatch( notScanned.subList( i, Math.min( i + batchSize, notScanned.size() ) ) );
+            }
+            logger.info( "Scan complete, stores: {}, failed: {}", notScanned.size(), failed );
+        }
+        catch ( InterruptedException e )
+        {
+            logger.warn( "Interrupted while scanning stores" );
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return the number of stores in the batch that weren't scanned or written
+     */
+    private int scanBatch( List<String> batch ) throws InterruptedException
     {
-        logger.info( "Scan and update, notScanned: {}", notScanned );
+        List<Future<Set<String>>> scans = new ArrayList<>( batch.size() );
+        batch.forEach( storeName -> scans.add( scanExecutor.submit( () -> scan( storeName ) ) ) );
+
+        Map<String, Set<String>> gasByStore = new HashMap<>();
+        try
+        {
+            for ( int i = 0; i < scans.size(); i++ )
+            {
+                try
+                {
+                    gasByStore.put( batch.get( i ), scans.get( i ).get() );
+                }
+                catch ( ExecutionException e )
+                {
+                    logger.error( "Failed to scan: " + batch.get( i ), e.getCause() );
+                }
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            scans.forEach( scan -> scan.cancel( true ) );
+            throw e;
+        }
 
-        Set<String> completed = new HashSet<>();
-        Map<String, Set<String>> gaMap = new HashMap<>(); // key: gaPath, value: repos set
+        if ( gasByStore.isEmpty() )
+        {
+            return batch.size();
+        }
+
+        Map<String, Set<String>> storesByGA = mergeByGA( gasByStore );
+        List<ResultSetFuture> writes = new ArrayList<>( storesByGA.size() );
         try
         {
-            scan( notScanned, gaMap, completed );
+            storesByGA.forEach( ( ga, stores ) -> writes.add( updateAsync( ga, stores ) ) );
+            writes.forEach( ResultSetFuture::getUninterruptibly );
+            if ( indexLoaded )
+            {
+                storesByGA.forEach( index::add );
+                indexedStores.addAll( gasByStore.keySet() );
+            }
         }
         catch ( Exception ex )
         {
-            logger.error( "Failed to scan: ", ex );
-            return false;
+            logger.error( "Failed to update GAs for: " + gasByStore.keySet(), ex );
+            writes.forEach( w -> w.cancel( false ) );
+            return batch.size();
+        }
+        finally
+        {
+            storesByGA.keySet().forEach( ga -> inMemoryCache.remove( ga ) ); // clear to force reloading
         }
 
-        logger.debug( "Scan complete, completed: {}, gaMap: {}", completed, gaMap );
-        gaMap.forEach( ( ga, stores ) -> update( ga, stores ) );
-        update( SCANNED_STORES, completed );
-        return true;
+        update( SCANNED_STORES, new HashSet<>( gasByStore.keySet() ) );
+        return batch.size() - gasByStore.size();
+    }
+
+    /**
+     * Turn the GAs found per store into the stores to add per GA.
+     */
+    static Map<String, Set<String>> mergeByGA( Map<String, Set<String>> gasByStore )
+    {
+        Map<String, Set<String>> storesByGA = new HashMap<>();
+        gasByStore.forEach( ( store, gaSet ) -> gaSet.forEach(
+                        ga -> storesByGA.computeIfAbsent( ga, k -> new HashSet<>() ).add( store ) ) );
+        return storesByGA;
+    }
+
+    /**
+     * Add the stores to the GA without waiting, once there are fewer than
+     * {@link IndyConfiguration#getGACacheScanMaxInFlightWrites()} writes pending.
+     */
+    private ResultSetFuture updateAsync( String ga, Set<String> set )
+    {
+        BoundStatement bound = preparedStoresIncrement.bind();
+        bound.setSet( 0, set );
+        bound.setString( 1, ga );
+
+        inFlightWrites.acquireUninterruptibly();
+        ResultSetFuture future;
+        try
+        {
+            future = session.executeAsync( bound );
+        }
+        catch ( RuntimeException e )
+        {
+            inFlightWrites.release();
+            throw e;
+        }
+        future.addListener( inFlightWrites::release, Runnable::run );
+        return future;
     }
 
     private void update( String ga, Set<String> set )
@@ -306,6 +436,14 @@ public class PathMappedMavenGACache
         bound.setString( 1, ga );
         session.execute( bound );
         inMemoryCache.remove( ga ); // clear to force reloading
+        if ( indexLoaded )
+        {
+            index.add( ga, set );
+            if ( SCANNED_STORES.equals( ga ) )
+            {
+                refreshUncoveredStores();
+            }
+        }
     }
 
     public void reduce( String ga, Set<String> set, boolean isAsync )
@@ -322,33 +460,87 @@ public class PathMappedMavenGACache
             session.execute( bound );
         }
         inMemoryCache.remove( ga ); // clear to force reloading
+        if ( indexLoaded )
+        {
+            index.remove( ga, set );
+            if ( SCANNED_STORES.equals( ga ) )
+            {
+                refreshUncoveredStores();
+            }
+        }
+    }
+
+    /**
+     * Read the whole GA table into the in-memory index, if enabled. Until the first load succeeds, lookups go to the
+     * cache and Cassandra as before.
+     */
+    private void loadIndex()
+    {
+        if ( !config.isGACacheIndexEnabled() )
+        {
+            return;
+        }
+
+        long begin = System.currentTimeMillis();
+        Map<String, Set<String>> entries = new HashMap<>();
+        Set<String> covered;
+        index.beginReload();
+        try
+        {
+            // a store is added to 'scanned-stores' only after all its GAs are written, so the stores listed before the
+            // table is read have all their GAs in what's read next
+            Row scannedRow = session.execute( preparedQueryByGA.bind( SCANNED_STORES ) ).one();
+            covered = scannedRow == null ? emptySet() : scannedRow.getSet( 0, String.class );
+
+            SimpleStatement statement = new SimpleStatement( "SELECT ga, stores FROM " + keyspace + ".ga;" );
+            statement.setFetchSize( INDEX_LOAD_FETCH_SIZE );
+            for ( Row row : session.execute( statement ) )
+            {
+                entries.put( row.getString( 0 ), row.getSet( 1, String.class ) );
+            }
+        }
+        catch ( Exception e )
+        {
+            logger.error( "Failed to load GA index", e );
+            index.abortReload();
+            return;
+        }
+
+        index.reset( entries );
+        indexedStores.addAll( covered );
+        refreshUncoveredStores();
+        indexLoaded = true;
+        logger.info( "Loaded GA index, entries: {}, elapsed: {}ms", index.size(),
+                     System.currentTimeMillis() - begin );
+    }
+
+    /**
+     * Called after each change to 'scanned-stores' in the index or to indexedStores; the last call sees them all.
+     */
+    private synchronized void refreshUncoveredStores()
+    {
+        Set<String> uncovered = new HashSet<>( index.get( SCANNED_STORES ) );
+        uncovered.removeAll( indexedStores );
+        uncoveredStores = uncovered.isEmpty() ? emptySet() : uncovered;
     }
 
     /**
-     * Scan the stores to find all GAs.
-     * @param notScanned
-     * @param gaMap
-     * @param completed
+     * Scan the store to find all GAs.
      */
-    private void scan( final Collection<String> notScanned, final Map<String, Set<String>> gaMap, final Set<String> completed )
+    private Set<String> scan( final String storeName )
     {
         PathDB pathDB = pathMappedFileManager.getPathDB();
-        notScanned.forEach( storeName -> {
-            Set<String> gaSet = new HashSet<>();
-            pathDB.traverse( "maven:hosted:" + storeName, ROOT_DIR, pathMap -> {
-                String gaPath = getGAPath( pathMap );
-                if ( isNotBlank( gaPath ) )
-                {
-                    gaSet.add( gaPath );
-                }
-            }, 0, PathDB.FileType.file );
-
-            gaSet.forEach( ga -> {
-                gaMap.computeIfAbsent( ga, k -> new HashSet<>() ).add( storeName );
-            } );
-            logger.info( "Scan result, store: {}, gaSet: {}", storeName, gaSet );
-            completed.add( storeName );
-        } );
+        Set<String> gaSet = new HashSet<>();
+        pathDB.traverse( "maven:hosted:" + storeName, ROOT_DIR, pathMap -> {
+            String gaPath = getGAPath( pathMap );
+            if ( isNotBlank( gaPath ) )
+            {
+                gaSet.add( gaPath );
+            }
+        }, 0, PathDB.FileType.file );
+
+        logger.info( "Scan result, store: {}, gaSet: {}", storeName, gaSet );
+        return gaSet;
     }
 
     /**
@@ -383,11 +575,37 @@ public class PathMappedMavenGACache
     }
 
     /**
-     * Get stores contain the target gaPath. It checks the inMemoryCache first. If not found, query db
-     * and update inMemoryCache.
+     * Get stores contain the target gaPath. Once the in-memory index is loaded, it answers from there. Otherwise it
+     * checks the inMemoryCache first. If not found, query db and update inMemoryCache.
+     * <p>
+     * The index can list a store in 'scanned-stores' without having all of its GAs, when the store's scan finished
+     * while the table was being read. Such stores are included in the result, since the index can't rule them out.
      */
     public Set<String> getStoresContaining( String gaPath )
     {
+        if ( indexLoaded )
+        {
+            Set<String> indexed = index.get( gaPath );
+            if ( SCANNED_STORES.equals( gaPath ) )
+            {
+                return indexed;
+            }
+
+            Set<String> reconciled = null;
+            for ( String store : uncoveredStores )
+            {
+                if ( !indexed.contains( store ) )
+                {
+                    if ( reconciled == null )
+                    {
+                        reconciled = new HashSet<>( indexed );
+                    }
+                    reconciled.add( store );
+                }
+            }
+            return reconciled == null ? indexed : reconciled;
+        }
+
         Set<String> ret = inMemoryCache.get( gaPath );
         if ( ret != null )
         {
@@ -0,0 +1,129 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.pathmapped.cache;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class GAStoreIndexTest
+{
+    private final GAStoreIndex index = new GAStoreIndex();
+
+    @Test
+    public void union()
+    {
+        assertThat( GAStoreIndex.union( new int[] { 1, 3, 5 }, new int[] { 2, 3, 6 } ),
+                    equalTo( new int[] { 1, 2, 3, 5, 6 } ) );
+        assertThat( GAStoreIndex.union( new int[0], new int[] { 4 } ), equalTo( new int[] { 4 } ) );
+        assertThat( GAStoreIndex.union( new int[] { 4 }, new int[0] ), equalTo( new int[] { 4 } ) );
+    }
+
+    @Test
+    public void difference()
+    {
+        assertThat( GAStoreIndex.difference( new int[] { 1, 2, 3, 5 }, new int[] { 2, 5, 7 } ),
+                    equalTo( new int[] { 1, 3 } ) );
+        assertThat( GAStoreIndex.difference( new int[] { 1 }, new int[] { 1 } ), equalTo( new int[0] ) );
+    }
+
+    @Test
+    public void addAndRemove()
+    {
+        index.add( "org/foo/bar", Arrays.asList( "b", "a" ) );
+        index.add( "org/foo/bar", Collections.singletonList( "c" ) );
+        assertThat( index.get( "org/foo/bar" ), equalTo( set( "a", "b", "c" ) ) );
+        assertThat( index.get( "org/foo/bar" ).contains( "b" ), equalTo( true ) );
+        assertThat( index.get( "org/foo/bar" ).contains( "unknown" ), equalTo( false ) );
+
+        index.remove( "org/foo/bar", Arrays.asList( "a", "unknown" ) );
+        assertThat( index.get( "org/foo/bar" ), equalTo( set( "b", "c" ) ) );
+
+        index.remove( "org/foo/bar", Arrays.asList( "b", "c" ) );
+        assertThat( index.get( "org/foo/bar" ).isEmpty(), equalTo( true ) );
+        assertThat( index.size(), equalTo( 0 ) );
+    }
+
+    @Test
+    public void namesResolvePastDictionaryGrowth()
+    {
+        Set<String> stores = new HashSet<>();
+        for ( int i = 0; i < 100; i++ )
+        {
+            stores.add( "build-" + i );
+            index.add( "org/foo/bar", Collections.singletonList( "build-" + i ) );
+        }
+
+        assertThat( index.get( "org/foo/bar" ), equalTo( stores ) );
+    }
+
+    @Test
+    public void resetReplacesEntries()
+    {
+        index.add( "org/foo/bar", Collections.singletonList( "a" ) );
+        index.add( "org/foo/gone", Collections.singletonList( "a" ) );
+
+        index.beginReload();
+        index.reset( entries( "org/foo/bar", Collections.singletonList( "b" ) ) );
+
+        assertThat( index.get( "org/foo/bar" ), equalTo( set( "b" ) ) );
+        assertThat( index.get( "org/foo/gone" ).isEmpty(), equalTo( true ) );
+        assertThat( index.size(), equalTo( 1 ) );
+    }
+
+    @Test
+    public void resetKeepsAddsMadeDuringReload()
+    {
+        index.add( "org/foo/bar", Collections.singletonList( "a" ) );
+
+        index.beginReload();
+        // the table was read before these landed
+        Map<String, List<String>> read = entries( "org/foo/bar", Collections.singletonList( "a" ) );
+        index.add( "org/foo/bar", Collections.singletonList( "b" ) );
+        index.add( "org/foo/new", Collections.singletonList( "b" ) );
+        index.reset( read );
+
+        assertThat( index.get( "org/foo/bar" ), equalTo( set( "a", "b" ) ) );
+        assertThat( index.get( "org/foo/new" ), equalTo( set( "b" ) ) );
+
+        // once the reload is over, the next one replaces again
+        index.beginReload();
+        index.reset( entries( "org/foo/bar", Collections.singletonList( "a" ) ) );
+        assertThat( index.get( "org/foo/bar" ), equalTo( set( "a" ) ) );
+        assertThat( index.get( "org/foo/new" ).isEmpty(), equalTo( true ) );
+    }
+
+    private static Map<String, List<String>> entries( final String ga, final List<String> stores )
+    {
+        Map<String, List<String>> entries = new HashMap<>();
+        entries.put( ga, stores );
+        return entries;
+    }
+
+    private static Set<String> set( final String... stores )
+    {
+        return new HashSet<>( Arrays.asList( stores ) );
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.pathmapped.cache;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class PathMappedMavenGACacheTest
+{
+    @Test
+    public void batchWritesEachGAOnceWithAllItsStores()
+    {
+        Map<String, Set<String>> gasByStore = new HashMap<>();
+        gasByStore.put( "build-1", set( "org/foo/bar", "org/foo/baz" ) );
+        gasByStore.put( "build-2", set( "org/foo/bar" ) );
+        gasByStore.put( "build-3", set( "org/foo/bar", "org/other/lib" ) );
+
+        Map<String, Set<String>> expected = new HashMap<>();
+        expected.put( "org/foo/bar", set( "build-1", "build-2", "build-3" ) );
+        expected.put( "org/foo/baz", set( "build-1" ) );
+        expected.put( "org/other/lib", set( "build-3" ) );
+
+        assertThat( PathMappedMavenGACache.mergeByGA( gasByStore ), equalTo( expected ) );
+    }
+
+    @Test
+    public void storeWithoutGAsWritesNothing()
+    {
+        Map<String, Set<String>> gasByStore =
+                        Collections.singletonMap( "empty", Collections.emptySet() );
+
+        assertThat( PathMappedMavenGACache.mergeByGA( gasByStore ).isEmpty(), equalTo( true ) );
+    }
+
+    private static Set<String> set( String... values )
+    {
+        return new HashSet<>( Arrays.asList( values ) );
+    }
+}
@@ -47,4 +47,11 @@ public class MetadataStoreContentAction
         cacheManager.remove( store.getKey(), path );
         affectedGroups.forEach( group -> cacheManager.remove( group.getKey(), path ) );
     }
+
+    @Override
+    public void clearGroupContent( Group group )
+    {
+        logger.debug( "Clearing metadata cache of group: {}", group.getKey() );
+        cacheManager.removeAll( group.getKey() );
+    }
 }
@@ -22,7 +22,6 @@ import org.apache.maven.artifact.repository.metadata.Plugin;
 import org.apache.maven.artifact.repository.metadata.SnapshotVersion;
 import org.apache.maven.artifact.repository.metadata.Versioning;
 import org.apache.maven.artifact.repository.metadata.io.xpp3.MetadataXpp3Reader;
-import org.apache.maven.artifact.repository.metadata.io.xpp3.MetadataXpp3Writer;
 import org.commonjava.atlas.maven.ident.ref.SimpleTypeAndClassifier;
 import org.commonjava.atlas.maven.ident.ref.TypeAndClassifier;
 import org.commonjava.atlas.maven.ident.util.ArtifactPathInfo;
@@ -36,11 +35,16 @@ import org.commonjava.cdi.util.weft.Locker;
 import org.commonjava.cdi.util.weft.WeftExecutorService;
 import org.commonjava.cdi.util.weft.WeftManaged;
 import org.commonjava.indy.IndyWorkflowException;
+import org.commonjava.indy.conf.IndyConfiguration;
 import org.commonjava.indy.content.DirectContentAccess;
 import org.commonjava.indy.content.MergedContentAction;
 import org.commonjava.indy.content.StoreResource;
+import org.commonjava.indy.core.change.GroupGenerations;
 import org.commonjava.indy.core.content.AbstractMergedContentGenerator;
+import org.commonjava.indy.core.content.PathMaskChecker;
 import org.commonjava.indy.core.content.group.GroupMergeHelper;
+import org.commonjava.indy.core.content.group.GroupRepositoryFilterManager;
+import org.commonjava.indy.data.IndyDataException;
 import org.commonjava.indy.data.StoreDataManager;
 import org.commonjava.o11yphant.metrics.annotation.Measure;
 import org.commonjava.indy.model.core.ArtifactStore;
@@ -65,7 +69,6 @@ import org.w3c.dom.Element;
 import javax.annotation.PostConstruct;
 import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -81,6 +84,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiFunction;
@@ -131,6 +135,12 @@ public class MavenMetadataGenerator
     @Inject
     private MetadataCacheManager cacheManager;
 
+    @Inject
+    private IndyConfiguration indyConfig;
+
+    @Inject
+    private GroupGenerations groupGenerations;
+
     private static final Set<String> HANDLED_FILENAMES = Collections.unmodifiableSet( new HashSet<String>()
     {
 
@@ -164,9 +174,20 @@ public class MavenMetadataGenerator
     @ExecutorConfig( named="maven-metadata-generator", threads=50, loadSensitive = ExecutorConfig.BooleanLiteral.TRUE, maxLoadFactor = 10000 )
     private WeftExecutorService mavenMDGeneratorService;
 
+    @Inject
+    @WeftManaged
+    @ExecutorConfig( named = "maven-metadata-eager-merge", threads = 4, priority = 4, daemon = true )
+    private WeftExecutorService eagerMergeExecutor;
+
+    @Inject
+    private GroupRepositoryFilterManager repositoryFilterManager;
+
     // don't need to inject since it's only used internally
     private final Locker<String> mergerLocks = new Locker<>();
 
+    // invalidation counts of merged files with eager merges pending, by merge key (see computeKey)
+    private final Map<String, InvalidationCount> invalidations = new ConcurrentHashMap<>();
+
     private static final int THREAD_WAITING_TIME_SECONDS = 300;
 
     protected MavenMetadataGenerator()
@@ -197,9 +218,394 @@ public class MavenMetadataGenerator
         }
     }
 
+    /**
+     * Clear merged files / caches affected by a change in the given store. In eager mode (see
+     * {@link IndyConfiguration#isGroupMetadataEagerMerge()}), a member's metadata change that only adds versions is
+     * then applied to the merged metadata of every affected group in the background, so the next request for it
+     * doesn't have to re-merge all members under the merge lock.
+     */
     public void clearAllMerged( ArtifactStore store, String...paths )
     {
+        if ( !isEagerMerge() || StoreType.group == store.getKey().getType() )
+        {
+            super.clearAllMerged( store, paths );
+            return;
+        }
+
+        Set<Group> groups;
+        try
+        {
+            groups = storeManager.query()
+                                 .packageType( store.getPackageType() )
+                                 .getGroupsAffectedBy( store.getKey() );
+        }
+        catch ( IndyDataException e )
+        {
+            logger.error( String.format( "Failed to retrieve groups affected by: %s. Reason: %s", store.getKey(),
+                                         e.getMessage() ), e );
+            groups = Collections.emptySet();
+        }
+
+        // capture the merged state before the regular invalidation below throws it away; from here on, invalidations
+        // of each captured file are counted, so the merge can tell whether anything besides this change hit it
+        final Map<String, MergedSnapshot> snapshots = new HashMap<>();
+        for ( String path : paths )
+        {
+            if ( !path.endsWith( MavenMetadataMerger.METADATA_NAME ) )
+            {
+                continue;
+            }
+
+            final Metadata memberMetadata = getMetaFromCache( store.getKey(), path );
+            if ( memberMetadata == null )
+            {
+                logger.debug( "Previous metadata of {}:{} unknown, leaving affected groups to be re-merged",
+                              store.getKey(), path );
+                continue;
+            }
+
+            final List<GroupSnapshot> merged = new ArrayList<>();
+            groups.forEach( group -> {
+                final String key = computeKey( group, path );
+                final long invalidations = trackInvalidations( key );
+                final MetadataInfo info = getMetaInfoFromCache( group.getKey(), path );
+                if ( info != null && info.getMetadataBytes() != null )
+                {
+                    merged.add( new GroupSnapshot( group, info, invalidations ) );
+                }
+                else
+                {
+                    untrackInvalidations( key );
+                }
+            } );
+
+            if ( !merged.isEmpty() )
+            {
+                snapshots.put( path, new MergedSnapshot( memberMetadata, merged ) );
+            }
+        }
+
         super.clearAllMerged( store, paths );
+
+        snapshots.forEach( ( path, snapshot ) -> {
+            if ( eagerMergeExecutor == null )
+            {
+                applyMemberChange( store, path, snapshot );
+                return;
+            }
+
+            try
+            {
+                eagerMergeExecutor.execute( () -> applyMemberChange( store, path, snapshot ) );
+            }
+            catch ( RuntimeException e )
+            {
+                logger.warn( "Cannot schedule eager merge of {}:{}, affected groups will be re-merged on demand. "
+                                     + "Reason: {}", store.getKey(), path, e.getMessage() );
+                snapshot.groups.forEach( g -> untrackInvalidations( computeKey( g.group, path ) ) );
+            }
+        } );
+    }
+
+    private boolean isEagerMerge()
+    {
+        return indyConfig != null && indyConfig.isGroupMetadataEagerMerge();
+    }
+
+    @Override
+    protected void clearMergedFile( final Group group, final String path )
+    {
+        invalidations.computeIfPresent( computeKey( group, path ), ( k, c ) -> {
+            c.count++;
+            return c;
+        } );
+        super.clearMergedFile( group, path );
+    }
+
+    /**
+     * Start counting invalidations of the merged file with the given merge key.
+     * @return the current count
+     */
+    private long trackInvalidations( final String key )
+    {
+        final long[] count = new long[1];
+        invalidations.compute( key, ( k, c ) -> {
+            final InvalidationCount tracked = c == null ? new InvalidationCount() : c;
+            tracked.pending++;
+            count[0] = tracked.count;
+            return tracked;
+        } );
+        return count[0];
+    }
+
+    private void untrackInvalidations( final String key )
+    {
+        invalidations.computeIfPresent( key, ( k, c ) -> --c.pending == 0 ? null : c );
+    }
+
+    private long invalidationCount( final String key )
+    {
+        final InvalidationCount c = invalidations.get( key );
+        return c == null ? -1 : c.count;
+    }
+
+    /**
+     * Apply one member's changed metadata to the merged metadata captured from affected groups. Only changes that
+     * add versions can be applied this way, since the merged metadata doesn't record which member contributed
+     * what. A group is left invalidated, to be re-merged on demand, if the change is anything else, if the lazy merge
+     * wouldn't include the member for this path (disabled, path mask, repository filter), or if the captured merged
+     * metadata went out of date in the meantime (another member changed it, or the group's membership changed).
+     */
+    private void applyMemberChange( final ArtifactStore member, final String path, final MergedSnapshot snapshot )
+    {
+        final Metadata current = readMetadata( fileManager.getTransfer( member, path ) );
+        if ( current == null || !isAdditive( snapshot.memberMetadata, current ) )
+        {
+            logger.debug( "Metadata change in {}:{} is not additive, leaving affected groups to be re-merged",
+                          member.getKey(), path );
+            snapshot.groups.forEach( g -> untrackInvalidations( computeKey( g.group, path ) ) );
+            return;
+        }
+
+        putToMetadataCache( member.getKey(), path, new MetadataInfo( current ) );
+
+        snapshot.groups.forEach( captured -> {
+            final Group group = captured.group;
+            final String lockKey = computeKey( group, path );
+            try
+            {
+                if ( !contributes( member, group, path ) )
+                {
+                    logger.debug( "{} is excluded from {} in group {}, leaving it to be re-merged", member.getKey(),
+                                  path, group.getKey() );
+                    return;
+                }
+
+                mergerLocks.lockAnd( lockKey, THREAD_WAITING_TIME_SECONDS,
+                                     k -> applyToGroup( member, path, current, captured ), ( k, lock ) -> false );
+            }
+            finally
+            {
+                untrackInvalidations( lockKey );
+            }
+        } );
+    }
+
+    /**
+     * Must be called while holding the group's merge lock for the path.
+     */
+    private Void applyToGroup( final ArtifactStore member, final String path, final Metadata current,
+                               final GroupSnapshot captured )
+    {
+        final Group group = captured.group;
+        final String lockKey = computeKey( group, path );
+        final Transfer target = fileManager.getTransfer( group, path );
+        if ( exists( target ) )
+        {
+            logger.trace( "Metadata {} in group {} was re-merged in the meantime", path, group.getKey() );
+            return null;
+        }
+
+        if ( !isSnapshotCurrent( captured, lockKey ) )
+        {
+            logger.debug( "Merged {} in group {} changed since it was captured, leaving it to be re-merged", path,
+                          group.getKey() );
+            return null;
+        }
+
+        final Metadata md = captured.info.getMetadata();
+        if ( md == null )
+        {
+            return null;
+        }
+
+        merger.merge( md, current, group, path );
+        merger.sortVersions( md );
+
+        String mergeInfo = captured.info.getMetadataMergeInfo();
+        if ( mergeInfo != null && !mergeInfo.contains( member.getKey().toString() + "\n" ) )
+        {
+            mergeInfo = mergeInfo + member.getKey() + "\n";
+        }
+
+        try
+        {
+            MetadataInfo updated = new MetadataInfo( md );
+            writeGroupMetadata( target, updated.getMetadataBytes(), new EventMetadata() );
+            if ( mergeInfo != null )
+            {
+                helper.writeMergeInfo( mergeInfo, group, path );
+            }
+
+            updated.setMetadataMergeInfo( mergeInfo );
+            putToMetadataCache( group.getKey(), path, updated );
+
+            // an invalidation that slipped in while writing didn't see the new file or cache entry
+            if ( !isSnapshotCurrent( captured, lockKey ) )
+            {
+                logger.debug( "Merged {} in group {} was invalidated while being updated, clearing it again", path,
+                              group.getKey() );
+                clearMergedFile( group, path );
+                cacheManager.remove( group.getKey(), path );
+                return null;
+            }
+
+            logger.debug( "Applied metadata change of {} to merged {} in group {}", member.getKey(), path,
+                          group.getKey() );
+        }
+        catch ( IndyWorkflowException | IOException e )
+        {
+            logger.warn( String.format( "Failed to apply metadata change of %s to %s in group %s, it will be "
+                                                + "re-merged on demand. Reason: %s", member.getKey(), path,
+                                        group.getKey(), e.getMessage() ), e );
+            clearMergedFile( group, path );
+        }
+
+        return null;
+    }
+
+    /**
+     * Whether the captured merged metadata is still what the group would have merged, apart from the change being
+     * applied: only that change's own invalidation happened since, and the group's membership didn't change.
+     */
+    private boolean isSnapshotCurrent( final GroupSnapshot captured, final String lockKey )
+    {
+        if ( invalidationCount( lockKey ) != captured.invalidations + 1 )
+        {
+            return false;
+        }
+
+        return groupGenerations == null || !groupGenerations.isStale( captured.group.getKey(),
+                                                                      captured.info.getCreated() );
+    }
+
+    /**
+     * Whether the lazy merge of the path in this group would include the member.
+     */
+    private boolean contributes( final ArtifactStore member, final Group group, final String path )
+    {
+        if ( member.isDisabled() || !PathMaskChecker.checkMask( member, path ) )
+        {
+            return false;
+        }
+
+        if ( repositoryFilterManager == null || !indyConfig.isRepositoryFilterEnabled() )
+        {
+            return true;
+        }
+
+        try
+        {
+            final List<ArtifactStore> members = storeManager.query()
+                                                            .packageType( group.getPackageType() )
+                                                            .enabledState( true )
+                                                            .getOrderedConcreteStoresInGroup( group.getName() );
+            return repositoryFilterManager.filter( path, group, members )
+                                          .stream()
+                                          .anyMatch( m -> m.getKey().equals( member.getKey() ) );
+        }
+        catch ( IndyDataException e )
+        {
+            logger.warn( String.format( "Failed to lookup members of: %s. Reason: %s", group.getKey(),
+                                        e.getMessage() ), e );
+            return false;
+        }
+    }
+
+    private Metadata readMetadata( final Transfer transfer )
+    {
+        if ( !exists( transfer ) )
+        {
+            return null;
+        }
+
+        try (InputStream in = transfer.openInputStream())
+        {
+            return new MetadataXpp3Reader().read( new StringReader( IOUtils.toString( in ) ), false );
+        }
+        catch ( final Exception e )
+        {
+            logger.warn( String.format( "Cannot read metadata: %s. Reason: %s", transfer, e.getMessage() ), e );
+            return null;
+        }
+    }
+
+    private boolean isAdditive( final Metadata previous, final Metadata current )
+    {
+        final Versioning prev = previous.getVersioning();
+        final Versioning curr = current.getVersioning();
+        if ( prev == null )
+        {
+            return true;
+        }
+        if ( curr == null )
+        {
+            return false;
+        }
+
+        if ( !curr.getVersions().containsAll( prev.getVersions() ) )
+        {
+            return false;
+        }
+
+        final Set<String> currSnapshots = curr.getSnapshotVersions()
+                                              .stream()
+                                              .map( this::snapshotVersionKey )
+                                              .collect( Collectors.toSet() );
+        if ( !prev.getSnapshotVersions().stream().map( this::snapshotVersionKey ).allMatch( currSnapshots::contains ) )
+        {
+            return false;
+        }
+
+        final Set<String> currPlugins =
+                current.getPlugins().stream().map( Plugin::getPrefix ).collect( Collectors.toSet() );
+        return previous.getPlugins().stream().map( Plugin::getPrefix ).allMatch( currPlugins::contains );
+    }
+
+    private String snapshotVersionKey( final SnapshotVersion snapshotVersion )
+    {
+        return snapshotVersion.getClassifier() + ":" + snapshotVersion.getExtension() + ":"
+                        + snapshotVersion.getVersion();
+    }
+
+    private static final class MergedSnapshot
+    {
+        private final Metadata memberMetadata;
+
+        private final List<GroupSnapshot> groups;
+
+        private MergedSnapshot( final Metadata memberMetadata, final List<GroupSnapshot> groups )
+        {
+            this.memberMetadata = memberMetadata;
+            this.groups = groups;
+        }
+    }
+
+    private static final class GroupSnapshot
+    {
+        private final Group group;
+
+        private final MetadataInfo info;
+
+        private final long invalidations;
+
+        private GroupSnapshot( final Group group, final MetadataInfo info, final long invalidations )
+        {
+            this.group = group;
+            this.info = info;
+            this.invalidations = invalidations;
+        }
+    }
+
+    /**
+     * Invalidations of one merged file, counted while eager merges of it are pending. Only changed inside the map's
+     * compute methods.
+     */
+    private static final class InvalidationCount
+    {
+        private volatile long count;
+
+        private int pending;
     }
 
     @Override
@@ -374,12 +780,21 @@ public class MavenMetadataGenerator
         }
 
         final Transfer target = fileManager.getTransfer( group, toMergePath );
-        if ( exists( target ) )
+        if ( exists( target ) && !isStale( target ) )
         {
             // Means there is no metadata change if this transfer exists, so directly return it.
             logger.trace( "Metadata file exists for group {} of path {}, no need to regenerate.", group.getKey(), path );
             eventMetadata.set( GROUP_METADATA_EXISTS, true );
-            return target;
+            if ( toMergePath.equals( path ) )
+            {
+                return target;
+            }
+
+            final Transfer checksum = getChecksum( group, path, toMergePath, target, eventMetadata );
+            if ( checksum != null )
+            {
+                return checksum;
+            }
         }
         
         AtomicReference<IndyWorkflowException> wfEx = new AtomicReference<>();
@@ -387,6 +802,28 @@ public class MavenMetadataGenerator
         boolean mergingDone = mergerLocks.ifUnlocked( computeKey(group, toMergePath), p->{
             try
             {
+                final MetadataInfo cached = getMetaInfoFromCache( group.getKey(), mergePath );
+                if ( cached != null && cached.getMetadataBytes() != null )
+                {
+                    logger.debug( "Writing cached merged metadata for metadata file {} in group {}", path, group );
+                    try
+                    {
+                        writeGroupMetadata( target, cached.getMetadataBytes(), eventMetadata );
+                        if ( cached.getMetadataMergeInfo() != null )
+                        {
+                            helper.writeMergeInfo( cached.getMetadataMergeInfo(), group, mergePath );
+                        }
+                        eventMetadata.set( GROUP_METADATA_GENERATED, true );
+                        return true;
+                    }
+                    catch ( final IOException e )
+                    {
+                        logger.warn( String.format( "Cannot write cached metadata: %s to: %s, will re-merge. Reason: %s",
+                                                    path, group.getKey(), e.getMessage() ), e );
+                        cacheManager.remove( group.getKey(), mergePath );
+                    }
+                }
+
                 logger.debug( "Start metadata generation for metadata file {} in group {}", path, group );
                 List<StoreKey> contributing = new ArrayList<>();
                 final Metadata md = generateGroupMetadata( group, members, contributing, path );
@@ -397,27 +834,14 @@ public class MavenMetadataGenerator
                             "Regenerated Metadata for group {} of path {}: latest version: {}, versions: {}",
                             group.getKey(), mergePath, versioning != null ? versioning.getLatest() : null,
                             versioning != null ? versioning.getVersions() : null );
-                    final ByteArrayOutputStream baos = new ByteArrayOutputStream();
                     try
                     {
                         logger.trace( "Regenerate lost metadata, group: {}, path: {}", group.getKey(), path );
-                        new MetadataXpp3Writer().write( baos, md );
-
-                        final byte[] merged = baos.toByteArray();
-                        try (final OutputStream fos = target.openOutputStream( TransferOperation.GENERATE, true,
-                                                                               eventMetadata ))
-                        {
-                            fos.write( merged );
-                        }
-                        catch ( final IOException e )
-                        {
-                            throw new IndyWorkflowException( "Failed to write merged metadata to: {}.\nError: {}", e,
-                                                             target, e.getMessage() );
-                        }
+                        MetadataInfo info = new MetadataInfo( md );
+                        writeGroupMetadata( target, info.getMetadataBytes(), eventMetadata );
 
                         String mergeInfo = writeGroupMergeInfo( md, group, contributing, mergePath );
                         eventMetadata.set( GROUP_METADATA_GENERATED, true );
-                        MetadataInfo info = new MetadataInfo( md );
                         info.setMetadataMergeInfo( mergeInfo );
                         putToMetadataCache( group.getKey(), mergePath, info );
                     }
@@ -452,7 +876,9 @@ public class MavenMetadataGenerator
         if ( exists( target ) )
         {
             // if this is a checksum file, we need to return the original path (if it is metadata, original is target)
-            Transfer original = fileManager.getTransfer( group, path );
+            Transfer original = toMergePath.equals( path ) ?
+                            target :
+                            getChecksum( group, path, toMergePath, target, eventMetadata );
             if ( exists( original ) )
             {
                 if ( toMergePath != path )
@@ -479,6 +905,71 @@ public class MavenMetadataGenerator
         return null;
     }
 
+    /**
+     * Checksum file of merged metadata. If it isn't there yet, it is written from the digests kept with the cached
+     * {@link MetadataInfo}, so neither the merged file nor its members need to be read again.
+     *
+     * @return the checksum file, or null if it is missing and can't be served from the cache
+     */
+    private Transfer getChecksum( final Group group, final String path, final String mergePath, final Transfer target,
+                                  final EventMetadata eventMetadata )
+    {
+        final Transfer checksum = fileManager.getTransfer( group, path );
+        if ( exists( checksum ) )
+        {
+            return checksum;
+        }
+
+        final MetadataInfo info = getMetaInfoFromCache( group.getKey(), mergePath );
+        if ( checksum == null || info == null || info.getMetadataBytes() == null
+                        || target.length() != info.getMetadataBytes().length )
+        {
+            return null;
+        }
+
+        final String digest;
+        if ( path.endsWith( MavenMetadataMerger.METADATA_MD5_NAME ) )
+        {
+            digest = info.getMd5();
+        }
+        else if ( path.endsWith( MavenMetadataMerger.METADATA_SHA_NAME ) )
+        {
+            digest = info.getSha1();
+        }
+        else
+        {
+            return null;
+        }
+
+        logger.debug( "Writing {} in group {} from cached metadata digest", path, group.getKey() );
+        try (OutputStream out = checksum.openOutputStream( TransferOperation.GENERATE, true, eventMetadata ))
+        {
+            out.write( digest.getBytes( UTF_8 ) );
+        }
+        catch ( final IOException e )
+        {
+            logger.warn( String.format( "Cannot write checksum: %s to: %s. Reason: %s", path, group.getKey(),
+                                        e.getMessage() ), e );
+            return null;
+        }
+
+        return checksum;
+    }
+
+    private void writeGroupMetadata( final Transfer target, final byte[] merged, final EventMetadata eventMetadata )
+            throws IndyWorkflowException, IOException
+    {
+        try (final OutputStream fos = target.openOutputStream( TransferOperation.GENERATE, true, eventMetadata ))
+        {
+            fos.write( merged );
+        }
+        catch ( final IOException e )
+        {
+            throw new IndyWorkflowException( "Failed to write merged metadata to: {}.\nError: {}", e, target,
+                                             e.getMessage() );
+        }
+    }
+
     private String computeKey( final Group group, final String path )
     {
         return group.getKey().toString() + "-" + path;
@@ -673,7 +1164,7 @@ public class MavenMetadataGenerator
 
             if ( memberMeta != null )
             {
-                return new MetadataResult( store, memberMeta );
+                return new MetadataResult( store, memberMeta, true );
             }
 
             return new MetadataResult( store, null );
@@ -685,12 +1176,19 @@ public class MavenMetadataGenerator
         private final ArtifactStore store;
         private final Metadata metadata;
         private final boolean missing;
+        private final boolean cached;
 
         public MetadataResult( final ArtifactStore store, final Metadata metadata )
+        {
+            this( store, metadata, false );
+        }
+
+        public MetadataResult( final ArtifactStore store, final Metadata metadata, final boolean cached )
         {
             this.store = store;
             this.metadata = metadata;
             this.missing = metadata == null;
+            this.cached = cached;
         }
     }
 
@@ -741,7 +1239,10 @@ public class MavenMetadataGenerator
                     {
                         included.add( mr.store.getKey() );
                         merger.merge( master, mr.metadata, group, toMergePath );
-                        putToMetadataCache( mr.store.getKey(), toMergePath, new MetadataInfo( mr.metadata ) );
+                        if ( !mr.cached )
+                        {
+                            putToMetadataCache( mr.store.getKey(), toMergePath, new MetadataInfo( mr.metadata ) );
+                        }
                     }
                 }
             } );
@@ -850,6 +1351,14 @@ public class MavenMetadataGenerator
         return target != null && target.exists();
     }
 
+    /**
+     * Merged file written before the last membership change of its group; it is re-merged and overwritten.
+     */
+    private boolean isStale( final Transfer target )
+    {
+        return groupGenerations != null && groupGenerations.isStale( target );
+    }
+
     private Metadata getMetaFromCache( final StoreKey key, final String path )
     {
         final MetadataInfo metaMergeInfo = getMetaInfoFromCache( key, path );
@@ -863,7 +1372,14 @@ public class MavenMetadataGenerator
 
     private MetadataInfo getMetaInfoFromCache( final StoreKey key, final String path )
     {
-        return cacheManager.get( new MetadataKey( key, path ) );
+        final MetadataInfo info = cacheManager.get( new MetadataKey( key, path ) );
+        if ( info != null && groupGenerations != null && groupGenerations.isStale( key, info.getCreated() ) )
+        {
+            logger.debug( "Cached metadata {} in {} predates its last membership change, dropping it", path, key );
+            cacheManager.remove( key, path );
+            return null;
+        }
+        return info;
     }
 
     @Override
@@ -19,6 +19,8 @@ import org.commonjava.indy.model.core.StoreKey;
 import org.commonjava.indy.pkg.maven.content.cache.MavenMetadataCache;
 import org.commonjava.indy.pkg.maven.content.cache.MavenMetadataKeyCache;
 import org.commonjava.indy.subsys.infinispan.CacheHandle;
+import org.infinispan.commons.CacheException;
+import org.infinispan.context.Flag;
 import org.infinispan.query.Search;
 import org.infinispan.query.dsl.Query;
 import org.infinispan.query.dsl.QueryFactory;
@@ -28,6 +30,7 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
+import java.io.InvalidClassException;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -65,15 +68,42 @@ public class MetadataCacheManager
         this.queryFactory = Search.getQueryFactory( metadataKeyCache.getCache() );
     }
 
+    /*
+     * Writes and removals don't ask for the previous value, so they never read entries stored by an older, incompatible
+     * MetadataInfo (see get()).
+     */
+
     public void put( MetadataKey metadataKey, MetadataInfo metadataInfo )
     {
         metadataKeyCache.put( metadataKey, metadataKey );
-        metadataCache.put( metadataKey, metadataInfo );
+        metadataCache.executeCache(
+                c -> c.getAdvancedCache().withFlags( Flag.IGNORE_RETURN_VALUES ).put( metadataKey, metadataInfo ),
+                "put" );
     }
 
+    /**
+     * Entries persisted by an incompatible version of {@link MetadataInfo} can't be read back. They are dropped and
+     * treated as a miss, so the metadata is merged again and re-cached in the current form.
+     */
     public MetadataInfo get( MetadataKey metadataKey )
     {
-        return metadataCache.get( metadataKey );
+        return metadataCache.executeCache( c -> {
+            try
+            {
+                return c.get( metadataKey );
+            }
+            catch ( CacheException e )
+            {
+                if ( !isIncompatible( e ) )
+                {
+                    throw e;
+                }
+
+                logger.info( "Dropping cached metadata {} written by an incompatible version", metadataKey );
+                c.getAdvancedCache().withFlags( Flag.IGNORE_RETURN_VALUES ).remove( metadataKey );
+                return null;
+            }
+        }, "get" );
     }
 
     public void remove( StoreKey storeKey, String path )
@@ -89,7 +119,20 @@ public class MetadataCacheManager
     public void remove( MetadataKey metadataKey )
     {
         metadataKeyCache.remove( metadataKey );
-        metadataCache.remove( metadataKey );
+        metadataCache.executeCache(
+                c -> c.getAdvancedCache().withFlags( Flag.IGNORE_RETURN_VALUES ).remove( metadataKey ), "remove" );
+    }
+
+    private static boolean isIncompatible( final Throwable e )
+    {
+        for ( Throwable t = e; t != null; t = t.getCause() )
+        {
+            if ( t instanceof InvalidClassException )
+            {
+                return true;
+            }
+        }
+        return false;
     }
 
     public void removeAll( StoreKey key )
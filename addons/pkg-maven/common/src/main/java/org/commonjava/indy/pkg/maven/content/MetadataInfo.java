@@ -16,32 +16,138 @@
 package org.commonjava.indy.pkg.maven.content;
 
 import org.apache.maven.artifact.repository.metadata.Metadata;
+import org.apache.maven.artifact.repository.metadata.io.xpp3.MetadataXpp3Reader;
+import org.apache.maven.artifact.repository.metadata.io.xpp3.MetadataXpp3Writer;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.apache.commons.codec.digest.DigestUtils.md5Hex;
+import static org.apache.commons.codec.digest.DigestUtils.sha1Hex;
 
 /**
- * Used to bind group metadata and its metadata merge info together for caching easily
+ * Used to bind group metadata and its metadata merge info together for caching easily.
+ * <p>
+ * The metadata is kept in its rendered (XML) form along with its checksums rather than as a {@link Metadata} model,
+ * which is a lot smaller and can be written out as-is. Parsed models of the most recently used entries are kept in a
+ * small cache shared by all entries, keyed by checksum, so merging the same entry again soon doesn't parse the XML
+ * again; {@link #getMetadata()} returns a copy, so callers are free to modify it. Merge info strings are interned,
+ * since they are shared by all paths merged for the same group.
+ * <p>
+ * Version 2 of the serialized form is not compatible with the {@link Metadata}-holding version 1. Entries persisted by
+ * version 1 are dropped when read and merged again, see {@link MetadataCacheManager#get(MetadataKey)}.
  */
 public class MetadataInfo
         implements Serializable
 {
-    private Metadata metadata;
+    private static final long serialVersionUID = 2L;
+
+    private static final int PARSED_LIMIT = 256;
+
+    private static final Map<String, Metadata> PARSED =
+            Collections.synchronizedMap( new LinkedHashMap<String, Metadata>( 16, 0.75f, true )
+            {
+                @Override
+                protected boolean removeEldestEntry( final Map.Entry<String, Metadata> eldest )
+                {
+                    return size() > PARSED_LIMIT;
+                }
+            } );
+
+    private byte[] metadataBytes;
+
+    private String md5;
+
+    private String sha1;
 
     private String metadataMergeInfo;
 
+    private long created = System.currentTimeMillis();
+
     public MetadataInfo( final Metadata metadata )
     {
-        this.metadata = metadata;
+        setMetadata( metadata );
     }
 
     public Metadata getMetadata()
     {
-        return metadata;
+        if ( metadataBytes == null )
+        {
+            return null;
+        }
+
+        Metadata metadata = PARSED.get( sha1 );
+        if ( metadata == null )
+        {
+            try
+            {
+                metadata = new MetadataXpp3Reader().read( new ByteArrayInputStream( metadataBytes ), false );
+            }
+            catch ( IOException | XmlPullParserException e )
+            {
+                Logger logger = LoggerFactory.getLogger( getClass() );
+                logger.warn( "Cannot parse cached metadata. Reason: {}", e.getMessage() );
+                return null;
+            }
+            PARSED.put( sha1, metadata );
+        }
+
+        // merging shares parts of the source with the merged model and changes them later on, so never hand out our own
+        return metadata.clone();
     }
 
     public void setMetadata( Metadata metadata )
     {
-        this.metadata = metadata;
+        if ( metadata == null )
+        {
+            this.metadataBytes = null;
+            this.md5 = null;
+            this.sha1 = null;
+            return;
+        }
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try
+        {
+            new MetadataXpp3Writer().write( baos, metadata );
+        }
+        catch ( IOException e )
+        {
+            // writing to memory, not expected
+            throw new IllegalStateException( "Cannot render metadata", e );
+        }
+
+        this.metadataBytes = baos.toByteArray();
+        this.md5 = md5Hex( metadataBytes );
+        this.sha1 = sha1Hex( metadataBytes );
+        PARSED.put( sha1, metadata.clone() );
+    }
+
+    /**
+     * The rendered maven-metadata.xml content. This is the cached array itself, it must not be modified.
+     */
+    public byte[] getMetadataBytes()
+    {
+        return metadataBytes;
+    }
+
+    public String getMd5()
+    {
+        return md5;
+    }
+
+    public String getSha1()
+    {
+        return sha1;
     }
 
     public String getMetadataMergeInfo()
@@ -51,6 +157,24 @@ public class MetadataInfo
 
     public void setMetadataMergeInfo( String metadataMergeInfo )
     {
-        this.metadataMergeInfo = metadataMergeInfo;
+        this.metadataMergeInfo = metadataMergeInfo == null ? null : metadataMergeInfo.intern();
+    }
+
+    /**
+     * When this was built (millis), to tell whether it predates a membership change of its group.
+     */
+    public long getCreated()
+    {
+        return created;
+    }
+
+    private void readObject( final ObjectInputStream in )
+            throws IOException, ClassNotFoundException
+    {
+        in.defaultReadObject();
+        if ( metadataMergeInfo != null )
+        {
+            metadataMergeInfo = metadataMergeInfo.intern();
+        }
     }
 }
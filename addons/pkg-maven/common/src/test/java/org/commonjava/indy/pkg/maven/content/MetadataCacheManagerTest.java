@@ -15,6 +15,9 @@
  */
 package org.commonjava.indy.pkg.maven.content;
 
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.maven.artifact.repository.metadata.Metadata;
+import org.apache.maven.artifact.repository.metadata.Versioning;
 import org.commonjava.indy.model.core.StoreKey;
 import org.commonjava.indy.subsys.infinispan.CacheHandle;
 import org.commonjava.indy.subsys.infinispan.CacheProducer;
@@ -24,9 +27,11 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
@@ -85,6 +90,39 @@ public class MetadataCacheManagerTest
         assertNotNull( ret );
     }
 
+    @Test
+    public void cachedMetadataIsRenderedOnce() throws Exception
+    {
+        Metadata metadata = new Metadata();
+        metadata.setGroupId( "org.foo" );
+        metadata.setArtifactId( "bar" );
+        Versioning versioning = new Versioning();
+        versioning.addVersion( "1.0" );
+        versioning.addVersion( "1.1" );
+        metadata.setVersioning( versioning );
+
+        final MetadataInfo info = new MetadataInfo( metadata );
+        info.setMetadataMergeInfo( "maven:hosted:test\n" );
+        MetadataKey key = new MetadataKey( StoreKey.fromString( "maven:group:test" ), "org/foo/bar/maven-metadata.xml" );
+        metadataCacheManager.put( key, info );
+
+        // the cached form doesn't follow later changes of the model it was built from
+        versioning.addVersion( "3.0" );
+
+        MetadataInfo ret = metadataCacheManager.get( key );
+        assertNotNull( ret.getMetadataBytes() );
+        assertEquals( DigestUtils.md5Hex( ret.getMetadataBytes() ), ret.getMd5() );
+        assertEquals( DigestUtils.sha1Hex( ret.getMetadataBytes() ), ret.getSha1() );
+
+        Metadata parsed = ret.getMetadata();
+        assertEquals( "bar", parsed.getArtifactId() );
+        assertEquals( Arrays.asList( "1.0", "1.1" ), parsed.getVersioning().getVersions() );
+
+        // each call hands out its own copy
+        parsed.getVersioning().addVersion( "2.0" );
+        assertEquals( 2, ret.getMetadata().getVersioning().getVersions().size() );
+    }
+
     @After
     public void tearDown() throws Exception
     {
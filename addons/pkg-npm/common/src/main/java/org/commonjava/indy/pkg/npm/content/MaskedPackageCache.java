@@ -0,0 +1,128 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.pkg.npm.content;
+
+import org.commonjava.indy.conf.IndyConfiguration;
+import org.commonjava.indy.model.core.StoreKey;
+import org.commonjava.maven.galley.model.Transfer;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * npm package.json documents with their tarball URLs already masked, keyed by store, path and context URL. Each entry
+ * remembers the last-modified time and length of the stored file it was masked from and is ignored once those change.
+ * The cache is bounded by the total size of the documents; documents over {@link #MAX_DOCUMENT_BYTES} aren't cached.
+ */
+@ApplicationScoped
+public class MaskedPackageCache
+{
+    static final int MAX_DOCUMENT_BYTES = 4 * 1024 * 1024;
+
+    private static final long MAX_TOTAL_BYTES = 64L * 1024 * 1024;
+
+    @Inject
+    private IndyConfiguration config;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>( 256, 0.75f, true );
+
+    private long totalBytes;
+
+    protected MaskedPackageCache()
+    {
+    }
+
+    public MaskedPackageCache( final IndyConfiguration config )
+    {
+        this.config = config;
+    }
+
+    public boolean isEnabled()
+    {
+        return config != null && config.isNpmMaskedMetadataCacheEnabled();
+    }
+
+    public String key( final StoreKey storeKey, final String path, final String contextURL )
+    {
+        return storeKey + "#" + path + "#" + contextURL;
+    }
+
+    /**
+     * Masked bytes for the key, if they were masked from the transfer's current content.
+     */
+    public synchronized byte[] get( final String key, final Transfer transfer )
+    {
+        final Entry entry = entries.get( key );
+        if ( entry == null )
+        {
+            return null;
+        }
+
+        if ( entry.lastModified != transfer.lastModified() || entry.length != transfer.length() )
+        {
+            remove( key );
+            return null;
+        }
+
+        return entry.bytes;
+    }
+
+    public synchronized void put( final String key, final long lastModified, final long length, final byte[] bytes )
+    {
+        if ( bytes.length > MAX_DOCUMENT_BYTES )
+        {
+            return;
+        }
+
+        remove( key );
+        entries.put( key, new Entry( bytes, lastModified, length ) );
+        totalBytes += bytes.length;
+
+        final Iterator<Entry> eldest = entries.values().iterator();
+        while ( totalBytes > MAX_TOTAL_BYTES && eldest.hasNext() )
+        {
+            totalBytes -= eldest.next().bytes.length;
+            eldest.remove();
+        }
+    }
+
+    private void remove( final String key )
+    {
+        final Entry old = entries.remove( key );
+        if ( old != null )
+        {
+            totalBytes -= old.bytes.length;
+        }
+    }
+
+    private static final class Entry
+    {
+        private final byte[] bytes;
+
+        private final long lastModified;
+
+        private final long length;
+
+        private Entry( final byte[] bytes, final long lastModified, final long length )
+        {
+            this.bytes = bytes;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+    }
+}
@@ -30,14 +30,16 @@ import org.slf4j.LoggerFactory;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.commonjava.indy.content.ContentManager.ENTRY_POINT_BASE_URI;
 import static org.commonjava.indy.pkg.PackageTypeConstants.PKG_TYPE_NPM;
-import static org.commonjava.indy.pkg.npm.content.DecoratorUtils.updatePackageJson;
+import static org.commonjava.indy.pkg.npm.content.DecoratorUtils.maskTarballUrl;
 import static org.jsoup.helper.StringUtil.isBlank;
 
 @ApplicationScoped
@@ -49,6 +51,9 @@ public class NPMPackageMaskingTransferDecorator
     @Inject
     private DefaultMetricsManager metricsManager;
 
+    @Inject
+    private MaskedPackageCache maskedCache;
+
     public NPMPackageMaskingTransferDecorator()
     {
     }
@@ -86,108 +91,326 @@ public class NPMPackageMaskingTransferDecorator
         StoreKey key = keyedLocation.getKey();
         String contextURL = UrlUtils.buildUrl( baseURI, key.getType().name(), key.getName() );
         logger.debug( "Use contextURL: {}", contextURL );
-        return new PackageMaskingInputStream( stream, contextURL, metricsManager );
+
+        if ( maskedCache == null || !maskedCache.isEnabled() )
+        {
+            return new PackageMaskingInputStream( stream, contextURL, metricsManager, null, null, 0, 0 );
+        }
+
+        String cacheKey = maskedCache.key( key, transfer.getPath(), contextURL );
+        byte[] masked = maskedCache.get( cacheKey, transfer );
+        if ( masked != null )
+        {
+            logger.trace( "Use cached masked package.json, key: {}", cacheKey );
+            stream.close();
+            return new ByteArrayInputStream( masked );
+        }
+
+        return new PackageMaskingInputStream( stream, contextURL, metricsManager, maskedCache, cacheKey,
+                                              transfer.lastModified(), transfer.length() );
     }
 
-    private static class PackageMaskingInputStream
+    /**
+     * Rewrites the values of "tarball" fields while the document streams through, so only a read buffer and the
+     * current tarball URL are held in memory. Works on the UTF-8 bytes directly: every byte of a multi-byte character
+     * is >= 0x80, so it can't be mistaken for a quote, backslash or colon.
+     */
+    private static final class PackageMaskingInputStream
             extends IdempotentCloseInputStream
     {
         private static final String TIMER = "io.npm.metadata.in.filter";
 
-        final Logger logger = LoggerFactory.getLogger( this.getClass() );
+        private static final byte[] TARBALL = "tarball".getBytes( UTF_8 );
+
+        private static final int SIZE = 8192;
+
+        private static final int MAX_URL_LENGTH = 8192;
+
+        // lexer states
+        private static final int OUTSIDE = 0;
+
+        private static final int STRING = 1;
+
+        private static final int AFTER_TARBALL_KEY = 2;
+
+        private static final int BEFORE_TARBALL_VALUE = 3;
+
+        private static final int TARBALL_VALUE = 4;
+
+        private final String contextURL;
+
+        private final DefaultMetricsManager metricsManager;
+
+        private final MaskedPackageCache cache;
+
+        private final String cacheKey;
+
+        private final long lastModified;
+
+        private final long length;
+
+        private final byte[] in = new byte[SIZE];
+
+        private byte[] out = new byte[SIZE * 2];
+
+        private int outPos;
+
+        private int outLen;
+
+        private int state = OUTSIDE;
 
-        int position;
+        private boolean escaped;
 
-        private String contextURL;
+        private boolean keyMatching;
 
-        private DefaultMetricsManager metricsManager;
+        private int keyMatched;
 
-        private byte[] bytes;
+        private final ByteArrayOutputStream url = new ByteArrayOutputStream();
 
-        boolean masked;
+        private ByteArrayOutputStream copy;
 
-        private static final int SIZE = 1024;
+        private boolean eof;
+
+        private Timer.Context timer;
 
         private PackageMaskingInputStream( final InputStream stream, final String contextURL,
-                                           final DefaultMetricsManager metricsManager )
+                                           final DefaultMetricsManager metricsManager, final MaskedPackageCache cache,
+                                           final String cacheKey, final long lastModified, final long length )
         {
             super( stream );
             this.contextURL = contextURL;
             this.metricsManager = metricsManager;
+            this.cache = cache;
+            this.cacheKey = cacheKey;
+            this.lastModified = lastModified;
+            this.length = length;
+            this.copy = cache == null ? null : new ByteArrayOutputStream();
         }
 
         @Override
-        public synchronized int read() throws IOException
+        public int read() throws IOException
         {
-            if ( !masked )
+            byte[] b = new byte[1];
+            return read( b, 0, 1 ) < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read( byte[] b, int off, int len ) throws IOException
+        {
+            if ( len == 0 )
             {
-                mask( contextURL );
+                return 0;
             }
-            if ( position < bytes.length )
+
+            while ( outPos == outLen )
             {
-                return bytes[position++];
+                if ( !fill() )
+                {
+                    return -1;
+                }
             }
-            return -1;
+
+            int read = Math.min( len, outLen - outPos );
+            System.arraycopy( out, outPos, b, off, read );
+            outPos += read;
+            return read;
         }
 
         @Override
-        public synchronized int read( byte[] b, int off, int len ) throws IOException
+        public void close() throws IOException
+        {
+            stopTimer();
+            super.close();
+        }
+
+        /**
+         * Read and mask the next chunk into the output buffer. Returns false once the document is exhausted.
+         */
+        private boolean fill() throws IOException
         {
-            if ( !masked )
+            if ( eof )
             {
-                mask( contextURL );
+                return false;
             }
-            if ( position >= bytes.length )
+
+            if ( timer == null && metricsManager != null )
             {
-                return -1;
+                timer = metricsManager.startTimer( TIMER );
+            }
+
+            outPos = 0;
+            outLen = 0;
+
+            int read = super.read( in, 0, in.length );
+            if ( read < 0 )
+            {
+                eof = true;
+                if ( state == TARBALL_VALUE )
+                {
+                    // unterminated value; pass it on as it came
+                    emit( url.toByteArray() );
+                }
             }
-            int read = 0;
-            for ( int i = 0; i < len; i++ )
+            else
             {
-                if ( position < bytes.length )
+                for ( int i = 0; i < read; i++ )
                 {
-                    b[off + i] = bytes[position++];
-                    read++;
+                    process( in[i] );
+                }
+            }
+
+            if ( copy != null )
+            {
+                if ( copy.size() + outLen > MaskedPackageCache.MAX_DOCUMENT_BYTES )
+                {
+                    copy = null;
                 }
                 else
                 {
-                    break;
+                    copy.write( out, 0, outLen );
                 }
             }
-            return read;
+
+            if ( eof )
+            {
+                stopTimer();
+                if ( copy != null )
+                {
+                    cache.put( cacheKey, lastModified, length, copy.toByteArray() );
+                    copy = null;
+                }
+            }
+
+            return !eof || outLen > 0;
         }
 
-        private void mask( String contextURL ) throws IOException
+        private void process( final byte b ) throws IOException
         {
-            Timer.Context timer = metricsManager == null ? null : metricsManager.startTimer( TIMER );
-            try
+            switch ( state )
             {
-                ByteArrayOutputStream bos = new ByteArrayOutputStream();
-                int read;
+                case STRING:
                 {
-                    byte[] buffer = new byte[SIZE];
-                    while ( ( read = super.read(buffer, 0, buffer.length) ) >= 0 )
+                    emit( b );
+                    if ( escaped )
                     {
-                        bos.write( buffer, 0, read );
+                        escaped = false;
+                        keyMatching = false;
                     }
+                    else if ( b == '\\' )
+                    {
+                        escaped = true;
+                        keyMatching = false;
+                    }
+                    else if ( b == '"' )
+                    {
+                        state = keyMatching && keyMatched == TARBALL.length ? AFTER_TARBALL_KEY : OUTSIDE;
+                    }
+                    else if ( keyMatching )
+                    {
+                        keyMatching = keyMatched < TARBALL.length && b == TARBALL[keyMatched];
+                        keyMatched++;
+                    }
+                    return;
+                }
+                case AFTER_TARBALL_KEY:
+                {
+                    if ( b == ':' )
+                    {
+                        emit( b );
+                        state = BEFORE_TARBALL_VALUE;
+                        return;
+                    }
+                    else if ( isWhitespace( b ) )
+                    {
+                        emit( b );
+                        return;
+                    }
+                    break;
+                }
+                case BEFORE_TARBALL_VALUE:
+                {
+                    if ( b == '"' )
+                    {
+                        emit( b );
+                        url.reset();
+                        escaped = false;
+                        state = TARBALL_VALUE;
+                        return;
+                    }
+                    else if ( isWhitespace( b ) )
+                    {
+                        emit( b );
+                        return;
+                    }
+                    break;
                 }
-                byte[] rawBytes = bos.toByteArray();
-                String raw = new String( rawBytes, UTF_8 );
+                case TARBALL_VALUE:
+                {
+                    if ( !escaped && b == '"' )
+                    {
+                        emit( maskTarballUrl( new String( url.toByteArray(), UTF_8 ), contextURL ).getBytes( UTF_8 ) );
+                        emit( b );
+                        state = OUTSIDE;
+                        return;
+                    }
+
+                    url.write( b );
+                    escaped = !escaped && b == '\\';
+                    if ( url.size() > MAX_URL_LENGTH )
+                    {
+                        // not a URL we want to touch; pass the rest of the string through
+                        emit( url.toByteArray() );
+                        keyMatching = false;
+                        state = STRING;
+                    }
+                    return;
+                }
+                default:
+                    break;
+            }
+
+            // OUTSIDE, or a tarball key not followed by a string value
+            state = OUTSIDE;
+            emit( b );
+            if ( b == '"' )
+            {
+                state = STRING;
+                escaped = false;
+                keyMatching = true;
+                keyMatched = 0;
+            }
+        }
 
-                logger.trace( "Mask for raw:\n{}", raw );
+        private boolean isWhitespace( final byte b )
+        {
+            return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+        }
 
-                String s = updatePackageJson( raw, contextURL );
+        private void emit( final byte b )
+        {
+            if ( outLen == out.length )
+            {
+                out = Arrays.copyOf( out, out.length * 2 );
+            }
+            out[outLen++] = b;
+        }
 
-                logger.trace( "Masked:\n{}", s );
-                bytes = s.getBytes();
-                masked = true;
+        private void emit( final byte[] bytes )
+        {
+            if ( outLen + bytes.length > out.length )
+            {
+                out = Arrays.copyOf( out, Math.max( out.length * 2, outLen + bytes.length ) );
             }
-            finally
+            System.arraycopy( bytes, 0, out, outLen, bytes.length );
+            outLen += bytes.length;
+        }
+
+        private void stopTimer()
+        {
+            if ( timer != null )
             {
-                if ( timer != null )
-                {
-                    metricsManager.stopTimer( TIMER );
-                }
+                timer.stop();
+                timer = null;
             }
         }
     }
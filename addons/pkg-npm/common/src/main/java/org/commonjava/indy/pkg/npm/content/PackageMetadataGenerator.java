@@ -79,6 +79,9 @@ public class PackageMetadataGenerator
     @Inject
     private DownloadManager downloadManager;
 
+    @Inject
+    private ParsedPackageCache parsedCache;
+
     protected PackageMetadataGenerator()
     {
     }
@@ -280,9 +283,9 @@ public class PackageMetadataGenerator
 
             }
 
-            try ( InputStream input = metaFile.openInputStream() )
+            try
             {
-                VersionMetadata versionMetadata = mapper.readValue( input, VersionMetadata.class );
+                VersionMetadata versionMetadata = readVersionMetadata( metaFile, mapper );
 
                 if ( versionMetadata == null )
                 {
@@ -353,6 +356,24 @@ public class PackageMetadataGenerator
         return true;
     }
 
+    /**
+     * Version files don't change once published, so with the parsed cache enabled a regeneration after a new version
+     * is uploaded only parses the new version's file.
+     */
+    private VersionMetadata readVersionMetadata( final Transfer metaFile, final IndyObjectMapper mapper )
+            throws IOException
+    {
+        if ( parsedCache != null )
+        {
+            return parsedCache.read( metaFile, VersionMetadata.class, mapper );
+        }
+
+        try (InputStream input = metaFile.openInputStream())
+        {
+            return mapper.readValue( input, VersionMetadata.class );
+        }
+    }
+
     private Map<String, VersionMetadata> sortVersions( Map<String, VersionMetadata> versions )
     {
         final Map<String, VersionMetadata> sorted = new LinkedHashMap<>( versions.size() );
@@ -0,0 +1,152 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.pkg.npm.content;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.commonjava.indy.conf.IndyConfiguration;
+import org.commonjava.maven.galley.model.Transfer;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import static org.commonjava.indy.util.LocationUtils.getKey;
+
+/**
+ * Parsed npm metadata files (member package.json, per-version package metadata), so regenerating a hosted or group
+ * package.json only parses the files that changed since last time. Each entry remembers the last-modified time and
+ * length of the stored file it was parsed from and is ignored once those change. Cached objects are shared: callers
+ * must not modify them.
+ * <p>
+ * The cache is bounded by the total length of the files its entries were parsed from, up to
+ * {@link IndyConfiguration#getNpmParsedMetadataCacheMaxMb()}; files over a quarter of that aren't cached.
+ */
+@ApplicationScoped
+public class ParsedPackageCache
+{
+    @Inject
+    private IndyConfiguration config;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>( 1024, 0.75f, true );
+
+    private long totalBytes;
+
+    protected ParsedPackageCache()
+    {
+    }
+
+    public ParsedPackageCache( final IndyConfiguration config )
+    {
+        this.config = config;
+    }
+
+    public boolean isEnabled()
+    {
+        return config != null && config.isNpmParsedMetadataCacheEnabled();
+    }
+
+    public <T> T read( final Transfer transfer, final Class<T> type, final ObjectMapper mapper )
+            throws IOException
+    {
+        if ( !isEnabled() )
+        {
+            return parse( transfer, type, mapper );
+        }
+
+        final String key = type.getName() + "#" + getKey( transfer ) + "#" + transfer.getPath();
+        final long lastModified = transfer.lastModified();
+        final long length = transfer.length();
+
+        synchronized ( this )
+        {
+            final Entry entry = entries.get( key );
+            if ( entry != null )
+            {
+                if ( entry.lastModified == lastModified && entry.length == length )
+                {
+                    return type.cast( entry.value );
+                }
+
+                remove( key );
+            }
+        }
+
+        final T value = parse( transfer, type, mapper );
+        if ( value != null )
+        {
+            put( key, new Entry( value, lastModified, length ) );
+        }
+
+        return value;
+    }
+
+    private synchronized void put( final String key, final Entry entry )
+    {
+        final long maxBytes = config.getNpmParsedMetadataCacheMaxMb() * 1024L * 1024L;
+        if ( entry.length > maxBytes / 4 )
+        {
+            return;
+        }
+
+        remove( key );
+        entries.put( key, entry );
+        totalBytes += entry.length;
+
+        final Iterator<Entry> eldest = entries.values().iterator();
+        while ( totalBytes > maxBytes && eldest.hasNext() )
+        {
+            totalBytes -= eldest.next().length;
+            eldest.remove();
+        }
+    }
+
+    private void remove( final String key )
+    {
+        final Entry old = entries.remove( key );
+        if ( old != null )
+        {
+            totalBytes -= old.length;
+        }
+    }
+
+    private <T> T parse( final Transfer transfer, final Class<T> type, final ObjectMapper mapper )
+            throws IOException
+    {
+        try (InputStream stream = transfer.openInputStream())
+        {
+            return mapper.readValue( stream, type );
+        }
+    }
+
+    private static final class Entry
+    {
+        private final Object value;
+
+        private final long lastModified;
+
+        private final long length;
+
+        private Entry( final Object value, final long lastModified, final long length )
+        {
+            this.value = value;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+    }
+}
@@ -21,6 +21,7 @@ import org.commonjava.indy.IndyWorkflowException;
 import org.commonjava.indy.model.core.Group;
 import org.commonjava.indy.model.core.StoreKey;
 import org.commonjava.indy.model.core.io.IndyObjectMapper;
+import org.commonjava.indy.pkg.npm.content.ParsedPackageCache;
 import org.commonjava.indy.pkg.npm.model.PackageMetadata;
 import org.commonjava.indy.pkg.npm.model.io.PackageSerializerModule;
 import org.commonjava.maven.galley.model.Transfer;
@@ -54,6 +55,9 @@ public class PackageMetadataMerger
     @Inject
     private IndyObjectMapper mapper;
 
+    @Inject
+    private ParsedPackageCache parsedCache;
+
     private List<PackageMetadataProvider> metadataProviders;
 
     public PackageMetadataMerger()
@@ -100,11 +104,21 @@ public class PackageMetadataMerger
 
             try
             {
-                stream = src.openInputStream();
-                String content = IOUtils.toString( stream );
-                logger.debug( "Adding in metadata content from: {}\n\n{}\n\n", src, content );
+                PackageMetadata md;
+                if ( parsedCache != null && parsedCache.isEnabled() )
+                {
+                    // only members whose package.json changed since the last merge get parsed again
+                    logger.debug( "Adding in metadata from: {}", src );
+                    md = parsedCache.read( src, PackageMetadata.class, mapper );
+                }
+                else
+                {
+                    stream = src.openInputStream();
+                    String content = IOUtils.toString( stream );
+                    logger.debug( "Adding in metadata content from: {}\n\n{}\n\n", src, content );
 
-                PackageMetadata md = mapper.readValue( content, PackageMetadata.class );
+                    md = mapper.readValue( content, PackageMetadata.class );
+                }
 
                 merged = packageMetadata.merge( md, true ) || merged;
             }
@@ -117,6 +131,7 @@ public class PackageMetadataMerger
             finally
             {
                 closeQuietly( stream );
+                stream = null;
             }
         }
 
@@ -0,0 +1,135 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.pkg.npm.content;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.commonjava.indy.conf.DefaultIndyConfiguration;
+import org.commonjava.indy.model.core.HostedRepository;
+import org.commonjava.indy.test.fixture.core.TestCacheProvider;
+import org.commonjava.indy.test.fixture.core.TestFileEventManager;
+import org.commonjava.indy.util.LocationUtils;
+import org.commonjava.maven.galley.io.NoOpTransferDecorator;
+import org.commonjava.maven.galley.io.TransferDecoratorManager;
+import org.commonjava.maven.galley.model.ConcreteResource;
+import org.commonjava.maven.galley.model.Transfer;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.commonjava.indy.pkg.PackageTypeConstants.PKG_TYPE_NPM;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class ParsedPackageCacheTest
+{
+    private static final int FILE_BYTES = 200 * 1024;
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private final HostedRepository hosted = new HostedRepository( PKG_TYPE_NPM, "test" );
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private DefaultIndyConfiguration config;
+
+    private TestCacheProvider provider;
+
+    private ParsedPackageCache cache;
+
+    @Before
+    public void setup()
+            throws Exception
+    {
+        config = new DefaultIndyConfiguration();
+        config.setNpmParsedMetadataCacheEnabled( true );
+        config.setNpmParsedMetadataCacheMaxMb( 1 );
+        provider = new TestCacheProvider( temp.newFolder( "cache" ), new TestFileEventManager(),
+                                          new TransferDecoratorManager( new NoOpTransferDecorator() ) );
+        cache = new ParsedPackageCache( config );
+    }
+
+    @Test
+    public void unchangedFileIsParsedOnce()
+            throws Exception
+    {
+        Transfer transfer = write( "/foo/package.json", "foo", 10 );
+
+        Map<?, ?> first = cache.read( transfer, Map.class, mapper );
+        assertThat( first.get( "name" ), equalTo( "foo" ) );
+        assertThat( cache.read( transfer, Map.class, mapper ), sameInstance( first ) );
+    }
+
+    @Test
+    public void changedFileIsParsedAgain()
+            throws Exception
+    {
+        Transfer transfer = write( "/foo/package.json", "foo", 10 );
+        Map<?, ?> first = cache.read( transfer, Map.class, mapper );
+
+        transfer = write( "/foo/package.json", "foo-changed", 10 );
+        Map<?, ?> second = cache.read( transfer, Map.class, mapper );
+
+        assertThat( second, not( sameInstance( first ) ) );
+        assertThat( second.get( "name" ), equalTo( "foo-changed" ) );
+        assertThat( cache.read( transfer, Map.class, mapper ), sameInstance( second ) );
+    }
+
+    @Test
+    public void leastRecentlyUsedEvictedOverBudget()
+            throws Exception
+    {
+        Transfer first = write( "/first/package.json", "first", FILE_BYTES );
+        Transfer second = write( "/second/package.json", "second", FILE_BYTES );
+        Map<?, ?> firstValue = cache.read( first, Map.class, mapper );
+        Map<?, ?> secondValue = cache.read( second, Map.class, mapper );
+
+        // five files of 200k fit in 1M; the sixth pushes out the least recently used, which is second
+        cache.read( first, Map.class, mapper );
+        for ( int i = 0; i < 4; i++ )
+        {
+            cache.read( write( "/other-" + i + "/package.json", "other-" + i, FILE_BYTES ), Map.class, mapper );
+        }
+
+        assertThat( cache.read( first, Map.class, mapper ), sameInstance( firstValue ) );
+        assertThat( cache.read( second, Map.class, mapper ), not( sameInstance( secondValue ) ) );
+    }
+
+    @Test
+    public void fileOverQuarterOfBudgetNotCached()
+            throws Exception
+    {
+        Transfer transfer = write( "/big/package.json", "big", 300 * 1024 );
+
+        Map<?, ?> first = cache.read( transfer, Map.class, mapper );
+        assertThat( cache.read( transfer, Map.class, mapper ), not( sameInstance( first ) ) );
+    }
+
+    private Transfer write( final String path, final String name, final int padding )
+            throws Exception
+    {
+        final char[] readme = new char[padding];
+        Arrays.fill( readme, 'x' );
+        final String json = "{\"name\":\"" + name + "\",\"readme\":\"" + new String( readme ) + "\"}";
+        return provider.writeToCache( new ConcreteResource( LocationUtils.toLocation( hosted ), path ), json );
+    }
+}
@@ -419,7 +419,10 @@ public class PackageMetadata
         Map<String, String> thisDistMap = distTags.fetchTagsMap();
         if ( thisDistMap.isEmpty() && !sourceDistMap.isEmpty() )
         {
-            this.setDistTags( sourceDist );
+            // copy, so later merges don't write tags into the source
+            DistTag copy = new DistTag();
+            sourceDistMap.forEach( copy::putTag );
+            this.setDistTags( copy );
             changed = true;
         }
         else
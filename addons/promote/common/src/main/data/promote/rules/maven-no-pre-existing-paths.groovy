@@ -15,7 +15,7 @@ class MavenNoPreExistingPaths implements ValidationRule {
 
         tools.paralleledEach(request.getSourcePaths(), { it ->
             def aref = tools.getArtifact(it);
-            if (aref != null) {
+            if (aref != null && !request.isPromoted(it)) {
                 tools.forEach(verifyStoreKeys, { verifyStoreKey ->
                     if (tools.exists(verifyStoreKey, it)) {
                         errors.add(String.format("%s is already available in: %s", it, verifyStoreKey))
@@ -1,11 +1,12 @@
 package org.commonjava.indy.promote.rules
 
 import org.commonjava.indy.promote.validate.model.ValidationRequest
+import org.commonjava.indy.promote.validate.model.SinglePathValidationRule
 import org.commonjava.indy.promote.validate.model.ValidationRule
 import org.apache.commons.lang.StringUtils
 import org.slf4j.LoggerFactory
 
-class MavenParsablePom implements ValidationRule {
+class MavenParsablePom implements SinglePathValidationRule {
 
     String validate(ValidationRequest request) {
         def errors = Collections.synchronizedList(new ArrayList());
@@ -3,10 +3,10 @@ package org.commonjava.indy.promote.rules
 import java.util.regex.Pattern
 import org.apache.commons.lang.StringUtils;
 import org.commonjava.indy.promote.validate.model.ValidationRequest
-import org.commonjava.indy.promote.validate.model.ValidationRule
+import org.commonjava.indy.promote.validate.model.SinglePathValidationRule
 import org.slf4j.LoggerFactory
 
-class MavenProjectVersionPattern implements ValidationRule {
+class MavenProjectVersionPattern implements SinglePathValidationRule {
 
     String validate(ValidationRequest request) throws Exception {
         def versionPattern = request.getVersionPattern()
@@ -14,11 +14,13 @@ class NPMNoPreExistingPaths implements ValidationRule {
         def tools = request.getTools()
 
         tools.paralleledEach(request.getSourcePaths(), { it ->
-            tools.forEach(verifyStoreKeys, { verifyStoreKey ->
-                if (tools.exists(verifyStoreKey, it)) {
-                    errors.add(String.format("%s is already available in: %s", it, verifyStoreKey))
-                }
-            })
+            if (!request.isPromoted(it)) {
+                tools.forEach(verifyStoreKeys, { verifyStoreKey ->
+                    if (tools.exists(verifyStoreKey, it)) {
+                        errors.add(String.format("%s is already available in: %s", it, verifyStoreKey))
+                    }
+                })
+            }
         })
 
         errors.isEmpty() ? null: StringUtils.join(errors, "\n")
@@ -4,10 +4,10 @@ import java.util.regex.Pattern
 import org.apache.commons.lang.StringUtils
 import org.commonjava.indy.pkg.PackageTypeConstants;
 import org.commonjava.indy.promote.validate.model.ValidationRequest
-import org.commonjava.indy.promote.validate.model.ValidationRule
+import org.commonjava.indy.promote.validate.model.SinglePathValidationRule
 import org.slf4j.LoggerFactory
 
-class NPMVersionPattern implements ValidationRule {
+class NPMVersionPattern implements SinglePathValidationRule {
     String validate(ValidationRequest request) throws Exception {
         def versionPattern = request.getVersionPattern()
         def scopedVersionPattern = request.getScopedVersionPattern()
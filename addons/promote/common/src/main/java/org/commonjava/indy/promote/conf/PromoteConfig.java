@@ -39,12 +39,24 @@ public class PromoteConfig
 
     private static final String AUTOLOCK_HOSTED_REPOS = "autolock.hosted.repos";
 
+    private static final String RESUMABLE_PATHS_PARAM = "resumable.paths.enabled";
+
+    private static final String VALIDATION_CACHE_PARAM = "validation.cache.enabled";
+
+    private static final String VALIDATION_CACHE_TTL_MINUTES_PARAM = "validation.cache.ttl.minutes";
+
     public static final long DEFAULT_LOCK_TIMEOUT_SECONDS = 30;
 
     public static final boolean DEFAULT_AUTOLOCK = true;
 
     public static final boolean DEFAULT_ENABLED = true;
 
+    public static final boolean DEFAULT_RESUMABLE_PATHS = false;
+
+    public static final boolean DEFAULT_VALIDATION_CACHE = false;
+
+    public static final long DEFAULT_VALIDATION_CACHE_TTL_MINUTES = 60;
+
     private String basedir;
 
     private Boolean enabled;
@@ -53,6 +65,12 @@ public class PromoteConfig
 
     private Long lockTimeoutSeconds;
 
+    private Boolean resumablePaths;
+
+    private Boolean validationCache;
+
+    private Long validationCacheTtlMinutes;
+
     public PromoteConfig()
     {
     }
@@ -117,6 +135,49 @@ public class PromoteConfig
         this.lockTimeoutSeconds = lockTimeoutSeconds;
     }
 
+    public boolean isResumablePaths()
+    {
+        return resumablePaths == null ? DEFAULT_RESUMABLE_PATHS : resumablePaths;
+    }
+
+    public Boolean getResumablePaths()
+    {
+        return resumablePaths;
+    }
+
+    @ConfigName( PromoteConfig.RESUMABLE_PATHS_PARAM )
+    public void setResumablePaths( final Boolean resumablePaths )
+    {
+        this.resumablePaths = resumablePaths;
+    }
+
+    public boolean isValidationCache()
+    {
+        return validationCache == null ? DEFAULT_VALIDATION_CACHE : validationCache;
+    }
+
+    public Boolean getValidationCache()
+    {
+        return validationCache;
+    }
+
+    @ConfigName( PromoteConfig.VALIDATION_CACHE_PARAM )
+    public void setValidationCache( final Boolean validationCache )
+    {
+        this.validationCache = validationCache;
+    }
+
+    public Long getValidationCacheTtlMinutes()
+    {
+        return validationCacheTtlMinutes == null ? DEFAULT_VALIDATION_CACHE_TTL_MINUTES : validationCacheTtlMinutes;
+    }
+
+    @ConfigName( PromoteConfig.VALIDATION_CACHE_TTL_MINUTES_PARAM )
+    public void setValidationCacheTtlMinutes( final Long validationCacheTtlMinutes )
+    {
+        this.validationCacheTtlMinutes = validationCacheTtlMinutes;
+    }
+
     @Override
     public String getDefaultConfigFileName()
     {
@@ -0,0 +1,370 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.promote.data;
+
+import org.commonjava.indy.promote.conf.PromoteConfig;
+import org.commonjava.indy.promote.model.PathsPromoteProgress;
+import org.commonjava.indy.promote.model.PathsPromoteRequest;
+import org.commonjava.indy.subsys.datafile.DataFileManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static org.apache.commons.codec.digest.DigestUtils.sha256Hex;
+
+/**
+ * Tracks the progress of path promotions and, if {@link PromoteConfig#isResumablePaths()} is enabled, keeps a
+ * checkpoint file of the paths completed by each promotion that sets {@link PathsPromoteRequest#isResume()}. Such a
+ * promotion that fails keeps its checkpoint instead of rolling back, so re-submitting it with the same promotionId
+ * only has to promote what's left. Promotions that don't opt in are rolled back on failure, as they always were. The
+ * checkpoint is removed once the promotion succeeds, or its completed paths are rolled back.
+ * <p>
+ * The first line of a checkpoint records the source, target and requested paths of the promotion that wrote it. A
+ * resume request that doesn't match them is rejected rather than skipping paths another promotion completed.
+ */
+@ApplicationScoped
+public class PathPromotionCheckpoints
+{
+    private static final String CHECKPOINT_DIR = "checkpoints";
+
+    private static final String CHECKPOINT_SUFFIX = ".paths";
+
+    private static final String HEADER_PREFIX = "#";
+
+    private static final String HEADER_SEPARATOR = "\t";
+
+    private static final int MAX_FINISHED = 1000;
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    @Inject
+    private DataFileManager ffManager;
+
+    @Inject
+    private PromoteConfig config;
+
+    private final Map<String, Checkpoint> running = new ConcurrentHashMap<>();
+
+    // progress of finished promotions, kept around (bounded) so clients polling for progress see the end state
+    private final Map<String, PathsPromoteProgress> finished =
+            Collections.synchronizedMap( new LinkedHashMap<String, PathsPromoteProgress>()
+            {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry( final Map.Entry<String, PathsPromoteProgress> eldest )
+                {
+                    return size() > MAX_FINISHED;
+                }
+            } );
+
+    protected PathPromotionCheckpoints()
+    {
+    }
+
+    public PathPromotionCheckpoints( final DataFileManager ffManager, final PromoteConfig config )
+    {
+        this.ffManager = ffManager;
+        this.config = config;
+    }
+
+    /**
+     * Paths a previous attempt of this promotion already completed, if it asks to be resumed and resumable promotion is
+     * enabled; empty otherwise.
+     *
+     * @throws PromotionException if the checkpoint with this promotionId was written for a different source, target
+     * or set of paths
+     */
+    public Set<String> getCompleted( final PathsPromoteRequest request )
+            throws PromotionException
+    {
+        if ( !request.isResume() || !config.isResumablePaths() || ffManager == null )
+        {
+            return Collections.emptySet();
+        }
+
+        final File file = getCheckpointFile( request.getPromotionId() );
+        if ( !file.exists() )
+        {
+            logger.info( "No checkpoint to resume promotion: {} from, promoting all paths", request.getPromotionId() );
+            return Collections.emptySet();
+        }
+
+        final List<String> lines;
+        try
+        {
+            lines = Files.readAllLines( file.toPath(), UTF_8 );
+        }
+        catch ( IOException e )
+        {
+            throw new PromotionException( "Failed to read checkpoint of promotion: %s. Reason: %s", e,
+                                          request.getPromotionId(), e.getMessage() );
+        }
+
+        if ( lines.isEmpty() || !lines.get( 0 ).equals( header( request ) ) )
+        {
+            throw new PromotionException(
+                    "Checkpoint of promotion: %s was written for a different source, target or set of paths; it can't "
+                            + "be resumed by this request", request.getPromotionId() );
+        }
+
+        final Set<String> paths = new HashSet<>();
+        lines.stream().skip( 1 ).filter( line -> !line.isEmpty() ).forEach( paths::add );
+        logger.info( "Resuming promotion: {}, {} paths already completed", request.getPromotionId(), paths.size() );
+        return paths;
+    }
+
+    /**
+     * Start tracking a path promotion of the given number of paths, of which the given ones were completed by a previous
+     * attempt (see {@link #getCompleted(PathsPromoteRequest)}). If resumable promotion is enabled, and the promotion is
+     * recorded and asks to be resumable, the paths it completes are added to its checkpoint; a promotion that isn't
+     * resumed starts a new one. Any other promotion drops a checkpoint left under its promotionId.
+     */
+    public Checkpoint start( final PathsPromoteRequest request, final int total, final Set<String> resumed,
+                             final boolean recorded )
+    {
+        final String promotionId = request.getPromotionId();
+        File file = null;
+        if ( recorded && config.isResumablePaths() && ffManager != null )
+        {
+            if ( request.isResume() )
+            {
+                file = getCheckpointFile( promotionId );
+            }
+
+            if ( resumed.isEmpty() )
+            {
+                clear( promotionId );
+            }
+        }
+
+        final Checkpoint checkpoint = new Checkpoint( request, total, resumed, file );
+        finished.remove( promotionId );
+        running.put( promotionId, checkpoint );
+        return checkpoint;
+    }
+
+    public PathsPromoteProgress getProgress( final String promotionId )
+    {
+        final Checkpoint checkpoint = running.get( promotionId );
+        if ( checkpoint != null )
+        {
+            return checkpoint.toProgress();
+        }
+
+        return finished.get( promotionId );
+    }
+
+    /**
+     * Drop the checkpoint of the given promotion, e.g. once its completed paths have been rolled back.
+     */
+    public void clear( final String promotionId )
+    {
+        if ( ffManager == null )
+        {
+            return;
+        }
+
+        final File file = getCheckpointFile( promotionId );
+        try
+        {
+            Files.deleteIfExists( file.toPath() );
+        }
+        catch ( IOException e )
+        {
+            logger.warn( "Failed to delete promotion checkpoint: {}. Reason: {}", file, e.getMessage() );
+        }
+    }
+
+    private File getCheckpointFile( final String promotionId )
+    {
+        final String name = promotionId.replaceAll( "[^A-Za-z0-9._-]", "_" ) + CHECKPOINT_SUFFIX;
+        return ffManager.getDataFile( config.getBasedir(), CHECKPOINT_DIR, name ).getDetachedFile();
+    }
+
+    private static String header( final PathsPromoteRequest request )
+    {
+        final String paths = request.getPaths().stream().sorted().collect( Collectors.joining( "\n" ) );
+        return HEADER_PREFIX + request.getSource() + HEADER_SEPARATOR + request.getTarget() + HEADER_SEPARATOR
+                + sha256Hex( paths );
+    }
+
+    /**
+     * Progress (and checkpoint file, if any) of one running path promotion. Counters are updated from the transfer
+     * threads.
+     */
+    public final class Checkpoint
+    {
+        private final PathsPromoteRequest request;
+
+        private final int total;
+
+        private final Set<String> resumed;
+
+        private final File file;
+
+        private final AtomicInteger completed = new AtomicInteger();
+
+        private final AtomicInteger skipped = new AtomicInteger();
+
+        private final AtomicInteger failed = new AtomicInteger();
+
+        private BufferedWriter writer;
+
+        private boolean writeFailed;
+
+        private volatile boolean done;
+
+        private Checkpoint( final PathsPromoteRequest request, final int total, final Set<String> resumed,
+                            final File file )
+        {
+            this.request = request;
+            this.total = total;
+            this.resumed = resumed;
+            this.file = file;
+            this.completed.set( resumed.size() );
+        }
+
+        public boolean isResumable()
+        {
+            return file != null;
+        }
+
+        /**
+         * @return true if the path was completed by a previous attempt of this promotion
+         */
+        public boolean isResumed( final String path )
+        {
+            return resumed.contains( path );
+        }
+
+        public void completed( final String path )
+        {
+            completed.incrementAndGet();
+            if ( file != null )
+            {
+                append( path );
+            }
+        }
+
+        public void skipped()
+        {
+            skipped.incrementAndGet();
+        }
+
+        public void failed()
+        {
+            failed.incrementAndGet();
+        }
+
+        private synchronized void append( final String path )
+        {
+            if ( writeFailed )
+            {
+                return;
+            }
+
+            try
+            {
+                if ( writer == null )
+                {
+                    file.getParentFile().mkdirs();
+                    final boolean created = !file.exists();
+                    writer = Files.newBufferedWriter( file.toPath(), UTF_8, CREATE, APPEND );
+                    if ( created )
+                    {
+                        writer.write( header( request ) );
+                        writer.newLine();
+                    }
+                }
+
+                writer.write( path );
+                writer.newLine();
+                writer.flush();
+            }
+            catch ( IOException e )
+            {
+                // the promotion itself is fine, it just can't be resumed from here on
+                writeFailed = true;
+                logger.warn( "Failed to write promotion checkpoint: {}. Reason: {}", file, e.getMessage() );
+            }
+        }
+
+        /**
+         * Finish tracking. The checkpoint is kept only if the promotion failed (so it can be resumed).
+         */
+        public void finish( final boolean succeeded )
+        {
+            synchronized ( this )
+            {
+                if ( writer != null )
+                {
+                    try
+                    {
+                        writer.close();
+                    }
+                    catch ( IOException e )
+                    {
+                        logger.warn( "Failed to close promotion checkpoint: {}. Reason: {}", file, e.getMessage() );
+                    }
+                    writer = null;
+                }
+            }
+
+            if ( succeeded && file != null )
+            {
+                clear( request.getPromotionId() );
+            }
+
+            done = true;
+            running.remove( request.getPromotionId(), this );
+            finished.put( request.getPromotionId(), toProgress() );
+        }
+
+        public PathsPromoteProgress toProgress()
+        {
+            final PathsPromoteProgress progress = new PathsPromoteProgress();
+            progress.setPromotionId( request.getPromotionId() );
+            progress.setSource( request.getSource() );
+            progress.setTarget( request.getTargetKey() );
+            progress.setTotal( total );
+            progress.setCompleted( completed.get() );
+            progress.setResumed( resumed.size() );
+            progress.setSkipped( skipped.get() );
+            progress.setFailed( failed.get() );
+            progress.setDone( done );
+            return progress;
+        }
+    }
+}
@@ -16,7 +16,6 @@
 package org.commonjava.indy.promote.data;
 
 import org.apache.commons.lang3.StringUtils;
-import org.commonjava.cdi.util.weft.DrainingExecutorCompletionService;
 import org.commonjava.cdi.util.weft.ExecutorConfig;
 import org.commonjava.cdi.util.weft.Locker;
 import org.commonjava.cdi.util.weft.ThreadContext;
@@ -41,6 +40,7 @@ import org.commonjava.indy.promote.change.event.PromoteCompleteEvent;
 import org.commonjava.indy.promote.conf.PromoteConfig;
 import org.commonjava.indy.promote.model.GroupPromoteRequest;
 import org.commonjava.indy.promote.model.GroupPromoteResult;
+import org.commonjava.indy.promote.model.PathsPromoteProgress;
 import org.commonjava.indy.promote.model.PathsPromoteRequest;
 import org.commonjava.indy.promote.model.PathsPromoteResult;
 import org.commonjava.indy.promote.model.ValidationResult;
@@ -63,15 +63,15 @@ import javax.inject.Inject;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
@@ -87,8 +87,6 @@ import static org.commonjava.indy.model.core.StoreType.hosted;
 import static org.commonjava.indy.promote.data.PromotionHelper.throwProperException;
 import static org.commonjava.indy.promote.data.PromotionHelper.timeInMillSeconds;
 import static org.commonjava.indy.promote.data.PromotionHelper.timeInSeconds;
-import static org.commonjava.indy.promote.util.Batcher.batch;
-import static org.commonjava.indy.promote.util.Batcher.getParalleledBatchSize;
 import static org.commonjava.maven.galley.model.TransferOperation.UPLOAD;
 
 /**
@@ -163,6 +161,9 @@ public class PromotionManager
     @Inject
     private PromotionHelper promotionHelper;
 
+    @Inject
+    private PathPromotionCheckpoints checkpoints;
+
     protected PromotionManager()
     {
     }
@@ -185,6 +186,7 @@ public class PromotionManager
         this.promotionHelper = new PromotionHelper( storeManager, downloadManager, contentManager, nfc );
         this.conflictManager = new PathConflictManager();
         this.specialPathManager = specialPathManager;
+        this.checkpoints = new PathPromotionCheckpoints( null, config );
     }
 
     @Measure
@@ -540,7 +542,7 @@ public class PromotionManager
             PathsPromoteResult ret;
             try
             {
-                ret = doPathsPromotion( request, false, baseUrl );
+                ret = doPathsPromotion( request, false, true, baseUrl );
             }
             catch ( Exception ex )
             {
@@ -559,6 +561,16 @@ public class PromotionManager
         } ) );
     }
 
+    /**
+     * Retrieve the progress of a running (or recently finished) path promotion.
+     *
+     * @return null if no path promotion with this id has run since startup
+     */
+    public PathsPromoteProgress getPathsPromoteProgress( final String promotionId )
+    {
+        return checkpoints.getProgress( promotionId );
+    }
+
     /**
      * Attempt to rollback a previous {@link PathsPromoteResult}.
      *
@@ -620,7 +632,7 @@ public class PromotionManager
             PathsPromoteResult ret;
             try
             {
-                ret = doPathsPromotion( newRequest, true, null );
+                ret = doPathsPromotion( newRequest, true, false, null );
             }
             catch ( Exception ex )
             {
@@ -634,6 +646,8 @@ public class PromotionManager
             {
                 result.setPendingPaths( result.getCompletedPaths() );
                 result.setCompletedPaths( null );
+                // the completed paths are gone, so there is nothing left to resume from
+                checkpoints.clear( request.getPromotionId() );
             }
             else
             {
@@ -649,7 +663,11 @@ public class PromotionManager
         } ) );
     }
 
-    private PathsPromoteResult doPathsPromotion( PathsPromoteRequest request, boolean skipValidation, String baseUrl )
+    /**
+     * @param recorded whether the promotion keeps a checkpoint it can be resumed from; rollbacks don't
+     */
+    private PathsPromoteResult doPathsPromotion( PathsPromoteRequest request, boolean skipValidation,
+                                                 boolean recorded, String baseUrl )
                     throws IndyWorkflowException, PromotionValidationException
     {
         final Set<String> paths = request.getPaths();
@@ -679,6 +697,17 @@ public class PromotionManager
             return new PathsPromoteResult( request, pending, emptySet(), emptySet(), null );
         }
 
+        final Set<String> resumed;
+        try
+        {
+            resumed = recorded ? checkpoints.getCompleted( request ) : emptySet();
+        }
+        catch ( PromotionException e )
+        {
+            logger.warn( e.getMessage() );
+            return new PathsPromoteResult( request, pending, emptySet(), emptySet(), e.getMessage(), null );
+        }
+
         AtomicReference<Exception> ex = new AtomicReference<>();
         StoreKeyPaths plk = new StoreKeyPaths( request.getTargetKey(), pending );
 
@@ -686,7 +715,7 @@ public class PromotionManager
 
         if ( request.isFailWhenExists() )
         {
-            promoteResult = conflictManager.checkAnd( plk, pathsLockKey -> runValidationAndPathPromotions( skipValidation, request, baseUrl, ex, pending, contents ), pathsLockKey -> {
+            promoteResult = conflictManager.checkAnd( plk, pathsLockKey -> runValidationAndPathPromotions( skipValidation, request, baseUrl, ex, pending, contents, resumed, recorded ), pathsLockKey -> {
                 String msg = String.format( "Conflict detected, store: %s, paths: %s", pathsLockKey.getTarget(), pending );
                 logger.warn( msg );
                 return new PathsPromoteResult( request, pending, emptySet(), emptySet(), msg, null );
@@ -694,7 +723,7 @@ public class PromotionManager
         }
         else
         {
-            promoteResult = runValidationAndPathPromotions( skipValidation, request, baseUrl, ex, pending, contents );
+            promoteResult = runValidationAndPathPromotions( skipValidation, request, baseUrl, ex, pending, contents, resumed, recorded );
         }
 
         if ( ex.get() != null )
@@ -713,14 +742,16 @@ public class PromotionManager
 
     private PathsPromoteResult runValidationAndPathPromotions( boolean skipValidation, PathsPromoteRequest request,
                                                                String baseUrl, AtomicReference<Exception> ex,
-                                                               Set<String> pending, List<Transfer> contents )
+                                                               Set<String> pending, List<Transfer> contents,
+                                                               Set<String> resumed, boolean recorded )
     {
         ValidationResult validationResult = new ValidationResult();
         if ( !skipValidation )
         {
             try
             {
-                ValidationRequest vr = validator.validate( request, validationResult, baseUrl );
+                // paths a resumed promotion already promoted are expected in the target
+                ValidationRequest vr = validator.validate( request, validationResult, baseUrl, resumed );
             }
             catch ( Exception e )
             {
@@ -735,7 +766,8 @@ public class PromotionManager
             {
                 return new PathsPromoteResult( request, pending, emptySet(), emptySet(), validationResult );
             }
-            PathsPromoteResult result = runPathPromotions( request, pending, contents, validationResult );
+            PathsPromoteResult result =
+                    runPathPromotions( request, pending, contents, validationResult, resumed, recorded );
             if ( result.succeeded() )
             {
                 promotionHelper.updatePathPromoteMetrics( contents.size(), result );
@@ -751,7 +783,8 @@ public class PromotionManager
     }
 
     private PathsPromoteResult runPathPromotions( final PathsPromoteRequest request, final Set<String> pending,
-                                                  final List<Transfer> contents, final ValidationResult validation )
+                                                  final List<Transfer> contents, final ValidationResult validation,
+                                                  final Set<String> resumed, final boolean recorded )
     {
         long begin = System.currentTimeMillis();
 
@@ -779,37 +812,95 @@ public class PromotionManager
                                            "Get affected groups failed, " + e.getMessage(), validation );
         }
 
-        DrainingExecutorCompletionService<Set<PathTransferResult>> svc =
-                        new DrainingExecutorCompletionService<>( transferService );
+        final PathPromotionCheckpoints.Checkpoint checkpoint =
+                checkpoints.start( request, contents.size(), resumed, recorded );
 
-        int corePoolSize = transferService.getCorePoolSize();
-        int size = contents.size();
-        int batchSize = getParalleledBatchSize( size, corePoolSize );
-        logger.info( "Execute parallel on collection, size: {}, batch: {}", size, batchSize );
-        Collection<Collection<Transfer>> batches = batch( contents, batchSize );
+        final Set<String> completed = ConcurrentHashMap.newKeySet();
+        final Set<String> skipped = ConcurrentHashMap.newKeySet();
+        final List<String> errors = Collections.synchronizedList( new ArrayList<>() );
 
-        final List<String> errors = new ArrayList<>();
+        // one work item per path, with a bounded number in flight so huge promotions don't flood the transfer pool
+        final int maxInFlight = Math.max( 1, transferService.getCorePoolSize() * 2 );
+        final Semaphore inFlight = new Semaphore( maxInFlight );
+        logger.info( "Execute path transfers, size: {}, max in flight: {}", contents.size(), maxInFlight );
 
         try
         {
-            detectOverloadVoid( () -> batches.forEach(
-                            batch -> svc.submit( newPathPromotionsJob( batch, targetStore, request, affectedGroups ) ) ) );
-        }
-        catch ( IndyWorkflowException e )
-        {
-            // might be PoolOverloadException. Log it and continue to revert any completed paths
-            String msg = String.format( "Failed to submit all path promotion jobs. Error: %s", e.toString() );
-            logger.error( msg, e );
-            errors.add( msg );
-        }
+            for ( Transfer transfer : contents )
+            {
+                if ( transfer != null && checkpoint.isResumed( transfer.getPath() ) )
+                {
+                    completed.add( transfer.getPath() );
+                    continue;
+                }
 
-        final Set<PathTransferResult> results = new HashSet<>();
+                if ( checkpoint.isResumable() && !errors.isEmpty() )
+                {
+                    // the rest will be picked up when the promotion is resumed
+                    logger.info( "Stop submitting path transfers for promotion: {} after failure",
+                                 request.getPromotionId() );
+                    break;
+                }
 
-        try
-        {
-            svc.drain( results::addAll );
+                inFlight.acquire();
+                try
+                {
+                    detectOverloadVoid( () -> transferService.submit( () -> {
+                        try
+                        {
+                            if ( transfer != null )
+                            {
+                                RequestContextHelper.setContext( PROMOTION_CONTENT_PATH, transfer.getPath() );
+                            }
+
+                            PathTransferResult result = doPathTransfer( transfer, targetStore, request, affectedGroups );
+                            if ( result.error != null )
+                            {
+                                errors.add( result.error );
+                                checkpoint.failed();
+                            }
+                            else if ( result.skipped )
+                            {
+                                skipped.add( result.path );
+                                checkpoint.skipped();
+                            }
+                            else
+                            {
+                                completed.add( result.path );
+                                checkpoint.completed( result.path );
+                            }
+                        }
+                        catch ( Throwable e )
+                        {
+                            String msg = String.format( "Failed to promote: %s. Error: %s", transfer, e.getMessage() );
+                            logger.error( msg, e );
+                            errors.add( msg );
+                            checkpoint.failed();
+                        }
+                        finally
+                        {
+                            // transfer threads are pooled; don't leave this path on the next job's context
+                            RequestContextHelper.clearContext( PROMOTION_CONTENT_PATH );
+                            inFlight.release();
+                        }
+                    } ) );
+                }
+                catch ( IndyWorkflowException e )
+                {
+                    inFlight.release();
+                    // might be PoolOverloadException. Log it and continue to revert any completed paths
+                    String msg = String.format( "Failed to submit all path promotion jobs. Error: %s", e.toString() );
+                    logger.error( msg, e );
+                    errors.add( msg );
+                    break;
+                }
+            }
+
+            // wait for the transfers still in flight
+            inFlight.acquire( maxInFlight );
+            inFlight.release( maxInFlight );
         }
-        catch ( InterruptedException | ExecutionException e )
+        catch ( InterruptedException e )
         {
             String msg = String.format( "Error waiting for promotion of: %s to: %s", request.getSource(),
                                         request.getTarget() );
@@ -817,35 +908,32 @@ public class PromotionManager
             errors.add( msg );
         }
 
-        final Set<String> completed = new HashSet<>();
-        final Set<String> skipped = new HashSet<>();
-
-        results.forEach( result -> {
-            if ( result.error != null )
-            {
-                errors.add( result.error );
-            }
-            else if ( result.skipped )
+        PathsPromoteResult result;
+        if ( !errors.isEmpty() )
+        {
+            if ( checkpoint.isResumable() )
             {
-                skipped.add( result.path );
+                // keep what was promoted; re-submitting the request resumes from the checkpoint
+                Set<String> remaining = new HashSet<>( pending );
+                remaining.removeAll( completed );
+                remaining.removeAll( skipped );
+                result = new PathsPromoteResult( request, remaining, new HashSet<>( completed ),
+                                                 new HashSet<>( skipped ), StringUtils.join( errors, "\n" ),
+                                                 validation );
             }
             else
             {
-                completed.add( result.path );
+                List<String> rollbackErrors = promotionHelper.deleteFromStore( completed, targetStore );
+                errors.addAll( rollbackErrors );
+                result = new PathsPromoteResult( request, pending, emptySet(), emptySet(),
+                                                 StringUtils.join( errors, "\n" ), validation );
             }
-        } );
-
-        PathsPromoteResult result;
-        if ( !errors.isEmpty() )
-        {
-            List<String> rollbackErrors = promotionHelper.deleteFromStore( completed, targetStore );
-            errors.addAll( rollbackErrors );
-            result = new PathsPromoteResult( request, pending, emptySet(), emptySet(), StringUtils.join( errors, "\n" ),
-                                             validation );
+            checkpoint.finish( false );
         }
         else
         {
-            result = new PathsPromoteResult( request, emptySet(), completed, skipped, null, validation );
+            final Set<String> promoted = new HashSet<>( completed );
+            result = new PathsPromoteResult( request, emptySet(), promoted, new HashSet<>( skipped ), null, validation );
             final String name = String.format( "PromoteNFCClean-method(%s)-source(%s)-target(%s)", "runPathPromotions",
                                                request.getSource(), targetStore.getKey() );
             final String context =
@@ -853,9 +941,10 @@ public class PromotionManager
                                    "runPathPromotions", request.getSource(), targetStore.getKey() );
             storeManager.asyncGroupAffectedBy( new StoreDataManager.ContextualTask( name, context,
                                                                                     () -> promotionHelper.clearStoreNFC(
-                                                                                                    completed,
+                                                                                                    promoted,
                                                                                                     targetStore,
                                                                                                     affectedGroups ) ) );
+            checkpoint.finish( true );
             if ( request.isFireEvents() )
             {
                 fireEvent( promoteCompleteEvent, new PathsPromoteCompleteEvent( result ) );
@@ -867,26 +956,6 @@ public class PromotionManager
         return result;
     }
 
-    private Callable<Set<PathTransferResult>> newPathPromotionsJob( final Collection<Transfer> transfers,
-                                                                    final ArtifactStore tgt,
-                                                                    final PathsPromoteRequest request,
-                                                                    final Set<Group> affectedGroups )
-    {
-        return () -> {
-            Set<String> pathsForMDC = new HashSet<>();
-            Set<PathTransferResult> results = new HashSet<>();
-            for ( Transfer transfer : transfers )
-            {
-                pathsForMDC.add( transfer.getPath() );
-
-                PathTransferResult ret = doPathTransfer( transfer, tgt, request, affectedGroups );
-                results.add( ret );
-            }
-            RequestContextHelper.setContext( PROMOTION_CONTENT_PATH, pathsForMDC.toString() );
-            return results;
-        };
-    }
-
     private PathTransferResult doPathTransfer( Transfer transfer, final ArtifactStore tgt,
                                                final PathsPromoteRequest request, final Set<Group> affectedGroups )
                     throws IndyWorkflowException
@@ -276,12 +276,7 @@ public class PromotionValidationTools
             return null;
         }
 
-        List<Location> locations = new ArrayList<>( extraLocations.length + 1 );
-        locations.add( transfer.getLocation() );
-        addLocations( locations, extraLocations );
-
-        MavenPomView pomView =
-                pomReader.read( artifactRef.asProjectVersionRef(), transfer, locations, MavenPomView.ALL_PROFILES );
+        MavenPomView pomView = readPom( artifactRef, transfer, request, extraLocations );
 
         try
         {
@@ -318,11 +313,30 @@ public class PromotionValidationTools
 
         Transfer transfer = retrieve( request.getSourceRepository(), path );
 
-        List<Location> locations = new ArrayList<>( extraLocations.length + 1 );
-        locations.add( transfer.getLocation() );
-        addLocations( locations, extraLocations );
+        return readPom( artifactRef, transfer, request, extraLocations );
+    }
+
+    /**
+     * Parsed POMs are kept on the {@link ValidationRequest}, so no rule of the same validation run parses a POM again.
+     */
+    private MavenPomView readPom( final ArtifactRef artifactRef, final Transfer transfer,
+                                  final ValidationRequest request, final StoreKey... extraLocations )
+            throws GalleyMavenException, IndyDataException
+    {
+        final String key = "pom:" + transfer.getPath() + ":" + Arrays.toString( extraLocations );
+        MavenPomView pomView = (MavenPomView) request.getParsed( key );
+        if ( pomView == null )
+        {
+            List<Location> locations = new ArrayList<>( extraLocations.length + 1 );
+            locations.add( transfer.getLocation() );
+            addLocations( locations, extraLocations );
+
+            pomView = (MavenPomView) request.putParsed( key, pomReader.read( artifactRef.asProjectVersionRef(),
+                                                                              transfer, locations,
+                                                                              MavenPomView.ALL_PROFILES ) );
+        }
 
-        return pomReader.read( artifactRef.asProjectVersionRef(), transfer, locations, MavenPomView.ALL_PROFILES );
+        return pomView;
     }
 
     @Measure
@@ -336,15 +350,30 @@ public class PromotionValidationTools
                                              path );
         }
 
-        Transfer transfer = retrieve( request.getSourceRepository(), path );
+        final String key = "local-pom:" + path;
+        MavenPomView pomView = (MavenPomView) request.getParsed( key );
+        if ( pomView == null )
+        {
+            Transfer transfer = retrieve( request.getSourceRepository(), path );
+
+            pomView = (MavenPomView) request.putParsed( key, pomReader.readLocalPom(
+                    artifactRef.asProjectVersionRef(), transfer, MavenPomView.ALL_PROFILES ) );
+        }
 
-        return pomReader.readLocalPom( artifactRef.asProjectVersionRef(), transfer, MavenPomView.ALL_PROFILES );
+        return pomView;
     }
 
     @Measure
     public PackageMetadata readLocalPackageJson( final String path, final ValidationRequest request )
             throws IndyWorkflowException
     {
+        final String key = "package-json:" + path;
+        PackageMetadata parsed = (PackageMetadata) request.getParsed( key );
+        if ( parsed != null )
+        {
+            return parsed;
+        }
+
         Transfer transfer = retrieve( request.getSourceRepository(), path );
         try
         {
@@ -352,7 +381,8 @@ public class PromotionValidationTools
             {
                 try (InputStream is = transfer.openInputStream())
                 {
-                    return objectMapper.readValue( is, PackageMetadata.class );
+                    return (PackageMetadata) request.putParsed( key,
+                                                                objectMapper.readValue( is, PackageMetadata.class ) );
                 }
             }
             else
@@ -31,15 +31,18 @@ import org.commonjava.o11yphant.metrics.annotation.Measure;
 import org.commonjava.o11yphant.metrics.DefaultMetricsManager;
 import org.commonjava.indy.model.core.ArtifactStore;
 import org.commonjava.indy.model.core.RemoteRepository;
+import org.commonjava.indy.model.core.StoreKey;
 import org.commonjava.indy.promote.conf.PromoteConfig;
 import org.commonjava.indy.promote.model.GroupPromoteRequest;
 import org.commonjava.indy.promote.model.PathsPromoteRequest;
 import org.commonjava.indy.promote.model.PromoteRequest;
 import org.commonjava.indy.promote.model.ValidationResult;
 import org.commonjava.indy.promote.model.ValidationRuleSet;
+import org.commonjava.indy.promote.validate.model.SinglePathValidationRule;
 import org.commonjava.indy.promote.validate.model.ValidationRequest;
 import org.commonjava.indy.promote.validate.model.ValidationRuleMapping;
 import org.commonjava.maven.galley.event.EventMetadata;
+import org.commonjava.maven.galley.io.checksum.ContentDigest;
 import org.commonjava.maven.galley.model.Transfer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -50,8 +53,12 @@ import java.io.File;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicReference;
@@ -90,6 +97,9 @@ public class PromotionValidator
     @Inject
     private DefaultMetricsManager metricsManager;
 
+    @Inject
+    private ValidationVerdictCache verdictCache;
+
     @Inject
     @WeftManaged
     @ExecutorConfig( named = "promote-validation-rules-runner", threads = 20, priority = 5, loadSensitive = ExecutorConfig.BooleanLiteral.TRUE, maxLoadFactor = 400 )
@@ -127,6 +137,18 @@ public class PromotionValidator
     @Measure
     public ValidationRequest validate( PromoteRequest request, ValidationResult result, String baseUrl )
             throws PromotionValidationException, IndyWorkflowException
+    {
+        return validate( request, result, baseUrl, Collections.emptySet() );
+    }
+
+    /**
+     * @param promotedPaths paths an earlier attempt of this (resumed) promotion already promoted, see
+     * {@link ValidationRequest#isPromoted(String)}
+     */
+    @Measure
+    public ValidationRequest validate( PromoteRequest request, ValidationResult result, String baseUrl,
+                                       Set<String> promotedPaths )
+            throws PromotionValidationException, IndyWorkflowException
     {
         ValidationRuleSet set = validationsManager.getRuleSetMatching( request.getTargetKey() );
 
@@ -153,9 +175,12 @@ public class PromotionValidator
             if ( ruleNames != null && !ruleNames.isEmpty() )
             {
                 final ArtifactStore store = getRequestStore( request, baseUrl );
-                final ValidationRequest req = new ValidationRequest( request, set, validationTools, store );
+                final ValidationRequest req = new ValidationRequest( request, set, validationTools, store, promotedPaths );
                 try
                 {
+                    final Map<String, String> digests =
+                            hasSinglePathRule( ruleNames ) ? getContentDigests( request, req ) : null;
+
                     DrainingExecutorCompletionService<Exception> svc =
                             new DrainingExecutorCompletionService<>( validateService );
 
@@ -167,7 +192,7 @@ public class PromotionValidator
                                 Exception err = null;
                                 try
                                 {
-                                    executeValidationRule( ruleRef, req, result, request );
+                                    executeValidationRule( ruleRef, req, result, request, digests );
                                 }
                                 catch ( Exception e )
                                 {
@@ -238,19 +263,81 @@ public class PromotionValidator
             else
             {
                 logger.info( "No validation rules are defined for: {}", request.getTargetKey() );
-                return new ValidationRequest( request, set, validationTools, source );
+                return new ValidationRequest( request, set, validationTools, source, promotedPaths );
             }
         }
         else
         {
             logger.info( "No validation rule-sets are defined for: {}", request.getTargetKey() );
-            return new ValidationRequest( request, set, validationTools, source );
+            return new ValidationRequest( request, set, validationTools, source, promotedPaths );
         }
     }
 
+    /**
+     * SHA-256 of the content of every source path, if the verdict cache is enabled; null otherwise. Paths that can't
+     * be digested are left out, so they are always validated.
+     */
+    private Map<String, String> getContentDigests( final PromoteRequest request, final ValidationRequest req )
+            throws PromotionValidationException
+    {
+        if ( verdictCache == null || !verdictCache.isEnabled() )
+        {
+            return null;
+        }
+
+        final StoreKey source = request.getSource();
+        final Map<String, String> digests = new HashMap<>();
+        for ( String path : req.getSourcePaths() )
+        {
+            try
+            {
+                String digest = validationTools.digest( source, path, source.getPackageType() )
+                                               .get( ContentDigest.SHA_256 );
+                if ( digest != null )
+                {
+                    digests.put( path, digest );
+                }
+            }
+            catch ( IndyWorkflowException e )
+            {
+                logger.warn( "Failed to digest: {} in: {} for validation caching. Reason: {}", path, source,
+                             e.getMessage() );
+            }
+        }
+
+        return digests;
+    }
+
+    /**
+     * Whether any of the rules opts in to verdict caching, so source content needs digesting.
+     */
+    private boolean hasSinglePathRule( final List<String> ruleNames )
+    {
+        return ruleNames.stream()
+                        .map( ruleRef -> validationsManager.getRuleMappingNamed( new File( ruleRef ).getName() ) )
+                        .anyMatch( rule -> rule != null && rule.getRule() instanceof SinglePathValidationRule );
+    }
+
+    /**
+     * Paths whose current content has passed the given rule before.
+     */
+    private Set<String> getUnchangedPaths( final String ruleKey, final Map<String, String> digests )
+    {
+        final Set<String> unchanged = new HashSet<>();
+        digests.forEach( ( path, digest ) -> {
+            if ( verdictCache.hasPassed( ruleKey, path, digest ) )
+            {
+                unchanged.add( path );
+            }
+        } );
+
+        return unchanged;
+    }
+
     //@Measure <-- this does not work. Internal calls can never be intercepted.
-    private void executeValidationRule( final String ruleRef, final ValidationRequest req,
-                                        final ValidationResult result, final PromoteRequest request )
+    private void executeValidationRule( final String ruleRef, final ValidationRequest request,
+                                        final ValidationResult result, final PromoteRequest promoteRequest,
+                                        final Map<String, String> digests )
             throws PromotionValidationException
     {
         String ruleName =
@@ -259,6 +346,22 @@ public class PromotionValidator
         ValidationRuleMapping rule = validationsManager.getRuleMappingNamed( ruleName );
         if ( rule != null )
         {
+            // each rule gets its own view of the source paths; parsed content is shared by the whole run
+            ValidationRequest req = request.forRule();
+            String ruleKey = null;
+            // only rules whose verdict is about each path on its own can skip paths; all others always see every path
+            if ( digests != null && rule.getRule() instanceof SinglePathValidationRule )
+            {
+                ruleKey = verdictCache.ruleKey( rule, request.getRuleSet(), promoteRequest.getTargetKey() );
+                Set<String> unchanged = getUnchangedPaths( ruleKey, digests );
+                if ( !unchanged.isEmpty() )
+                {
+                    logger.debug( "Skipping {} unchanged paths for rule: {}", unchanged.size(), rule.getName() );
+                    req = request.forRule( unchanged );
+                }
+            }
+
+            final ValidationRequest ruleReq = req;
             logger.debug( "Running promotion validation rule: {}", rule.getName() );
             String error = null;
             if ( metricsManager != null )
@@ -267,7 +370,7 @@ public class PromotionValidator
                 error = metricsManager.wrapWithStandardMetrics( () -> {
                     try
                     {
-                        return rule.getRule().validate( req );
+                        return rule.getRule().validate( ruleReq );
                     }
                     catch ( Exception e )
                     {
@@ -278,18 +381,18 @@ public class PromotionValidator
 
                 if ( ex.get() != null )
                 {
-                    throwException( ex.get(), rule, request );
+                    throwException( ex.get(), rule, promoteRequest );
                 }
             }
             else
             {
                 try
                 {
-                    error = rule.getRule().validate( req );
+                    error = rule.getRule().validate( ruleReq );
                 }
                 catch ( Exception e )
                 {
-                    throwException( e, rule, request );
+                    throwException( e, rule, promoteRequest );
                 }
             }
 
@@ -301,6 +404,10 @@ public class PromotionValidator
             else
             {
                 logger.debug( "{} succeeded", rule.getName() );
+                if ( ruleKey != null )
+                {
+                    verdictCache.recordPassed( ruleKey, digests, digests.keySet() );
+                }
             }
         }
     }
@@ -0,0 +1,113 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.promote.validate;
+
+import org.commonjava.indy.model.core.StoreKey;
+import org.commonjava.indy.promote.conf.PromoteConfig;
+import org.commonjava.indy.promote.model.ValidationRuleSet;
+import org.commonjava.indy.promote.validate.model.ValidationRuleMapping;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.apache.commons.codec.digest.DigestUtils.sha256Hex;
+
+/**
+ * Remembers which content has passed which validation rule, keyed by the rule (name and script), the rule-set's
+ * validation parameters, the promotion target, the path and the SHA-256 of the path's content. Only rules implementing
+ * {@link org.commonjava.indy.promote.validate.model.SinglePathValidationRule} are cached, since only their verdict on
+ * a path can't be changed by other paths or by what the target contains. Only passing verdicts are kept: a rule that
+ * fails has to run again over everything it saw. Entries expire after
+ * {@link PromoteConfig#getValidationCacheTtlMinutes()}.
+ */
+@ApplicationScoped
+public class ValidationVerdictCache
+{
+    private static final int MAX_ENTRIES = 500000;
+
+    @Inject
+    private PromoteConfig config;
+
+    private final Map<String, Long> passed =
+            Collections.synchronizedMap( new LinkedHashMap<String, Long>( 1024, 0.75f, true )
+            {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry( final Map.Entry<String, Long> eldest )
+                {
+                    return size() > MAX_ENTRIES;
+                }
+            } );
+
+    protected ValidationVerdictCache()
+    {
+    }
+
+    public ValidationVerdictCache( final PromoteConfig config )
+    {
+        this.config = config;
+    }
+
+    public boolean isEnabled()
+    {
+        return config != null && config.isValidationCache();
+    }
+
+    /**
+     * Identifies a rule as run against a rule-set and target. The rule's script is part of it, so editing a rule
+     * invalidates its verdicts.
+     */
+    public String ruleKey( final ValidationRuleMapping rule, final ValidationRuleSet ruleSet, final StoreKey target )
+    {
+        final Map<String, String> params = ruleSet.getValidationParameters() == null ?
+                Collections.emptyMap() :
+                new TreeMap<>( ruleSet.getValidationParameters() );
+
+        return rule.getName() + ":" + sha256Hex( rule.getSpecification() + "\n" + params + "\n" + target );
+    }
+
+    public boolean hasPassed( final String ruleKey, final String path, final String digest )
+    {
+        final Long expires = passed.get( entryKey( ruleKey, path, digest ) );
+        return expires != null && expires > System.currentTimeMillis();
+    }
+
+    public void recordPassed( final String ruleKey, final Map<String, String> digests, final Set<String> paths )
+    {
+        final long expires =
+                System.currentTimeMillis() + TimeUnit.MINUTES.toMillis( config.getValidationCacheTtlMinutes() );
+        for ( String path : paths )
+        {
+            final String digest = digests.get( path );
+            if ( digest != null )
+            {
+                passed.put( entryKey( ruleKey, path, digest ), expires );
+            }
+        }
+    }
+
+    private String entryKey( final String ruleKey, final String path, final String digest )
+    {
+        return ruleKey + "|" + path + "|" + digest;
+    }
+}
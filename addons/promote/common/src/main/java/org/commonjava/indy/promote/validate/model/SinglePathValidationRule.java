@@ -0,0 +1,27 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.promote.validate.model;
+
+/**
+ * A rule whose verdict on each source path depends only on that path and its content (plus the rule-set's
+ * parameters): not on other paths of the request, and not on what the target or other stores contain. Only such rules
+ * have their passed verdicts cached and skip unchanged content, see
+ * {@link org.commonjava.indy.promote.validate.ValidationVerdictCache}. Every other rule always sees all source paths.
+ */
+public interface SinglePathValidationRule
+        extends ValidationRule
+{
+}
@@ -28,9 +28,12 @@ import org.commonjava.indy.promote.validate.PromotionValidationTools;
 import org.commonjava.indy.util.RequestContextHelper;
 import org.commonjava.maven.galley.model.Transfer;
 
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -50,6 +53,16 @@ public class ValidationRequest
 
     private final ArtifactStore sourceRepository;
 
+    // POMs, package.json etc. parsed while validating, shared by all rules of this validation run. The first rule to
+    // parse something keeps it for the others, which only ever read it
+    private final Map<String, Object> parsed;
+
+    private final ValidationRequest parent;
+
+    private final Set<String> skippedPaths;
+
+    private final Set<String> promotedPaths;
+
     private static final Predicate<String> DEFAULT_FILTER =
         getMetadataPredicate().negate().and( getChecksumPredicate().negate() );
 
@@ -57,12 +70,81 @@ public class ValidationRequest
     private static final String SCOPED_VERSION_PATTERN = "scopedVersionPattern";
 
     public ValidationRequest( PromoteRequest promoteRequest, ValidationRuleSet ruleSet, PromotionValidationTools tools, ArtifactStore sourceRepository )
+    {
+        this( promoteRequest, ruleSet, tools, sourceRepository, Collections.emptySet() );
+    }
+
+    public ValidationRequest( PromoteRequest promoteRequest, ValidationRuleSet ruleSet, PromotionValidationTools tools,
+                              ArtifactStore sourceRepository, Set<String> promotedPaths )
     {
         this.promoteRequest = promoteRequest;
         this.ruleSet = ruleSet;
         this.tools = tools;
         this.sourceRepository = sourceRepository;
+        this.parsed = new ConcurrentHashMap<>();
+        this.parent = null;
+        this.skippedPaths = Collections.emptySet();
+        this.promotedPaths = promotedPaths == null ? Collections.emptySet() : promotedPaths;
+    }
+
+    private ValidationRequest( ValidationRequest parent, Set<String> skippedPaths )
+    {
+        this.promoteRequest = parent.promoteRequest;
+        this.ruleSet = parent.ruleSet;
+        this.tools = parent.tools;
+        this.sourceRepository = parent.sourceRepository;
+        this.parsed = parent.parsed;
+        this.parent = parent;
+        this.skippedPaths = skippedPaths;
+        this.promotedPaths = parent.promotedPaths;
+    }
+
+    /**
+     * View of this request for a single rule. Source paths and parsed content are shared with this request.
+     */
+    public ValidationRequest forRule()
+    {
+        return new ValidationRequest( this, Collections.emptySet() );
+    }
+
+    /**
+     * Same as {@link #forRule()}, leaving out paths a {@link SinglePathValidationRule} doesn't need to see again (see
+     * {@link org.commonjava.indy.promote.validate.ValidationVerdictCache}).
+     */
+    public ValidationRequest forRule( Set<String> skippedPaths )
+    {
+        return new ValidationRequest( this, skippedPaths );
+    }
+
+    /**
+     * Whether an earlier attempt of this promotion, which is being resumed, already promoted the path. Such paths are
+     * still validated, but finding them in the target is expected.
+     */
+    public boolean isPromoted( String path )
+    {
+        return promotedPaths.contains( path );
     }
+
+    public Object getParsed( String key )
+    {
+        return parsed.get( key );
+    }
+
+    /**
+     * Keep parsed content for the other rules of this validation run.
+     * @return the content kept under the key, which is the given value unless a rule running in parallel got there first
+     */
+    public Object putParsed( String key, Object value )
+    {
+        if ( value == null )
+        {
+            return null;
+        }
+
+        Object existing = parsed.putIfAbsent( key, value );
+        return existing == null ? value : existing;
+    }
+
     public synchronized Set<String> getSourcePaths()
             throws PromotionValidationException
     {
@@ -81,6 +163,22 @@ public class ValidationRequest
             boolean includeChecksums , Predicate<String> filter )
             throws PromotionValidationException
     {
+        if ( parent != null )
+        {
+            Set<String> paths;
+            synchronized ( parent )
+            {
+                paths = parent.getSourcePaths( includeMetadata, includeChecksums, filter );
+            }
+
+            if ( skippedPaths.isEmpty() )
+            {
+                return paths;
+            }
+
+            return paths.stream().filter( path -> !skippedPaths.contains( path ) ).collect( Collectors.toSet() );
+        }
+
         if ( requestPaths == null )
         {
             Set<String> paths = null;
@@ -0,0 +1,155 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.promote.data;
+
+import org.commonjava.indy.model.core.StoreKey;
+import org.commonjava.indy.promote.conf.PromoteConfig;
+import org.commonjava.indy.promote.model.PathsPromoteRequest;
+import org.commonjava.indy.subsys.datafile.DataFileManager;
+import org.commonjava.indy.subsys.datafile.change.DataFileEventManager;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class PathPromotionCheckpointsTest
+{
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private final StoreKey source = StoreKey.fromString( "maven:hosted:source" );
+
+    private final StoreKey target = StoreKey.fromString( "maven:hosted:target" );
+
+    private PathPromotionCheckpoints checkpoints;
+
+    @Before
+    public void setup()
+            throws Exception
+    {
+        PromoteConfig config = new PromoteConfig();
+        config.setResumablePaths( true );
+        checkpoints = new PathPromotionCheckpoints(
+                new DataFileManager( temp.newFolder( "data" ), new DataFileEventManager() ), config );
+    }
+
+    @Test
+    public void resumedWithCompletedPaths()
+            throws Exception
+    {
+        failAfterCompleting( request( source, target, "/a", "/b", "/c" ), "/a", "/b" );
+
+        Set<String> completed = checkpoints.getCompleted( request( source, target, "/c", "/b", "/a" ).setResume( true ) );
+
+        assertThat( completed, equalTo( new HashSet<>( asList( "/a", "/b" ) ) ) );
+    }
+
+    @Test
+    public void notResumedWithoutFlag()
+            throws Exception
+    {
+        failAfterCompleting( request( source, target, "/a", "/b" ), "/a" );
+
+        assertThat( checkpoints.getCompleted( request( source, target, "/a", "/b" ) ),
+                    equalTo( Collections.<String>emptySet() ) );
+    }
+
+    @Test
+    public void freshAttemptStartsNewCheckpoint()
+            throws Exception
+    {
+        failAfterCompleting( request( source, target, "/a", "/b" ), "/a" );
+        failAfterCompleting( request( source, target, "/a", "/b" ), "/b" );
+
+        Set<String> completed = checkpoints.getCompleted( request( source, target, "/a", "/b" ).setResume( true ) );
+
+        assertThat( completed, equalTo( Collections.singleton( "/b" ) ) );
+    }
+
+    @Test( expected = PromotionException.class )
+    public void differentTargetRejected()
+            throws Exception
+    {
+        failAfterCompleting( request( source, target, "/a", "/b" ), "/a" );
+
+        checkpoints.getCompleted(
+                request( source, StoreKey.fromString( "maven:hosted:other" ), "/a", "/b" ).setResume( true ) );
+    }
+
+    @Test( expected = PromotionException.class )
+    public void differentPathsRejected()
+            throws Exception
+    {
+        failAfterCompleting( request( source, target, "/a", "/b" ), "/a" );
+
+        checkpoints.getCompleted( request( source, target, "/a", "/b", "/c" ).setResume( true ) );
+    }
+
+    @Test
+    public void droppedOnSuccess()
+            throws Exception
+    {
+        PathsPromoteRequest request = request( source, target, "/a" ).setResume( true );
+        PathPromotionCheckpoints.Checkpoint checkpoint =
+                checkpoints.start( request, 1, Collections.emptySet(), true );
+        checkpoint.completed( "/a" );
+        checkpoint.finish( true );
+
+        assertThat( checkpoints.getCompleted( request ), equalTo( Collections.<String>emptySet() ) );
+    }
+
+    @Test
+    public void notResumableWithoutFlag()
+            throws Exception
+    {
+        failAfterCompleting( request( source, target, "/a", "/b" ), "/a" );
+
+        PathPromotionCheckpoints.Checkpoint checkpoint =
+                checkpoints.start( request( source, target, "/a", "/b" ), 2, Collections.emptySet(), true );
+        assertThat( checkpoint.isResumable(), equalTo( false ) );
+        checkpoint.finish( false );
+
+        // the earlier checkpoint went with it, it no longer matches what's in the target
+        assertThat( checkpoints.getCompleted( request( source, target, "/a", "/b" ).setResume( true ) ),
+                    equalTo( Collections.<String>emptySet() ) );
+    }
+
+    private void failAfterCompleting( final PathsPromoteRequest request, final String... paths )
+    {
+        PathPromotionCheckpoints.Checkpoint checkpoint =
+                checkpoints.start( request.setResume( true ), request.getPaths().size(), Collections.emptySet(), true );
+        for ( String path : paths )
+        {
+            checkpoint.completed( path );
+        }
+        checkpoint.finish( false );
+    }
+
+    private PathsPromoteRequest request( final StoreKey source, final StoreKey target, final String... paths )
+    {
+        PathsPromoteRequest request = new PathsPromoteRequest( source, target, paths );
+        request.setPromotionId( "promotion-1" );
+        return request;
+    }
+}
@@ -0,0 +1,65 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.promote.validate;
+
+import org.commonjava.indy.model.core.StoreKey;
+import org.commonjava.indy.model.core.StoreType;
+import org.commonjava.indy.promote.conf.PromoteConfig;
+import org.commonjava.indy.promote.model.ValidationRuleSet;
+import org.commonjava.indy.promote.validate.model.ValidationRuleMapping;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.commonjava.indy.pkg.maven.model.MavenPackageTypeDescriptor.MAVEN_PKG_KEY;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+
+public class ValidationVerdictCacheTest
+{
+
+    private final StoreKey target = new StoreKey( MAVEN_PKG_KEY, StoreType.hosted, "target" );
+
+    @Test
+    public void disabledByDefault()
+    {
+        assertThat( new ValidationVerdictCache( new PromoteConfig() ).isEnabled(), equalTo( false ) );
+    }
+
+    @Test
+    public void passedVerdictIsKeyedByContent()
+    {
+        ValidationVerdictCache cache = new ValidationVerdictCache( new PromoteConfig() );
+        ValidationRuleSet ruleSet = new ValidationRuleSet( "test", "hosted:.*", Collections.singletonList( "rule" ),
+                                                           Collections.emptyMap() );
+        String ruleKey = cache.ruleKey( new ValidationRuleMapping( "rule", "script", null ), ruleSet, target );
+
+        Map<String, String> digests = new HashMap<>();
+        digests.put( "org/foo/bar/1/bar-1.pom", "aaa" );
+        cache.recordPassed( ruleKey, digests, digests.keySet() );
+
+        assertThat( cache.hasPassed( ruleKey, "org/foo/bar/1/bar-1.pom", "aaa" ), equalTo( true ) );
+        assertThat( cache.hasPassed( ruleKey, "org/foo/bar/1/bar-1.pom", "bbb" ), equalTo( false ) );
+
+        String changedRuleKey =
+                cache.ruleKey( new ValidationRuleMapping( "rule", "changed script", null ), ruleSet, target );
+        assertThat( changedRuleKey, not( equalTo( ruleKey ) ) );
+        assertThat( cache.hasPassed( changedRuleKey, "org/foo/bar/1/bar-1.pom", "aaa" ), equalTo( false ) );
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.promote.validate.model;
+
+import org.commonjava.indy.model.core.StoreKey;
+import org.commonjava.indy.promote.model.PathsPromoteRequest;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class ValidationRequestTest
+{
+    private final ValidationRequest request = new ValidationRequest(
+            new PathsPromoteRequest( StoreKey.fromString( "maven:hosted:source" ),
+                                     StoreKey.fromString( "maven:hosted:target" ), "/org/foo/1/foo-1.pom",
+                                     "/org/foo/1/foo-1.jar" ), null, null, null );
+
+    @Test
+    public void ruleViewSeesAllPathsUnlessSkipped()
+            throws Exception
+    {
+        assertThat( request.forRule().getSourcePaths(), equalTo( request.getSourcePaths() ) );
+        assertThat( request.forRule( Collections.singleton( "/org/foo/1/foo-1.jar" ) ).getSourcePaths(),
+                    equalTo( new HashSet<>( Arrays.asList( "/org/foo/1/foo-1.pom" ) ) ) );
+    }
+
+    @Test
+    public void parsedContentSharedBetweenRules()
+    {
+        ValidationRequest first = request.forRule();
+        ValidationRequest second = request.forRule( Collections.singleton( "/org/foo/1/foo-1.jar" ) );
+
+        assertThat( second.getParsed( "pom:/org/foo/1/foo-1.pom" ), nullValue() );
+
+        Object pom = new Object();
+        assertThat( first.putParsed( "pom:/org/foo/1/foo-1.pom", pom ), sameInstance( pom ) );
+
+        assertThat( second.getParsed( "pom:/org/foo/1/foo-1.pom" ), sameInstance( pom ) );
+        assertThat( request.getParsed( "pom:/org/foo/1/foo-1.pom" ), sameInstance( pom ) );
+    }
+
+    @Test
+    public void firstParsedContentKept()
+    {
+        Object pom = new Object();
+        request.forRule().putParsed( "pom:/org/foo/1/foo-1.pom", pom );
+
+        assertThat( request.forRule().putParsed( "pom:/org/foo/1/foo-1.pom", new Object() ), sameInstance( pom ) );
+    }
+}
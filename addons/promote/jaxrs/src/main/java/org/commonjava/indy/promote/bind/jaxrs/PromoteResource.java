@@ -23,6 +23,7 @@ import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiImplicitParam;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
 import org.apache.commons.io.IOUtils;
 import org.commonjava.indy.IndyWorkflowException;
 import org.commonjava.indy.bind.jaxrs.IndyResources;
@@ -33,6 +34,7 @@ import org.commonjava.indy.promote.data.PromotionException;
 import org.commonjava.indy.promote.data.PromotionManager;
 import org.commonjava.indy.promote.model.GroupPromoteRequest;
 import org.commonjava.indy.promote.model.GroupPromoteResult;
+import org.commonjava.indy.promote.model.PathsPromoteProgress;
 import org.commonjava.indy.promote.model.PathsPromoteRequest;
 import org.commonjava.indy.promote.model.PathsPromoteResult;
 import org.commonjava.indy.util.ApplicationContent;
@@ -42,8 +44,10 @@ import org.slf4j.LoggerFactory;
 import javax.inject.Inject;
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.Response;
@@ -211,4 +215,21 @@ public class PromoteResource
         return response;
     }
 
+    @ApiOperation( "Retrieve the progress of a running (or recently finished) paths promotion." )
+    @ApiResponses( { @ApiResponse( code=200, message = "Promotion progress", response=PathsPromoteProgress.class ),
+                           @ApiResponse( code=404, message = "No paths promotion with this id has run" ) } )
+    @Path( "/paths/progress/{promotionId}" )
+    @GET
+    @Produces( ApplicationContent.application_json )
+    public Response getPathsProgress( @PathParam( "promotionId" ) final String promotionId )
+    {
+        PathsPromoteProgress progress = manager.getPathsPromoteProgress( promotionId );
+        if ( progress == null )
+        {
+            return Response.status( Response.Status.NOT_FOUND ).build();
+        }
+
+        return responseHelper.formatOkResponseWithJsonEntity( progress );
+    }
+
 }
@@ -0,0 +1,152 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.promote.model;
+
+import io.swagger.annotations.ApiModelProperty;
+import org.commonjava.indy.model.core.StoreKey;
+
+/**
+ * Snapshot of how far a path promotion has come, reported while it runs (and for a while after it finishes).
+ */
+public class PathsPromoteProgress
+{
+    @ApiModelProperty( "Promotion id of the request" )
+    private String promotionId;
+
+    private StoreKey source;
+
+    private StoreKey target;
+
+    @ApiModelProperty( "Number of paths to promote" )
+    private int total;
+
+    @ApiModelProperty( "Number of paths promoted so far, including paths resumed from a previous attempt" )
+    private int completed;
+
+    @ApiModelProperty( "Number of paths promoted by a previous attempt of the same promotion" )
+    private int resumed;
+
+    @ApiModelProperty( "Number of paths skipped so far" )
+    private int skipped;
+
+    @ApiModelProperty( "Number of paths that failed so far" )
+    private int failed;
+
+    @ApiModelProperty( "Whether the promotion has finished" )
+    private boolean done;
+
+    public PathsPromoteProgress()
+    {
+    }
+
+    public String getPromotionId()
+    {
+        return promotionId;
+    }
+
+    public void setPromotionId( final String promotionId )
+    {
+        this.promotionId = promotionId;
+    }
+
+    public StoreKey getSource()
+    {
+        return source;
+    }
+
+    public void setSource( final StoreKey source )
+    {
+        this.source = source;
+    }
+
+    public StoreKey getTarget()
+    {
+        return target;
+    }
+
+    public void setTarget( final StoreKey target )
+    {
+        this.target = target;
+    }
+
+    public int getTotal()
+    {
+        return total;
+    }
+
+    public void setTotal( final int total )
+    {
+        this.total = total;
+    }
+
+    public int getCompleted()
+    {
+        return completed;
+    }
+
+    public void setCompleted( final int completed )
+    {
+        this.completed = completed;
+    }
+
+    public int getResumed()
+    {
+        return resumed;
+    }
+
+    public void setResumed( final int resumed )
+    {
+        this.resumed = resumed;
+    }
+
+    public int getSkipped()
+    {
+        return skipped;
+    }
+
+    public void setSkipped( final int skipped )
+    {
+        this.skipped = skipped;
+    }
+
+    public int getFailed()
+    {
+        return failed;
+    }
+
+    public void setFailed( final int failed )
+    {
+        this.failed = failed;
+    }
+
+    public boolean isDone()
+    {
+        return done;
+    }
+
+    public void setDone( final boolean done )
+    {
+        this.done = done;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format( "PathsPromoteProgress [promotionId=%s, source=%s, target=%s, total=%s, completed=%s, "
+                                      + "resumed=%s, skipped=%s, failed=%s, done=%s]", promotionId, source, target,
+                              total, completed, resumed, skipped, failed, done );
+    }
+}
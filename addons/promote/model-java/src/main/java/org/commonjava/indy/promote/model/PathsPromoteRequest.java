@@ -59,6 +59,9 @@ public class PathsPromoteRequest
      */
     private boolean failWhenExists;
 
+    @ApiModelProperty( value="Keep a checkpoint instead of rolling back if this promotion fails, and resume a failed promotion with the same promotionId, source, target and paths from its checkpoint, skipping the paths it already promoted (needs resumable path promotion enabled on the server)" )
+    private boolean resume;
+
     public PathsPromoteRequest()
     {
     }
@@ -167,4 +170,15 @@ public class PathsPromoteRequest
         this.failWhenExists = failWhenExists;
         return this;
     }
+
+    public boolean isResume()
+    {
+        return resume;
+    }
+
+    public PathsPromoteRequest setResume( final boolean resume )
+    {
+        this.resume = resume;
+        return this;
+    }
 }
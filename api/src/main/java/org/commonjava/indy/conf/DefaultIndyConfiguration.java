@@ -64,6 +64,48 @@ public class DefaultIndyConfiguration
 
     public static final String DEFAULT_DISPOSABLE_STORE_PATTERN = ".*test.*";
 
+    public static final Boolean DEFAULT_GROUP_RETRIEVE_PARALLEL = false;
+
+    public static final int DEFAULT_GROUP_RETRIEVE_FANOUT = 8;
+
+    public static final Boolean DEFAULT_GROUP_MEMBERSHIP_CACHE_ENABLED = false;
+
+    public static final Boolean DEFAULT_NFC_BLOOM_FILTER_ENABLED = false;
+
+    public static final Boolean DEFAULT_NFC_WRITE_BEHIND_ENABLED = false;
+
+    public static final int DEFAULT_NFC_WRITE_BEHIND_QUEUE_SIZE = 10000;
+
+    public static final int DEFAULT_NFC_WRITE_BEHIND_BATCH_SIZE = 50;
+
+    public static final Boolean DEFAULT_GROUP_METADATA_EAGER_MERGE = false;
+
+    public static final Boolean DEFAULT_REMOTE_URL_INDEX_ENABLED = false;
+
+    public static final Boolean DEFAULT_NPM_MASKED_METADATA_CACHE_ENABLED = false;
+
+    public static final Boolean DEFAULT_NPM_PARSED_METADATA_CACHE_ENABLED = false;
+
+    public static final int DEFAULT_NPM_PARSED_METADATA_CACHE_MAX_MB = 64;
+
+    public static final Boolean DEFAULT_CHECKSUM_INDEX_ENABLED = false;
+
+    public static final Boolean DEFAULT_GA_CACHE_INDEX_ENABLED = false;
+
+    public static final int DEFAULT_GA_CACHE_SCAN_BATCH_SIZE = 32;
+
+    public static final int DEFAULT_GA_CACHE_SCAN_MAX_IN_FLIGHT_WRITES = 256;
+
+    public static final Boolean DEFAULT_GROUP_GENERATION_INVALIDATION_ENABLED = false;
+
+    public static final Boolean DEFAULT_GROUP_LIST_PARALLEL = false;
+
+    public static final long DEFAULT_GROUP_LIST_TIMEOUT_MILLIS = 10000;
+
+    public static final int DEFAULT_GROUP_LIST_CACHE_SECONDS = 60;
+
+    public static final int DEFAULT_GROUP_LIST_CACHE_MAX_ENTRIES = 10000;
+
     private Integer passthroughTimeoutSeconds;
 
     private Integer notFoundCacheTimeoutSeconds;
@@ -106,6 +148,48 @@ public class DefaultIndyConfiguration
 
     private String disposableStorePattern;
 
+    private Boolean groupRetrieveParallel;
+
+    private Integer groupRetrieveFanout;
+
+    private Boolean groupMembershipCacheEnabled;
+
+    private Boolean nfcBloomFilterEnabled;
+
+    private Boolean nfcWriteBehindEnabled;
+
+    private Integer nfcWriteBehindQueueSize;
+
+    private Integer nfcWriteBehindBatchSize;
+
+    private Boolean groupMetadataEagerMerge;
+
+    private Boolean remoteUrlIndexEnabled;
+
+    private Boolean npmMaskedMetadataCacheEnabled;
+
+    private Boolean npmParsedMetadataCacheEnabled;
+
+    private Integer npmParsedMetadataCacheMaxMb;
+
+    private Boolean checksumIndexEnabled;
+
+    private Boolean gaCacheIndexEnabled;
+
+    private Integer gaCacheScanBatchSize;
+
+    private Integer gaCacheScanMaxInFlightWrites;
+
+    private Boolean groupGenerationInvalidationEnabled;
+
+    private Boolean groupListParallel;
+
+    private Long groupListTimeoutMillis;
+
+    private Integer groupListCacheSeconds;
+
+    private Integer groupListCacheMaxEntries;
+
     public DefaultIndyConfiguration()
     {
     }
@@ -407,6 +491,270 @@ public class DefaultIndyConfiguration
         this.storeManagerStandalone = storeManagerStandalone;
     }
 
+    @Override
+    public boolean isGroupRetrieveParallel()
+    {
+        return groupRetrieveParallel == null ? DEFAULT_GROUP_RETRIEVE_PARALLEL : groupRetrieveParallel;
+    }
+
+    @ConfigName( "group.retrieve.parallel.enabled" )
+    public void setGroupRetrieveParallel( Boolean groupRetrieveParallel )
+    {
+        this.groupRetrieveParallel = groupRetrieveParallel;
+    }
+
+    @Override
+    public int getGroupRetrieveFanout()
+    {
+        return groupRetrieveFanout == null ? DEFAULT_GROUP_RETRIEVE_FANOUT : groupRetrieveFanout;
+    }
+
+    @ConfigName( "group.retrieve.parallel.fanout" )
+    public void setGroupRetrieveFanout( Integer groupRetrieveFanout )
+    {
+        this.groupRetrieveFanout = groupRetrieveFanout;
+    }
+
+    @Override
+    public boolean isGroupMembershipCacheEnabled()
+    {
+        return groupMembershipCacheEnabled == null ?
+                DEFAULT_GROUP_MEMBERSHIP_CACHE_ENABLED :
+                groupMembershipCacheEnabled;
+    }
+
+    @ConfigName( "store.group.membership.cache.enabled" )
+    public void setGroupMembershipCacheEnabled( Boolean groupMembershipCacheEnabled )
+    {
+        this.groupMembershipCacheEnabled = groupMembershipCacheEnabled;
+    }
+
+    @Override
+    public boolean isNfcBloomFilterEnabled()
+    {
+        return nfcBloomFilterEnabled == null ? DEFAULT_NFC_BLOOM_FILTER_ENABLED : nfcBloomFilterEnabled;
+    }
+
+    @ConfigName( "nfc.bloom.filter.enabled" )
+    public void setNfcBloomFilterEnabled( Boolean nfcBloomFilterEnabled )
+    {
+        this.nfcBloomFilterEnabled = nfcBloomFilterEnabled;
+    }
+
+    @Override
+    public boolean isNfcWriteBehindEnabled()
+    {
+        return nfcWriteBehindEnabled == null ? DEFAULT_NFC_WRITE_BEHIND_ENABLED : nfcWriteBehindEnabled;
+    }
+
+    @ConfigName( "nfc.write.behind.enabled" )
+    public void setNfcWriteBehindEnabled( Boolean nfcWriteBehindEnabled )
+    {
+        this.nfcWriteBehindEnabled = nfcWriteBehindEnabled;
+    }
+
+    @Override
+    public int getNfcWriteBehindQueueSize()
+    {
+        return nfcWriteBehindQueueSize == null ? DEFAULT_NFC_WRITE_BEHIND_QUEUE_SIZE : nfcWriteBehindQueueSize;
+    }
+
+    @ConfigName( "nfc.write.behind.queue.size" )
+    public void setNfcWriteBehindQueueSize( Integer nfcWriteBehindQueueSize )
+    {
+        this.nfcWriteBehindQueueSize = nfcWriteBehindQueueSize;
+    }
+
+    @Override
+    public int getNfcWriteBehindBatchSize()
+    {
+        return nfcWriteBehindBatchSize == null ? DEFAULT_NFC_WRITE_BEHIND_BATCH_SIZE : nfcWriteBehindBatchSize;
+    }
+
+    @ConfigName( "nfc.write.behind.batch.size" )
+    public void setNfcWriteBehindBatchSize( Integer nfcWriteBehindBatchSize )
+    {
+        this.nfcWriteBehindBatchSize = nfcWriteBehindBatchSize;
+    }
+
+    @Override
+    public boolean isGroupMetadataEagerMerge()
+    {
+        return groupMetadataEagerMerge == null ? DEFAULT_GROUP_METADATA_EAGER_MERGE : groupMetadataEagerMerge;
+    }
+
+    @ConfigName( "group.metadata.eager.merge.enabled" )
+    public void setGroupMetadataEagerMerge( Boolean groupMetadataEagerMerge )
+    {
+        this.groupMetadataEagerMerge = groupMetadataEagerMerge;
+    }
+
+    @Override
+    public boolean isRemoteUrlIndexEnabled()
+    {
+        return remoteUrlIndexEnabled == null ? DEFAULT_REMOTE_URL_INDEX_ENABLED : remoteUrlIndexEnabled;
+    }
+
+    @ConfigName( "store.remote.url.index.enabled" )
+    public void setRemoteUrlIndexEnabled( Boolean remoteUrlIndexEnabled )
+    {
+        this.remoteUrlIndexEnabled = remoteUrlIndexEnabled;
+    }
+
+    @Override
+    public boolean isNpmMaskedMetadataCacheEnabled()
+    {
+        return npmMaskedMetadataCacheEnabled == null ?
+                DEFAULT_NPM_MASKED_METADATA_CACHE_ENABLED :
+                npmMaskedMetadataCacheEnabled;
+    }
+
+    @ConfigName( "npm.metadata.masked.cache.enabled" )
+    public void setNpmMaskedMetadataCacheEnabled( Boolean npmMaskedMetadataCacheEnabled )
+    {
+        this.npmMaskedMetadataCacheEnabled = npmMaskedMetadataCacheEnabled;
+    }
+
+    @Override
+    public boolean isNpmParsedMetadataCacheEnabled()
+    {
+        return npmParsedMetadataCacheEnabled == null ?
+                DEFAULT_NPM_PARSED_METADATA_CACHE_ENABLED :
+                npmParsedMetadataCacheEnabled;
+    }
+
+    @ConfigName( "npm.metadata.parsed.cache.enabled" )
+    public void setNpmParsedMetadataCacheEnabled( Boolean npmParsedMetadataCacheEnabled )
+    {
+        this.npmParsedMetadataCacheEnabled = npmParsedMetadataCacheEnabled;
+    }
+
+    @Override
+    public int getNpmParsedMetadataCacheMaxMb()
+    {
+        return npmParsedMetadataCacheMaxMb == null ?
+                DEFAULT_NPM_PARSED_METADATA_CACHE_MAX_MB :
+                npmParsedMetadataCacheMaxMb;
+    }
+
+    @ConfigName( "npm.metadata.parsed.cache.max.mb" )
+    public void setNpmParsedMetadataCacheMaxMb( Integer npmParsedMetadataCacheMaxMb )
+    {
+        this.npmParsedMetadataCacheMaxMb = npmParsedMetadataCacheMaxMb;
+    }
+
+    @Override
+    public boolean isChecksumIndexEnabled()
+    {
+        return checksumIndexEnabled == null ? DEFAULT_CHECKSUM_INDEX_ENABLED : checksumIndexEnabled;
+    }
+
+    @ConfigName( "checksum.index.enabled" )
+    public void setChecksumIndexEnabled( Boolean checksumIndexEnabled )
+    {
+        this.checksumIndexEnabled = checksumIndexEnabled;
+    }
+
+    @Override
+    public boolean isGACacheIndexEnabled()
+    {
+        return gaCacheIndexEnabled == null ? DEFAULT_GA_CACHE_INDEX_ENABLED : gaCacheIndexEnabled;
+    }
+
+    @ConfigName( "ga-cache.index.enabled" )
+    public void setGACacheIndexEnabled( Boolean gaCacheIndexEnabled )
+    {
+        this.gaCacheIndexEnabled = gaCacheIndexEnabled;
+    }
+
+    @Override
+    public int getGACacheScanBatchSize()
+    {
+        return gaCacheScanBatchSize == null ? DEFAULT_GA_CACHE_SCAN_BATCH_SIZE : gaCacheScanBatchSize;
+    }
+
+    @ConfigName( "ga-cache.scan.batch.size" )
+    public void setGACacheScanBatchSize( Integer gaCacheScanBatchSize )
+    {
+        this.gaCacheScanBatchSize = gaCacheScanBatchSize;
+    }
+
+    @Override
+    public int getGACacheScanMaxInFlightWrites()
+    {
+        return gaCacheScanMaxInFlightWrites == null ?
+                DEFAULT_GA_CACHE_SCAN_MAX_IN_FLIGHT_WRITES :
+                gaCacheScanMaxInFlightWrites;
+    }
+
+    @ConfigName( "ga-cache.scan.max.in.flight.writes" )
+    public void setGACacheScanMaxInFlightWrites( Integer gaCacheScanMaxInFlightWrites )
+    {
+        this.gaCacheScanMaxInFlightWrites = gaCacheScanMaxInFlightWrites;
+    }
+
+    @Override
+    public boolean isGroupGenerationInvalidationEnabled()
+    {
+        return groupGenerationInvalidationEnabled == null ?
+                        DEFAULT_GROUP_GENERATION_INVALIDATION_ENABLED :
+                        groupGenerationInvalidationEnabled;
+    }
+
+    @ConfigName( "group.generation.invalidation.enabled" )
+    public void setGroupGenerationInvalidationEnabled( Boolean groupGenerationInvalidationEnabled )
+    {
+        this.groupGenerationInvalidationEnabled = groupGenerationInvalidationEnabled;
+    }
+
+    @Override
+    public boolean isGroupListParallel()
+    {
+        return groupListParallel == null ? DEFAULT_GROUP_LIST_PARALLEL : groupListParallel;
+    }
+
+    @ConfigName( "group.list.parallel.enabled" )
+    public void setGroupListParallel( Boolean groupListParallel )
+    {
+        this.groupListParallel = groupListParallel;
+    }
+
+    @Override
+    public long getGroupListTimeoutMillis()
+    {
+        return groupListTimeoutMillis == null ? DEFAULT_GROUP_LIST_TIMEOUT_MILLIS : groupListTimeoutMillis;
+    }
+
+    @ConfigName( "group.list.timeout.millis" )
+    public void setGroupListTimeoutMillis( Long groupListTimeoutMillis )
+    {
+        this.groupListTimeoutMillis = groupListTimeoutMillis;
+    }
+
+    @Override
+    public int getGroupListCacheSeconds()
+    {
+        return groupListCacheSeconds == null ? DEFAULT_GROUP_LIST_CACHE_SECONDS : groupListCacheSeconds;
+    }
+
+    @ConfigName( "group.list.cache.seconds" )
+    public void setGroupListCacheSeconds( Integer groupListCacheSeconds )
+    {
+        this.groupListCacheSeconds = groupListCacheSeconds;
+    }
+
+    @Override
+    public int getGroupListCacheMaxEntries()
+    {
+        return groupListCacheMaxEntries == null ? DEFAULT_GROUP_LIST_CACHE_MAX_ENTRIES : groupListCacheMaxEntries;
+    }
+
+    @ConfigName( "group.list.cache.max.entries" )
+    public void setGroupListCacheMaxEntries( Integer groupListCacheMaxEntries )
+    {
+        this.groupListCacheMaxEntries = groupListCacheMaxEntries;
+    }
+
     @Override
     public String getDefaultConfigFileName()
     {
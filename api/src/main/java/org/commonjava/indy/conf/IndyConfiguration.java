@@ -118,4 +118,144 @@ public interface IndyConfiguration
      * @since 2.1.0
      */
     int getFileSystemContainingBatchSize();
+
+    /**
+     * When enabled, concrete members of a group are probed concurrently (hosted first, then remotes) instead of one
+     * after the other. The highest-priority hit in group member order is still the one returned.
+     * @since 2.5.3
+     */
+    boolean isGroupRetrieveParallel();
+
+    /**
+     * Maximum number of group members probed at the same time for a single request when
+     * {@link #isGroupRetrieveParallel()} is enabled.
+     * @since 2.5.3
+     */
+    int getGroupRetrieveFanout();
+
+    /**
+     * Keep a local, flattened copy of group membership that is dropped whenever a member store changes on this node.
+     * Only safe where every store change goes through this node's StoreDataManager.
+     * @since 2.5.3
+     */
+    boolean isGroupMembershipCacheEnabled();
+
+    /**
+     * Keep a per-store Bloom filter of missing paths in front of the NFC, so lookups for paths never recorded as
+     * missing skip the backing cache. Only additions made through this node reach the filter.
+     * @since 2.5.3
+     */
+    boolean isNfcBloomFilterEnabled();
+
+    /**
+     * Queue Cassandra NFC inserts / deletes and flush them in the background as unlogged batches per store, instead
+     * of writing them synchronously on the request thread.
+     * @since 2.5.3
+     */
+    boolean isNfcWriteBehindEnabled();
+
+    int getNfcWriteBehindQueueSize();
+
+    int getNfcWriteBehindBatchSize();
+
+    /**
+     * Apply additive member metadata changes (new versions) to the merged maven-metadata.xml of affected groups as
+     * they happen, rather than deleting it and re-merging all members on the next request.
+     * @since 2.5.3
+     */
+    boolean isGroupMetadataEagerMerge();
+
+    /**
+     * Keep a local index from remote repository URL (and host) to remote repositories for URL lookups, maintained from
+     * store changes made through this node.
+     * @since 2.5.3
+     */
+    boolean isRemoteUrlIndexEnabled();
+
+    /**
+     * Keep recently served npm package.json documents with their tarball URLs already masked, keyed by store, path
+     * and context URL, so hot metadata isn't rewritten again on every request.
+     * @since 2.5.3
+     */
+    boolean isNpmMaskedMetadataCacheEnabled();
+
+    /**
+     * Keep parsed npm package.json and version metadata files, so regenerating hosted or group package.json only
+     * parses the files that changed since the last time.
+     * @since 2.5.3
+     */
+    boolean isNpmParsedMetadataCacheEnabled();
+
+    /**
+     * Size budget, in megabytes of stored metadata files, for the parsed npm metadata cache. Least recently used
+     * entries are dropped once the files they were parsed from add up to more than this.
+     * @since 2.5.3
+     */
+    int getNpmParsedMetadataCacheMaxMb();
+
+    /**
+     * Keep content checksums (MD5, SHA-1, SHA-256) and sizes in a local append-only index file, so they survive
+     * metadata cache eviction and restarts without re-reading content.
+     * @since 2.5.3
+     */
+    boolean isChecksumIndexEnabled();
+
+    /**
+     * Keep the whole path-mapped GA cache table in memory, as store ordinals per GA, so group filtering doesn't query
+     * Cassandra. Loaded at startup and reloaded on each GA cache fill.
+     * @since 2.5.3
+     */
+    boolean isGACacheIndexEnabled();
+
+    /**
+     * Number of stores the GA cache fill scans together. The GAs found in a batch are merged, so each GA table row is
+     * written once per batch with all of the batch's stores containing it.
+     * @since 2.5.3
+     */
+    int getGACacheScanBatchSize();
+
+    /**
+     * Most GA table writes the GA cache fill keeps pending at once.
+     * @since 2.5.3
+     */
+    int getGACacheScanMaxInFlightWrites();
+
+    /**
+     * On a group membership change, advance the generation of the affected groups and drop only what they hold
+     * themselves, instead of clearing every path of the added and removed members.
+     * @since 2.5.3
+     */
+    boolean isGroupGenerationInvalidationEnabled();
+
+    /**
+     * When enabled, a group directory is listed by listing its concrete members concurrently (up to
+     * {@link #getGroupRetrieveFanout()} at a time), waiting no longer than {@link #getGroupListTimeoutMillis()} in
+     * total. Members that haven't answered by then are left out and the listing is flagged as partial.
+     * @since 2.5.3
+     */
+    boolean isGroupListParallel();
+
+    /**
+     * Time budget for a whole group directory listing when {@link #isGroupListParallel()} is enabled.
+     * @since 2.5.3
+     */
+    long getGroupListTimeoutMillis();
+
+    /**
+     * How long a complete merged group directory listing is reused when {@link #isGroupListParallel()} is enabled. A
+     * cached listing is dropped earlier when the group's members change or a hosted member stores or deletes a file
+     * under that directory. Zero disables the cache.
+     * <p>
+     * Only changes made through this node drop cached listings early; a file stored through another node of a cluster
+     * shows up here once the listing expires.
+     * @since 2.5.3
+     */
+    int getGroupListCacheSeconds();
+
+    /**
+     * Most group directory listings kept in total, across all groups. When it is reached, the oldest listings are
+     * dropped first.
+     * @since 2.5.3
+     */
+    int getGroupListCacheMaxEntries();
 }
@@ -43,6 +43,12 @@ public interface ContentManager
 
     String SUPPRESS_EVENTS = "suppress-events";
 
+    /**
+     * Set to {@link Boolean#TRUE} in the event metadata of a group directory listing that left out members which didn't
+     * answer in time.
+     */
+    String GROUP_LISTING_PARTIAL = "group-listing-partial";
+
     /**
      * Retrieve the content at the given path from the first store possible, then return then return the transfer that references the content without 
      * iterating any farther.
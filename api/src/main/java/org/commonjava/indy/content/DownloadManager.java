@@ -17,6 +17,7 @@ package org.commonjava.indy.content;
 
 import java.io.InputStream;
 import java.util.List;
+import java.util.stream.Stream;
 
 import org.commonjava.indy.IndyWorkflowException;
 import org.commonjava.indy.model.core.ArtifactStore;
@@ -186,6 +187,15 @@ public interface DownloadManager
     List<Transfer> listRecursively( StoreKey src, String startPath )
         throws IndyWorkflowException;
 
+    /**
+     * Like {@link #listRecursively(StoreKey, String)}, but directories are walked as the stream is consumed instead of
+     * the whole listing being built up front. The stream can be made parallel, in which case subdirectories are walked
+     * on separate fork-join workers. A directory that can't be listed fails the stream with an
+     * {@link java.io.UncheckedIOException}.
+     */
+    Stream<Transfer> streamRecursively( StoreKey src, String startPath )
+        throws IndyWorkflowException;
+
     /**
      * Retrieve a {@link Transfer} object suitable for use in the specified operation. This method handles the selection logic, and doesn't fire any 
      * events (the returned {@link Transfer} object handles that in this case). The first suitable store is used to hold the Transfer.
@@ -26,4 +26,12 @@ import java.util.Set;
 public interface StoreContentAction
 {
     void clearStoreContent( String path, ArtifactStore store, Set<Group> affectedGroups, boolean clearOriginPath );
+
+    /**
+     * Clear whatever is kept for the group itself (merged content, not-found entries, index entries), e.g. after its
+     * membership changed.
+     */
+    default void clearGroupContent( Group group )
+    {
+    }
 }
@@ -91,6 +91,12 @@ public interface ArtifactStoreQuery<T extends ArtifactStore>
     List<RemoteRepository> getRemoteRepositoryByUrl( String url )
             throws IndyDataException;
 
+    /**
+     * Remote repositories whose URL is exactly the given one (no trailing slash or IP matching).
+     */
+    List<RemoteRepository> getRemoteRepositoryByExactUrl( String url )
+            throws IndyDataException;
+
     List<ArtifactStore> getOrderedConcreteStoresInGroup( String groupName )
             throws IndyDataException;
 
@@ -176,6 +176,13 @@ public class DelegatingArtifactStoreQuery<T extends ArtifactStore>
         return delegate.getRemoteRepositoryByUrl( url );
     }
 
+    @Override
+    public List<RemoteRepository> getRemoteRepositoryByExactUrl( final String url )
+            throws IndyDataException
+    {
+        return delegate.getRemoteRepositoryByExactUrl( url );
+    }
+
     @Override
     public List<ArtifactStore> getOrderedConcreteStoresInGroup( final String groupName )
             throws IndyDataException
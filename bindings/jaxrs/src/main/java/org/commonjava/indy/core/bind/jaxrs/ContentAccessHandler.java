@@ -375,8 +375,10 @@ public class ContentAccessHandler
     
                     if(!path.endsWith("/")) {
                         // Content hashing headers
-                        builder.header(ApplicationHeader.md5.key(), contentDigester.digest(sk, path, new EventMetadata()).getDigests().get(ContentDigest.MD5));
-                        builder.header(ApplicationHeader.sha1.key(), contentDigester.digest(sk, path, new EventMetadata()).getDigests().get(ContentDigest.SHA_1));
+                        final Map<ContentDigest, String> digests =
+                                contentDigester.digest( sk, path, new EventMetadata() ).getDigests();
+                        builder.header(ApplicationHeader.md5.key(), digests.get(ContentDigest.MD5));
+                        builder.header(ApplicationHeader.sha1.key(), digests.get(ContentDigest.SHA_1));
                     }
                     
                     if ( builderModifier != null )
@@ -0,0 +1,66 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.core.change;
+
+import org.commonjava.indy.model.core.StoreKey;
+import org.commonjava.indy.util.LocationUtils;
+import org.commonjava.maven.galley.model.Transfer;
+
+import javax.enterprise.context.ApplicationScoped;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.commonjava.indy.model.core.StoreType.group;
+
+/**
+ * Generation of each group's content, advanced whenever its membership changes. A generation is the time (millis) of
+ * the change, so anything derived from the group's members (merged files, cached metadata) can be checked against it
+ * by the time it was produced: if that is not after the generation, it was computed from the old members and is
+ * stale.
+ */
+@ApplicationScoped
+public class GroupGenerations
+{
+    private final Map<StoreKey, Long> generations = new ConcurrentHashMap<>();
+
+    public long get( final StoreKey key )
+    {
+        final Long generation = generations.get( key );
+        return generation == null ? 0 : generation;
+    }
+
+    public void advance( final Collection<StoreKey> keys )
+    {
+        final long now = System.currentTimeMillis();
+        keys.forEach( key -> generations.merge( key, now, ( prev, next ) -> Math.max( prev + 1, next ) ) );
+    }
+
+    /**
+     * Whether something produced at the given time for the store predates its current generation. Only groups have
+     * generations, so this is always false for other stores.
+     */
+    public boolean isStale( final StoreKey key, final long producedAt )
+    {
+        return key.getType() == group && producedAt <= get( key );
+    }
+
+    public boolean isStale( final Transfer transfer )
+    {
+        final StoreKey key = LocationUtils.getKey( transfer );
+        return key != null && transfer.exists() && isStale( key, transfer.lastModified() );
+    }
+}
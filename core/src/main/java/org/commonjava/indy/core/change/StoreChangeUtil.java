@@ -25,7 +25,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -134,6 +136,11 @@ public class StoreChangeUtil
 
     /**
      * List paths in the target store and execute pathAction for accepted paths.
+     * <p>
+     * Each path is handled as soon as its directory is listed, and only the directories still to be listed are kept,
+     * so this already runs in bounded memory without {@link org.commonjava.indy.content.DownloadManager#streamRecursively}.
+     * It stays on {@link DirectContentAccess} because store deletion must also clear content the download manager
+     * would hide, and it stays sequential because callers already run one walk per store on the cleanup executor.
      * @return accepted paths count
      */
     public static int listPathsAnd( StoreKey key, Predicate<? super String> pathFilter, Consumer<String> pathAction,
@@ -152,11 +159,11 @@ public class StoreChangeUtil
             return 0;
         }
 
-        List<Transfer> toProcess = new ArrayList<>();
+        Deque<Transfer> toProcess = new ArrayDeque<>();
         toProcess.add( root );
         while ( !toProcess.isEmpty() )
         {
-            Transfer next = toProcess.remove( 0 );
+            Transfer next = toProcess.poll();
             try
             {
                 Stream.of( next.list() ).forEach( filename -> {
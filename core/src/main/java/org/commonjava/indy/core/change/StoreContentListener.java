@@ -23,6 +23,7 @@ import org.commonjava.indy.IndyWorkflowException;
 import org.commonjava.indy.change.event.ArtifactStoreDeletePreEvent;
 import org.commonjava.indy.change.event.ArtifactStoreEnablementEvent;
 import org.commonjava.indy.change.event.ArtifactStorePreUpdateEvent;
+import org.commonjava.indy.conf.IndyConfiguration;
 import org.commonjava.indy.content.DirectContentAccess;
 import org.commonjava.indy.content.StoreContentAction;
 import org.commonjava.indy.data.IndyDataException;
@@ -85,6 +86,12 @@ public class StoreContentListener
     @Inject
     private StoreDataManager storeDataManager;
 
+    @Inject
+    private IndyConfiguration config;
+
+    @Inject
+    private GroupGenerations groupGenerations;
+
     /**
      * Handles store disable/enablement.
      */
@@ -154,12 +161,62 @@ public class StoreContentListener
 
         logger.debug( "Affected groups: {}", groups );
 
+        if ( config.isGroupGenerationInvalidationEnabled() )
+        {
+            invalidateGroups( groups );
+            return;
+        }
+
         final boolean deleteOriginPath = false;
 
         clearPaths( added, mergablePath(), groups, deleteOriginPath );
         clearPaths( removed, allPath(), groups, deleteOriginPath );
     }
 
+    /**
+     * Advance the generation of the groups, so whatever was merged or cached from their old members is stale, and clear
+     * what the groups hold themselves. Unlike {@link #clearPaths}, this doesn't depend on the size of the members.
+     */
+    private void invalidateGroups( final Set<Group> groups )
+    {
+        groupGenerations.advance( groups.stream().map( Group::getKey ).collect( Collectors.toSet() ) );
+
+        // same as clearPaths, wait for it so no stale merged metadata is served once the update is done (NOSSUP-76)
+        DrainingExecutorCompletionService<Integer> clearService =
+                new DrainingExecutorCompletionService<>( cleanupExecutor );
+
+        groups.forEach( g -> clearService.submit( () -> clearGroup( g ) ) );
+
+        drainAndCount( clearService, "groups: " + groups );
+    }
+
+    private int clearGroup( final Group group )
+    {
+        logger.info( "Clear stale content of group: {}", group.getKey() );
+
+        // a group only stores merged files, so this listing doesn't grow with the content of its members
+        AtomicInteger cleared = new AtomicInteger( 0 );
+        listPathsAnd( group.getKey(), allPath(), p -> {
+            try
+            {
+                Transfer t = directContentAccess.getTransfer( group, p );
+                if ( groupGenerations.isStale( t ) && delete( t ) )
+                {
+                    cleared.incrementAndGet();
+                }
+            }
+            catch ( IndyWorkflowException e )
+            {
+                logger.warn( "Failed to delete path: {}, store: {}", p, group.getKey(), e );
+            }
+        }, directContentAccess );
+
+        StreamSupport.stream( storeContentActions.spliterator(), false )
+                     .forEach( action -> action.clearGroupContent( group ) );
+
+        return cleared.get();
+    }
+
     private int clearPath( String path, ArtifactStore store )
     {
         logger.info( "Clear path: {}, store: {}", path, store.getKey() );
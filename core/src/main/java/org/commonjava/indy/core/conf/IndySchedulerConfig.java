@@ -42,6 +42,8 @@ public class IndySchedulerConfig
 
     private static final String CLUSTER_LOCK_EXPIRATION = "schedule.cluster.lock.expiration.sec";
 
+    private static final String CONTENT_WHEEL_ENABLED = "content.wheel.enabled";
+
 //    @Deprecated
 //    private static final String QUARTZ_DATASOURCE_PREFIX = "org.quartz.dataSource.ds.";
 //
@@ -145,6 +147,15 @@ public class IndySchedulerConfig
         return clusterLockExpiration == null ? DEFAULT_CLUSTER_LOCK_EXPIRATION : clusterLockExpiration;
     }
 
+    /**
+     * Keep content expirations on this node's timing wheel instead of the schedule cache.
+     */
+    public boolean isContentWheelEnabled()
+    {
+        final String value = getConfiguration().get( CONTENT_WHEEL_ENABLED );
+        return value != null && Boolean.parseBoolean( value.trim() );
+    }
+
 //    @Deprecated
 //    public String getDdlFile()
 //    {
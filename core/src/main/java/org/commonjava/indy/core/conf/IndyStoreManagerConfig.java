@@ -12,10 +12,16 @@ import java.io.InputStream;
 public class IndyStoreManagerConfig implements IndyConfigInfo
 {
 
+    public static final int DEFAULT_NEAR_CACHE_CHECK_SECONDS = 5;
+
     private String keyspace;
 
     private int replicationFactor;
 
+    private Boolean nearCacheEnabled;
+
+    private Integer nearCacheCheckSeconds;
+
     public IndyStoreManagerConfig() {}
 
     public IndyStoreManagerConfig( String keyspace, int replicationFactor )
@@ -46,6 +52,34 @@ public class IndyStoreManagerConfig implements IndyConfigInfo
         this.replicationFactor = replicationFactor;
     }
 
+    /**
+     * Keep decoded stores in a node-local cache, dropped whenever another node changes a store.
+     */
+    public boolean isNearCacheEnabled()
+    {
+        return nearCacheEnabled == null ? false : nearCacheEnabled;
+    }
+
+    @ConfigName( "store.manager.near.cache.enabled" )
+    public void setNearCacheEnabled( Boolean nearCacheEnabled )
+    {
+        this.nearCacheEnabled = nearCacheEnabled;
+    }
+
+    /**
+     * How often the near cache checks for store changes made on other nodes, i.e. how stale it can be.
+     */
+    public int getNearCacheCheckSeconds()
+    {
+        return nearCacheCheckSeconds == null ? DEFAULT_NEAR_CACHE_CHECK_SECONDS : nearCacheCheckSeconds;
+    }
+
+    @ConfigName( "store.manager.near.cache.check.seconds" )
+    public void setNearCacheCheckSeconds( Integer nearCacheCheckSeconds )
+    {
+        this.nearCacheCheckSeconds = nearCacheCheckSeconds;
+    }
+
     @Override
     public String getDefaultConfigFileName()
     {
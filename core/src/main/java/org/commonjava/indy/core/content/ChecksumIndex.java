@@ -0,0 +1,734 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.core.content;
+
+import org.apache.commons.codec.DecoderException;
+import org.apache.commons.codec.binary.Hex;
+import org.commonjava.cdi.util.weft.ExecutorConfig;
+import org.commonjava.cdi.util.weft.NamedThreadFactory;
+import org.commonjava.cdi.util.weft.PoolWeftExecutorService;
+import org.commonjava.cdi.util.weft.WeftExecutorService;
+import org.commonjava.cdi.util.weft.WeftManaged;
+import org.commonjava.indy.conf.IndyConfiguration;
+import org.commonjava.indy.subsys.datafile.DataFileManager;
+import org.commonjava.maven.galley.io.checksum.ContentDigest;
+import org.commonjava.maven.galley.io.checksum.TransferMetadata;
+import org.commonjava.maven.galley.model.Transfer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.commonjava.indy.core.content.LongLongMap.MISSING;
+
+/**
+ * Append-only file of content checksums and sizes, keyed like the content metadata cache (store key + path). Only a
+ * 64-bit hash of each key and the file offset of its latest record are kept in memory, in a {@link LongLongMap};
+ * lookups read that one record and check the full key stored in it. Two keys sharing a hash just evict each other,
+ * which costs a recalculation. Each record also holds the last-modified time and length of the file it was calculated
+ * from, and is ignored once those change. Superseded and removed records are dropped by rewriting the file on the
+ * {@link #COMPACTION_EXECUTOR} pool once they outnumber the live ones (and number more than
+ * {@link #MIN_DEAD_TO_COMPACT}).
+ * <p>
+ * Record layout: int length, byte kind, short key length, key (UTF-8), then for {@link #LIVE} records: long
+ * last-modified, long file length, long content size, byte digest count, and per digest a byte code
+ * ({@link #DIGESTS} index), a byte length and the raw digest bytes.
+ */
+@ApplicationScoped
+public class ChecksumIndex
+{
+    static final String INDEX_DIR = "checksums";
+
+    static final String INDEX_FILE = "checksum-index.dat";
+
+    private static final ContentDigest[] DIGESTS = { ContentDigest.MD5, ContentDigest.SHA_1, ContentDigest.SHA_256 };
+
+    private static final byte LIVE = 1;
+
+    private static final byte REMOVED = 2;
+
+    private static final int MAX_RECORD_LENGTH = 64 * 1024;
+
+    private static final int MIN_DEAD_TO_COMPACT = 10000;
+
+    private static final String COMPACTION_EXECUTOR = "checksum-index-compaction";
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    @Inject
+    private IndyConfiguration config;
+
+    @Inject
+    private DataFileManager dataFileManager;
+
+    @Inject
+    @WeftManaged
+    @ExecutorConfig( named = COMPACTION_EXECUTOR, threads = 1, priority = 2, daemon = true )
+    private WeftExecutorService compactionExecutor;
+
+    /**
+     * Guards {@link #offsets} and swapping {@link #channel}; appends are also serialized on the index itself.
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private LongLongMap offsets = new LongLongMap( 0 );
+
+    private File file;
+
+    private volatile FileChannel channel;
+
+    private long end;
+
+    private int dead;
+
+    private Future<?> compaction;
+
+    protected ChecksumIndex()
+    {
+    }
+
+    public ChecksumIndex( final IndyConfiguration config, final DataFileManager dataFileManager )
+    {
+        this.config = config;
+        this.dataFileManager = dataFileManager;
+        this.compactionExecutor = new PoolWeftExecutorService( COMPACTION_EXECUTOR, (ThreadPoolExecutor) Executors.newFixedThreadPool(
+                1, new NamedThreadFactory( COMPACTION_EXECUTOR, new ThreadGroup( COMPACTION_EXECUTOR ), true, 2 ) ) );
+        start();
+    }
+
+    @PostConstruct
+    public void start()
+    {
+        if ( config == null || !config.isChecksumIndexEnabled() )
+        {
+            return;
+        }
+
+        file = new File( new File( dataFileManager.getDetachedWorkBasedir(), INDEX_DIR ), INDEX_FILE );
+        try
+        {
+            file.getParentFile().mkdirs();
+            open();
+            logger.info( "Loaded {} checksum index entries from: {}", size(), file );
+        }
+        catch ( IOException e )
+        {
+            logger.error( String.format( "Failed to open checksum index: %s. Checksums won't be indexed.", file ), e );
+            closeQuietly();
+        }
+    }
+
+    public boolean isEnabled()
+    {
+        return channel != null;
+    }
+
+    /**
+     * Checksums recorded for the key, if they were calculated from the transfer's current content.
+     */
+    public TransferMetadata get( final String key, final Transfer transfer )
+    {
+        final FileChannel ch;
+        final long offset;
+        lock.readLock().lock();
+        try
+        {
+            ch = channel;
+            offset = offsets.get( hash( key ) );
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+
+        if ( ch == null || offset == MISSING )
+        {
+            return null;
+        }
+
+        try
+        {
+            final ByteBuffer record = readRecord( ch, offset );
+            if ( record == null || record.get() != LIVE || !key.equals( readKey( record ) ) )
+            {
+                return null;
+            }
+
+            final long lastModified = record.getLong();
+            final long length = record.getLong();
+            if ( lastModified != transfer.lastModified() || length != transfer.length() )
+            {
+                logger.trace( "Checksum index entry for: {} is stale", key );
+                return null;
+            }
+
+            final long size = record.getLong();
+            final int count = record.get();
+            final Map<ContentDigest, String> digests = new HashMap<>( count );
+            for ( int i = 0; i < count; i++ )
+            {
+                final int code = record.get();
+                final byte[] bytes = new byte[record.get()];
+                record.get( bytes );
+                if ( code >= 0 && code < DIGESTS.length )
+                {
+                    digests.put( DIGESTS[code], Hex.encodeHexString( bytes ) );
+                }
+            }
+
+            return new TransferMetadata( digests, size );
+        }
+        catch ( IOException | RuntimeException e )
+        {
+            logger.warn( "Failed to read checksum index entry for: {}. Reason: {}", key, e.toString() );
+            return null;
+        }
+    }
+
+    public void put( final String key, final Transfer transfer, final TransferMetadata metadata )
+    {
+        if ( channel == null || metadata == null || metadata.getDigests() == null )
+        {
+            return;
+        }
+
+        final byte[] keyBytes = key.getBytes( StandardCharsets.UTF_8 );
+        final ByteBuffer record = ByteBuffer.allocate( 32 + keyBytes.length + DIGESTS.length * 34 );
+        try
+        {
+            record.putInt( 0 );
+            record.put( LIVE );
+            record.putShort( (short) keyBytes.length );
+            record.put( keyBytes );
+            record.putLong( transfer.lastModified() );
+            record.putLong( transfer.length() );
+            final Long size = metadata.getSize();
+            record.putLong( size == null ? transfer.length() : size );
+
+            final int countPosition = record.position();
+            record.put( (byte) 0 );
+            byte count = 0;
+            for ( int i = 0; i < DIGESTS.length; i++ )
+            {
+                final String hex = metadata.getDigests().get( DIGESTS[i] );
+                if ( hex != null )
+                {
+                    final byte[] bytes = Hex.decodeHex( hex.toCharArray() );
+                    record.put( (byte) i );
+                    record.put( (byte) bytes.length );
+                    record.put( bytes );
+                    count++;
+                }
+            }
+            record.put( countPosition, count );
+        }
+        catch ( DecoderException | RuntimeException e )
+        {
+            logger.warn( "Not indexing checksums for: {}. Reason: {}", key, e.toString() );
+            return;
+        }
+
+        append( key, record );
+    }
+
+    public void remove( final String key )
+    {
+        if ( channel == null )
+        {
+            return;
+        }
+
+        lock.readLock().lock();
+        try
+        {
+            if ( offsets.get( hash( key ) ) == MISSING )
+            {
+                return;
+            }
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+
+        final byte[] keyBytes = key.getBytes( StandardCharsets.UTF_8 );
+        final ByteBuffer record = ByteBuffer.allocate( 7 + keyBytes.length );
+        record.putInt( 0 );
+        record.put( REMOVED );
+        record.putShort( (short) keyBytes.length );
+        record.put( keyBytes );
+
+        append( key, record );
+    }
+
+    @PreDestroy
+    public synchronized void stop()
+    {
+        if ( channel != null )
+        {
+            try
+            {
+                channel.force( false );
+            }
+            catch ( IOException e )
+            {
+                logger.warn( "Failed to flush checksum index: {}", e.toString() );
+            }
+            closeQuietly();
+        }
+    }
+
+    private synchronized void append( final String key, final ByteBuffer record )
+    {
+        if ( channel == null )
+        {
+            return;
+        }
+
+        record.putInt( 0, record.position() - 4 );
+        record.flip();
+
+        final long offset = end;
+        try
+        {
+            long position = offset;
+            while ( record.hasRemaining() )
+            {
+                position += channel.write( record, position );
+            }
+            end = position;
+        }
+        catch ( IOException e )
+        {
+            logger.error( String.format( "Failed to append to checksum index: %s", file ), e );
+            return;
+        }
+
+        final long old;
+        lock.writeLock().lock();
+        try
+        {
+            old = record.get( 4 ) == LIVE ? offsets.put( hash( key ), offset ) : offsets.remove( hash( key ) );
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+
+        if ( old != MISSING )
+        {
+            dead++;
+        }
+        if ( record.get( 4 ) != LIVE )
+        {
+            dead++;
+        }
+
+        scheduleCompaction();
+    }
+
+    private synchronized void scheduleCompaction()
+    {
+        if ( dead <= MIN_DEAD_TO_COMPACT || dead <= offsets.size() || ( compaction != null && !compaction.isDone() ) )
+        {
+            return;
+        }
+
+        try
+        {
+            compaction = compactionExecutor.submit( this::compact );
+        }
+        catch ( RejectedExecutionException e )
+        {
+            logger.warn( "Checksum index compaction not scheduled: {}", e.toString() );
+        }
+    }
+
+    /**
+     * Wait for a running compaction, if any.
+     */
+    void awaitCompaction()
+            throws InterruptedException, ExecutionException
+    {
+        final Future<?> running;
+        synchronized ( this )
+        {
+            running = compaction;
+        }
+
+        if ( running != null )
+        {
+            running.get();
+        }
+    }
+
+    private int size()
+    {
+        lock.readLock().lock();
+        try
+        {
+            return offsets.size();
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void open()
+            throws IOException
+    {
+        final FileChannel opened = FileChannel.open( file.toPath(), CREATE, READ, WRITE );
+        final LongLongMap loaded = new LongLongMap( 0 );
+        int superseded = 0;
+        long position = 0;
+        try
+        {
+            final long size = opened.size();
+            while ( position < size )
+            {
+                final ByteBuffer record = readRecord( opened, position );
+                byte kind = 0;
+                String key = null;
+                if ( record != null )
+                {
+                    kind = record.get();
+                    try
+                    {
+                        key = readKey( record );
+                    }
+                    catch ( EOFException e )
+                    {
+                        key = null;
+                    }
+                }
+
+                if ( key == null )
+                {
+                    logger.warn( "Checksum index: {} has a broken record at: {}; dropping the rest", file, position );
+                    opened.truncate( position );
+                    break;
+                }
+
+                final long old = kind == LIVE ? loaded.put( hash( key ), position ) : loaded.remove( hash( key ) );
+                if ( old != MISSING )
+                {
+                    superseded++;
+                }
+                if ( kind != LIVE )
+                {
+                    superseded++;
+                }
+
+                position += 4 + record.limit();
+            }
+        }
+        catch ( IOException | RuntimeException e )
+        {
+            opened.close();
+            throw e;
+        }
+
+        synchronized ( this )
+        {
+            lock.writeLock().lock();
+            try
+            {
+                offsets = loaded;
+                channel = opened;
+            }
+            finally
+            {
+                lock.writeLock().unlock();
+            }
+            end = position;
+            dead = superseded;
+        }
+
+        scheduleCompaction();
+    }
+
+    /**
+     * Rewrite the file with only the latest record of each key, then swap it in. The live records known when it starts
+     * are copied without holding the index, so appends carry on meanwhile; the records appended since are copied and
+     * the files swapped while holding it. Lookups racing the swap may miss, but never see another key's checksums,
+     * since every record is checked against the full key. If anything fails the current file is kept as it is.
+     */
+    private void compact()
+    {
+        final FileChannel source;
+        final LongLongMap snapshot;
+        final long snapshotEnd;
+        final int snapshotDead;
+        synchronized ( this )
+        {
+            if ( channel == null )
+            {
+                return;
+            }
+            source = channel;
+            snapshot = offsets.copy();
+            snapshotEnd = end;
+            snapshotDead = dead;
+        }
+
+        final File tmp = new File( file.getPath() + ".tmp" );
+        FileChannel out = null;
+        try
+        {
+            out = FileChannel.open( tmp.toPath(), CREATE, READ, WRITE, TRUNCATE_EXISTING );
+            final FileChannel target = out;
+            final LongLongMap moved = new LongLongMap( snapshot.size() );
+            final long[] position = { 0 };
+            try
+            {
+                snapshot.forEach( ( hash, offset ) -> {
+                    try
+                    {
+                        final ByteBuffer record = readRecord( source, offset );
+                        if ( record != null )
+                        {
+                            moved.put( hash, position[0] );
+                            position[0] = writeRecord( target, record, position[0] );
+                        }
+                    }
+                    catch ( IOException e )
+                    {
+                        throw new UncheckedIOException( e );
+                    }
+                } );
+            }
+            catch ( UncheckedIOException e )
+            {
+                throw e.getCause();
+            }
+
+            synchronized ( this )
+            {
+                if ( channel != source )
+                {
+                    return;
+                }
+
+                // records appended while the snapshot was copied keep their order, shifted by the same amount
+                final long shift = position[0] - snapshotEnd;
+                long tail = snapshotEnd;
+                while ( tail < end )
+                {
+                    final ByteBuffer record = readRecord( source, tail );
+                    if ( record == null )
+                    {
+                        throw new IOException( "Broken record at: " + tail );
+                    }
+                    tail += 4 + record.limit();
+                    position[0] = writeRecord( target, record, position[0] );
+                }
+                target.force( false );
+
+                Files.move( tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.ATOMIC_MOVE );
+                out = null;
+
+                lock.writeLock().lock();
+                try
+                {
+                    // anything below the snapshot end is unchanged since the snapshot, so it was copied above
+                    final LongLongMap rebuilt = new LongLongMap( offsets.size() );
+                    offsets.forEach( ( hash, offset ) -> {
+                        final long moveTo = offset >= snapshotEnd ? offset + shift : moved.get( hash );
+                        if ( moveTo != MISSING )
+                        {
+                            rebuilt.put( hash, moveTo );
+                        }
+                    } );
+                    offsets = rebuilt;
+                    channel = target;
+                }
+                finally
+                {
+                    lock.writeLock().unlock();
+                }
+
+                end = position[0];
+                dead -= snapshotDead;
+                source.close();
+
+                logger.info( "Compacted checksum index: {} to {} entries", file, offsets.size() );
+            }
+        }
+        catch ( IOException e )
+        {
+            if ( channel == source )
+            {
+                logger.error( String.format( "Failed to compact checksum index: %s. Keeping it uncompacted.", file ),
+                              e );
+            }
+        }
+        finally
+        {
+            if ( out != null )
+            {
+                try
+                {
+                    out.close();
+                }
+                catch ( IOException e )
+                {
+                    logger.debug( "Failed to close compacted checksum index: {}", e.toString() );
+                }
+                tmp.delete();
+            }
+        }
+    }
+
+    private static long writeRecord( final FileChannel out, final ByteBuffer record, final long offset )
+            throws IOException
+    {
+        final ByteBuffer buf = ByteBuffer.allocate( 4 + record.limit() );
+        buf.putInt( record.limit() );
+        buf.put( record );
+        buf.flip();
+
+        long position = offset;
+        while ( buf.hasRemaining() )
+        {
+            position += out.write( buf, position );
+        }
+        return position;
+    }
+
+    /**
+     * The record at the offset, positioned after its length; null if it's incomplete or malformed.
+     */
+    private static ByteBuffer readRecord( final FileChannel ch, final long offset )
+            throws IOException
+    {
+        final ByteBuffer header = ByteBuffer.allocate( 4 );
+        if ( !readFully( ch, header, offset ) )
+        {
+            return null;
+        }
+
+        final int length = header.getInt( 0 );
+        if ( length < 3 || length > MAX_RECORD_LENGTH )
+        {
+            return null;
+        }
+
+        final ByteBuffer record = ByteBuffer.allocate( length );
+        if ( !readFully( ch, record, offset + 4 ) )
+        {
+            return null;
+        }
+
+        record.flip();
+        return record;
+    }
+
+    private static boolean readFully( final FileChannel ch, final ByteBuffer buf, final long offset )
+            throws IOException
+    {
+        long position = offset;
+        while ( buf.hasRemaining() )
+        {
+            final int read = ch.read( buf, position );
+            if ( read < 0 )
+            {
+                return false;
+            }
+            position += read;
+        }
+        return true;
+    }
+
+    /**
+     * 64-bit FNV-1a of the key's chars.
+     */
+    static long hash( final String key )
+    {
+        long h = 0xcbf29ce484222325L;
+        for ( int i = 0; i < key.length(); i++ )
+        {
+            h ^= key.charAt( i );
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    private static String readKey( final ByteBuffer record )
+            throws EOFException
+    {
+        final int length = record.getShort() & 0xFFFF;
+        if ( length > record.remaining() )
+        {
+            throw new EOFException( "Truncated checksum index key" );
+        }
+
+        final byte[] bytes = new byte[length];
+        record.get( bytes );
+        return new String( bytes, StandardCharsets.UTF_8 );
+    }
+
+    private void closeQuietly()
+    {
+        try
+        {
+            if ( channel != null )
+            {
+                channel.close();
+            }
+        }
+        catch ( IOException e )
+        {
+            logger.debug( "Failed to close checksum index: {}", e.toString() );
+        }
+        lock.writeLock().lock();
+        try
+        {
+            channel = null;
+            offsets = new LongLongMap( 0 );
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+}
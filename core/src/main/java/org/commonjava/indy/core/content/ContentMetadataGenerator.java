@@ -23,13 +23,17 @@ import org.commonjava.indy.model.core.ArtifactStore;
 import org.commonjava.indy.model.core.Group;
 import org.commonjava.indy.model.core.StoreType;
 import org.commonjava.maven.galley.event.EventMetadata;
+import org.commonjava.maven.galley.io.checksum.ContentDigest;
 import org.commonjava.maven.galley.io.checksum.TransferMetadata;
 import org.commonjava.maven.galley.model.Transfer;
+import org.commonjava.maven.galley.model.TransferOperation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -83,9 +87,40 @@ public class ContentMetadataGenerator
             return transfer;
         }
 
+        // digests came from the metadata cache or checksum index without reading content, so nothing wrote the file
+        final String digest = ret.getDigests().get( digestFor( path ) );
+        if ( transfer != null && digest != null )
+        {
+            try (OutputStream out = transfer.openOutputStream( TransferOperation.GENERATE ))
+            {
+                out.write( digest.getBytes( StandardCharsets.UTF_8 ) );
+            }
+            catch ( IOException e )
+            {
+                throw new IndyWorkflowException( "Failed to write checksum file: %s. Reason: %s", e, transfer,
+                                                 e.getMessage() );
+            }
+
+            logger.debug( "Content metadata written from known digest, path: {}", path );
+            return transfer;
+        }
+
         return null;
     }
 
+    private static ContentDigest digestFor( final String path )
+    {
+        if ( path.endsWith( ".md5" ) )
+        {
+            return ContentDigest.MD5;
+        }
+        else if ( path.endsWith( ".sha1" ) )
+        {
+            return ContentDigest.SHA_1;
+        }
+        return ContentDigest.SHA_256;
+    }
+
     @Override
     public List<StoreResource> generateDirectoryContent( final ArtifactStore store, final String path,
                                                          final List<StoreResource> existing,
@@ -15,7 +15,6 @@
  */
 package org.commonjava.indy.core.content;
 
-import org.apache.commons.io.IOUtils;
 import org.commonjava.indy.IndyWorkflowException;
 import org.commonjava.indy.content.ContentDigester;
 import org.commonjava.indy.content.DirectContentAccess;
@@ -24,6 +23,7 @@ import org.commonjava.indy.model.core.StoreKey;
 import org.commonjava.indy.model.galley.KeyedLocation;
 import org.commonjava.indy.subsys.infinispan.BasicCacheHandle;
 import org.commonjava.maven.galley.event.EventMetadata;
+import org.commonjava.maven.galley.io.checksum.ContentDigest;
 import org.commonjava.maven.galley.io.checksum.TransferMetadata;
 import org.commonjava.maven.galley.model.Transfer;
 import org.slf4j.Logger;
@@ -33,9 +33,16 @@ import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import java.io.IOException;
 import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 
-import static org.commonjava.maven.galley.io.ChecksummingTransferDecorator.FORCE_CHECKSUM;
+import static org.apache.commons.codec.binary.Hex.encodeHexString;
 
 /**
  * Created by jdcasey on 1/4/17.
@@ -55,8 +62,15 @@ public class DefaultContentDigester
     @ContentMetadataCache
     private BasicCacheHandle<String, TransferMetadata> metadataCache;
 
+    @Inject
+    private ChecksumIndex checksumIndex;
+
+    private static final int DIGEST_BUFFER_SIZE = 64 * 1024;
+
     private final Logger logger = LoggerFactory.getLogger( getClass() );
 
+    private final Map<String, CompletableFuture<TransferMetadata>> calculating = new ConcurrentHashMap<>();
+
     protected DefaultContentDigester()
     {
     }
@@ -76,6 +90,11 @@ public class DefaultContentDigester
             String cacheKey = generateCacheKey( transfer );
             logger.trace( "Adding TransferMetadata for: {}\n{}", cacheKey, transferData );
             metadataCache.put( cacheKey, transferData );
+
+            if ( checksumIndex != null && checksumIndex.isEnabled() )
+            {
+                checksumIndex.put( cacheKey, transfer, transferData );
+            }
         }
     }
 
@@ -96,6 +115,11 @@ public class DefaultContentDigester
         String cacheKey = generateCacheKey( transfer );
         TransferMetadata meta = metadataCache.remove( cacheKey );
         logger.trace( "Removing TransferMetadata for: {}\n{}", cacheKey, meta );
+
+        if ( checksumIndex != null && checksumIndex.isEnabled() )
+        {
+            checksumIndex.remove( cacheKey );
+        }
     }
 
     @Override
@@ -106,6 +130,16 @@ public class DefaultContentDigester
 
         TransferMetadata metadata = metadataCache.get( cacheKey );
 
+        if ( metadata == null && checksumIndex != null && checksumIndex.isEnabled() )
+        {
+            metadata = checksumIndex.get( cacheKey, transfer );
+            if ( metadata != null )
+            {
+                logger.trace( "[INDEX HIT] Restoring content metadata for: {}", cacheKey );
+                metadataCache.put( cacheKey, metadata );
+            }
+        }
+
         if ( metadata != null )
         {
             logger.trace( "[CACHE HIT] Returning content metadata for: {}\n\n{}\n\n", cacheKey, metadata );
@@ -135,15 +169,86 @@ public class DefaultContentDigester
         }
 
         String cacheKey = generateCacheKey( transfer );
-        logger.debug( "TransferMetadata missing for: {}. Re-reading with FORCE_CHECKSUM now to calculate it.",
-                      cacheKey );
 
-        EventMetadata forcedEventMetadata = new EventMetadata( eventMetadata ).set( FORCE_CHECKSUM, Boolean.TRUE );
-        try(InputStream stream = transfer.openInputStream( false, forcedEventMetadata ) )
+        // concurrent requests for the same content (HEAD storms) share one calculation
+        final CompletableFuture<TransferMetadata> mine = new CompletableFuture<>();
+        final CompletableFuture<TransferMetadata> running = calculating.putIfAbsent( cacheKey, mine );
+        if ( running != null )
+        {
+            logger.debug( "Waiting for running checksum calculation of: {}", cacheKey );
+            try
+            {
+                return running.get();
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                throw new IndyWorkflowException( "Interrupted waiting for checksums of: %s", e, transfer );
+            }
+            catch ( ExecutionException e )
+            {
+                if ( e.getCause() instanceof IndyWorkflowException )
+                {
+                    throw (IndyWorkflowException) e.getCause();
+                }
+                throw new IndyWorkflowException( "Failed to calculate checksums for: %s. Reason: %s", e.getCause(),
+                                                 transfer, e.getCause().getMessage() );
+            }
+        }
+
+        try
+        {
+            meta = calculate( transfer, cacheKey, eventMetadata );
+            mine.complete( meta );
+            return meta;
+        }
+        catch ( IndyWorkflowException | RuntimeException e )
+        {
+            mine.completeExceptionally( e );
+            throw e;
+        }
+        finally
+        {
+            calculating.remove( cacheKey, mine );
+        }
+    }
+
+    /**
+     * Read the content once, feeding MD5, SHA-1 and SHA-256 as it goes and dropping the bytes, then store the result
+     * in the metadata cache.
+     */
+    private TransferMetadata calculate( final Transfer transfer, final String cacheKey,
+                                        final EventMetadata eventMetadata )
+            throws IndyWorkflowException
+    {
+        logger.debug( "TransferMetadata missing for: {}. Re-reading to calculate it.", cacheKey );
+
+        final Map<ContentDigest, MessageDigest> digesters = new HashMap<>();
+        try
+        {
+            digesters.put( ContentDigest.MD5, MessageDigest.getInstance( "MD5" ) );
+            digesters.put( ContentDigest.SHA_1, MessageDigest.getInstance( "SHA-1" ) );
+            digesters.put( ContentDigest.SHA_256, MessageDigest.getInstance( "SHA-256" ) );
+        }
+        catch ( NoSuchAlgorithmException e )
+        {
+            throw new IndyWorkflowException( "Failed to calculate checksums for: %s. Reason: %s", e, transfer,
+                                             e.getMessage() );
+        }
+
+        long size = 0;
+        try (InputStream stream = transfer.openInputStream( false, eventMetadata ))
         {
-            // depend on ChecksummingTransferDecorator to calculate / store metadata as this gets read, using
-            // the FORCE_CHECKSUM metadata key to control its generation.
-            IOUtils.toByteArray( stream );
+            final byte[] buf = new byte[DIGEST_BUFFER_SIZE];
+            int read;
+            while ( ( read = stream.read( buf ) ) != -1 )
+            {
+                for ( MessageDigest digester : digesters.values() )
+                {
+                    digester.update( buf, 0, read );
+                }
+                size += read;
+            }
         }
         catch ( IOException e )
         {
@@ -151,8 +256,12 @@ public class DefaultContentDigester
                                              e, transfer, e.getMessage() );
         }
 
-        logger.debug( "Retrying TransferMetadata retrieval from cache for: {} after recalculating", cacheKey );
+        final Map<ContentDigest, String> digests = new HashMap<>();
+        digesters.forEach( ( type, digester ) -> digests.put( type, encodeHexString( digester.digest() ) ) );
+
+        final TransferMetadata meta = new TransferMetadata( digests, size );
+        addMetadata( transfer, meta );
 
-        return getContentMetadata( transfer );
+        return meta;
     }
 }
@@ -17,12 +17,16 @@ package org.commonjava.indy.core.content;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.commonjava.cdi.util.weft.ExecutorConfig;
+import org.commonjava.cdi.util.weft.WeftExecutorService;
+import org.commonjava.cdi.util.weft.WeftManaged;
 import org.commonjava.indy.IndyWorkflowException;
 import org.commonjava.indy.conf.IndyConfiguration;
 import org.commonjava.indy.content.ContentDigester;
 import org.commonjava.indy.content.ContentManager;
 import org.commonjava.indy.content.DownloadManager;
 import org.commonjava.indy.content.StoreResource;
+import org.commonjava.indy.core.content.group.GroupListingCache;
 import org.commonjava.indy.core.content.group.GroupRepositoryFilterManager;
 import org.commonjava.indy.data.IndyDataException;
 import org.commonjava.indy.data.StoreDataManager;
@@ -51,8 +55,13 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import static org.commonjava.indy.IndyContentConstants.CASCADE;
@@ -96,6 +105,19 @@ public class DefaultContentManager
     @Inject
     private GroupRepositoryFilterManager repositoryFilterManager;
 
+    @Inject
+    @WeftManaged
+    @ExecutorConfig( named = "group-member-retrieval", threads = 32, priority = 8 )
+    private WeftExecutorService memberRetrievalService;
+
+    @Inject
+    @WeftManaged
+    @ExecutorConfig( named = "group-member-listing", threads = 16, priority = 7 )
+    private WeftExecutorService memberListingService;
+
+    @Inject
+    private GroupListingCache groupListingCache;
+
     protected DefaultContentManager()
     {
     }
@@ -224,23 +246,7 @@ public class DefaultContentManager
             {
                 if ( PathMaskChecker.checkMask( store, path ) )
                 {
-                    for ( final ArtifactStore member : members )
-                    {
-                        try
-                        {
-                            item = doRetrieve( member, path, eventMetadata );
-                        }
-                        catch ( IndyWorkflowException e )
-                        {
-                            logger.error( "Failed to retrieve artifact from for path {} from {} in group {}, error is: {}",
-                                          path, member, store, e.getMessage() );
-                        }
-                        if ( item != null )
-                        {
-                            // get the item from the first member store
-                            break;
-                        }
-                    }
+                    item = retrieveFromMembers( (Group) store, members, path, eventMetadata );
                 }
             }
         }
@@ -261,6 +267,83 @@ public class DefaultContentManager
         return item;
     }
 
+    private Transfer retrieveFromMembers( final Group group, final List<ArtifactStore> members, final String path,
+                                          final EventMetadata eventMetadata )
+            throws IndyWorkflowException
+    {
+        if ( members.size() > 1 && isGroupRetrieveParallel() )
+        {
+            return retrieveFromMembersConcurrently( group, members, path, eventMetadata );
+        }
+
+        for ( final ArtifactStore member : members )
+        {
+            Transfer item = retrieveFromMember( group, member, path, eventMetadata );
+            if ( item != null )
+            {
+                // get the item from the first member store
+                return item;
+            }
+        }
+
+        return null;
+    }
+
+    private boolean isGroupRetrieveParallel()
+    {
+        return memberRetrievalService != null && indyConfig != null && indyConfig.isGroupRetrieveParallel();
+    }
+
+    /**
+     * Probe the members of a group concurrently (see {@link MemberProbes}), keeping no more than the configured fan-out
+     * in flight for this request. The transfer returned is the same one the sequential walk would have returned; we
+     * just stop paying for the misses one after the other.
+     */
+    private Transfer retrieveFromMembersConcurrently( final Group group, final List<ArtifactStore> members,
+                                                      final String path, final EventMetadata eventMetadata )
+            throws IndyWorkflowException
+    {
+        try
+        {
+            final Transfer found = MemberProbes.firstInMemberOrder( members, indyConfig.getGroupRetrieveFanout(),
+                                                                    memberRetrievalService,
+                                                                    member -> retrieveFromMember( group, member, path,
+                                                                                                  eventMetadata ) );
+            if ( found != null )
+            {
+                logger.debug( "Found {} in {} of group {}", path, found.getLocation(), group.getKey() );
+            }
+            return found;
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new IndyWorkflowException( "Retrieval of %s from members of %s was interrupted", e, path,
+                                             group.getKey() );
+        }
+        catch ( ExecutionException e )
+        {
+            throw new IndyWorkflowException( "Failed to retrieve %s from members of %s. Reason: %s", e, path,
+                                             group.getKey(), e.getMessage() );
+        }
+    }
+
+    private Transfer retrieveFromMember( final Group group, final ArtifactStore member, final String path,
+                                         final EventMetadata eventMetadata )
+    {
+        try
+        {
+            return doRetrieve( member, path, eventMetadata );
+        }
+        catch ( IndyWorkflowException e )
+        {
+            logger.error( "Failed to retrieve artifact from for path {} from {} in group {}, error is: {}", path,
+                          member, group, e.getMessage() );
+        }
+
+        return null;
+    }
+
     private List<ArtifactStore> getOrderedConcreteStoresAndFilter( Group group, String path ) throws IndyWorkflowException
     {
         List<ArtifactStore> members;
@@ -572,31 +655,173 @@ public class DefaultContentManager
             contentGeneratorManager.generateGroupDirectoryContentAnd( (Group) store, members, path, eventMetadata,
                                                                       listed::addAll );
 
-            for ( final ArtifactStore member : members )
+            if ( members.size() > 1 && isGroupListParallel() )
+            {
+                listed.addAll( listMembersConcurrently( (Group) store, members, path, metadata ) );
+            }
+            else
             {
-                List<StoreResource> storeListing = null;
-                try
+                for ( final ArtifactStore member : members )
                 {
-                    storeListing = list( member, path, metadata );
+                    List<StoreResource> storeListing = listMember( member, path, metadata );
+                    if ( storeListing != null )
+                    {
+                        listed.addAll( storeListing );
+                    }
                 }
-                catch ( IndyWorkflowException e )
+            }
+        }
+        else
+        {
+            listed = downloadManager.list( store, path, metadata );
+            contentGeneratorManager.generateDirectoryContentAnd( store, path, listed, metadata, listed::addAll );
+        }
+
+        return dedupeListing( listed );
+    }
+
+    private boolean isGroupListParallel()
+    {
+        return memberListingService != null && indyConfig != null && indyConfig.isGroupListParallel();
+    }
+
+    /**
+     * List the directory in the members of a group concurrently, keeping no more than the configured fan-out in flight,
+     * and merge the results in group member order. The whole listing gets one time budget: members that haven't
+     * answered by then are left out, and the listing is flagged with {@link ContentManager#GROUP_LISTING_PARTIAL} in
+     * the event metadata. Only complete listings are cached.
+     * <p>
+     * Listings run on their own executor, so slow members never hold up content retrieval. Members still listing when
+     * the result is returned are interrupted rather than left to run on.
+     */
+    private List<StoreResource> listMembersConcurrently( final Group group, final List<ArtifactStore> members,
+                                                         final String path, final EventMetadata eventMetadata )
+            throws IndyWorkflowException
+    {
+        final List<StoreKey> memberKeys = members.stream().map( ArtifactStore::getKey ).collect( Collectors.toList() );
+        if ( groupListingCache != null )
+        {
+            final List<StoreResource> cached = groupListingCache.get( group.getKey(), path, memberKeys );
+            if ( cached != null )
+            {
+                return cached;
+            }
+        }
+
+        // members still running after the deadline read this metadata, so only replace a value that is already there
+        eventMetadata.set( GROUP_LISTING_PARTIAL, Boolean.FALSE );
+
+        final int size = members.size();
+        final long deadline = System.currentTimeMillis() + indyConfig.getGroupListTimeoutMillis();
+        final int fanout = Math.max( 1, indyConfig.getGroupRetrieveFanout() );
+        final ExecutorCompletionService<MemberListing> listings =
+                new ExecutorCompletionService<>( memberListingService );
+        final List<Future<MemberListing>> futures = new ArrayList<>( size );
+        final List<List<StoreResource>> found = new ArrayList<>( Collections.nCopies( size, null ) );
+
+        int submitted = 0;
+        int inFlight = 0;
+        boolean partial = false;
+        try
+        {
+            while ( submitted < size || inFlight > 0 )
+            {
+                while ( inFlight < fanout && submitted < size )
                 {
-                    e.filterLocationErrors();
+                    final int idx = submitted++;
+                    final ArtifactStore member = members.get( idx );
+                    futures.add( listings.submit(
+                            () -> new MemberListing( idx, listMember( member, path, eventMetadata ) ) ) );
+                    inFlight++;
                 }
 
-                if ( storeListing != null )
+                final long wait = deadline - System.currentTimeMillis();
+                final Future<MemberListing> done = wait > 0 ? listings.poll( wait, TimeUnit.MILLISECONDS ) : null;
+                if ( done == null )
                 {
-                    listed.addAll( storeListing );
+                    partial = true;
+                    break;
                 }
+
+                inFlight--;
+                final MemberListing listing = done.get();
+                found.set( listing.index,
+                           listing.listing == null ? Collections.emptyList() : listing.listing );
             }
         }
-        else
+        catch ( InterruptedException e )
         {
-            listed = downloadManager.list( store, path, metadata );
-            contentGeneratorManager.generateDirectoryContentAnd( store, path, listed, metadata, listed::addAll );
+            Thread.currentThread().interrupt();
+            throw new IndyWorkflowException( "Listing of %s in members of %s was interrupted", e, path,
+                                             group.getKey() );
+        }
+        catch ( ExecutionException e )
+        {
+            if ( e.getCause() instanceof IndyWorkflowException )
+            {
+                throw (IndyWorkflowException) e.getCause();
+            }
+            throw new IndyWorkflowException( "Failed to list %s in members of %s. Reason: %s", e, path,
+                                             group.getKey(), e.getMessage() );
+        }
+        finally
+        {
+            // a member past the deadline would otherwise keep a listing thread busy for an answer nobody waits for
+            futures.forEach( f -> f.cancel( true ) );
         }
 
-        return dedupeListing( listed );
+        final List<StoreResource> result = new ArrayList<>();
+        found.stream().filter( l -> l != null ).forEach( result::addAll );
+
+        if ( partial )
+        {
+            final List<StoreKey> missing = new ArrayList<>();
+            for ( int i = 0; i < size; i++ )
+            {
+                if ( found.get( i ) == null )
+                {
+                    missing.add( memberKeys.get( i ) );
+                }
+            }
+            logger.warn( "Listing of {} in {} is partial, no answer within {}ms from: {}", path, group.getKey(),
+                         indyConfig.getGroupListTimeoutMillis(), missing );
+            eventMetadata.set( GROUP_LISTING_PARTIAL, Boolean.TRUE );
+        }
+        else if ( groupListingCache != null )
+        {
+            groupListingCache.put( group.getKey(), path, memberKeys, result );
+        }
+
+        return result;
+    }
+
+    private List<StoreResource> listMember( final ArtifactStore member, final String path,
+                                            final EventMetadata eventMetadata )
+            throws IndyWorkflowException
+    {
+        try
+        {
+            return list( member, path, eventMetadata );
+        }
+        catch ( IndyWorkflowException e )
+        {
+            e.filterLocationErrors();
+        }
+
+        return null;
+    }
+
+    private static final class MemberListing
+    {
+        private final int index;
+
+        private final List<StoreResource> listing;
+
+        MemberListing( final int index, final List<StoreResource> listing )
+        {
+            this.index = index;
+            this.listing = listing;
+        }
     }
 
     private EventMetadata setAllowRemoteDownloading( final EventMetadata eventMetadata )
@@ -69,6 +69,7 @@ import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -77,6 +78,8 @@ import java.util.Objects;
 import java.util.Spliterator;
 import java.util.Spliterators;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 import static org.commonjava.cdi.util.weft.ExecutorConfig.BooleanLiteral.TRUE;
@@ -1188,41 +1191,31 @@ public class DefaultDownloadManager
     public List<Transfer> listRecursively( final StoreKey src, final String startPath )
             throws IndyWorkflowException
     {
-        final List<Transfer> result = new ArrayList<>();
-        final Transfer transfer = getStorageReference( src, startPath );
-        recurseListing( transfer, result );
+        final List<Transfer> result;
+        try (Stream<Transfer> stream = streamRecursively( src, startPath ))
+        {
+            result = stream.collect( Collectors.toList() );
+        }
+        catch ( final UncheckedIOException e )
+        {
+            throw new IndyWorkflowException( e.getMessage(), e.getCause() );
+        }
         logger.debug( "listRecursively result: {}", result );
         return result;
     }
 
-    private void recurseListing( final Transfer transfer, final List<Transfer> result )
+    @Override
+    public Stream<Transfer> streamRecursively( final StoreKey src, final String startPath )
             throws IndyWorkflowException
     {
-        if ( transfer.isDirectory() )
-        {
-            try
-            {
-                final String[] children = transfer.list();
-                for ( final String child : children )
-                {
-                    final Transfer childTransfer = transfer.getChild( child );
-                    recurseListing( childTransfer, result );
-                }
-            }
-            catch ( final IOException e )
-            {
-                throw new IndyWorkflowException( "Failed to list children of: %s. Reason: %s", e, transfer,
-                                                 e.getMessage() );
-            }
-        }
-        else if ( transfer.exists() )
-        {
-            SpecialPathInfo spi = specialPathManager.getSpecialPathInfo( transfer.getPath() );
-            if ( spi == null || spi.isListable() )
-            {
-                result.add( transfer );
-            }
-        }
+        final Transfer transfer = getStorageReference( src, startPath );
+        return StreamSupport.stream( new TransferSpliterator( transfer, this::isListable ), false );
+    }
+
+    private boolean isListable( final String path )
+    {
+        SpecialPathInfo spi = specialPathManager.getSpecialPathInfo( path );
+        return spi == null || spi.isListable();
     }
 
     private ContentQuality getQuality( String path )
@@ -0,0 +1,245 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.core.content;
+
+/**
+ * Open-addressing map of long keys to non-negative long values (linear probing, backward-shift deletion), so each
+ * entry costs two array slots instead of a node and two boxed longs. Absent values come back as {@link #MISSING}.
+ * Not thread-safe.
+ */
+final class LongLongMap
+{
+    static final long MISSING = -1;
+
+    /**
+     * Marks an empty slot; the zero key itself is kept outside the table.
+     */
+    private static final long FREE = 0;
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+
+    private long[] values;
+
+    private int mask;
+
+    private int size;
+
+    private boolean hasZero;
+
+    private long zeroValue;
+
+    LongLongMap( final int expected )
+    {
+        allocate( capacityFor( expected ) );
+    }
+
+    private LongLongMap( final LongLongMap other )
+    {
+        keys = other.keys.clone();
+        values = other.values.clone();
+        mask = other.mask;
+        size = other.size;
+        hasZero = other.hasZero;
+        zeroValue = other.zeroValue;
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    long get( final long key )
+    {
+        if ( key == FREE )
+        {
+            return hasZero ? zeroValue : MISSING;
+        }
+
+        for ( int i = slot( key ); ; i = ( i + 1 ) & mask )
+        {
+            final long k = keys[i];
+            if ( k == key )
+            {
+                return values[i];
+            }
+            if ( k == FREE )
+            {
+                return MISSING;
+            }
+        }
+    }
+
+    /**
+     * @return the previous value, or {@link #MISSING}
+     */
+    long put( final long key, final long value )
+    {
+        if ( value < 0 )
+        {
+            throw new IllegalArgumentException( "Negative value: " + value );
+        }
+
+        if ( key == FREE )
+        {
+            final long old = hasZero ? zeroValue : MISSING;
+            if ( !hasZero )
+            {
+                hasZero = true;
+                size++;
+            }
+            zeroValue = value;
+            return old;
+        }
+
+        int i = slot( key );
+        for ( long k = keys[i]; k != FREE; k = keys[i] )
+        {
+            if ( k == key )
+            {
+                final long old = values[i];
+                values[i] = value;
+                return old;
+            }
+            i = ( i + 1 ) & mask;
+        }
+
+        keys[i] = key;
+        values[i] = value;
+        if ( ++size > keys.length / 4 * 3 )
+        {
+            resize( keys.length * 2 );
+        }
+        return MISSING;
+    }
+
+    /**
+     * @return the removed value, or {@link #MISSING}
+     */
+    long remove( final long key )
+    {
+        if ( key == FREE )
+        {
+            if ( !hasZero )
+            {
+                return MISSING;
+            }
+            hasZero = false;
+            size--;
+            return zeroValue;
+        }
+
+        int gap = slot( key );
+        for ( long k = keys[gap]; k != key; k = keys[gap] )
+        {
+            if ( k == FREE )
+            {
+                return MISSING;
+            }
+            gap = ( gap + 1 ) & mask;
+        }
+
+        final long old = values[gap];
+
+        // pull back later entries of the probe run whose home slot isn't between the gap and where they sit
+        for ( int i = ( gap + 1 ) & mask; keys[i] != FREE; i = ( i + 1 ) & mask )
+        {
+            if ( ( ( i - slot( keys[i] ) ) & mask ) >= ( ( i - gap ) & mask ) )
+            {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                gap = i;
+            }
+        }
+
+        keys[gap] = FREE;
+        values[gap] = 0;
+        size--;
+        return old;
+    }
+
+    void forEach( final EntryConsumer consumer )
+    {
+        if ( hasZero )
+        {
+            consumer.accept( FREE, zeroValue );
+        }
+
+        for ( int i = 0; i < keys.length; i++ )
+        {
+            if ( keys[i] != FREE )
+            {
+                consumer.accept( keys[i], values[i] );
+            }
+        }
+    }
+
+    LongLongMap copy()
+    {
+        return new LongLongMap( this );
+    }
+
+    private int slot( final long key )
+    {
+        final long h = key * 0x9E3779B97F4A7C15L;
+        return (int) ( h ^ ( h >>> 32 ) ) & mask;
+    }
+
+    private void resize( final int capacity )
+    {
+        final long[] oldKeys = keys;
+        final long[] oldValues = values;
+        allocate( capacity );
+
+        for ( int i = 0; i < oldKeys.length; i++ )
+        {
+            final long key = oldKeys[i];
+            if ( key != FREE )
+            {
+                int slot = slot( key );
+                while ( keys[slot] != FREE )
+                {
+                    slot = ( slot + 1 ) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate( final int capacity )
+    {
+        keys = new long[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int capacityFor( final int expected )
+    {
+        int capacity = MIN_CAPACITY;
+        while ( capacity / 4 * 3 < expected && capacity < ( 1 << 30 ) )
+        {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    interface EntryConsumer
+    {
+        void accept( long key, long value );
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.core.content;
+
+import org.commonjava.indy.model.core.ArtifactStore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static org.commonjava.indy.model.core.StoreType.remote;
+
+/**
+ * Probes the members of a group concurrently, hosted members first and then remotes, keeping no more than a given
+ * fan-out in flight. Results are resolved in member order, so the hit returned is the same one a sequential walk would
+ * have returned. Probes still queued when the winner is known are cancelled; probes already running are allowed to
+ * finish.
+ */
+final class MemberProbes
+{
+    @FunctionalInterface
+    interface Probe<T>
+    {
+        T probe( ArtifactStore member )
+                throws Exception;
+    }
+
+    private MemberProbes()
+    {
+    }
+
+    /**
+     * @return the result of the first member, in member order, whose probe returned non-null; null if none did
+     */
+    static <T> T firstInMemberOrder( final List<? extends ArtifactStore> members, final int fanout,
+                                     final ExecutorService executor, final Probe<T> probe )
+            throws InterruptedException, ExecutionException
+    {
+        final int size = members.size();
+        final List<Integer> probeOrder = new ArrayList<>( size );
+        for ( int i = 0; i < size; i++ )
+        {
+            if ( members.get( i ).getType() != remote )
+            {
+                probeOrder.add( i );
+            }
+        }
+        for ( int i = 0; i < size; i++ )
+        {
+            if ( members.get( i ).getType() == remote )
+            {
+                probeOrder.add( i );
+            }
+        }
+
+        final int limit = Math.max( 1, fanout );
+        final ExecutorCompletionService<Result<T>> probes = new ExecutorCompletionService<>( executor );
+        final List<Future<Result<T>>> futures = new ArrayList<>( size );
+        final boolean[] probed = new boolean[size];
+        final List<T> found = new ArrayList<>( size );
+        for ( int i = 0; i < size; i++ )
+        {
+            found.add( null );
+        }
+
+        int submitted = 0;
+        int inFlight = 0;
+        int next = 0;
+        try
+        {
+            while ( next < size )
+            {
+                while ( inFlight < limit && submitted < size )
+                {
+                    final int idx = probeOrder.get( submitted++ );
+                    final ArtifactStore member = members.get( idx );
+                    futures.add( probes.submit( () -> new Result<>( idx, probe.probe( member ) ) ) );
+                    inFlight++;
+                }
+
+                final Result<T> result = probes.take().get();
+                inFlight--;
+                probed[result.index] = true;
+                found.set( result.index, result.value );
+
+                // only a hit whose higher-priority members all missed can be returned
+                while ( next < size && probed[next] )
+                {
+                    if ( found.get( next ) != null )
+                    {
+                        return found.get( next );
+                    }
+                    next++;
+                }
+            }
+        }
+        finally
+        {
+            futures.forEach( f -> f.cancel( false ) );
+        }
+
+        return null;
+    }
+
+    private static final class Result<T>
+    {
+        private final int index;
+
+        private final T value;
+
+        Result( final int index, final T value )
+        {
+            this.index = index;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.core.content;
+
+import org.commonjava.maven.galley.model.Transfer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Files of a directory tree, walked as they are consumed: a directory is listed only once the files found before it
+ * have been handed out, so memory holds the directories still to walk rather than the whole tree. Splitting hands half
+ * of the directories still to walk to the new spliterator, so a parallel stream walks subtrees on separate fork-join
+ * workers. Files are filtered by path before their existence is checked. A directory that can't be listed fails the
+ * walk with an {@link UncheckedIOException}.
+ */
+final class TransferSpliterator
+        implements Spliterator<Transfer>
+{
+    private final Deque<Transfer> directories;
+
+    private final Deque<Transfer> files = new ArrayDeque<>();
+
+    private final Predicate<String> pathFilter;
+
+    TransferSpliterator( final Transfer start, final Predicate<String> pathFilter )
+    {
+        this.directories = new ArrayDeque<>();
+        this.pathFilter = pathFilter;
+        if ( start.isDirectory() )
+        {
+            directories.add( start );
+        }
+        else if ( accept( start ) )
+        {
+            files.add( start );
+        }
+    }
+
+    private TransferSpliterator( final Deque<Transfer> directories, final Predicate<String> pathFilter )
+    {
+        this.directories = directories;
+        this.pathFilter = pathFilter;
+    }
+
+    @Override
+    public boolean tryAdvance( final Consumer<? super Transfer> action )
+    {
+        while ( files.isEmpty() )
+        {
+            final Transfer next = directories.pollFirst();
+            if ( next == null )
+            {
+                return false;
+            }
+            expand( next );
+        }
+
+        action.accept( files.pollFirst() );
+        return true;
+    }
+
+    @Override
+    public Spliterator<Transfer> trySplit()
+    {
+        if ( directories.size() == 1 && files.isEmpty() )
+        {
+            // e.g. the root, look one level down for something to share
+            expand( directories.pollFirst() );
+        }
+
+        final int half = directories.size() / 2;
+        if ( half == 0 )
+        {
+            return null;
+        }
+
+        final Deque<Transfer> split = new ArrayDeque<>( half );
+        for ( int i = 0; i < half; i++ )
+        {
+            split.addFirst( directories.pollLast() );
+        }
+        return new TransferSpliterator( split, pathFilter );
+    }
+
+    @Override
+    public long estimateSize()
+    {
+        return directories.isEmpty() ? files.size() : Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics()
+    {
+        return NONNULL | DISTINCT;
+    }
+
+    private void expand( final Transfer directory )
+    {
+        final String[] children;
+        try
+        {
+            children = directory.list();
+        }
+        catch ( final IOException e )
+        {
+            throw new UncheckedIOException(
+                    String.format( "Failed to list children of: %s. Reason: %s", directory, e.getMessage() ), e );
+        }
+
+        if ( children == null )
+        {
+            return;
+        }
+
+        // subdirectories go in front, so the walk is depth-first and only holds the siblings along the current path
+        final Deque<Transfer> subdirectories = new ArrayDeque<>();
+        for ( final String child : children )
+        {
+            final Transfer transfer = directory.getChild( child );
+            if ( transfer.isDirectory() )
+            {
+                subdirectories.addFirst( transfer );
+            }
+            else if ( accept( transfer ) )
+            {
+                files.addLast( transfer );
+            }
+        }
+        subdirectories.forEach( directories::addFirst );
+    }
+
+    private boolean accept( final Transfer transfer )
+    {
+        return pathFilter.test( transfer.getPath() ) && transfer.exists();
+    }
+}
@@ -0,0 +1,339 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.core.content.group;
+
+import org.commonjava.indy.change.event.ArtifactStoreDeletePostEvent;
+import org.commonjava.indy.conf.IndyConfiguration;
+import org.commonjava.indy.content.StoreResource;
+import org.commonjava.indy.data.IndyDataException;
+import org.commonjava.indy.data.StoreDataManager;
+import org.commonjava.indy.model.core.ArtifactStore;
+import org.commonjava.indy.model.core.Group;
+import org.commonjava.indy.model.core.StoreKey;
+import org.commonjava.maven.galley.event.EventMetadata;
+import org.commonjava.maven.galley.event.FileDeletionEvent;
+import org.commonjava.maven.galley.event.FileStorageEvent;
+import org.commonjava.maven.galley.model.Transfer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.commonjava.indy.model.core.StoreType.group;
+import static org.commonjava.indy.model.core.StoreType.remote;
+import static org.commonjava.indy.util.LocationUtils.getKey;
+
+/**
+ * Merged member listings of group directories. Each listing remembers the members it was merged from, so it stops
+ * being returned as soon as the group resolves to different members (added, removed, reordered or disabled). A hosted
+ * member storing or deleting a file drops the listings of that file's directory and its parents in the groups that
+ * contain it.
+ * Anything else a member may change (mostly remote listings) shows up once the listing expires.
+ * <p>
+ * The cache is local to this node and only sees the file events fired here. In a cluster, a file stored or deleted
+ * through another node does not drop the listings cached here; it shows up once they expire, so
+ * group.list.cache.seconds is also the longest such a listing can be stale. Member changes are not affected, since
+ * they are checked against the store data on every lookup.
+ * <p>
+ * No more than group.list.cache.max.entries listings are kept across all groups, going by a running count that each
+ * sweep corrects. When that is reached, expired listings are swept and, if that is not enough, the oldest ones are
+ * dropped.
+ */
+@ApplicationScoped
+public class GroupListingCache
+{
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    /**
+     * Share of the maximum dropped at once when the cache is full of live listings, so that a full cache is not scanned
+     * again on every put.
+     */
+    private static final int EVICT_DIVISOR = 10;
+
+    @Inject
+    private IndyConfiguration config;
+
+    @Inject
+    private StoreDataManager storeDataManager;
+
+    private final Map<StoreKey, Map<String, CachedListing>> listings = new ConcurrentHashMap<>();
+
+    private final AtomicInteger count = new AtomicInteger();
+
+    protected GroupListingCache()
+    {
+    }
+
+    public GroupListingCache( final IndyConfiguration config )
+    {
+        this.config = config;
+    }
+
+    public GroupListingCache( final IndyConfiguration config, final StoreDataManager storeDataManager )
+    {
+        this.config = config;
+        this.storeDataManager = storeDataManager;
+    }
+
+    /**
+     * @return the cached listing of the directory, or null if there is none still valid for these members
+     */
+    public List<StoreResource> get( final StoreKey groupKey, final String path, final List<StoreKey> members )
+    {
+        final Map<String, CachedListing> dirs = listings.get( groupKey );
+        if ( dirs == null )
+        {
+            return null;
+        }
+
+        final String dir = dirKey( path );
+        final CachedListing cached = dirs.get( dir );
+        if ( cached == null )
+        {
+            return null;
+        }
+
+        if ( cached.isExpired( System.currentTimeMillis() ) || !cached.members.equals( members ) )
+        {
+            if ( dirs.remove( dir, cached ) )
+            {
+                count.decrementAndGet();
+            }
+            return null;
+        }
+
+        logger.trace( "Using cached listing of {} in {}", path, groupKey );
+        return cached.listing;
+    }
+
+    public void put( final StoreKey groupKey, final String path, final List<StoreKey> members,
+                     final List<StoreResource> listing )
+    {
+        final int seconds = config.getGroupListCacheSeconds();
+        if ( seconds <= 0 )
+        {
+            return;
+        }
+
+        final int max = config.getGroupListCacheMaxEntries();
+        if ( max <= 0 )
+        {
+            return;
+        }
+
+        final long now = System.currentTimeMillis();
+        if ( count.get() >= max )
+        {
+            makeRoom( now, max );
+        }
+
+        final Map<String, CachedListing> dirs = listings.computeIfAbsent( groupKey, k -> new ConcurrentHashMap<>() );
+        if ( dirs.put( dirKey( path ), new CachedListing( new ArrayList<>( members ), Collections.unmodifiableList(
+                new ArrayList<>( listing ) ), now + TimeUnit.SECONDS.toMillis( seconds ) ) ) == null )
+        {
+            count.incrementAndGet();
+        }
+    }
+
+    int size()
+    {
+        return count.get();
+    }
+
+    private int countListings()
+    {
+        return listings.values().stream().mapToInt( Map::size ).sum();
+    }
+
+    /**
+     * Sweep expired listings and, if the cache is still full, drop the oldest ones. All listings live equally long, so
+     * the ones expiring first are the oldest.
+     */
+    private synchronized void makeRoom( final long now, final int max )
+    {
+        listings.values().forEach( dirs -> dirs.values().removeIf( cached -> cached.isExpired( now ) ) );
+
+        final int total = countListings();
+        count.set( total );
+        if ( total < max )
+        {
+            return;
+        }
+
+        final List<Long> expiries = new ArrayList<>( total );
+        listings.values().forEach( dirs -> dirs.values().forEach( cached -> expiries.add( cached.expires ) ) );
+        if ( expiries.isEmpty() )
+        {
+            return;
+        }
+
+        Collections.sort( expiries );
+        final int excess = total - max + Math.max( 1, max / EVICT_DIVISOR );
+        final long cutoff = expiries.get( Math.min( excess, expiries.size() ) - 1 );
+        listings.values().forEach( dirs -> dirs.values().removeIf( cached -> cached.expires <= cutoff ) );
+        count.set( countListings() );
+        logger.debug( "Group listing cache is full ({} listings), dropped those expiring up to {}", max, cutoff );
+    }
+
+    public void onFileStorageEvent( @Observes final FileStorageEvent event )
+    {
+        invalidate( event.getTransfer(), event.getEventMetadata() );
+    }
+
+    public void onFileDeletionEvent( @Observes final FileDeletionEvent event )
+    {
+        invalidate( event.getTransfer(), event.getEventMetadata() );
+    }
+
+    public void onStoreDeletion( @Observes final ArtifactStoreDeletePostEvent event )
+    {
+        for ( final ArtifactStore store : event )
+        {
+            if ( store.getType() == group )
+            {
+                final Map<String, CachedListing> dirs = listings.remove( store.getKey() );
+                if ( dirs != null )
+                {
+                    count.addAndGet( -dirs.size() );
+                }
+            }
+        }
+    }
+
+    private void invalidate( final Transfer transfer, final EventMetadata eventMetadata )
+    {
+        if ( listings.isEmpty() || transfer == null )
+        {
+            return;
+        }
+
+        final StoreKey key = getKey( transfer );
+        if ( key == null || key.getType() == remote )
+        {
+            return;
+        }
+
+        final Collection<Map<String, CachedListing>> affected = listingsOfGroupsContaining( key, eventMetadata );
+        if ( affected.isEmpty() )
+        {
+            return;
+        }
+
+        // a new file may also be the first entry of new directories, so the parents' listings change too
+        String dir = dirKey( transfer.getPath() );
+        while ( true )
+        {
+            final int idx = dir.lastIndexOf( '/' );
+            dir = idx < 0 ? "" : dir.substring( 0, idx );
+            for ( final Map<String, CachedListing> dirs : affected )
+            {
+                if ( dirs.remove( dir ) != null )
+                {
+                    count.decrementAndGet();
+                }
+            }
+
+            if ( dir.isEmpty() )
+            {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Cached listings of the groups that have the store as a member, directly or through other groups, reusing the
+     * groups passed along in the event metadata when there are any. Without store data, or if the lookup fails, all
+     * groups' listings are returned.
+     */
+    private Collection<Map<String, CachedListing>> listingsOfGroupsContaining( final StoreKey key,
+                                                                             final EventMetadata eventMetadata )
+    {
+        if ( storeDataManager == null )
+        {
+            return listings.values();
+        }
+
+        final Set<Group> groups;
+        try
+        {
+            groups = storeDataManager.affectedBy( Collections.singleton( key ), eventMetadata );
+        }
+        catch ( IndyDataException e )
+        {
+            logger.warn( "Failed to look up groups containing: {}, dropping listings of all groups. Reason: {}", key,
+                         e.getMessage() );
+            return listings.values();
+        }
+
+        final List<Map<String, CachedListing>> affected = new ArrayList<>( groups.size() );
+        for ( final Group g : groups )
+        {
+            final Map<String, CachedListing> dirs = listings.get( g.getKey() );
+            if ( dirs != null )
+            {
+                affected.add( dirs );
+            }
+        }
+        return affected;
+    }
+
+    private static String dirKey( final String path )
+    {
+        int start = 0;
+        int end = path.length();
+        while ( start < end && path.charAt( start ) == '/' )
+        {
+            start++;
+        }
+        while ( end > start && path.charAt( end - 1 ) == '/' )
+        {
+            end--;
+        }
+        return path.substring( start, end );
+    }
+
+    private static final class CachedListing
+    {
+        private final List<StoreKey> members;
+
+        private final List<StoreResource> listing;
+
+        private final long expires;
+
+        CachedListing( final List<StoreKey> members, final List<StoreResource> listing, final long expires )
+        {
+            this.members = members;
+            this.listing = listing;
+            this.expires = expires;
+        }
+
+        boolean isExpired( final long now )
+        {
+            return now >= expires;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.core.expire;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.commonjava.indy.model.core.StoreKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.List;
+
+import static org.commonjava.indy.core.expire.ScheduleManager.CONTENT_JOB_TYPE;
+
+/**
+ * Append-only file of the changes made to the content {@link ExpirationWheel}, one JSON record per line: a schedule,
+ * or a removal of the key when {@link WheelRecord#removed} is set. Replaying it in order rebuilds the wheel. Once the
+ * file holds more than twice as many records as there are live entries, it is rewritten from a snapshot of the wheel.
+ * A line that can't be parsed (a write torn by a crash) is skipped on load.
+ */
+final class ExpirationJournal
+{
+    private static final int COMPACT_MIN_RECORDS = 10_000;
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    private final File file;
+
+    private final ObjectMapper objectMapper;
+
+    private long records;
+
+    ExpirationJournal( final File file, final ObjectMapper objectMapper )
+    {
+        this.file = file;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Replay the file onto the wheel.
+     */
+    void load( final ExpirationWheel wheel )
+            throws IOException
+    {
+        records = 0;
+        if ( !file.exists() )
+        {
+            return;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader( file.toPath(), StandardCharsets.UTF_8 ))
+        {
+            String line;
+            while ( ( line = reader.readLine() ) != null )
+            {
+                if ( line.trim().isEmpty() )
+                {
+                    continue;
+                }
+
+                records++;
+                try
+                {
+                    final WheelRecord record = objectMapper.readValue( line, WheelRecord.class );
+                    final ScheduleKey key =
+                            new ScheduleKey( StoreKey.fromString( record.store ), CONTENT_JOB_TYPE, record.name );
+                    if ( record.removed )
+                    {
+                        wheel.cancel( key );
+                    }
+                    else
+                    {
+                        wheel.schedule( key, record.payload, record.scheduled, record.expires );
+                    }
+                }
+                catch ( final JsonProcessingException | IllegalArgumentException e )
+                {
+                    logger.warn( "Skipping unreadable content expiration record in {}: {}", file, e.getMessage() );
+                }
+            }
+        }
+    }
+
+    void append( final List<ExpirationWheel.Change> changes )
+            throws IOException
+    {
+        if ( changes.isEmpty() )
+        {
+            return;
+        }
+
+        file.getParentFile().mkdirs();
+        try (Writer writer = new BufferedWriter(
+                new OutputStreamWriter( new FileOutputStream( file, true ), StandardCharsets.UTF_8 ) ))
+        {
+            for ( final ExpirationWheel.Change change : changes )
+            {
+                final WheelRecord record;
+                if ( change.getEntry() == null )
+                {
+                    record = new WheelRecord();
+                    record.store = change.getKey().getStoreKey().toString();
+                    record.name = change.getKey().getName();
+                    record.removed = true;
+                }
+                else
+                {
+                    record = toRecord( change.getEntry() );
+                }
+                writeLine( writer, record );
+            }
+        }
+
+        records += changes.size();
+    }
+
+    boolean needsCompaction( final int live )
+    {
+        return records > COMPACT_MIN_RECORDS && records > 2L * live;
+    }
+
+    /**
+     * Replace the file with one schedule record per entry.
+     */
+    void compact( final Collection<ExpirationWheel.Entry> entries )
+            throws IOException
+    {
+        final File tmp = new File( file.getPath() + ".tmp" );
+        file.getParentFile().mkdirs();
+        try (Writer writer = new BufferedWriter(
+                new OutputStreamWriter( new FileOutputStream( tmp ), StandardCharsets.UTF_8 ) ))
+        {
+            for ( final ExpirationWheel.Entry entry : entries )
+            {
+                writeLine( writer, toRecord( entry ) );
+            }
+        }
+
+        Files.move( tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE );
+        logger.debug( "Compacted {} content expiration records to {} in: {}", records, entries.size(), file );
+        records = entries.size();
+    }
+
+    private WheelRecord toRecord( final ExpirationWheel.Entry entry )
+    {
+        final WheelRecord record = new WheelRecord();
+        record.store = entry.getKey().getStoreKey().toString();
+        record.name = entry.getKey().getName();
+        record.payload = entry.getPayload();
+        record.scheduled = entry.getScheduleTime();
+        record.expires = entry.getExpireTime();
+        return record;
+    }
+
+    private void writeLine( final Writer writer, final WheelRecord record )
+            throws IOException
+    {
+        writer.write( objectMapper.writeValueAsString( record ) );
+        writer.write( '\n' );
+    }
+
+    /**
+     * One line of the content expiration journal.
+     */
+    public static final class WheelRecord
+    {
+        public String store;
+
+        public String name;
+
+        public String payload;
+
+        public long scheduled;
+
+        public long expires;
+
+        public boolean removed;
+    }
+}
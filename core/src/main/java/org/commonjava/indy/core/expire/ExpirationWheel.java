@@ -0,0 +1,392 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.core.expire;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Hierarchical timing wheel holding scheduled expirations, with an index by key and by schedule group (store + job
+ * type). Scheduling and cancelling are O(1); {@link #advance(long)} hands back everything that expired since the last
+ * call in one batch. There are {@link #LEVELS} wheels of {@link #SLOTS} slots; a slot on level N covers
+ * SLOTS<sup>N</sup> ticks, and its entries are moved down a level when the wheel below comes round to them.
+ * <p>
+ * Once {@link #trackChanges()} is called, every schedule and removal is also recorded, in order, for a journal to pick
+ * up through {@link #drainChanges()}.
+ */
+public final class ExpirationWheel
+{
+    static final int LEVELS = 4;
+
+    static final int SLOTS = 256;
+
+    private static final int SLOT_BITS = 8;
+
+    private static final int SLOT_MASK = SLOTS - 1;
+
+    private static final long MAX_TICKS = 1L << ( SLOT_BITS * LEVELS );
+
+    private final long tickMillis;
+
+    private final Entry[][] wheels = new Entry[LEVELS][SLOTS];
+
+    private final Map<ScheduleKey, Entry> entries = new HashMap<>();
+
+    private final Map<String, Set<ScheduleKey>> groups = new HashMap<>();
+
+    private long currentTick;
+
+    private List<Change> changes;
+
+    public ExpirationWheel( final long tickMillis, final long nowMillis )
+    {
+        this.tickMillis = tickMillis;
+        this.currentTick = nowMillis / tickMillis;
+    }
+
+    /**
+     * Schedule (or re-schedule) the key to expire at the given time.
+     */
+    public synchronized void schedule( final ScheduleKey key, final String payload, final long scheduleTime,
+                                       final long expireTime )
+    {
+        unschedule( key );
+
+        final Entry entry = new Entry( key, payload, scheduleTime, expireTime );
+        entries.put( key, entry );
+        groups.computeIfAbsent( key.getGroupName(), k -> new HashSet<>() ).add( key );
+        place( entry, currentTick + 1 );
+        record( key, entry );
+    }
+
+    public synchronized Entry cancel( final ScheduleKey key )
+    {
+        final Entry entry = unschedule( key );
+        if ( entry != null )
+        {
+            record( key, null );
+        }
+        return entry;
+    }
+
+    /**
+     * Cancel every entry of the schedule group (see {@link ScheduleManager#groupName}).
+     */
+    public synchronized Set<ScheduleKey> cancelGroup( final String groupName )
+    {
+        final Set<ScheduleKey> keys = groups.remove( groupName );
+        if ( keys == null )
+        {
+            return Collections.emptySet();
+        }
+
+        for ( ScheduleKey key : keys )
+        {
+            final Entry entry = entries.remove( key );
+            if ( entry != null )
+            {
+                unlink( entry );
+                record( key, null );
+            }
+        }
+
+        return keys;
+    }
+
+    public synchronized Entry get( final ScheduleKey key )
+    {
+        return entries.get( key );
+    }
+
+    public synchronized Set<ScheduleKey> getGroup( final String groupName )
+    {
+        final Set<ScheduleKey> keys = groups.get( groupName );
+        return keys == null ? Collections.emptySet() : new HashSet<>( keys );
+    }
+
+    /**
+     * Move the wheel up to the given time, removing and returning all entries that expired on the way.
+     */
+    public synchronized List<Entry> advance( final long nowMillis )
+    {
+        final long targetTick = nowMillis / tickMillis;
+        final List<Entry> expired = new ArrayList<>();
+
+        while ( currentTick < targetTick )
+        {
+            currentTick++;
+
+            int top = 0;
+            while ( top + 1 < LEVELS && ( currentTick & ( ( 1L << ( SLOT_BITS * ( top + 1 ) ) ) - 1 ) ) == 0 )
+            {
+                top++;
+            }
+
+            for ( int level = top; level > 0; level-- )
+            {
+                cascade( level, (int) ( ( currentTick >>> ( SLOT_BITS * level ) ) & SLOT_MASK ) );
+            }
+
+            final int slot = (int) ( currentTick & SLOT_MASK );
+            Entry entry = wheels[0][slot];
+            wheels[0][slot] = null;
+            while ( entry != null )
+            {
+                final Entry next = entry.next;
+                entry.prev = null;
+                entry.next = null;
+                if ( entry.expireTime / tickMillis > currentTick )
+                {
+                    // was clamped to the wheel's range; not due yet
+                    place( entry, currentTick + 1 );
+                }
+                else
+                {
+                    entries.remove( entry.key );
+                    final Set<ScheduleKey> keys = groups.get( entry.key.getGroupName() );
+                    if ( keys != null )
+                    {
+                        keys.remove( entry.key );
+                        if ( keys.isEmpty() )
+                        {
+                            groups.remove( entry.key.getGroupName() );
+                        }
+                    }
+                    expired.add( entry );
+                    record( entry.key, null );
+                }
+                entry = next;
+            }
+        }
+
+        return expired;
+    }
+
+    public synchronized int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Start recording changes for {@link #drainChanges()}. Entries already on the wheel are not reported.
+     */
+    public synchronized void trackChanges()
+    {
+        if ( changes == null )
+        {
+            changes = new ArrayList<>();
+        }
+    }
+
+    /**
+     * @return the changes recorded since the last drain or snapshot, oldest first
+     */
+    public synchronized List<Change> drainChanges()
+    {
+        if ( changes == null || changes.isEmpty() )
+        {
+            return Collections.emptyList();
+        }
+
+        final List<Change> drained = changes;
+        changes = new ArrayList<>();
+        return drained;
+    }
+
+    /**
+     * @return the entries currently on the wheel. Changes recorded up to this point are dropped, since the snapshot
+     * already reflects them; later ones are reported by the next drain.
+     */
+    public synchronized List<Entry> snapshot()
+    {
+        if ( changes != null )
+        {
+            changes = new ArrayList<>();
+        }
+        return new ArrayList<>( entries.values() );
+    }
+
+    private Entry unschedule( final ScheduleKey key )
+    {
+        final Entry entry = entries.remove( key );
+        if ( entry == null )
+        {
+            return null;
+        }
+
+        unlink( entry );
+
+        final Set<ScheduleKey> keys = groups.get( key.getGroupName() );
+        if ( keys != null )
+        {
+            keys.remove( key );
+            if ( keys.isEmpty() )
+            {
+                groups.remove( key.getGroupName() );
+            }
+        }
+
+        return entry;
+    }
+
+    private void record( final ScheduleKey key, final Entry entry )
+    {
+        if ( changes != null )
+        {
+            changes.add( new Change( key, entry ) );
+        }
+    }
+
+    private void cascade( final int level, final int slot )
+    {
+        Entry entry = wheels[level][slot];
+        wheels[level][slot] = null;
+        while ( entry != null )
+        {
+            final Entry next = entry.next;
+            entry.prev = null;
+            entry.next = null;
+            // the current tick's slot is expired right after cascading, so it can still take entries
+            place( entry, currentTick );
+            entry = next;
+        }
+    }
+
+    private void place( final Entry entry, final long earliestTick )
+    {
+        long tick = Math.max( entry.expireTime / tickMillis, earliestTick );
+        long delta = tick - currentTick;
+        if ( delta >= MAX_TICKS )
+        {
+            delta = MAX_TICKS - 1;
+            tick = currentTick + delta;
+        }
+
+        int level = 0;
+        while ( level + 1 < LEVELS && delta >= ( 1L << ( SLOT_BITS * ( level + 1 ) ) ) )
+        {
+            level++;
+        }
+
+        final int slot = (int) ( ( tick >>> ( SLOT_BITS * level ) ) & SLOT_MASK );
+        entry.level = level;
+        entry.slot = slot;
+        entry.next = wheels[level][slot];
+        if ( entry.next != null )
+        {
+            entry.next.prev = entry;
+        }
+        wheels[level][slot] = entry;
+    }
+
+    private void unlink( final Entry entry )
+    {
+        if ( entry.prev != null )
+        {
+            entry.prev.next = entry.next;
+        }
+        else if ( wheels[entry.level][entry.slot] == entry )
+        {
+            wheels[entry.level][entry.slot] = entry.next;
+        }
+
+        if ( entry.next != null )
+        {
+            entry.next.prev = entry.prev;
+        }
+
+        entry.prev = null;
+        entry.next = null;
+    }
+
+    /**
+     * A key scheduled with the given entry, or removed (cancelled or expired) when the entry is null.
+     */
+    public static final class Change
+    {
+        private final ScheduleKey key;
+
+        private final Entry entry;
+
+        private Change( final ScheduleKey key, final Entry entry )
+        {
+            this.key = key;
+            this.entry = entry;
+        }
+
+        public ScheduleKey getKey()
+        {
+            return key;
+        }
+
+        public Entry getEntry()
+        {
+            return entry;
+        }
+    }
+
+    public static final class Entry
+    {
+        private final ScheduleKey key;
+
+        private final String payload;
+
+        private final long scheduleTime;
+
+        private final long expireTime;
+
+        private Entry prev;
+
+        private Entry next;
+
+        private int level;
+
+        private int slot;
+
+        private Entry( final ScheduleKey key, final String payload, final long scheduleTime, final long expireTime )
+        {
+            this.key = key;
+            this.payload = payload;
+            this.scheduleTime = scheduleTime;
+            this.expireTime = expireTime;
+        }
+
+        public ScheduleKey getKey()
+        {
+            return key;
+        }
+
+        public String getPayload()
+        {
+            return payload;
+        }
+
+        public long getScheduleTime()
+        {
+            return scheduleTime;
+        }
+
+        public long getExpireTime()
+        {
+            return expireTime;
+        }
+    }
+}
@@ -16,6 +16,9 @@
 package org.commonjava.indy.core.expire;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import org.commonjava.cdi.util.weft.ExecutorConfig;
+import org.commonjava.cdi.util.weft.WeftExecutorService;
+import org.commonjava.cdi.util.weft.WeftManaged;
 import org.commonjava.indy.action.IndyLifecycleException;
 import org.commonjava.indy.action.ShutdownAction;
 import org.commonjava.indy.cluster.IndyNode;
@@ -36,6 +39,7 @@ import org.commonjava.indy.model.core.io.IndyObjectMapper;
 import org.commonjava.indy.pkg.maven.model.MavenPackageTypeDescriptor;
 import org.commonjava.indy.spi.pkg.ContentAdvisor;
 import org.commonjava.indy.spi.pkg.ContentQuality;
+import org.commonjava.indy.subsys.datafile.DataFileManager;
 import org.commonjava.indy.subsys.infinispan.CacheHandle;
 import org.commonjava.indy.subsys.infinispan.CacheKeyMatcher;
 import org.commonjava.indy.util.LocationUtils;
@@ -70,11 +74,13 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.Spliterator;
 import java.util.Spliterators;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.StreamSupport;
 
@@ -87,6 +93,10 @@ import static org.commonjava.indy.core.change.StoreEnablementManager.TIMEOUT_USE
  * removing useless artifacts. It used ISPN cache timeout mechanism to implement this type of function.
  * This class is also acted as a cache listener to handle the cache expiration job event to distribute the expiration
  * info through CDI event for the real actor to do the expiration work.
+ * <p>
+ * When content.wheel.enabled is set in the scheduler config, content expirations are kept on a node-local
+ * {@link ExpirationWheel} instead of the cache, and its changes are appended to an {@link ExpirationJournal} data file
+ * so it survives restarts.
  */
 @SuppressWarnings( "RedundantThrows" )
 @ApplicationScoped
@@ -109,6 +119,13 @@ public class ScheduleManager
 
     public static final String SCHEDULE_UUID = "SCHEDULE_UUID";
 
+    private static final long WHEEL_TICK_MILLIS = 1000;
+
+
+    private static final String WHEEL_DATA_DIR = "scheduler";
+
+    private static final String WHEEL_DATA_FILE = "content-expirations.json";
+
     @Inject
     private StoreDataManager dataManager;
 
@@ -143,6 +160,22 @@ public class ScheduleManager
     @Inject
     private LocalIndyNodeProvider nodeHolder;
 
+    @Inject
+    private DataFileManager dataFileManager;
+
+    @Inject
+    @WeftManaged
+    @ExecutorConfig( named = "content-expiration-wheel", threads = 1, priority = 7, daemon = true )
+    private WeftExecutorService wheelExecutor;
+
+    private ExpirationWheel contentWheel;
+
+    private ExpirationJournal contentJournal;
+
+    private boolean contentJournalStale;
+
+    private final CountDownLatch wheelStopLatch = new CountDownLatch( 1 );
+
     @PostConstruct
     public void init()
     {
@@ -154,6 +187,11 @@ public class ScheduleManager
 
         // register this producer as schedule cache listener
         registerCacheListener( scheduleCache );
+
+        if ( schedulerConfig.isContentWheelEnabled() )
+        {
+            startContentWheel();
+        }
     }
 
     private <K,V> void registerCacheListener(CacheHandle<K, V> cache){
@@ -304,19 +342,31 @@ public class ScheduleManager
 
         final Map<String, Object> dataMap = new HashMap<>( 3 );
         dataMap.put( JOB_TYPE, jobType );
+        final String payloadJson;
         try
         {
-            dataMap.put( PAYLOAD, objectMapper.writeValueAsString( payload ) );
+            payloadJson = objectMapper.writeValueAsString( payload );
         }
         catch ( final JsonProcessingException e )
         {
             throw new IndySchedulerException( "Failed to serialize JSON payload: " + payload, e );
         }
+        dataMap.put( PAYLOAD, payloadJson );
 
-        dataMap.put( SCHEDULE_TIME, System.currentTimeMillis() );
+        final long scheduleTime = System.currentTimeMillis();
+        dataMap.put( SCHEDULE_TIME, scheduleTime );
 
         final ScheduleKey cacheKey = new ScheduleKey( key, jobType, jobName );
 
+        if ( isOnWheel( cacheKey ) )
+        {
+            contentWheel.schedule( cacheKey, payloadJson, scheduleTime,
+                                   scheduleTime + TimeUnit.SECONDS.toMillis( startSeconds ) );
+            logger.debug( "Scheduled on wheel for the key {} with timeout: {} seconds", cacheKey, startSeconds );
+            fireEvent( eventDispatcher, new SchedulerScheduleEvent( jobType, payloadJson ) );
+            return;
+        }
+
         scheduleCache.execute( cache -> cache.put( cacheKey, new ScheduleValue( cacheKey, dataMap ), startSeconds, TimeUnit.SECONDS ) );
         logger.debug( "Scheduled for the key {} with timeout: {} seconds", cacheKey, startSeconds );
     }
@@ -480,7 +530,7 @@ public class ScheduleManager
         final Set<ScheduleKey> canceled = new HashSet<>();
 
         final Date to = new Date( System.currentTimeMillis() + ( timeout * 1000 ) );
-        matcher.matches( scheduleCache ).forEach( key -> {
+        matchKeys( matcher ).forEach( key -> {
             final Date nextFire = getNextExpireTime( key );
             if ( nextFire == null || !nextFire.after( to ) )
             {
@@ -510,8 +560,13 @@ public class ScheduleManager
             return Collections.emptySet();
         }
 
+        if ( ANY.equals( name ) && isOnWheel( matcher ) )
+        {
+            return contentWheel.cancelGroup( ( (StoreKeyMatcher) matcher ).getGroupName() );
+        }
+
         Set<ScheduleKey> canceled = new HashSet<>();
-        final Set<ScheduleKey> keys = matcher.matches( scheduleCache );
+        final Set<ScheduleKey> keys = matchKeys( matcher );
         if ( keys != null && !keys.isEmpty() )
         {
             Set<ScheduleKey> unscheduled = null;
@@ -553,7 +608,7 @@ public class ScheduleManager
             return null;
         }
 
-        final Set<ScheduleKey> keys = matcher.matches( scheduleCache );
+        final Set<ScheduleKey> keys = matchKeys( matcher );
         if ( keys != null && !keys.isEmpty() )
         {
             ScheduleKey triggerKey = keys.iterator().next();
@@ -571,7 +626,7 @@ public class ScheduleManager
             return null;
         }
 
-        final Set<ScheduleKey> keys = matcher.matches( scheduleCache );
+        final Set<ScheduleKey> keys = matchKeys( matcher );
         Set<Expiration> expirations = new HashSet<>( keys.size() );
         if ( !keys.isEmpty() )
         {
@@ -591,6 +646,13 @@ public class ScheduleManager
 
     private Date getNextExpireTime( final ScheduleKey cacheKey )
     {
+        if ( isOnWheel( cacheKey ) )
+        {
+            final ExpirationWheel.Entry entry = contentWheel.get( cacheKey );
+            return entry == null || entry.getExpireTime() <= System.currentTimeMillis() ?
+                    null :
+                    new Date( entry.getExpireTime() );
+        }
 
         return scheduleCache.executeCache( cache -> {
             final CacheEntry<ScheduleKey, ScheduleValue> entry =
@@ -631,7 +693,7 @@ public class ScheduleManager
             return null;
         }
 
-        final Set<ScheduleKey> keys = matcher.matches( scheduleCache );
+        final Set<ScheduleKey> keys = matchKeys( matcher );
         if ( keys != null && !keys.isEmpty() )
         {
             return keys.iterator().next();
@@ -704,14 +766,148 @@ public class ScheduleManager
             return;
         }
 
+        if ( contentWheel != null )
+        {
+            wheelStopLatch.countDown();
+            saveContentWheel();
+        }
+
         scheduleCache.stop();
     }
 
     private void removeCache( final ScheduleKey cacheKey )
     {
+        if ( isOnWheel( cacheKey ) )
+        {
+            contentWheel.cancel( cacheKey );
+            return;
+        }
+
         scheduleCache.remove( cacheKey );
     }
 
+    private boolean isOnWheel( final ScheduleKey key )
+    {
+        return contentWheel != null && CONTENT_JOB_TYPE.equals( key.getType() );
+    }
+
+    private boolean isOnWheel( final CacheKeyMatcher<ScheduleKey> matcher )
+    {
+        return contentWheel != null && matcher instanceof StoreKeyMatcher
+                && ( (StoreKeyMatcher) matcher ).getGroupName().endsWith( groupNameSuffix( CONTENT_JOB_TYPE ) );
+    }
+
+    private Set<ScheduleKey> matchKeys( final CacheKeyMatcher<ScheduleKey> matcher )
+    {
+        if ( isOnWheel( matcher ) )
+        {
+            return contentWheel.getGroup( ( (StoreKeyMatcher) matcher ).getGroupName() );
+        }
+
+        return matcher.matches( scheduleCache );
+    }
+
+    private void startContentWheel()
+    {
+        contentWheel = new ExpirationWheel( WHEEL_TICK_MILLIS, System.currentTimeMillis() );
+        contentJournal = new ExpirationJournal(
+                dataFileManager.getDataFile( WHEEL_DATA_DIR, WHEEL_DATA_FILE ).getDetachedFile(), objectMapper );
+        loadContentWheel();
+        contentWheel.trackChanges();
+
+        wheelExecutor.execute( () -> {
+            try
+            {
+                while ( !wheelStopLatch.await( WHEEL_TICK_MILLIS, TimeUnit.MILLISECONDS ) )
+                {
+                    expireFromWheel();
+                    saveContentWheel();
+                }
+            }
+            catch ( final InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+        } );
+
+        logger.info( "Content expirations use the timing wheel; {} pending expirations loaded", contentWheel.size() );
+    }
+
+    private void expireFromWheel()
+    {
+        final List<ExpirationWheel.Entry> expired;
+        try
+        {
+            expired = contentWheel.advance( System.currentTimeMillis() );
+        }
+        catch ( final RuntimeException e )
+        {
+            logger.error( "Failed to advance content expiration wheel", e );
+            return;
+        }
+
+        if ( expired.isEmpty() )
+        {
+            return;
+        }
+
+        logger.debug( "{} content expirations due", expired.size() );
+        for ( final ExpirationWheel.Entry entry : expired )
+        {
+            try
+            {
+                logger.info( "Expiring: {} in: {} at: {}.", entry.getKey().getName(), entry.getKey().getStoreKey(),
+                             new Date( System.currentTimeMillis() ) );
+                fireEvent( eventDispatcher, new SchedulerTriggerEvent( CONTENT_JOB_TYPE, entry.getPayload() ) );
+            }
+            catch ( final RuntimeException e )
+            {
+                logger.error( String.format( "Failed to fire expiration for: %s", entry.getKey() ), e );
+            }
+        }
+    }
+
+    private void loadContentWheel()
+    {
+        try
+        {
+            contentJournal.load( contentWheel );
+
+            // start from a clean file, without superseded records or a torn last line
+            contentJournal.compact( contentWheel.snapshot() );
+        }
+        catch ( final IOException | RuntimeException e )
+        {
+            logger.error( "Failed to load content expirations", e );
+        }
+    }
+
+    /**
+     * Append the wheel's changes since the last call to the journal, compacting it once it has grown too far past the
+     * number of pending expirations.
+     */
+    private synchronized void saveContentWheel()
+    {
+        try
+        {
+            if ( contentJournalStale || contentJournal.needsCompaction( contentWheel.size() ) )
+            {
+                contentJournal.compact( contentWheel.snapshot() );
+                contentJournalStale = false;
+            }
+            else
+            {
+                contentJournal.append( contentWheel.drainChanges() );
+            }
+        }
+        catch ( final IOException | RuntimeException e )
+        {
+            // the drained changes are lost, so the next save rewrites the whole file
+            contentJournalStale = true;
+            logger.error( "Failed to save content expirations", e );
+        }
+    }
+
     @CacheEntryCreated
     public void scheduled( final CacheEntryCreatedEvent<ScheduleKey, ScheduleValue> e )
     {
@@ -44,6 +44,11 @@ public class StoreKeyMatcher
         this.groupName = ScheduleManager.groupName( key, eventType );
     }
 
+    public String getGroupName()
+    {
+        return groupName;
+    }
+
     @Override
     public Set<ScheduleKey> matches( CacheHandle<ScheduleKey, ?> cacheHandle )
     {
@@ -15,11 +15,15 @@
  */
 package org.commonjava.indy.core.inject;
 
+import com.datastax.driver.core.BatchStatement;
 import com.datastax.driver.core.BoundStatement;
 import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
+import org.commonjava.cdi.util.weft.NamedThreadFactory;
+import org.commonjava.cdi.util.weft.PoolWeftExecutorService;
+import org.commonjava.cdi.util.weft.WeftExecutorService;
 import org.commonjava.indy.conf.IndyConfiguration;
 import org.commonjava.o11yphant.metrics.annotation.Measure;
 import org.commonjava.indy.model.core.StoreKey;
@@ -29,20 +33,35 @@ import org.commonjava.indy.subsys.infinispan.CacheHandle;
 import org.commonjava.indy.subsys.infinispan.CacheProducer;
 import org.commonjava.maven.galley.model.ConcreteResource;
 import org.commonjava.maven.galley.model.Location;
+import org.commonjava.o11yphant.metrics.DefaultMetricsManager;
+import org.commonjava.o11yphant.metrics.api.Gauge;
+import org.commonjava.o11yphant.metrics.api.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.inject.Alternative;
 import javax.inject.Inject;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 
 import static org.commonjava.indy.conf.DefaultIndyConfiguration.DEFAULT_NOT_FOUND_CACHE_TIMEOUT_SECONDS;
 import static org.commonjava.indy.subsys.cassandra.util.SchemaUtils.getSchemaCreateKeyspace;
@@ -56,6 +75,8 @@ public class CassandraNotFoundCache
 
     private static final String TIMEOUT_FORMAT = "yyyy-MM-dd HH:mm:ss z";
 
+    private static final long WRITE_BEHIND_FLUSH_INTERVAL_MILLIS = 500;
+
     private PreparedStatement preparedInsert;
 
     private PreparedStatement preparedExistQuery;
@@ -96,20 +117,49 @@ public class CassandraNotFoundCache
     @Inject
     protected IndyConfiguration config;
 
+    @Inject
+    private DefaultMetricsManager metricsManager;
+
     private String keyspace;
 
     private Session session;
 
+    private BlockingQueue<NfcWrite> writeQueue;
+
+    // latest not-yet-flushed write per storekey:path, consulted by isMissing so the in-memory tier stays authoritative
+    private final Map<String, NfcWrite> pendingWrites = new ConcurrentHashMap<>();
+
+    private final Object flushLock = new Object();
+
+    private WeftExecutorService flushExecutor;
+
+    private final CountDownLatch flusherStop = new CountDownLatch( 1 );
+
+    private volatile boolean flusherRunning;
+
     protected CassandraNotFoundCache()
     {
     }
 
     public CassandraNotFoundCache( final IndyConfiguration config, final CacheProducer cacheProducer,
                                    final CassandraClient cassandraClient )
+    {
+        this( config, cacheProducer, cassandraClient, null, null );
+    }
+
+    /**
+     * For instances created outside of CDI (see {@link CoreProvider}): nothing is injected and {@link #stop()} is not
+     * called by the container, so the owner has to call it to flush the write-behind queue.
+     */
+    public CassandraNotFoundCache( final IndyConfiguration config, final CacheProducer cacheProducer,
+                                   final CassandraClient cassandraClient, final DefaultMetricsManager metricsManager,
+                                   final WeftExecutorService flushExecutor )
     {
         this.config = config;
         this.cacheProducer = cacheProducer;
         this.cassandraClient = cassandraClient;
+        this.metricsManager = metricsManager;
+        this.flushExecutor = flushExecutor;
         start();
     }
 
@@ -144,6 +194,65 @@ public class CassandraNotFoundCache
 
         preparedInsert = session.prepare( "INSERT INTO " + keyspace
                                                           + ".nfc (storekey,path,creation,expiration) VALUES (?,?,?,?) USING TTL ?;" ); // ttl in seconds
+
+        if ( config.isNfcWriteBehindEnabled() )
+        {
+            startWriteBehind();
+        }
+    }
+
+    private void startWriteBehind()
+    {
+        writeQueue = new ArrayBlockingQueue<>( Math.max( 1, config.getNfcWriteBehindQueueSize() ) );
+        if ( flushExecutor == null )
+        {
+            final String name = "nfc-write-behind";
+            flushExecutor = new PoolWeftExecutorService( name, (ThreadPoolExecutor) Executors.newFixedThreadPool(
+                    1, new NamedThreadFactory( name, new ThreadGroup( name ), true, 4 ) ) );
+        }
+        flusherRunning = true;
+        flushExecutor.execute( this::runFlusher );
+
+        if ( metricsManager != null )
+        {
+            Map<String, Gauge<Integer>> gauges = new HashMap<>();
+            gauges.put( "queue-depth", () -> writeQueue.size() );
+            metricsManager.addGauges( CassandraNotFoundCache.class, "write-behind", gauges );
+        }
+
+        logger.info( "[NFC] Write-behind enabled, queue size: {}, batch size: {}", config.getNfcWriteBehindQueueSize(),
+                     config.getNfcWriteBehindBatchSize() );
+    }
+
+    /**
+     * Stop the flusher and write out whatever is still queued. Writes made after this go straight to Cassandra.
+     */
+    @PreDestroy
+    public synchronized void stop()
+    {
+        if ( flusherRunning )
+        {
+            flusherRunning = false;
+            flusherStop.countDown();
+            flushQueue();
+            logger.info( "[NFC] Write-behind queue flushed on stop" );
+        }
+    }
+
+    private void runFlusher()
+    {
+        try
+        {
+            while ( !flusherStop.await( WRITE_BEHIND_FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS ) )
+            {
+                flushQueue();
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+        logger.info( "[NFC] Write-behind flusher stopped" );
     }
 
     @Override
@@ -172,8 +281,8 @@ public class CassandraNotFoundCache
 
         BoundStatement bound = preparedInsert.bind( key.toString(), resource.getPath(), curDate, timeoutDate,
                                                     timeoutInSeconds );
-        session.execute( bound );
         inMemoryCache.put( resource, DUMB_CACHE_VALUE, timeoutInSeconds, TimeUnit.SECONDS );
+        write( new NfcWrite( key.toString(), resource.getPath(), true, bound ) );
     }
 
     @Override
@@ -185,6 +294,11 @@ public class CassandraNotFoundCache
             return true;
         }
         StoreKey key = getResourceKey( resource );
+        NfcWrite pending = pendingWrites.get( NfcWrite.id( key.toString(), resource.getPath() ) );
+        if ( pending != null )
+        {
+            return pending.insert;
+        }
         BoundStatement bound = preparedExistQuery.bind( key.toString(), resource.getPath() );
         ResultSet result = session.execute( bound );
         Row row = result.one();
@@ -212,7 +326,12 @@ public class CassandraNotFoundCache
     {
         StoreKey key = ( (KeyedLocation) location ).getKey();
         BoundStatement bound = preparedDeleteByStore.bind( key.toString() );
-        session.execute( bound );
+        synchronized ( flushLock )
+        {
+            // queued writes for this store must not resurrect rows after the partition delete
+            dropPending( w -> w.storeKey.equals( key.toString() ) );
+            session.execute( bound );
+        }
         clearInMemoryCache( location );
     }
 
@@ -241,18 +360,166 @@ public class CassandraNotFoundCache
     {
         StoreKey key = getResourceKey( resource );
         BoundStatement bound = preparedDelete.bind( key.toString(), resource.getPath() );
-        session.execute( bound );
         inMemoryCache.remove( resource );
+        write( new NfcWrite( key.toString(), resource.getPath(), false, bound ) );
     }
 
     @Override
     @Measure
     public void clearAllMissing()
     {
-        session.execute( "TRUNCATE " + keyspace + ".nfc;" );
+        synchronized ( flushLock )
+        {
+            dropPending( w -> true );
+            session.execute( "TRUNCATE " + keyspace + ".nfc;" );
+        }
         clearInMemoryCache();
     }
 
+    /**
+     * Queue a write for the background flusher, or execute it right away when write-behind is off or the queue is
+     * full, so a backlog slows callers down instead of losing NFC entries. A synchronous write first drops any older
+     * queued write for the same path: the flusher would otherwise execute it later, with a newer timestamp, and undo
+     * this one (e.g. resurrect an entry that was just cleared because the content was stored).
+     */
+    private void write( final NfcWrite write )
+    {
+        if ( writeQueue == null )
+        {
+            session.execute( write.statement );
+            return;
+        }
+
+        pendingWrites.put( write.getId(), write );
+        if ( writeQueue.offer( write ) )
+        {
+            if ( !flusherRunning )
+            {
+                // queued while stopping, after the last flush may have drained the queue
+                flushQueue();
+            }
+            return;
+        }
+
+        logger.debug( "[NFC] Write-behind queue is full, writing {}:{} synchronously", write.storeKey, write.path );
+        synchronized ( flushLock )
+        {
+            // the flusher drains and executes under this lock, so no older write for this path is in flight now
+            writeQueue.removeIf( w -> w.getId().equals( write.getId() ) );
+            try
+            {
+                session.execute( write.statement );
+            }
+            finally
+            {
+                pendingWrites.remove( write.getId(), write );
+            }
+        }
+    }
+
+    /**
+     * Overlay writes of the store that haven't been flushed yet, so queued inserts are listed and queued deletes are not.
+     */
+    private void applyPending( final String storeKey, final Set<String> paths )
+    {
+        if ( pendingWrites.isEmpty() )
+        {
+            return;
+        }
+
+        pendingWrites.values().stream().filter( w -> w.storeKey.equals( storeKey ) ).forEach( w -> {
+            if ( w.insert )
+            {
+                paths.add( w.path );
+            }
+            else
+            {
+                paths.remove( w.path );
+            }
+        } );
+    }
+
+    private void dropPending( final Predicate<NfcWrite> filter )
+    {
+        if ( writeQueue == null )
+        {
+            return;
+        }
+
+        writeQueue.removeIf( filter );
+        pendingWrites.values().removeIf( filter );
+    }
+
+    /**
+     * Drain the queue and send the writes as unlogged batches, one partition (storekey) per batch. Only the latest
+     * write per storekey:path is kept, since Cassandra gives every statement in a batch the same timestamp and would
+     * otherwise let a delete win over a later insert.
+     */
+    private void flushQueue()
+    {
+        if ( writeQueue == null )
+        {
+            return;
+        }
+
+        final int batchSize = Math.max( 1, config.getNfcWriteBehindBatchSize() );
+        try
+        {
+            while ( !writeQueue.isEmpty() )
+            {
+                synchronized ( flushLock )
+                {
+                    List<NfcWrite> drained = new ArrayList<>();
+                    writeQueue.drainTo( drained, batchSize * 16 );
+                    if ( drained.isEmpty() )
+                    {
+                        return;
+                    }
+
+                    Map<String, NfcWrite> latest = new LinkedHashMap<>();
+                    drained.forEach( w -> latest.put( w.getId(), w ) );
+
+                    Map<String, List<NfcWrite>> byPartition = new LinkedHashMap<>();
+                    latest.values().forEach( w -> byPartition.computeIfAbsent( w.storeKey, k -> new ArrayList<>() ).add( w ) );
+
+                    Timer.Context timer = metricsManager == null ? null : metricsManager.startTimer(
+                            CassandraNotFoundCache.class.getSimpleName() + ".write-behind.flush" );
+                    try
+                    {
+                        byPartition.values().forEach( writes -> executeBatches( writes, batchSize ) );
+                    }
+                    catch ( RuntimeException e )
+                    {
+                        // NFC entries are only a cache; dropping a failed batch just costs another upstream check
+                        logger.error( "[NFC] Write-behind flush of {} writes failed", latest.size(), e );
+                    }
+                    finally
+                    {
+                        if ( timer != null )
+                        {
+                            timer.stop();
+                        }
+                        drained.forEach( w -> pendingWrites.remove( w.getId(), w ) );
+                    }
+                }
+            }
+        }
+        catch ( RuntimeException e )
+        {
+            logger.error( "[NFC] Write-behind flush failed", e );
+        }
+    }
+
+    private void executeBatches( final List<NfcWrite> writes, final int batchSize )
+    {
+        for ( int i = 0; i < writes.size(); i += batchSize )
+        {
+            BatchStatement batch = new BatchStatement( BatchStatement.Type.UNLOGGED );
+            writes.subList( i, Math.min( i + batchSize, writes.size() ) ).forEach( w -> batch.add( w.statement ) );
+            session.execute( batch );
+        }
+    }
+
     @Override
     @Measure
     public Map<Location, Set<String>> getAllMissing()
@@ -280,6 +547,7 @@ public class CassandraNotFoundCache
             count++;
             matches.add( row.get( "path", String.class ) );
         }
+        applyPending( key.toString(), matches );
         logger.debug( "[NFC] getMissing complete, count: {}", matches.size() );
         return matches;
     }
@@ -326,4 +594,33 @@ public class CassandraNotFoundCache
         KeyedLocation location = (KeyedLocation) resource.getLocation();
         return location.getKey();
     }
+
+    private static final class NfcWrite
+    {
+        private final String storeKey;
+
+        private final String path;
+
+        private final boolean insert;
+
+        private final BoundStatement statement;
+
+        NfcWrite( final String storeKey, final String path, final boolean insert, final BoundStatement statement )
+        {
+            this.storeKey = storeKey;
+            this.path = path;
+            this.insert = insert;
+            this.statement = statement;
+        }
+
+        String getId()
+        {
+            return id( storeKey, path );
+        }
+
+        static String id( final String storeKey, final String path )
+        {
+            return storeKey + ":" + path;
+        }
+    }
 }
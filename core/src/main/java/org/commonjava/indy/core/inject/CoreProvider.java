@@ -16,6 +16,11 @@
 package org.commonjava.indy.core.inject;
 
 import com.fasterxml.jackson.databind.Module;
+import org.commonjava.cdi.util.weft.ExecutorConfig;
+import org.commonjava.cdi.util.weft.WeftExecutorService;
+import org.commonjava.cdi.util.weft.WeftManaged;
+import org.commonjava.indy.action.IndyLifecycleException;
+import org.commonjava.indy.action.ShutdownAction;
 import org.commonjava.indy.conf.IndyConfiguration;
 import org.commonjava.indy.model.core.io.IndyObjectMapper;
 import org.commonjava.indy.model.core.io.ModuleSet;
@@ -23,6 +28,7 @@ import org.commonjava.indy.subsys.cassandra.CassandraClient;
 import org.commonjava.indy.subsys.infinispan.CacheHandle;
 import org.commonjava.indy.subsys.infinispan.CacheProducer;
 import org.commonjava.maven.galley.spi.nfc.NotFoundCache;
+import org.commonjava.o11yphant.metrics.DefaultMetricsManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -38,6 +44,7 @@ import static org.commonjava.indy.conf.DefaultIndyConfiguration.ISPN_NFC_PROVIDE
 
 @ApplicationScoped
 public class CoreProvider
+        implements ShutdownAction
 {
     private final Logger logger = LoggerFactory.getLogger( getClass() );
 
@@ -54,6 +61,14 @@ public class CoreProvider
     @NfcCache
     private CacheHandle<String, NfcConcreteResourceWrapper> nfcCache;
 
+    @Inject
+    @WeftManaged
+    @ExecutorConfig( named = "nfc-write-behind", threads = 1, priority = 4, daemon = true )
+    private WeftExecutorService nfcWriteBehindExecutor;
+
+    @Inject
+    private DefaultMetricsManager metricsManager;
+
     @Inject
     private Instance<Module> objectMapperModules;
 
@@ -92,8 +107,8 @@ public class CoreProvider
             logger.info( "Apply nfc provider: {}", nfcProvider );
             if ( CASSANDRA_NFC_PROVIDER.equals( nfcProvider ) )
             {
-                notFoundCache = new CassandraNotFoundCache( indyConfiguration, cacheProducer,
-                                                            cassandraClient );
+                notFoundCache = new CassandraNotFoundCache( indyConfiguration, cacheProducer, cassandraClient,
+                                                            metricsManager, nfcWriteBehindExecutor );
             }
             else
             {
@@ -103,4 +118,29 @@ public class CoreProvider
         return notFoundCache;
     }
 
+    /**
+     * The produced NFC is not a container-managed instance, so its write-behind queue is flushed here, before the
+     * caches and the Cassandra session go away.
+     */
+    @Override
+    public void stop()
+            throws IndyLifecycleException
+    {
+        if ( notFoundCache instanceof CassandraNotFoundCache )
+        {
+            ( (CassandraNotFoundCache) notFoundCache ).stop();
+        }
+    }
+
+    @Override
+    public int getShutdownPriority()
+    {
+        return 90;
+    }
+
+    @Override
+    public String getId()
+    {
+        return "NFC write-behind flush";
+    }
 }
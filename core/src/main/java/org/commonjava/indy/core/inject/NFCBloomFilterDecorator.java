@@ -0,0 +1,223 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.core.inject;
+
+import org.commonjava.cdi.util.weft.ExecutorConfig;
+import org.commonjava.cdi.util.weft.WeftExecutorService;
+import org.commonjava.cdi.util.weft.WeftManaged;
+import org.commonjava.indy.conf.IndyConfiguration;
+import org.commonjava.indy.model.core.StoreKey;
+import org.commonjava.indy.model.galley.KeyedLocation;
+import org.commonjava.maven.galley.model.ConcreteResource;
+import org.commonjava.maven.galley.model.Location;
+import org.commonjava.maven.galley.spi.nfc.NotFoundCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.decorator.Decorator;
+import javax.decorator.Delegate;
+import javax.enterprise.inject.Any;
+import javax.inject.Inject;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps a per-store {@link NfcBloomFilter} of missing paths in front of whatever {@link NotFoundCache} is active, so
+ * that probing a path which was never recorded as missing doesn't cost a round-trip to ISPN or Cassandra.
+ * <p>
+ * A store's filter is built in the background from {@link NotFoundCache#getMissing(Location)} on first use; lookups
+ * go straight to the backing cache until it is ready. Paths added while it is being built are recorded and put into
+ * the filter once it is published, so none is lost between the listing and the publication. If the listing was
+ * truncated by nfc.maxresultsetsize the store is left unfiltered, since a negative answer would no longer be
+ * trustworthy. Filters are dropped (and rebuilt on next use) on {@link #clearMissing(Location)}, on
+ * {@link #clearAllMissing()} and once they saturate. Single-path clears and expirations just leave a false positive
+ * behind, which falls through to the backing cache.
+ * <p>
+ * Only additions made through this node reach the filter, so this is opt-in (nfc.bloom.filter.enabled).
+ */
+@Decorator
+public abstract class NFCBloomFilterDecorator
+        implements NotFoundCache
+{
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    @Delegate
+    @Any
+    @Inject
+    private NotFoundCache delegate;
+
+    @Inject
+    private IndyConfiguration config;
+
+    @Inject
+    @WeftManaged
+    @ExecutorConfig( named = "nfc-bloom-filter-builder", threads = 2, priority = 3, daemon = true )
+    private WeftExecutorService builder;
+
+    // an empty Optional marks a store whose missing listing was too large to filter
+    private final Map<StoreKey, Optional<NfcBloomFilter>> filters = new ConcurrentHashMap<>();
+
+    // paths added to stores whose filter is being built
+    private final Map<StoreKey, Set<String>> building = new ConcurrentHashMap<>();
+
+    protected NFCBloomFilterDecorator()
+    {
+    }
+
+    protected NFCBloomFilterDecorator( final NotFoundCache delegate, final IndyConfiguration config,
+                                       final WeftExecutorService builder )
+    {
+        this.delegate = delegate;
+        this.config = config;
+        this.builder = builder;
+    }
+
+    @Override
+    public void addMissing( final ConcreteResource resource )
+    {
+        delegate.addMissing( resource );
+
+        final StoreKey key = getStoreKey( resource.getLocation() );
+        if ( key != null )
+        {
+            // record for a build in progress before checking for a published filter; the build publishes before it
+            // collects these, so a path always ends up in one or the other
+            building.computeIfPresent( key, ( k, added ) -> {
+                added.add( resource.getPath() );
+                return added;
+            } );
+
+            filters.computeIfPresent( key, ( k, filter ) -> {
+                if ( !filter.isPresent() )
+                {
+                    return filter;
+                }
+
+                filter.get().put( resource.getPath() );
+                return filter.get().isSaturated() ? null : filter;
+            } );
+        }
+    }
+
+    @Override
+    public boolean isMissing( final ConcreteResource resource )
+    {
+        final StoreKey key = getStoreKey( resource.getLocation() );
+        if ( key != null )
+        {
+            final Optional<NfcBloomFilter> filter = filters.get( key );
+            if ( filter == null )
+            {
+                scheduleBuild( key, resource.getLocation() );
+            }
+            else if ( filter.isPresent() && !filter.get().mightContain( resource.getPath() ) )
+            {
+                logger.trace( "NFC bloom filter: {} is definitely not missing", resource );
+                return false;
+            }
+        }
+
+        return delegate.isMissing( resource );
+    }
+
+    @Override
+    public void clearMissing( final Location location )
+    {
+        delegate.clearMissing( location );
+
+        final StoreKey key = getStoreKey( location );
+        if ( key != null )
+        {
+            filters.remove( key );
+        }
+    }
+
+    @Override
+    public void clearAllMissing()
+    {
+        delegate.clearAllMissing();
+        filters.clear();
+    }
+
+    private void scheduleBuild( final StoreKey key, final Location location )
+    {
+        if ( builder == null || building.putIfAbsent( key, ConcurrentHashMap.newKeySet() ) != null )
+        {
+            return;
+        }
+
+        try
+        {
+            builder.execute( () -> {
+                try
+                {
+                    final Optional<NfcBloomFilter> filter = buildFilter( location );
+                    filters.put( key, filter );
+
+                    final Set<String> added = building.remove( key );
+                    if ( filter.isPresent() && added != null )
+                    {
+                        added.forEach( filter.get()::put );
+                        if ( filter.get().isSaturated() )
+                        {
+                            filters.remove( key, filter );
+                        }
+                    }
+                }
+                catch ( RuntimeException e )
+                {
+                    building.remove( key );
+                    logger.warn( "NFC bloom filter: failed to build for {}. Reason: {}", location, e.getMessage() );
+                }
+            } );
+        }
+        catch ( RuntimeException e )
+        {
+            // e.g. rejected while the pool is saturated; try again on a later lookup
+            building.remove( key );
+            logger.debug( "NFC bloom filter: could not schedule build for {}. Reason: {}", location, e.getMessage() );
+        }
+    }
+
+    private Optional<NfcBloomFilter> buildFilter( final Location location )
+    {
+        final int maxResultSetSize = config.getNfcMaxResultSetSize();
+        final Set<String> missing = delegate.getMissing( location );
+        if ( maxResultSetSize > 0 && missing.size() >= maxResultSetSize )
+        {
+            logger.debug( "NFC bloom filter: {} has at least {} missing paths, not filtering it", location,
+                          missing.size() );
+            return Optional.empty();
+        }
+
+        final NfcBloomFilter filter = new NfcBloomFilter( Math.max( maxResultSetSize, missing.size() * 2 ) );
+        missing.forEach( filter::put );
+        logger.debug( "NFC bloom filter: built for {} with {} missing paths", location, missing.size() );
+        return Optional.of( filter );
+    }
+
+    private StoreKey getStoreKey( final Location location )
+    {
+        if ( config == null || !config.isNfcBloomFilterEnabled() || !( location instanceof KeyedLocation ) )
+        {
+            return null;
+        }
+
+        return ( (KeyedLocation) location ).getKey();
+    }
+}
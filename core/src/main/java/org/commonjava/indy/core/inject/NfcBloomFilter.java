@@ -0,0 +1,121 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.core.inject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free Bloom filter over the missing paths of a single store. A negative answer from {@link #mightContain(String)}
+ * means the path was never added since this filter was built. Paths are never removed; callers drop and rebuild the
+ * whole filter instead (see {@link NFCBloomFilterDecorator}).
+ */
+final class NfcBloomFilter
+{
+    private static final double FALSE_POSITIVE_PROBABILITY = 0.01;
+
+    private final AtomicLongArray bits;
+
+    private final int numBits;
+
+    private final int numHashes;
+
+    private final int capacity;
+
+    private final AtomicInteger insertions = new AtomicInteger();
+
+    NfcBloomFilter( final int capacity )
+    {
+        this.capacity = Math.max( capacity, 64 );
+
+        // standard sizing: m = -n ln(p) / (ln 2)^2, k = m/n ln 2
+        long m = (long) Math.ceil( -this.capacity * Math.log( FALSE_POSITIVE_PROBABILITY ) / ( Math.log( 2 ) * Math.log( 2 ) ) );
+        this.numBits = (int) Math.min( Integer.MAX_VALUE - 63, Math.max( 64, m ) );
+        this.numHashes = Math.max( 1, (int) Math.round( (double) numBits / this.capacity * Math.log( 2 ) ) );
+        this.bits = new AtomicLongArray( ( numBits + 63 ) >>> 6 );
+    }
+
+    void put( final String path )
+    {
+        final long hash = hash( path );
+        final int h1 = (int) hash;
+        final int h2 = (int) ( hash >>> 32 );
+        for ( int i = 1; i <= numHashes; i++ )
+        {
+            final int bit = index( h1 + i * h2 );
+            final int word = bit >>> 6;
+            final long mask = 1L << bit;
+            long current;
+            do
+            {
+                current = bits.get( word );
+                if ( ( current & mask ) != 0 )
+                {
+                    break;
+                }
+            }
+            while ( !bits.compareAndSet( word, current, current | mask ) );
+        }
+        insertions.incrementAndGet();
+    }
+
+    boolean mightContain( final String path )
+    {
+        final long hash = hash( path );
+        final int h1 = (int) hash;
+        final int h2 = (int) ( hash >>> 32 );
+        for ( int i = 1; i <= numHashes; i++ )
+        {
+            final int bit = index( h1 + i * h2 );
+            if ( ( bits.get( bit >>> 6 ) & ( 1L << bit ) ) == 0 )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Once more paths were added than the filter was sized for, its false-positive rate degrades quickly.
+     */
+    boolean isSaturated()
+    {
+        return insertions.get() > capacity;
+    }
+
+    private int index( final int combined )
+    {
+        return ( combined & Integer.MAX_VALUE ) % numBits;
+    }
+
+    // 64-bit FNV-1a followed by a murmur3 finalizer, so both halves are usable as independent hashes
+    private static long hash( final String path )
+    {
+        long h = 0xcbf29ce484222325L;
+        for ( byte b : path.getBytes( StandardCharsets.UTF_8 ) )
+        {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
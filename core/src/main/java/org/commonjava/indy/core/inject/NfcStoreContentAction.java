@@ -55,4 +55,14 @@ public class NfcStoreContentAction
         affectedGroups.forEach(
                         group -> nfc.clearMissing( new ConcreteResource( LocationUtils.toLocation( group ), path ) ) );
     }
+
+    /**
+     * Anything missing from the group may be provided by its new members.
+     */
+    @Override
+    public void clearGroupContent( Group group )
+    {
+        logger.debug( "Clearing NFC of group: {}", group.getKey() );
+        nfc.clearMissing( LocationUtils.toLocation( group ) );
+    }
 }
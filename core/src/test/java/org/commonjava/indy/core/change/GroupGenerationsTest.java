@@ -0,0 +1,60 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.core.change;
+
+import org.commonjava.indy.model.core.StoreKey;
+import org.commonjava.indy.model.core.StoreType;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GroupGenerationsTest
+{
+    private final StoreKey group = new StoreKey( "maven", StoreType.group, "public" );
+
+    private final StoreKey hosted = new StoreKey( "maven", StoreType.hosted, "local" );
+
+    @Test
+    public void staleOnlyUntilAdvanced()
+    {
+        GroupGenerations generations = new GroupGenerations();
+        long before = System.currentTimeMillis() - 1;
+
+        assertFalse( generations.isStale( group, before ) );
+
+        generations.advance( Arrays.asList( group, hosted ) );
+
+        assertTrue( generations.isStale( group, before ) );
+        assertFalse( generations.isStale( group, generations.get( group ) + 1 ) );
+        assertFalse( generations.isStale( hosted, before ) );
+    }
+
+    @Test
+    public void generationAlwaysMovesForward()
+    {
+        GroupGenerations generations = new GroupGenerations();
+        generations.advance( Collections.singleton( group ) );
+        long first = generations.get( group );
+
+        generations.advance( Collections.singleton( group ) );
+
+        assertTrue( generations.get( group ) > first );
+    }
+}
@@ -0,0 +1,208 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.core.content;
+
+import org.commonjava.indy.conf.DefaultIndyConfiguration;
+import org.commonjava.indy.model.core.HostedRepository;
+import org.commonjava.indy.subsys.datafile.DataFileManager;
+import org.commonjava.indy.subsys.datafile.change.DataFileEventManager;
+import org.commonjava.indy.util.LocationUtils;
+import org.commonjava.maven.galley.io.checksum.ContentDigest;
+import org.commonjava.maven.galley.io.checksum.TransferMetadata;
+import org.commonjava.maven.galley.model.ConcreteResource;
+import org.commonjava.maven.galley.model.Transfer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.apache.commons.codec.binary.Hex.encodeHexString;
+import static org.commonjava.indy.core.content.ChecksumIndex.INDEX_DIR;
+import static org.commonjava.indy.core.content.ChecksumIndex.INDEX_FILE;
+import static org.commonjava.indy.pkg.maven.model.MavenPackageTypeDescriptor.MAVEN_PKG_KEY;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class ChecksumIndexTest
+{
+    private static final String PATH = "/org/foo/bar/1/bar-1.jar";
+
+    @Rule
+    public final TemporaryFolder temp = new TemporaryFolder();
+
+    private final HostedRepository hosted = new HostedRepository( MAVEN_PKG_KEY, "one" );
+
+    private final String key = hosted.getKey() + "#" + PATH;
+
+    private DefaultIndyConfiguration config;
+
+    private DataFileManager dataFileManager;
+
+    private File file;
+
+    private ChecksumIndex index;
+
+    @Before
+    public void setup()
+            throws Exception
+    {
+        config = new DefaultIndyConfiguration();
+        config.setChecksumIndexEnabled( true );
+        dataFileManager = new DataFileManager( temp.newFolder( "indy-home" ), new DataFileEventManager() );
+        file = new File( new File( dataFileManager.getDetachedWorkBasedir(), INDEX_DIR ), INDEX_FILE );
+        index = new ChecksumIndex( config, dataFileManager );
+    }
+
+    @After
+    public void shutdown()
+    {
+        index.stop();
+    }
+
+    @Test
+    public void roundTripAcrossRestart()
+            throws Exception
+    {
+        final TransferMetadata meta = metadata( "content" );
+        index.put( key, transfer( 1000, 7 ), meta );
+
+        assertMatches( index.get( key, transfer( 1000, 7 ) ), meta );
+
+        reopen();
+        assertThat( index.isEnabled(), equalTo( true ) );
+        assertMatches( index.get( key, transfer( 1000, 7 ) ), meta );
+    }
+
+    @Test
+    public void removalIsRememberedAcrossRestart()
+            throws Exception
+    {
+        index.put( key, transfer( 1000, 7 ), metadata( "content" ) );
+        index.remove( key );
+        assertThat( index.get( key, transfer( 1000, 7 ) ), nullValue() );
+
+        reopen();
+        assertThat( index.get( key, transfer( 1000, 7 ) ), nullValue() );
+    }
+
+    @Test
+    public void staleWhenModifiedTimeOrLengthChanges()
+            throws Exception
+    {
+        index.put( key, transfer( 1000, 7 ), metadata( "content" ) );
+
+        assertThat( index.get( key, transfer( 2000, 7 ) ), nullValue() );
+        assertThat( index.get( key, transfer( 1000, 8 ) ), nullValue() );
+    }
+
+    @Test
+    public void tornTailIsTruncatedOnStartup()
+            throws Exception
+    {
+        final TransferMetadata meta = metadata( "content" );
+        index.put( key, transfer( 1000, 7 ), meta );
+        index.stop();
+
+        final long intact = file.length();
+        final ByteBuffer torn = ByteBuffer.allocate( 9 );
+        torn.putInt( 200 ).put( (byte) 1 ).putInt( 0 );
+        Files.write( file.toPath(), torn.array(), StandardOpenOption.APPEND );
+
+        index = new ChecksumIndex( config, dataFileManager );
+        assertThat( file.length(), equalTo( intact ) );
+        assertMatches( index.get( key, transfer( 1000, 7 ) ), meta );
+
+        // appends land right after the last good record
+        final String other = hosted.getKey() + "#/other.jar";
+        index.put( other, transfer( 3000, 9 ), metadata( "other" ) );
+        reopen();
+        assertMatches( index.get( key, transfer( 1000, 7 ) ), meta );
+        assertMatches( index.get( other, transfer( 3000, 9 ) ), metadata( "other" ) );
+    }
+
+    @Test
+    public void compactedOnceSupersededRecordsPileUp()
+            throws Exception
+    {
+        index.put( key, transfer( 0, 7 ), metadata( "0" ) );
+        final long recordLength = file.length();
+
+        final int puts = 12000;
+        for ( int i = 1; i < puts; i++ )
+        {
+            index.put( key, transfer( i, 7 ), metadata( Integer.toString( i ) ) );
+        }
+        index.awaitCompaction();
+
+        assertThat( file.length() < puts * recordLength / 2, equalTo( true ) );
+        assertMatches( index.get( key, transfer( puts - 1, 7 ) ), metadata( Integer.toString( puts - 1 ) ) );
+
+        reopen();
+        assertMatches( index.get( key, transfer( puts - 1, 7 ) ), metadata( Integer.toString( puts - 1 ) ) );
+    }
+
+    private void reopen()
+    {
+        index.stop();
+        index = new ChecksumIndex( config, dataFileManager );
+    }
+
+    private void assertMatches( final TransferMetadata actual, final TransferMetadata expected )
+    {
+        assertThat( actual.getSize(), equalTo( expected.getSize() ) );
+        assertThat( actual.getDigests(), equalTo( expected.getDigests() ) );
+    }
+
+    private TransferMetadata metadata( final String content )
+            throws Exception
+    {
+        final byte[] bytes = content.getBytes();
+        final Map<ContentDigest, String> digests = new HashMap<>();
+        digests.put( ContentDigest.MD5, encodeHexString( MessageDigest.getInstance( "MD5" ).digest( bytes ) ) );
+        digests.put( ContentDigest.SHA_1, encodeHexString( MessageDigest.getInstance( "SHA-1" ).digest( bytes ) ) );
+        digests.put( ContentDigest.SHA_256,
+                     encodeHexString( MessageDigest.getInstance( "SHA-256" ).digest( bytes ) ) );
+        return new TransferMetadata( digests, (long) bytes.length );
+    }
+
+    private Transfer transfer( final long lastModified, final long length )
+    {
+        return new Transfer( new ConcreteResource( LocationUtils.toLocation( hosted ), PATH ), null, null, null )
+        {
+            @Override
+            public long lastModified()
+            {
+                return lastModified;
+            }
+
+            @Override
+            public long length()
+            {
+                return length;
+            }
+        };
+    }
+}
@@ -0,0 +1,261 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.core.content;
+
+import org.commonjava.indy.content.DirectContentAccess;
+import org.commonjava.indy.content.StoreResource;
+import org.commonjava.indy.model.core.ArtifactStore;
+import org.commonjava.indy.model.core.HostedRepository;
+import org.commonjava.indy.model.core.StoreKey;
+import org.commonjava.indy.subsys.infinispan.CacheHandle;
+import org.commonjava.indy.util.LocationUtils;
+import org.commonjava.maven.galley.event.EventMetadata;
+import org.commonjava.maven.galley.io.checksum.ContentDigest;
+import org.commonjava.maven.galley.io.checksum.TransferMetadata;
+import org.commonjava.maven.galley.model.ConcreteResource;
+import org.commonjava.maven.galley.model.Transfer;
+import org.infinispan.Cache;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.manager.DefaultCacheManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.apache.commons.codec.binary.Hex.encodeHexString;
+import static org.commonjava.indy.pkg.maven.model.MavenPackageTypeDescriptor.MAVEN_PKG_KEY;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class DefaultContentDigesterTest
+{
+    private static final String PATH = "/org/foo/bar/1/bar-1.jar";
+
+    private static DefaultCacheManager cacheManager;
+
+    private static Cache<String, TransferMetadata> contentMetadata;
+
+    private final HostedRepository hosted = new HostedRepository( MAVEN_PKG_KEY, "one" );
+
+    private final byte[] content = new byte[200 * 1024 + 17];
+
+    private final AtomicInteger opens = new AtomicInteger();
+
+    private final ExecutorService executor = Executors.newFixedThreadPool( 8 );
+
+    private CountDownLatch readGate;
+
+    private CountDownLatch opened;
+
+    private DefaultContentDigester digester;
+
+    @BeforeClass
+    public static void setupClass()
+    {
+        cacheManager = new DefaultCacheManager( new ConfigurationBuilder().simpleCache( true ).build() );
+        contentMetadata = cacheManager.getCache( "content-metadata", true );
+    }
+
+    @Before
+    public void setup()
+    {
+        contentMetadata.clear();
+        new Random( 42 ).nextBytes( content );
+        digester = new DefaultContentDigester( new StubContentAccess(),
+                                               new CacheHandle<>( "content-metadata", contentMetadata ) );
+    }
+
+    @After
+    public void shutdown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void allDigestsFromOneRead()
+            throws Exception
+    {
+        TransferMetadata meta = digester.digest( hosted.getKey(), PATH, new EventMetadata() );
+
+        assertThat( opens.get(), equalTo( 1 ) );
+        assertThat( meta.getSize(), equalTo( (long) content.length ) );
+
+        Map<ContentDigest, String> digests = meta.getDigests();
+        assertThat( digests.get( ContentDigest.MD5 ), equalTo( expected( "MD5" ) ) );
+        assertThat( digests.get( ContentDigest.SHA_1 ), equalTo( expected( "SHA-1" ) ) );
+        assertThat( digests.get( ContentDigest.SHA_256 ), equalTo( expected( "SHA-256" ) ) );
+
+        // later calls are served from the metadata cache
+        digester.digest( hosted.getKey(), PATH, new EventMetadata() );
+        assertThat( opens.get(), equalTo( 1 ) );
+    }
+
+    @Test
+    public void concurrentCallersShareOneCalculation()
+            throws Exception
+    {
+        readGate = new CountDownLatch( 1 );
+        opened = new CountDownLatch( 1 );
+
+        List<Future<TransferMetadata>> results = new ArrayList<>();
+        for ( int i = 0; i < 8; i++ )
+        {
+            results.add( executor.submit( () -> digester.digest( hosted.getKey(), PATH, new EventMetadata() ) ) );
+        }
+
+        // hold the first read until the other callers have had time to find the running calculation
+        assertThat( opened.await( 10, TimeUnit.SECONDS ), equalTo( true ) );
+        Thread.sleep( 200 );
+        readGate.countDown();
+
+        for ( Future<TransferMetadata> result : results )
+        {
+            assertThat( result.get( 10, TimeUnit.SECONDS ).getDigests().get( ContentDigest.SHA_256 ),
+                        equalTo( expected( "SHA-256" ) ) );
+        }
+        assertThat( opens.get(), equalTo( 1 ) );
+    }
+
+    private String expected( final String algorithm )
+            throws Exception
+    {
+        return encodeHexString( MessageDigest.getInstance( algorithm ).digest( content ) );
+    }
+
+    private final class CountingTransfer
+            extends Transfer
+    {
+        CountingTransfer( final ArtifactStore store, final String path )
+        {
+            super( new ConcreteResource( LocationUtils.toLocation( store ), path ), null, null, null );
+        }
+
+        @Override
+        public boolean exists()
+        {
+            return true;
+        }
+
+        @Override
+        public InputStream openInputStream( final boolean fireEvents, final EventMetadata eventMetadata )
+                throws IOException
+        {
+            opens.incrementAndGet();
+            if ( opened != null )
+            {
+                opened.countDown();
+            }
+
+            return new FilterInputStream( new ByteArrayInputStream( content ) )
+            {
+                @Override
+                public int read( final byte[] b, final int off, final int len )
+                        throws IOException
+                {
+                    if ( readGate != null )
+                    {
+                        try
+                        {
+                            readGate.await();
+                        }
+                        catch ( InterruptedException e )
+                        {
+                            throw new IOException( e );
+                        }
+                    }
+                    return super.read( b, off, len );
+                }
+            };
+        }
+    }
+
+    private final class StubContentAccess
+            implements DirectContentAccess
+    {
+        @Override
+        public Transfer retrieveRaw( final ArtifactStore store, final String path, final EventMetadata eventMetadata )
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<Transfer> retrieveAllRaw( final List<? extends ArtifactStore> stores, final String path,
+                                              final EventMetadata eventMetadata )
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Transfer getTransfer( final ArtifactStore store, final String path )
+        {
+            return new CountingTransfer( store, path );
+        }
+
+        @Override
+        public Transfer getTransfer( final StoreKey storeKey, final String path )
+        {
+            return new CountingTransfer( hosted, path );
+        }
+
+        @Override
+        public boolean exists( final ArtifactStore store, final String path )
+        {
+            return true;
+        }
+
+        @Override
+        public List<StoreResource> listRaw( final ArtifactStore store, final String parentPath )
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<StoreResource> listRaw( final ArtifactStore store, final String parentPath,
+                                            final EventMetadata eventMetadata )
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Map<String, List<StoreResource>> listRaw( final ArtifactStore store, final List<String> parentPathList )
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Map<String, List<StoreResource>> listRaw( final ArtifactStore store, final List<String> parentPathList,
+                                                         final EventMetadata eventMetadata )
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
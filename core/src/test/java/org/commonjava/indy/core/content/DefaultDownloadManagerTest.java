@@ -58,8 +58,12 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.commonjava.indy.pkg.maven.model.MavenPackageTypeDescriptor.MAVEN_PKG_KEY;
 import static org.hamcrest.CoreMatchers.equalTo;
@@ -184,4 +188,42 @@ public class DefaultDownloadManagerTest
 
         transfer.delete();
     }
+
+    @Test
+    public void streamRecursively_ParallelListsAllFiles() throws Exception
+    {
+        ChangeSummary summary = new ChangeSummary( ChangeSummary.SYSTEM_USER, "Test setup" );
+        HostedRepository hosted = new HostedRepository( MAVEN_PKG_KEY, "one" );
+
+        storeManager.storeArtifactStore( hosted, summary, false, true, new EventMetadata() );
+
+        Set<String> expected = new HashSet<>();
+        for ( int i = 0; i < 5; i++ )
+        {
+            for ( int j = 0; j < 5; j++ )
+            {
+                String path = String.format( "/org/foo/bar-%d/%d/bar-%d-%d.pom", i, j, i, j );
+                Transfer transfer = downloadManager.getStorageReference( hosted, path, TransferOperation.UPLOAD );
+                try (OutputStream out = transfer.openOutputStream( TransferOperation.UPLOAD ))
+                {
+                    out.write( path.getBytes() );
+                }
+                expected.add( transfer.getPath() );
+            }
+        }
+
+        Set<String> streamed;
+        try (Stream<Transfer> transfers = downloadManager.streamRecursively( hosted.getKey(), "/" ))
+        {
+            streamed = transfers.parallel().map( Transfer::getPath ).collect( Collectors.toSet() );
+        }
+
+        Set<String> listed = downloadManager.listRecursively( hosted.getKey(), "/" )
+                                            .stream()
+                                            .map( Transfer::getPath )
+                                            .collect( Collectors.toSet() );
+
+        assertThat( streamed, equalTo( expected ) );
+        assertThat( listed, equalTo( expected ) );
+    }
 }
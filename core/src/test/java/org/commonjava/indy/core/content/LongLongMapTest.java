@@ -0,0 +1,84 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.core.content;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.commonjava.indy.core.content.LongLongMap.MISSING;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class LongLongMapTest
+{
+    @Test
+    public void putGetRemove()
+    {
+        final LongLongMap map = new LongLongMap( 0 );
+
+        assertThat( map.put( 42, 1 ), equalTo( MISSING ) );
+        assertThat( map.put( 42, 2 ), equalTo( 1L ) );
+        assertThat( map.put( 0, 3 ), equalTo( MISSING ) );
+        assertThat( map.get( 42 ), equalTo( 2L ) );
+        assertThat( map.get( 0 ), equalTo( 3L ) );
+        assertThat( map.get( 7 ), equalTo( MISSING ) );
+        assertThat( map.size(), equalTo( 2 ) );
+
+        assertThat( map.remove( 42 ), equalTo( 2L ) );
+        assertThat( map.remove( 0 ), equalTo( 3L ) );
+        assertThat( map.remove( 42 ), equalTo( MISSING ) );
+        assertThat( map.get( 42 ), equalTo( MISSING ) );
+        assertThat( map.size(), equalTo( 0 ) );
+    }
+
+    @Test
+    public void matchesHashMapThroughGrowthAndRemovals()
+    {
+        final LongLongMap map = new LongLongMap( 0 );
+        final Map<Long, Long> expected = new HashMap<>();
+        final Random random = new Random( 1 );
+
+        // a small key range keeps probe runs long and removals frequent
+        for ( int i = 0; i < 200000; i++ )
+        {
+            final long key = random.nextInt( 5000 ) - 100;
+            if ( random.nextInt( 3 ) == 0 )
+            {
+                final Long old = expected.remove( key );
+                assertThat( map.remove( key ), equalTo( old == null ? MISSING : old ) );
+            }
+            else
+            {
+                final Long old = expected.put( key, (long) i );
+                assertThat( map.put( key, i ), equalTo( old == null ? MISSING : old ) );
+            }
+        }
+
+        assertThat( map.size(), equalTo( expected.size() ) );
+        for ( long key = -100; key < 4900; key++ )
+        {
+            final Long value = expected.get( key );
+            assertThat( map.get( key ), equalTo( value == null ? MISSING : value ) );
+        }
+
+        final Map<Long, Long> visited = new HashMap<>();
+        map.copy().forEach( visited::put );
+        assertThat( visited, equalTo( expected ) );
+    }
+}
@@ -0,0 +1,141 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.core.content;
+
+import org.commonjava.indy.model.core.ArtifactStore;
+import org.commonjava.indy.model.core.HostedRepository;
+import org.commonjava.indy.model.core.RemoteRepository;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.commonjava.indy.pkg.maven.model.MavenPackageTypeDescriptor.MAVEN_PKG_KEY;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class MemberProbesTest
+{
+    private final ExecutorService executor = Executors.newFixedThreadPool( 16 );
+
+    @After
+    public void shutdown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void firstHitInMemberOrderWins()
+            throws Exception
+    {
+        HostedRepository first = new HostedRepository( MAVEN_PKG_KEY, "first" );
+        RemoteRepository second = new RemoteRepository( MAVEN_PKG_KEY, "second", "http://second" );
+        HostedRepository third = new HostedRepository( MAVEN_PKG_KEY, "third" );
+
+        // the remote is probed after both hosted members and answers last, but it comes before "third" in the group
+        String found = MemberProbes.firstInMemberOrder( Arrays.asList( first, second, third ), 3, executor, member -> {
+            if ( member == first )
+            {
+                return null;
+            }
+            if ( member == second )
+            {
+                Thread.sleep( 200 );
+            }
+            return member.getName();
+        } );
+
+        assertThat( found, equalTo( "second" ) );
+    }
+
+    @Test
+    public void nullWhenAllMiss()
+            throws Exception
+    {
+        List<ArtifactStore> members = members( 5 );
+
+        String found = MemberProbes.firstInMemberOrder( members, 2, executor, member -> null );
+
+        assertThat( found, nullValue() );
+    }
+
+    @Test
+    public void neverMoreThanFanoutInFlight()
+            throws Exception
+    {
+        List<ArtifactStore> members = members( 12 );
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<String> probed = Collections.synchronizedList( new ArrayList<>() );
+
+        MemberProbes.firstInMemberOrder( members, 3, executor, member -> {
+            int now = running.incrementAndGet();
+            maxRunning.accumulateAndGet( now, Math::max );
+            Thread.sleep( 20 );
+            probed.add( member.getName() );
+            running.decrementAndGet();
+            return null;
+        } );
+
+        assertThat( maxRunning.get() <= 3, equalTo( true ) );
+        assertThat( probed.size(), equalTo( members.size() ) );
+    }
+
+    @Test
+    public void hostedProbedBeforeRemotes()
+            throws Exception
+    {
+        List<ArtifactStore> members = Arrays.asList( new RemoteRepository( MAVEN_PKG_KEY, "r1", "http://r1" ),
+                                                     new HostedRepository( MAVEN_PKG_KEY, "h1" ),
+                                                     new RemoteRepository( MAVEN_PKG_KEY, "r2", "http://r2" ),
+                                                     new HostedRepository( MAVEN_PKG_KEY, "h2" ) );
+        List<String> probed = Collections.synchronizedList( new ArrayList<>() );
+
+        MemberProbes.firstInMemberOrder( members, 1, executor, member -> {
+            probed.add( member.getName() );
+            return null;
+        } );
+
+        assertThat( probed, equalTo( Arrays.asList( "h1", "h2", "r1", "r2" ) ) );
+    }
+
+    @Test( expected = ExecutionException.class )
+    public void probeFailureIsReported()
+            throws Exception
+    {
+        MemberProbes.firstInMemberOrder( members( 3 ), 3, executor, member -> {
+            throw new IllegalStateException( "boom" );
+        } );
+    }
+
+    private List<ArtifactStore> members( final int count )
+    {
+        List<ArtifactStore> members = new ArrayList<>();
+        for ( int i = 0; i < count; i++ )
+        {
+            members.add( new HostedRepository( MAVEN_PKG_KEY, "hosted-" + i ) );
+        }
+        return members;
+    }
+}
@@ -0,0 +1,163 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.core.content.group;
+
+import org.commonjava.indy.audit.ChangeSummary;
+import org.commonjava.indy.conf.DefaultIndyConfiguration;
+import org.commonjava.indy.content.StoreResource;
+import org.commonjava.indy.mem.data.MemoryStoreDataManager;
+import org.commonjava.indy.model.core.Group;
+import org.commonjava.indy.model.core.HostedRepository;
+import org.commonjava.indy.model.core.StoreKey;
+import org.commonjava.indy.model.core.StoreType;
+import org.commonjava.indy.util.LocationUtils;
+import org.commonjava.maven.galley.event.EventMetadata;
+import org.commonjava.maven.galley.event.FileStorageEvent;
+import org.commonjava.maven.galley.model.ConcreteResource;
+import org.commonjava.maven.galley.model.Transfer;
+import org.commonjava.maven.galley.model.TransferOperation;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.commonjava.indy.pkg.maven.model.MavenPackageTypeDescriptor.MAVEN_PKG_KEY;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class GroupListingCacheTest
+{
+    private final StoreKey group = new StoreKey( MAVEN_PKG_KEY, StoreType.group, "public" );
+
+    private final HostedRepository hosted = new HostedRepository( MAVEN_PKG_KEY, "one" );
+
+    private final StoreKey other = new StoreKey( MAVEN_PKG_KEY, StoreType.hosted, "two" );
+
+    private DefaultIndyConfiguration config;
+
+    private GroupListingCache cache;
+
+    private List<StoreResource> listing;
+
+    @Before
+    public void setup()
+    {
+        config = new DefaultIndyConfiguration();
+        cache = new GroupListingCache( config );
+        listing = Collections.singletonList(
+                new StoreResource( LocationUtils.toLocation( hosted ), "/org/foo/", "bar/" ) );
+    }
+
+    @Test
+    public void returnedForSameMembersAndAnyForm()
+    {
+        List<StoreKey> members = Arrays.asList( hosted.getKey(), other );
+        cache.put( group, "/org/foo/", members, listing );
+
+        assertThat( cache.get( group, "org/foo", members ), equalTo( listing ) );
+    }
+
+    @Test
+    public void droppedWhenMembersChange()
+    {
+        cache.put( group, "/org/foo/", Arrays.asList( hosted.getKey(), other ), listing );
+
+        assertThat( cache.get( group, "/org/foo/", Arrays.asList( other, hosted.getKey() ) ), nullValue() );
+        assertThat( cache.get( group, "/org/foo/", Arrays.asList( hosted.getKey(), other ) ), nullValue() );
+    }
+
+    @Test
+    public void notCachedWhenDisabled()
+    {
+        config.setGroupListCacheSeconds( 0 );
+        List<StoreKey> members = Collections.singletonList( hosted.getKey() );
+        cache.put( group, "/org/foo/", members, listing );
+
+        assertThat( cache.get( group, "/org/foo/", members ), nullValue() );
+    }
+
+    @Test
+    public void oldestDroppedWhenFull()
+            throws Exception
+    {
+        config.setGroupListCacheMaxEntries( 10 );
+        List<StoreKey> members = Collections.singletonList( hosted.getKey() );
+        for ( int i = 0; i < 10; i++ )
+        {
+            cache.put( group, "/dir-" + i + "/", members, listing );
+            Thread.sleep( 2 );
+        }
+
+        cache.put( other, "/newest/", members, listing );
+
+        assertThat( cache.size() <= 10, equalTo( true ) );
+        assertThat( cache.get( group, "/dir-0/", members ), nullValue() );
+        assertThat( cache.get( group, "/dir-9/", members ), equalTo( listing ) );
+        assertThat( cache.get( other, "/newest/", members ), equalTo( listing ) );
+    }
+
+    @Test
+    public void storedFileDropsListingsOnlyInGroupsContainingTheStore()
+            throws Exception
+    {
+        final MemoryStoreDataManager stores = new MemoryStoreDataManager( true );
+        final ChangeSummary summary = new ChangeSummary( "test-user", "test" );
+        final HostedRepository second = new HostedRepository( MAVEN_PKG_KEY, "two" );
+        final Group outer = new Group( MAVEN_PKG_KEY, "outer", group );
+        stores.storeArtifactStore( hosted, summary, false, true, new EventMetadata() );
+        stores.storeArtifactStore( second, summary, false, true, new EventMetadata() );
+        stores.storeArtifactStore( new Group( MAVEN_PKG_KEY, "public", hosted.getKey() ), summary, false, true,
+                                   new EventMetadata() );
+        stores.storeArtifactStore( outer, summary, false, true, new EventMetadata() );
+        final StoreKey unrelated = new StoreKey( MAVEN_PKG_KEY, StoreType.group, "unrelated" );
+        stores.storeArtifactStore( new Group( MAVEN_PKG_KEY, "unrelated", second.getKey() ), summary, false, true,
+                                   new EventMetadata() );
+
+        cache = new GroupListingCache( config, stores );
+        final List<StoreKey> members = Collections.singletonList( hosted.getKey() );
+        cache.put( group, "/org/foo/", members, listing );
+        cache.put( outer.getKey(), "/org/", members, listing );
+        cache.put( unrelated, "/org/foo/", Collections.singletonList( second.getKey() ), listing );
+        assertThat( cache.size(), equalTo( 3 ) );
+
+        final Transfer stored =
+                new Transfer( new ConcreteResource( LocationUtils.toLocation( hosted ), "/org/foo/bar/1/bar-1.jar" ),
+                              null, null, null );
+        cache.onFileStorageEvent( new FileStorageEvent( TransferOperation.UPLOAD, stored, new EventMetadata() ) );
+
+        assertThat( cache.get( group, "/org/foo/", members ), nullValue() );
+        assertThat( cache.get( outer.getKey(), "/org/", members ), nullValue() );
+        assertThat( cache.get( unrelated, "/org/foo/", Collections.singletonList( second.getKey() ) ),
+                    equalTo( listing ) );
+        assertThat( cache.size(), equalTo( 1 ) );
+    }
+
+    @Test
+    public void sizeFollowsPutsAndDrops()
+    {
+        final List<StoreKey> members = Collections.singletonList( hosted.getKey() );
+        cache.put( group, "/org/foo/", members, listing );
+        cache.put( group, "/org/foo/", members, listing );
+        cache.put( group, "/org/bar/", members, listing );
+        assertThat( cache.size(), equalTo( 2 ) );
+
+        assertThat( cache.get( group, "/org/foo/", Collections.singletonList( other ) ), nullValue() );
+        assertThat( cache.size(), equalTo( 1 ) );
+    }
+}
@@ -0,0 +1,147 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.core.expire;
+
+import org.commonjava.indy.model.core.StoreKey;
+import org.commonjava.indy.model.core.StoreType;
+import org.commonjava.indy.model.core.io.IndyObjectMapper;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import static org.commonjava.indy.core.expire.ScheduleManager.CONTENT_JOB_TYPE;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class ExpirationJournalTest
+{
+    private static final long TICK = 1000;
+
+    @Rule
+    public final TemporaryFolder temp = new TemporaryFolder();
+
+    private final StoreKey repo = new StoreKey( "maven", StoreType.remote, "central" );
+
+    private final IndyObjectMapper objectMapper = new IndyObjectMapper( true );
+
+    private File file;
+
+    @Before
+    public void setup()
+            throws Exception
+    {
+        file = new File( temp.newFolder(), "content-expirations.json" );
+    }
+
+    @Test
+    public void replayRebuildsWheel()
+            throws Exception
+    {
+        final ExpirationWheel wheel = new ExpirationWheel( TICK, 0 );
+        wheel.trackChanges();
+        wheel.schedule( key( "/a" ), "a1", 0, 10 * TICK );
+        wheel.schedule( key( "/b" ), "b", 0, 20 * TICK );
+        wheel.schedule( key( "/a" ), "a2", 0, 30 * TICK );
+        wheel.cancel( key( "/b" ) );
+        wheel.schedule( key( "/c" ), "c", 0, 5 * TICK );
+        wheel.advance( 5 * TICK );
+
+        new ExpirationJournal( file, objectMapper ).append( wheel.drainChanges() );
+
+        final ExpirationWheel loaded = load();
+        assertThat( loaded.size(), equalTo( 1 ) );
+        assertThat( loaded.get( key( "/a" ) ).getPayload(), equalTo( "a2" ) );
+        assertThat( loaded.get( key( "/a" ) ).getExpireTime(), equalTo( 30 * TICK ) );
+        assertThat( loaded.get( key( "/b" ) ), nullValue() );
+        assertThat( loaded.get( key( "/c" ) ), nullValue() );
+    }
+
+    @Test
+    public void tornLastLineIsSkipped()
+            throws Exception
+    {
+        final ExpirationWheel wheel = new ExpirationWheel( TICK, 0 );
+        wheel.trackChanges();
+        wheel.schedule( key( "/a" ), "a", 0, 10 * TICK );
+        new ExpirationJournal( file, objectMapper ).append( wheel.drainChanges() );
+        Files.write( file.toPath(), "{\"store\":\"maven:remote:cen".getBytes( StandardCharsets.UTF_8 ),
+                     StandardOpenOption.APPEND );
+
+        final ExpirationWheel loaded = load();
+        assertThat( loaded.size(), equalTo( 1 ) );
+        assertThat( loaded.get( key( "/a" ) ).getPayload(), equalTo( "a" ) );
+    }
+
+    @Test
+    public void compactionKeepsOnlyLiveEntries()
+            throws Exception
+    {
+        final ExpirationWheel wheel = new ExpirationWheel( TICK, 0 );
+        wheel.trackChanges();
+        final ExpirationJournal journal = new ExpirationJournal( file, objectMapper );
+        for ( int i = 0; i < 20_000; i++ )
+        {
+            wheel.schedule( key( "/" + ( i % 10 ) ), "p" + i, 0, 100 * TICK );
+        }
+        journal.append( wheel.drainChanges() );
+        assertThat( journal.needsCompaction( wheel.size() ), equalTo( true ) );
+
+        journal.compact( wheel.snapshot() );
+        assertThat( journal.needsCompaction( wheel.size() ), equalTo( false ) );
+        assertThat( Files.readAllLines( file.toPath() ).size(), equalTo( 10 ) );
+
+        // changes made after the snapshot still land in the journal
+        wheel.cancel( key( "/0" ) );
+        journal.append( wheel.drainChanges() );
+
+        final ExpirationWheel loaded = load();
+        assertThat( loaded.size(), equalTo( 9 ) );
+        assertThat( loaded.get( key( "/9" ) ).getPayload(), equalTo( "p19999" ) );
+    }
+
+    @Test
+    public void changesNotTrackedUntilAsked()
+    {
+        final ExpirationWheel wheel = new ExpirationWheel( TICK, 0 );
+        wheel.schedule( key( "/a" ), "a", 0, 10 * TICK );
+        wheel.trackChanges();
+        assertThat( wheel.drainChanges().isEmpty(), equalTo( true ) );
+
+        wheel.schedule( key( "/a" ), "a2", 0, 10 * TICK );
+        assertThat( wheel.drainChanges().size(), equalTo( 1 ) );
+        assertThat( wheel.drainChanges().isEmpty(), equalTo( true ) );
+    }
+
+    private ExpirationWheel load()
+            throws Exception
+    {
+        final ExpirationWheel wheel = new ExpirationWheel( TICK, 0 );
+        new ExpirationJournal( file, objectMapper ).load( wheel );
+        return wheel;
+    }
+
+    private ScheduleKey key( final String path )
+    {
+        return new ScheduleKey( repo, CONTENT_JOB_TYPE, path );
+    }
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.core.expire;
+
+import org.commonjava.indy.model.core.StoreKey;
+import org.commonjava.indy.model.core.StoreType;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.commonjava.indy.core.expire.ScheduleManager.CONTENT_JOB_TYPE;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class ExpirationWheelTest
+{
+    private static final long TICK = 1000;
+
+    private final StoreKey repo = new StoreKey( "maven", StoreType.remote, "central" );
+
+    @Test
+    public void expireAcrossLevels()
+    {
+        final long start = 1_000_000L * TICK;
+        final ExpirationWheel wheel = new ExpirationWheel( TICK, start );
+
+        final long[] delays = { 1, 255, 256, 257, 65535, 65536, 70000, 16777216 + 5 };
+        for ( long delay : delays )
+        {
+            wheel.schedule( key( "/" + delay ), "p" + delay, start, start + delay * TICK );
+        }
+
+        for ( long delay : delays )
+        {
+            assertThat( wheel.advance( start + ( delay - 1 ) * TICK ).isEmpty(), equalTo( true ) );
+
+            final List<ExpirationWheel.Entry> expired = wheel.advance( start + delay * TICK );
+            assertThat( expired.size(), equalTo( 1 ) );
+            assertThat( expired.get( 0 ).getPayload(), equalTo( "p" + delay ) );
+        }
+
+        assertThat( wheel.size(), equalTo( 0 ) );
+    }
+
+    @Test
+    public void overdueEntryExpiresOnNextTick()
+    {
+        final long start = 5000 * TICK;
+        final ExpirationWheel wheel = new ExpirationWheel( TICK, start );
+        wheel.schedule( key( "/old" ), "old", start - 10 * TICK, start - 5 * TICK );
+
+        assertThat( wheel.advance( start + TICK ).size(), equalTo( 1 ) );
+    }
+
+    @Test
+    public void rescheduleAndCancel()
+    {
+        final long start = 0;
+        final ExpirationWheel wheel = new ExpirationWheel( TICK, start );
+        wheel.schedule( key( "/a" ), "a1", start, start + 10 * TICK );
+        wheel.schedule( key( "/a" ), "a2", start, start + 300 * TICK );
+        wheel.schedule( key( "/b" ), "b", start, start + 10 * TICK );
+
+        assertThat( wheel.cancel( key( "/b" ) ).getPayload(), equalTo( "b" ) );
+        assertThat( wheel.cancel( key( "/b" ) ), nullValue() );
+        assertThat( wheel.advance( start + 10 * TICK ).isEmpty(), equalTo( true ) );
+
+        final List<ExpirationWheel.Entry> expired = wheel.advance( start + 300 * TICK );
+        assertThat( expired.size(), equalTo( 1 ) );
+        assertThat( expired.get( 0 ).getPayload(), equalTo( "a2" ) );
+    }
+
+    @Test
+    public void cancelGroup()
+    {
+        final ExpirationWheel wheel = new ExpirationWheel( TICK, 0 );
+        final StoreKey other = new StoreKey( "maven", StoreType.remote, "other" );
+        for ( int i = 0; i < 100; i++ )
+        {
+            wheel.schedule( key( "/" + i ), "p", 0, ( i + 1 ) * TICK * 1000 );
+        }
+        wheel.schedule( new ScheduleKey( other, CONTENT_JOB_TYPE, "/x" ), "x", 0, 10 * TICK );
+
+        final String group = ScheduleManager.groupName( repo, CONTENT_JOB_TYPE );
+        assertThat( wheel.getGroup( group ).size(), equalTo( 100 ) );
+
+        final Set<ScheduleKey> canceled = wheel.cancelGroup( group );
+        assertThat( canceled.size(), equalTo( 100 ) );
+        assertThat( wheel.getGroup( group ).isEmpty(), equalTo( true ) );
+        assertThat( wheel.size(), equalTo( 1 ) );
+        assertThat( wheel.advance( 200_000 * TICK ).size(), equalTo( 1 ) );
+    }
+
+    private ScheduleKey key( final String path )
+    {
+        return new ScheduleKey( repo, CONTENT_JOB_TYPE, path );
+    }
+}
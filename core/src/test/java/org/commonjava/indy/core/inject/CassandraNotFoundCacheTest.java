@@ -0,0 +1,126 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.core.inject;
+
+import org.cassandraunit.utils.EmbeddedCassandraServerHelper;
+import org.commonjava.cdi.util.weft.NamedThreadFactory;
+import org.commonjava.cdi.util.weft.PoolWeftExecutorService;
+import org.commonjava.indy.conf.DefaultIndyConfiguration;
+import org.commonjava.indy.model.core.HostedRepository;
+import org.commonjava.indy.subsys.cassandra.CassandraClient;
+import org.commonjava.indy.subsys.cassandra.config.CassandraConfig;
+import org.commonjava.indy.subsys.infinispan.CacheProducer;
+import org.commonjava.indy.util.LocationUtils;
+import org.commonjava.maven.galley.model.ConcreteResource;
+import org.commonjava.maven.galley.model.Location;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.manager.DefaultCacheManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static org.commonjava.indy.pkg.maven.model.MavenPackageTypeDescriptor.MAVEN_PKG_KEY;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class CassandraNotFoundCacheTest
+{
+    private static final String KEYSPACE = "nfc_test";
+
+    private static final String POOL_NAME = "nfc-write-behind-test";
+
+    private final HostedRepository hosted = new HostedRepository( MAVEN_PKG_KEY, "hosted" );
+
+    private final Location location = LocationUtils.toLocation( hosted );
+
+    private final CountDownLatch hold = new CountDownLatch( 1 );
+
+    private CassandraClient client;
+
+    private CacheProducer cacheProducer;
+
+    private ThreadPoolExecutor pool;
+
+    @Before
+    public void start()
+            throws Exception
+    {
+        EmbeddedCassandraServerHelper.startEmbeddedCassandra();
+
+        CassandraConfig cassandraConfig = new CassandraConfig();
+        cassandraConfig.setEnabled( true );
+        cassandraConfig.setCassandraHost( "localhost" );
+        cassandraConfig.setCassandraPort( 9142 );
+        client = new CassandraClient( cassandraConfig );
+
+        cacheProducer = new CacheProducer( null, new DefaultCacheManager(
+                new ConfigurationBuilder().simpleCache( true ).build() ), null );
+
+        // the flusher is queued behind a task that never finishes, so nothing is written in the background
+        pool = (ThreadPoolExecutor) Executors.newFixedThreadPool( 1, new NamedThreadFactory( POOL_NAME,
+                new ThreadGroup( POOL_NAME ), true, 4 ) );
+        pool.execute( () -> {
+            try
+            {
+                hold.await();
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+        } );
+    }
+
+    @After
+    public void stop()
+    {
+        hold.countDown();
+        pool.shutdownNow();
+        client.close();
+        EmbeddedCassandraServerHelper.cleanEmbeddedCassandra();
+    }
+
+    @Test
+    public void queuedWritesFlushedOnStop()
+    {
+        DefaultIndyConfiguration config = new DefaultIndyConfiguration();
+        config.setCacheKeyspace( KEYSPACE );
+        config.setNfcWriteBehindEnabled( true );
+        CassandraNotFoundCache nfc = new CassandraNotFoundCache( config, cacheProducer, client, null,
+                                                                 new PoolWeftExecutorService( POOL_NAME, pool ) );
+
+        DefaultIndyConfiguration readerConfig = new DefaultIndyConfiguration();
+        readerConfig.setCacheKeyspace( KEYSPACE );
+        CassandraNotFoundCache reader = new CassandraNotFoundCache( readerConfig, cacheProducer, client );
+
+        for ( int i = 0; i < 50; i++ )
+        {
+            nfc.addMissing( new ConcreteResource( location, "/org/foo/" + i + "/foo.pom" ) );
+        }
+        assertThat( reader.getSize( hosted.getKey() ), equalTo( 0L ) );
+
+        nfc.stop();
+        assertThat( reader.getSize( hosted.getKey() ), equalTo( 50L ) );
+
+        // once stopped, writes no longer wait for a flusher
+        nfc.addMissing( new ConcreteResource( location, "/org/foo/after/foo.pom" ) );
+        assertThat( reader.getSize( hosted.getKey() ), equalTo( 51L ) );
+    }
+}
@@ -0,0 +1,227 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.core.inject;
+
+import org.commonjava.cdi.util.weft.NamedThreadFactory;
+import org.commonjava.cdi.util.weft.PoolWeftExecutorService;
+import org.commonjava.indy.conf.DefaultIndyConfiguration;
+import org.commonjava.indy.model.core.HostedRepository;
+import org.commonjava.indy.util.LocationUtils;
+import org.commonjava.maven.galley.model.ConcreteResource;
+import org.commonjava.maven.galley.model.Location;
+import org.commonjava.maven.galley.spi.nfc.NotFoundCache;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.commonjava.indy.pkg.maven.model.MavenPackageTypeDescriptor.MAVEN_PKG_KEY;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class NFCBloomFilterDecoratorTest
+{
+    private static final int ADDERS = 4;
+
+    private static final int ADDS_PER_THREAD = 500;
+
+    private final Location location = LocationUtils.toLocation( new HostedRepository( MAVEN_PKG_KEY, "hosted" ) );
+
+    private final CountDownLatch listing = new CountDownLatch( 1 );
+
+    private final CountDownLatch release = new CountDownLatch( 1 );
+
+    private final AtomicInteger delegateChecks = new AtomicInteger();
+
+    private ThreadPoolExecutor pool;
+
+    private NotFoundCache decorator;
+
+    @Before
+    public void setup()
+    {
+        final DefaultIndyConfiguration config = new DefaultIndyConfiguration();
+        config.setNfcBloomFilterEnabled( true );
+        config.setDefaultNfcMaxResultSetSize( 10000 );
+
+        // the backing cache holds the build inside its listing until the test lets it go
+        final NotFoundCache delegate = new ExpiringMemoryNotFoundCache( config )
+        {
+            @Override
+            public Set<String> getMissing( final Location location )
+            {
+                listing.countDown();
+                try
+                {
+                    release.await();
+                }
+                catch ( InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                }
+                return super.getMissing( location );
+            }
+
+            @Override
+            public boolean isMissing( final ConcreteResource resource )
+            {
+                delegateChecks.incrementAndGet();
+                return super.isMissing( resource );
+            }
+        };
+
+        final String name = "nfc-bloom-filter-test";
+        pool = (ThreadPoolExecutor) Executors.newFixedThreadPool( 1, new NamedThreadFactory( name, new ThreadGroup(
+                name ), true, 4 ) );
+        decorator = new TestDecorator( delegate, config, new PoolWeftExecutorService( name, pool ) );
+    }
+
+    @After
+    public void shutdown()
+    {
+        release.countDown();
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void noFalseNegativesForPathsAddedDuringBuild()
+            throws Exception
+    {
+        final List<String> added = new ArrayList<>();
+        for ( int i = 0; i < 100; i++ )
+        {
+            final String path = "/before/" + i + ".pom";
+            decorator.addMissing( new ConcreteResource( location, path ) );
+            added.add( path );
+        }
+
+        // the first lookup schedules the build, which then waits inside the listing
+        decorator.isMissing( new ConcreteResource( location, "/unknown.pom" ) );
+        assertThat( listing.await( 5, TimeUnit.SECONDS ), equalTo( true ) );
+
+        final CountDownLatch started = new CountDownLatch( ADDERS );
+        final List<Thread> adders = new ArrayList<>();
+        for ( int t = 0; t < ADDERS; t++ )
+        {
+            final int thread = t;
+            final Thread adder = new Thread( () -> {
+                started.countDown();
+                for ( int i = 0; i < ADDS_PER_THREAD; i++ )
+                {
+                    decorator.addMissing( new ConcreteResource( location, "/during/" + thread + "/" + i + ".pom" ) );
+                }
+            } );
+            adders.add( adder );
+            adder.start();
+            for ( int i = 0; i < ADDS_PER_THREAD; i++ )
+            {
+                added.add( "/during/" + thread + "/" + i + ".pom" );
+            }
+        }
+
+        // let the listing and publication race with the adds
+        started.await();
+        release.countDown();
+        for ( Thread adder : adders )
+        {
+            adder.join();
+        }
+
+        // wait for the filter to be published: it answers for unknown paths without asking the backing cache
+        boolean published = false;
+        for ( int i = 0; i < 100 && !published; i++ )
+        {
+            final int before = delegateChecks.get();
+            decorator.isMissing( new ConcreteResource( location, "/unknown.pom" ) );
+            published = delegateChecks.get() == before;
+            if ( !published )
+            {
+                Thread.sleep( 50 );
+            }
+        }
+        assertThat( published, equalTo( true ) );
+
+        for ( String path : added )
+        {
+            assertThat( path, decorator.isMissing( new ConcreteResource( location, path ) ), equalTo( true ) );
+        }
+    }
+
+    @Test
+    public void pathsAddedAfterPublicationAreReported()
+            throws Exception
+    {
+        release.countDown();
+        decorator.isMissing( new ConcreteResource( location, "/unknown.pom" ) );
+        pool.shutdown();
+        assertThat( pool.awaitTermination( 5, TimeUnit.SECONDS ), equalTo( true ) );
+
+        decorator.addMissing( new ConcreteResource( location, "/after.pom" ) );
+
+        assertThat( decorator.isMissing( new ConcreteResource( location, "/after.pom" ) ), equalTo( true ) );
+    }
+
+    private static final class TestDecorator
+            extends NFCBloomFilterDecorator
+    {
+        private final NotFoundCache delegate;
+
+        TestDecorator( final NotFoundCache delegate, final DefaultIndyConfiguration config,
+                       final PoolWeftExecutorService builder )
+        {
+            super( delegate, config, builder );
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void clearMissing( final ConcreteResource resource )
+        {
+            delegate.clearMissing( resource );
+        }
+
+        @Override
+        public Map<Location, Set<String>> getAllMissing()
+        {
+            return delegate.getAllMissing();
+        }
+
+        @Override
+        public Set<String> getMissing( final Location location )
+        {
+            return delegate.getMissing( location );
+        }
+
+        public Map<Location, Set<String>> getAllMissing( final int pageIndex, final int pageSize )
+        {
+            return Collections.emptyMap();
+        }
+
+        public Set<String> getMissing( final Location location, final int pageIndex, final int pageSize )
+        {
+            return Collections.emptySet();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.core.inject;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class NfcBloomFilterTest
+{
+
+    @Test
+    public void addedPathsAreAlwaysReported()
+    {
+        final NfcBloomFilter filter = new NfcBloomFilter( 1000 );
+        for ( int i = 0; i < 1000; i++ )
+        {
+            filter.put( "/org/foo/bar/" + i + "/bar-" + i + ".pom" );
+        }
+
+        for ( int i = 0; i < 1000; i++ )
+        {
+            assertThat( filter.mightContain( "/org/foo/bar/" + i + "/bar-" + i + ".pom" ), equalTo( true ) );
+        }
+        assertThat( filter.isSaturated(), equalTo( false ) );
+    }
+
+    @Test
+    public void falsePositiveRateStaysLow()
+    {
+        final NfcBloomFilter filter = new NfcBloomFilter( 1000 );
+        for ( int i = 0; i < 1000; i++ )
+        {
+            filter.put( "/org/foo/bar/" + i + "/bar-" + i + ".pom" );
+        }
+
+        int falsePositives = 0;
+        for ( int i = 0; i < 10000; i++ )
+        {
+            if ( filter.mightContain( "/org/other/baz/" + i + "/baz-" + i + ".jar" ) )
+            {
+                falsePositives++;
+            }
+        }
+
+        assertThat( falsePositives < 300, equalTo( true ) );
+    }
+
+    @Test
+    public void saturatesPastCapacity()
+    {
+        final NfcBloomFilter filter = new NfcBloomFilter( 64 );
+        for ( int i = 0; i <= 64; i++ )
+        {
+            filter.put( "/path/" + i );
+        }
+
+        assertThat( filter.isSaturated(), equalTo( true ) );
+    }
+}
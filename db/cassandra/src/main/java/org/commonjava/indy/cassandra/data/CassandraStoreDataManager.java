@@ -1,7 +1,13 @@
 package org.commonjava.indy.cassandra.data;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import org.commonjava.cdi.util.weft.ExecutorConfig;
+import org.commonjava.cdi.util.weft.NamedThreadFactory;
+import org.commonjava.cdi.util.weft.PoolWeftExecutorService;
+import org.commonjava.cdi.util.weft.WeftExecutorService;
+import org.commonjava.cdi.util.weft.WeftManaged;
 import org.commonjava.indy.audit.ChangeSummary;
+import org.commonjava.indy.core.conf.IndyStoreManagerConfig;
 import org.commonjava.indy.data.IndyDataException;
 import org.commonjava.indy.data.StoreEventDispatcher;
 import org.commonjava.indy.db.common.AbstractStoreDataManager;
@@ -17,6 +23,8 @@ import org.commonjava.o11yphant.metrics.annotation.Measure;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.inject.Alternative;
 import javax.inject.Inject;
@@ -25,6 +33,10 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -34,6 +46,8 @@ import java.util.stream.Stream;
 public class CassandraStoreDataManager extends AbstractStoreDataManager
 {
 
+    private static final String NEAR_CACHE_EXECUTOR = "store-near-cache";
+
     private final Logger logger = LoggerFactory.getLogger( getClass() );
 
     @Inject
@@ -42,6 +56,105 @@ public class CassandraStoreDataManager extends AbstractStoreDataManager
     @Inject
     IndyObjectMapper objectMapper;
 
+    @Inject
+    IndyStoreManagerConfig storeManagerConfig;
+
+    @Inject
+    @WeftManaged
+    @ExecutorConfig( named = NEAR_CACHE_EXECUTOR, threads = 1, priority = 4, daemon = true )
+    WeftExecutorService versionChecker;
+
+    private StoreNearCache nearCache;
+
+    private final CountDownLatch stopLatch = new CountDownLatch( 1 );
+
+    // guards reading the store change version against our own increments, so they can be told apart
+    private final Object versionLock = new Object();
+
+    private long ownIncrements;
+
+    @PostConstruct
+    public void init()
+    {
+        if ( storeManagerConfig == null || !storeManagerConfig.isNearCacheEnabled() )
+        {
+            return;
+        }
+
+        synchronized ( versionLock )
+        {
+            nearCache = new StoreNearCache( storeQuery.getStoreVersion() );
+            ownIncrements = 0;
+        }
+
+        if ( versionChecker == null )
+        {
+            final String name = NEAR_CACHE_EXECUTOR;
+            versionChecker = new PoolWeftExecutorService( name, (ThreadPoolExecutor) Executors.newFixedThreadPool(
+                            1, new NamedThreadFactory( name, new ThreadGroup( name ), true, 4 ) ) );
+        }
+
+        final int period = storeManagerConfig.getNearCacheCheckSeconds();
+        versionChecker.execute( () -> {
+            try
+            {
+                while ( !stopLatch.await( period, TimeUnit.SECONDS ) )
+                {
+                    checkStoreVersion();
+                }
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+        } );
+        logger.info( "Store near cache enabled, checking for store changes every {}s", period );
+    }
+
+    @PreDestroy
+    public void stop()
+    {
+        stopLatch.countDown();
+    }
+
+    /**
+     * Drop the near cache, and the group membership and remote URL caches built from the same stores, when another node
+     * changed stores since the last check. Changes made here are already applied, so they don't count.
+     */
+    private void checkStoreVersion()
+    {
+        boolean dropped;
+        try
+        {
+            final long current;
+            final long own;
+            synchronized ( versionLock )
+            {
+                current = storeQuery.getStoreVersion();
+                own = ownIncrements;
+                ownIncrements = 0;
+            }
+            dropped = nearCache.checkVersion( current, own );
+            if ( dropped )
+            {
+                logger.debug( "Store change version moved on another node, near cache dropped" );
+            }
+        }
+        catch ( RuntimeException e )
+        {
+            // can't tell whether stores changed, so don't trust what we have
+            logger.warn( "Failed to read store change version, dropping near cache", e );
+            nearCache.clear();
+            dropped = true;
+        }
+
+        if ( dropped )
+        {
+            groupMembershipCache.clear();
+            remoteUrlIndex.clear();
+        }
+    }
+
     @Override
     protected StoreEventDispatcher getStoreEventDispatcher()
     {
@@ -50,6 +163,16 @@ public class CassandraStoreDataManager extends AbstractStoreDataManager
 
     @Override
     protected ArtifactStore getArtifactStoreInternal( StoreKey key )
+    {
+        if ( nearCache != null )
+        {
+            return nearCache.get( key, this::loadArtifactStore );
+        }
+
+        return loadArtifactStore( key );
+    }
+
+    private ArtifactStore loadArtifactStore( StoreKey key )
     {
         DtxArtifactStore dtxArtifactStore = storeQuery.getArtifactStore( key.getPackageType(), key.getType(), key.getName() );
 
@@ -60,18 +183,41 @@ public class CassandraStoreDataManager extends AbstractStoreDataManager
     protected ArtifactStore removeArtifactStoreInternal( StoreKey key )
     {
         DtxArtifactStore dtxArtifactStore = storeQuery.removeArtifactStore( key.getPackageType(), key.getType(), key.getName() );
+        storeChanged( key, null );
         return toArtifactStore( dtxArtifactStore );
     }
 
     @Override
     public void clear( ChangeSummary summary ) throws IndyDataException
     {
-
+        groupMembershipCache.clear();
+        remoteUrlIndex.clear();
+        if ( nearCache != null )
+        {
+            nearCache.clear();
+        }
     }
 
     @Override
     @Measure
     public Set<ArtifactStore> getAllArtifactStores()
+    {
+        if ( nearCache != null )
+        {
+            return new HashSet<>( nearCache.getAll( this::loadArtifactStoresByKey ).values() );
+        }
+
+        return loadAllArtifactStores();
+    }
+
+    private Map<StoreKey, ArtifactStore> loadArtifactStoresByKey()
+    {
+        Map<StoreKey, ArtifactStore> ret = new HashMap<>();
+        loadAllArtifactStores().forEach( store -> ret.put( store.getKey(), store ) );
+        return ret;
+    }
+
+    private Set<ArtifactStore> loadAllArtifactStores()
     {
         Set<DtxArtifactStore> dtxArtifactStoreSet = storeQuery.getAllArtifactStores();
         Set<ArtifactStore> artifactStoreSet = new HashSet<>(  );
@@ -85,6 +231,11 @@ public class CassandraStoreDataManager extends AbstractStoreDataManager
     @Measure
     public Map<StoreKey, ArtifactStore> getArtifactStoresByKey()
     {
+        if ( nearCache != null )
+        {
+            return new HashMap<>( nearCache.getAll( this::loadArtifactStoresByKey ) );
+        }
+
         Map<StoreKey, ArtifactStore> ret = new HashMap<>();
         Set<ArtifactStore> artifactStoreSet = getAllArtifactStores();
         artifactStoreSet.forEach( store -> {
@@ -109,6 +260,15 @@ public class CassandraStoreDataManager extends AbstractStoreDataManager
     @Measure
     public Set<StoreKey> getStoreKeysByPkgAndType( final String pkg, final StoreType type )
     {
+        if ( nearCache != null )
+        {
+            return nearCache.getAll( this::loadArtifactStoresByKey )
+                            .keySet()
+                            .stream()
+                            .filter( key -> key.getType() == type && pkg.equals( key.getPackageType() ) )
+                            .collect( Collectors.toSet() );
+        }
+
         Set<DtxArtifactStore> dtxArtifactStoreSet = storeQuery.getArtifactStoresByPkgAndType( pkg, type );
         Set<StoreKey> storeKeySet = new HashSet<>(  );
         dtxArtifactStoreSet.forEach( dtxArtifactStore -> {
@@ -139,6 +299,11 @@ public class CassandraStoreDataManager extends AbstractStoreDataManager
     @Override
     public Stream<StoreKey> streamArtifactStoreKeys()
     {
+        if ( nearCache != null )
+        {
+            return nearCache.getAll( this::loadArtifactStoresByKey ).keySet().stream();
+        }
+
         return getAllArtifactStores().stream().map( ArtifactStore::getKey ).collect( Collectors.toSet() ).stream();
     }
 
@@ -148,7 +313,26 @@ public class CassandraStoreDataManager extends AbstractStoreDataManager
         DtxArtifactStore dtxArtifactStore = toDtxArtifactStore( storeKey, store );
         storeQuery.createDtxArtifactStore( dtxArtifactStore );
 
-        return toArtifactStore( dtxArtifactStore );
+        ArtifactStore stored = toArtifactStore( dtxArtifactStore );
+        storeChanged( storeKey, stored );
+        return stored;
+    }
+
+    /**
+     * Publish a store write to the other nodes' near caches and apply it to ours. Always bump the version, so nodes
+     * with the near cache enabled stay correct whatever this node is configured with.
+     */
+    private void storeChanged( StoreKey key, ArtifactStore store )
+    {
+        synchronized ( versionLock )
+        {
+            storeQuery.incrementStoreVersion();
+            ownIncrements++;
+        }
+        if ( nearCache != null )
+        {
+            nearCache.update( key, store );
+        }
     }
 
     private DtxArtifactStore toDtxArtifactStore( StoreKey storeKey, ArtifactStore store )
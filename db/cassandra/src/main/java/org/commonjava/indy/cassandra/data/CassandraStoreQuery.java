@@ -19,7 +19,9 @@ import javax.inject.Inject;
 import java.util.HashSet;
 import java.util.Set;
 
+import static org.commonjava.indy.cassandra.data.CassandraStoreUtil.STORE_VERSION_ID;
 import static org.commonjava.indy.cassandra.data.CassandraStoreUtil.TABLE_STORE;
+import static org.commonjava.indy.cassandra.data.CassandraStoreUtil.TABLE_STORE_VERSION;
 
 @ApplicationScoped
 public class CassandraStoreQuery
@@ -47,6 +49,10 @@ public class CassandraStoreQuery
 
     private PreparedStatement preparedArtifactStoresQueryByKeys;
 
+    private PreparedStatement preparedStoreVersionQuery;
+
+    private PreparedStatement preparedStoreVersionIncrement;
+
     public CassandraStoreQuery() {}
 
     public CassandraStoreQuery( CassandraClient client, IndyStoreManagerConfig config )
@@ -67,6 +73,7 @@ public class CassandraStoreQuery
         session.execute( CassandraStoreUtil.getSchemaCreateKeyspace( keySpace, config ) );
         session.execute( CassandraStoreUtil.getSchemaCreateTableStore( keySpace ) );
         session.execute( CassandraStoreUtil.getSchemaCreateIndex4Store( keySpace ) );
+        session.execute( CassandraStoreUtil.getSchemaCreateTableStoreVersion( keySpace ) );
 
         MappingManager manager = new MappingManager( session );
 
@@ -87,6 +94,10 @@ public class CassandraStoreQuery
         preparedArtifactStoreExistedQuery = session.prepare( "SELECT name FROM " + keySpace + "." + TABLE_STORE + " LIMIT 1");
 
         preparedArtifactStoreDel = session.prepare( "DELETE FROM " + keySpace + "." + TABLE_STORE + " WHERE typekey=? AND namehashprefix=? AND name=? IF EXISTS" );
+
+        preparedStoreVersionQuery = session.prepare( "SELECT version FROM " + keySpace + "." + TABLE_STORE_VERSION + " WHERE id=?" );
+
+        preparedStoreVersionIncrement = session.prepare( "UPDATE " + keySpace + "." + TABLE_STORE_VERSION + " SET version = version + 1 WHERE id=?" );
     }
 
     public DtxArtifactStore getArtifactStore( String packageType, StoreType type, String name )
@@ -145,6 +156,22 @@ public class CassandraStoreQuery
         return dtxArtifactStore;
     }
 
+    /**
+     * Change version of the store table, shared by all nodes; 0 before the first change.
+     */
+    public long getStoreVersion()
+    {
+        BoundStatement bound = preparedStoreVersionQuery.bind( STORE_VERSION_ID );
+        Row row = session.execute( bound ).one();
+        return row == null ? 0 : row.getLong( "version" );
+    }
+
+    public void incrementStoreVersion()
+    {
+        BoundStatement bound = preparedStoreVersionIncrement.bind( STORE_VERSION_ID );
+        session.execute( bound );
+    }
+
     private DtxArtifactStore toDtxArtifactStore( Row row )
     {
         if ( row == null )
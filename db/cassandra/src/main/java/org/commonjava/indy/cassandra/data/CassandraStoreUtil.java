@@ -7,6 +7,11 @@ public class CassandraStoreUtil
 
     public static final String TABLE_STORE = "artifactstore";
 
+    public static final String TABLE_STORE_VERSION = "artifactstore_version";
+
+    // the single row of TABLE_STORE_VERSION, bumped on every store change
+    public static final String STORE_VERSION_ID = "stores";
+
     public static final String PACKAGE_TYPE = "packageType";
     public static final String STORE_TYPE = "storeType";
     public static final String NAME_HASH_PREFIX = "nameHashPrefix";
@@ -91,6 +96,15 @@ public class CassandraStoreUtil
         return "CREATE INDEX IF NOT EXISTS typekey_idx on " + keyspace + "." + TABLE_STORE + " (typekey)";
     }
 
+    public static String getSchemaCreateTableStoreVersion( String keySpace )
+    {
+        return "CREATE TABLE IF NOT EXISTS " + keySpace + "." + TABLE_STORE_VERSION + " ("
+                        + "id varchar,"
+                        + "version counter,"
+                        + "PRIMARY KEY ( id )"
+                        + ");";
+    }
+
     public static int getHashPrefix( final String name )
     {
         String prefix = name.length() > 12 ? name.substring( 0, 12 ) : name;
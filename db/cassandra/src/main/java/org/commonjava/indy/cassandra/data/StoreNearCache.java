@@ -0,0 +1,152 @@
+package org.commonjava.indy.cassandra.data;
+
+import org.commonjava.indy.model.core.ArtifactStore;
+import org.commonjava.indy.model.core.StoreKey;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Node-local cache of decoded stores in front of the Cassandra store table, including misses. Once the whole table has
+ * been read it is also kept as a key index, so listings and key streams are served from memory. Every write in the
+ * cluster bumps the store change version ({@link CassandraStoreUtil#TABLE_STORE_VERSION}); {@link #checkVersion(long, long)}
+ * drops everything when that version moved by more than this node's own writes, so a change made on another node is
+ * seen within one check interval.
+ * Cached stores are shared: callers must not modify them.
+ */
+final class StoreNearCache
+{
+    private final Object lock = new Object();
+
+    private final Map<StoreKey, Optional<ArtifactStore>> stores = new ConcurrentHashMap<>();
+
+    private volatile Map<StoreKey, ArtifactStore> all;
+
+    // bumped on every local change, so a load that raced with it is not cached
+    private long generation;
+
+    private long version;
+
+    StoreNearCache( final long version )
+    {
+        this.version = version;
+    }
+
+    ArtifactStore get( final StoreKey key, final Function<StoreKey, ArtifactStore> loader )
+    {
+        final Optional<ArtifactStore> cached = stores.get( key );
+        if ( cached != null )
+        {
+            return cached.orElse( null );
+        }
+
+        final long started = currentGeneration();
+        final ArtifactStore store = loader.apply( key );
+        synchronized ( lock )
+        {
+            if ( generation == started )
+            {
+                stores.putIfAbsent( key, Optional.ofNullable( store ) );
+            }
+        }
+        return store;
+    }
+
+    /**
+     * All stores by key. The returned map is the live index: read it, don't keep it.
+     */
+    Map<StoreKey, ArtifactStore> getAll( final Supplier<Map<StoreKey, ArtifactStore>> loader )
+    {
+        final Map<StoreKey, ArtifactStore> cached = all;
+        if ( cached != null )
+        {
+            return cached;
+        }
+
+        final long started = currentGeneration();
+        final Map<StoreKey, ArtifactStore> loaded = new ConcurrentHashMap<>( loader.get() );
+        synchronized ( lock )
+        {
+            if ( generation == started )
+            {
+                stores.clear();
+                loaded.forEach( ( k, v ) -> stores.put( k, Optional.of( v ) ) );
+                all = loaded;
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Record a local write (null store for a removal).
+     */
+    void update( final StoreKey key, final ArtifactStore store )
+    {
+        synchronized ( lock )
+        {
+            generation++;
+            stores.put( key, Optional.ofNullable( store ) );
+
+            final Map<StoreKey, ArtifactStore> index = all;
+            if ( index != null )
+            {
+                if ( store == null )
+                {
+                    index.remove( key );
+                }
+                else
+                {
+                    index.put( key, store );
+                }
+            }
+        }
+    }
+
+    /**
+     * Drop everything if the store change version moved by more than this node's own changes since the last check.
+     *
+     * @param own how many times this node bumped the version since the last check; those changes are already applied
+     * @return true if the cache was dropped
+     */
+    boolean checkVersion( final long current, final long own )
+    {
+        synchronized ( lock )
+        {
+            if ( current == version + own )
+            {
+                version = current;
+                return false;
+            }
+
+            version = current;
+            invalidate();
+            return true;
+        }
+    }
+
+    void clear()
+    {
+        synchronized ( lock )
+        {
+            invalidate();
+        }
+    }
+
+    private void invalidate()
+    {
+        generation++;
+        stores.clear();
+        all = null;
+    }
+
+    private long currentGeneration()
+    {
+        synchronized ( lock )
+        {
+            return generation;
+        }
+    }
+}
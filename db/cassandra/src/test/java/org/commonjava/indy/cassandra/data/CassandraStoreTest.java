@@ -87,6 +87,17 @@ public class CassandraStoreTest
         assertThat(artifactStoreSet.size(), equalTo( 1 ));
     }
 
+    @Test
+    public void testStoreVersion()
+    {
+        long version = storeQuery.getStoreVersion();
+
+        storeQuery.incrementStoreVersion();
+        storeQuery.incrementStoreVersion();
+
+        assertThat( storeQuery.getStoreVersion(), equalTo( version + 2 ) );
+    }
+
     @Test
     public void testHashPrefix()
     {
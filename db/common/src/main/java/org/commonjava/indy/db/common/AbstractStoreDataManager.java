@@ -101,6 +101,10 @@ public abstract class AbstractStoreDataManager
     @ExecutorConfig( named = AFFECTED_BY_ASYNC_RUNNER_NAME, priority = 4, threads = 32 )
     protected ExecutorService affectedByAsyncRunner;
 
+    protected final GroupMembershipCache groupMembershipCache = new GroupMembershipCache();
+
+    protected final RemoteUrlIndex remoteUrlIndex = new RemoteUrlIndex();
+
     protected AbstractStoreDataManager()
     {
     }
@@ -108,7 +112,15 @@ public abstract class AbstractStoreDataManager
     @Override
     public ArtifactStoreQuery<ArtifactStore> query()
     {
-        return new DefaultArtifactStoreQuery<>( this );
+        if ( indyConfiguration == null )
+        {
+            return new DefaultArtifactStoreQuery<>( this );
+        }
+
+        return new DefaultArtifactStoreQuery<>( this, indyConfiguration.isGroupMembershipCacheEnabled() ?
+                                                        groupMembershipCache :
+                                                        null,
+                                                indyConfiguration.isRemoteUrlIndexEnabled() ? remoteUrlIndex : null );
     }
 
     protected abstract ArtifactStore getArtifactStoreInternal( final StoreKey key );
@@ -160,6 +172,9 @@ public abstract class AbstractStoreDataManager
                               final boolean exists, final boolean fireEvents, final EventMetadata eventMetadata )
             throws IndyDataException
     {
+        groupMembershipCache.invalidate( store.getKey() );
+        remoteUrlIndex.update( store );
+
         StoreEventDispatcher dispatcher = getStoreEventDispatcher();
         if ( dispatcher != null && isStarted() && fireEvents )
         {
@@ -202,6 +217,9 @@ public abstract class AbstractStoreDataManager
                                final EventMetadata eventMetadata )
             throws IndyDataException
     {
+        groupMembershipCache.invalidate( store.getKey() );
+        remoteUrlIndex.delete( store.getKey() );
+
         StoreEventDispatcher dispatcher = getStoreEventDispatcher();
         if ( dispatcher != null && isStarted() && fireEvents )
         {
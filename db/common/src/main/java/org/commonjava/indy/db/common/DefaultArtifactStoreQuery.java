@@ -77,12 +77,29 @@ public class DefaultArtifactStoreQuery<T extends ArtifactStore>
 
     private Boolean enabled;
 
+    private GroupMembershipCache membershipCache;
+
+    private RemoteUrlIndex urlIndex;
+
     public DefaultArtifactStoreQuery( StoreDataManager dataManager )
     {
         logger.info( "CREATE new default store query with data manager only" );
         this.dataManager = dataManager;
     }
 
+    public DefaultArtifactStoreQuery( StoreDataManager dataManager, GroupMembershipCache membershipCache )
+    {
+        this( dataManager );
+        this.membershipCache = membershipCache;
+    }
+
+    public DefaultArtifactStoreQuery( StoreDataManager dataManager, GroupMembershipCache membershipCache,
+                                      RemoteUrlIndex urlIndex )
+    {
+        this( dataManager, membershipCache );
+        this.urlIndex = urlIndex;
+    }
+
     private DefaultArtifactStoreQuery( final StoreDataManager dataManager, final String packageType,
                                        final Boolean enabled, final Class<T> storeCls )
     {
@@ -289,6 +306,17 @@ public class DefaultArtifactStoreQuery<T extends ArtifactStore>
 
         final UrlInfo urlInfo = temp;
 
+        if ( urlIndex != null )
+        {
+            result = getRemoteRepositories( urlIndex.getByUrl( urlInfo, dataManager ) );
+            if ( result.isEmpty() )
+            {
+                result = getRemoteRepositories( urlIndex.getByIp( urlInfo, dataManager ) );
+            }
+
+            return result;
+        }
+
         // first try to find the remote repo by urlWithNoSchemeAndLastSlash
         /* @formatter:off */
         result = new DefaultArtifactStoreQuery<>( dataManager, packageType, enabled, RemoteRepository.class ).stream(
@@ -380,6 +408,61 @@ public class DefaultArtifactStoreQuery<T extends ArtifactStore>
         return result;
     }
 
+    @Override
+    @Measure
+    public List<RemoteRepository> getRemoteRepositoryByExactUrl( final String url )
+            throws IndyDataException
+    {
+        if ( urlIndex != null )
+        {
+            UrlInfo urlInfo = null;
+            try
+            {
+                urlInfo = new UrlInfo( url );
+            }
+            catch ( Exception error )
+            {
+                logger.debug( "Cannot use url index for: '{}'. Reason: {}", url, error.getMessage() );
+            }
+
+            if ( urlInfo != null )
+            {
+                List<RemoteRepository> candidates = getRemoteRepositories( urlIndex.getByUrl( urlInfo, dataManager ) );
+                return candidates.stream()
+                                 .filter( remote -> url.equals( remote.getUrl() ) )
+                                 .collect( Collectors.toList() );
+            }
+        }
+
+        return new DefaultArtifactStoreQuery<>( dataManager, packageType, enabled, RemoteRepository.class ).stream(
+                store -> url.equals( ( (RemoteRepository) store ).getUrl() ) ).collect( Collectors.toList() );
+    }
+
+    /**
+     * Resolve remote repository keys found in the {@link RemoteUrlIndex}, applying this query's package type and
+     * enabled state.
+     */
+    private List<RemoteRepository> getRemoteRepositories( final Set<StoreKey> keys )
+            throws IndyDataException
+    {
+        final List<RemoteRepository> result = new ArrayList<>();
+        for ( StoreKey key : keys )
+        {
+            if ( packageType != null && !packageType.equals( key.getPackageType() ) )
+            {
+                continue;
+            }
+
+            final ArtifactStore store = dataManager.getArtifactStore( key );
+            if ( store instanceof RemoteRepository && ( enabled == null || enabled != store.isDisabled() ) )
+            {
+                result.add( (RemoteRepository) store );
+            }
+        }
+
+        return result;
+    }
+
     @Override
     @Measure
     public List<ArtifactStore> getOrderedConcreteStoresInGroup( final String groupName )
@@ -528,7 +611,23 @@ public class DefaultArtifactStoreQuery<T extends ArtifactStore>
             throw new IndyDataException( "packageType must be set on the query before calling this method!" );
         }
 
-        final Group master = (Group) dataManager.getArtifactStore( new StoreKey( packageType, group, groupName ) );
+        final StoreKey groupKey = new StoreKey( packageType, group, groupName );
+        if ( membershipCache == null )
+        {
+            return walkGroupOrdering( groupKey, includeGroups, recurseGroups, new HashSet<>() );
+        }
+
+        return membershipCache.get( groupKey, enabled, includeGroups, recurseGroups,
+                                    dependencies -> walkGroupOrdering( groupKey, includeGroups, recurseGroups,
+                                                                       dependencies ) );
+    }
+
+    private List<ArtifactStore> walkGroupOrdering( final StoreKey groupKey, final boolean includeGroups,
+                                                   final boolean recurseGroups, final Set<StoreKey> dependencies )
+            throws IndyDataException
+    {
+        dependencies.add( groupKey );
+        final Group master = (Group) dataManager.getArtifactStore( groupKey );
         if ( master == null )
         {
             return emptyList();
@@ -561,6 +660,7 @@ public class DefaultArtifactStoreQuery<T extends ArtifactStore>
                                  if ( !seen.contains( key ) )
                                  {
                                      seen.add( key );
+                                     dependencies.add( key );
                                      final StoreType type = key.getType();
                                      try
                                      {
@@ -0,0 +1,156 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.db.common;
+
+import org.commonjava.indy.data.IndyDataException;
+import org.commonjava.indy.model.core.ArtifactStore;
+import org.commonjava.indy.model.core.StoreKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Materialized, flattened group membership used by {@link DefaultArtifactStoreQuery} to avoid re-walking nested groups
+ * through the {@link org.commonjava.indy.data.StoreDataManager} on every call. Each entry remembers every store key that
+ * was consulted while it was built (the group itself, nested groups and members, including ones that were missing or
+ * disabled), so a change to any one store only drops the entries that depended on it. Dropped entries are rebuilt
+ * lazily on the next query.
+ * <p>
+ * Invalidation is driven by {@link AbstractStoreDataManager#postStore} / {@link AbstractStoreDataManager#postDelete},
+ * which means it only sees changes made through this node.
+ */
+public final class GroupMembershipCache
+{
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    private final Map<MembershipKey, List<ArtifactStore>> entries = new ConcurrentHashMap<>();
+
+    private final Map<StoreKey, Set<MembershipKey>> dependents = new ConcurrentHashMap<>();
+
+    private long generation = 0;
+
+    public List<ArtifactStore> get( final StoreKey groupKey, final Boolean enabled, final boolean includeGroups,
+                                    final boolean recurseGroups, final MembershipLoader loader )
+            throws IndyDataException
+    {
+        final MembershipKey key = new MembershipKey( groupKey, enabled, includeGroups, recurseGroups );
+        List<ArtifactStore> cached = entries.get( key );
+        if ( cached != null )
+        {
+            return new ArrayList<>( cached );
+        }
+
+        final long startGeneration = currentGeneration();
+        final Set<StoreKey> dependencies = new HashSet<>();
+        final List<ArtifactStore> result = loader.load( dependencies );
+
+        synchronized ( this )
+        {
+            // don't cache anything computed while some store was changing underneath us
+            if ( startGeneration == generation )
+            {
+                entries.put( key, new ArrayList<>( result ) );
+                dependencies.forEach( dep -> dependents.computeIfAbsent( dep, k -> ConcurrentHashMap.newKeySet() )
+                                                       .add( key ) );
+            }
+        }
+
+        return result;
+    }
+
+    public synchronized void invalidate( final StoreKey storeKey )
+    {
+        generation++;
+
+        Set<MembershipKey> affected = dependents.remove( storeKey );
+        if ( affected != null )
+        {
+            logger.debug( "Invalidating {} flattened group memberships depending on: {}", affected.size(), storeKey );
+            affected.forEach( entries::remove );
+        }
+    }
+
+    public synchronized void clear()
+    {
+        generation++;
+        entries.clear();
+        dependents.clear();
+    }
+
+    private synchronized long currentGeneration()
+    {
+        return generation;
+    }
+
+    @FunctionalInterface
+    public interface MembershipLoader
+    {
+        /**
+         * Walk the group membership, adding every store key consulted along the way to dependencies.
+         */
+        List<ArtifactStore> load( Set<StoreKey> dependencies )
+                throws IndyDataException;
+    }
+
+    private static final class MembershipKey
+    {
+        private final StoreKey groupKey;
+
+        private final Boolean enabled;
+
+        private final boolean includeGroups;
+
+        private final boolean recurseGroups;
+
+        MembershipKey( final StoreKey groupKey, final Boolean enabled, final boolean includeGroups,
+                       final boolean recurseGroups )
+        {
+            this.groupKey = groupKey;
+            this.enabled = enabled;
+            this.includeGroups = includeGroups;
+            this.recurseGroups = recurseGroups;
+        }
+
+        @Override
+        public boolean equals( final Object o )
+        {
+            if ( this == o )
+            {
+                return true;
+            }
+            if ( o == null || getClass() != o.getClass() )
+            {
+                return false;
+            }
+            MembershipKey that = (MembershipKey) o;
+            return includeGroups == that.includeGroups && recurseGroups == that.recurseGroups && groupKey.equals(
+                    that.groupKey ) && Objects.equals( enabled, that.enabled );
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash( groupKey, enabled, includeGroups, recurseGroups );
+        }
+    }
+}
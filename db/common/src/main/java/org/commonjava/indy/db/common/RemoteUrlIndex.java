@@ -0,0 +1,339 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.db.common;
+
+import org.commonjava.indy.data.IndyDataException;
+import org.commonjava.indy.data.StoreDataManager;
+import org.commonjava.indy.model.core.ArtifactStore;
+import org.commonjava.indy.model.core.RemoteRepository;
+import org.commonjava.indy.model.core.StoreKey;
+import org.commonjava.indy.model.core.StoreType;
+import org.commonjava.indy.util.UrlInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Secondary index from remote repository URL (and host) to {@link RemoteRepository} keys, used by
+ * {@link DefaultArtifactStoreQuery} to look up remotes by URL without parsing the URL of every remote on every call.
+ * The index is built on first use and then kept current by {@link AbstractStoreDataManager#postStore} /
+ * {@link AbstractStoreDataManager#postDelete}, which means it only sees changes made through this node.
+ * <p>
+ * Hosts are also indexed by the IP they resolve to. A host is resolved by the first IP lookup after it is indexed, and
+ * all indexed hosts are resolved again by the first IP lookup once their resolutions are a few minutes old, so an IP
+ * lookup usually only resolves the host it was given.
+ */
+public final class RemoteUrlIndex
+{
+    private static final long RESOLVED_TTL_MILLIS = TimeUnit.MINUTES.toMillis( 5 );
+
+    @FunctionalInterface
+    interface HostResolver
+    {
+        String resolve( String host )
+                throws UnknownHostException;
+    }
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    private final HostResolver resolver;
+
+    private final Map<StoreKey, UrlInfo> urls = new ConcurrentHashMap<>();
+
+    private final Map<String, Set<StoreKey>> byUrl = new ConcurrentHashMap<>();
+
+    private final Map<String, Set<StoreKey>> byHost = new ConcurrentHashMap<>();
+
+    // IP of each indexed host that resolved, and the hosts resolving to each IP
+    private final Map<String, String> ipOfHost = new ConcurrentHashMap<>();
+
+    private final Map<String, Set<String>> byIp = new ConcurrentHashMap<>();
+
+    // indexed hosts to resolve on the next IP lookup
+    private final Set<String> unresolved = ConcurrentHashMap.newKeySet();
+
+    private volatile long resolveAllAfter;
+
+    private volatile boolean built;
+
+    public RemoteUrlIndex()
+    {
+        this( host -> InetAddress.getByName( host ).getHostAddress() );
+    }
+
+    RemoteUrlIndex( final HostResolver resolver )
+    {
+        this.resolver = resolver;
+    }
+
+    /**
+     * Keys of remotes with the same protocol and URL as the given one, ignoring a trailing slash.
+     */
+    public Set<StoreKey> getByUrl( final UrlInfo urlInfo, final StoreDataManager dataManager )
+            throws IndyDataException
+    {
+        build( dataManager );
+
+        final Set<StoreKey> keys = byUrl.get( urlKey( urlInfo ) );
+        return keys == null ? Collections.emptySet() : new HashSet<>( keys );
+    }
+
+    /**
+     * Keys of remotes whose host resolves to the same IP as the given URL's host, with the same port and path.
+     */
+    public Set<StoreKey> getByIp( final UrlInfo urlInfo, final StoreDataManager dataManager )
+            throws IndyDataException
+    {
+        build( dataManager );
+        resolveIndexedHosts();
+
+        final String indexedIp = ipOfHost.get( urlInfo.getHost() );
+        final String ip = indexedIp != null ? indexedIp : resolve( urlInfo.getHost() );
+        if ( ip == null )
+        {
+            logger.warn( "Failed to filter remote: cannot resolve ip of host: {}", urlInfo.getHost() );
+            return Collections.emptySet();
+        }
+
+        final Set<String> hosts = byIp.get( ip );
+        if ( hosts == null )
+        {
+            return Collections.emptySet();
+        }
+
+        final Set<StoreKey> result = new HashSet<>();
+        hosts.forEach( host -> {
+            final Set<StoreKey> keys = byHost.get( host );
+            if ( keys == null )
+            {
+                return;
+            }
+
+            keys.forEach( key -> {
+                UrlInfo target = urls.get( key );
+                if ( target != null && target.getPort() == urlInfo.getPort()
+                        && target.getFileWithNoLastSlash().equals( urlInfo.getFileWithNoLastSlash() ) )
+                {
+                    result.add( key );
+                }
+            } );
+        } );
+
+        return result;
+    }
+
+    public synchronized void update( final ArtifactStore store )
+    {
+        if ( !built )
+        {
+            return;
+        }
+
+        remove( store.getKey() );
+        if ( store.getType() == StoreType.remote )
+        {
+            add( (RemoteRepository) store );
+        }
+    }
+
+    public synchronized void delete( final StoreKey key )
+    {
+        if ( built )
+        {
+            remove( key );
+        }
+    }
+
+    public synchronized void clear()
+    {
+        built = false;
+        urls.clear();
+        byUrl.clear();
+        byHost.clear();
+        ipOfHost.clear();
+        byIp.clear();
+        unresolved.clear();
+    }
+
+    private void build( final StoreDataManager dataManager )
+            throws IndyDataException
+    {
+        if ( built )
+        {
+            return;
+        }
+
+        synchronized ( this )
+        {
+            if ( built )
+            {
+                return;
+            }
+
+            build( dataManager.streamArtifactStores() );
+        }
+    }
+
+    synchronized void build( final Stream<ArtifactStore> stores )
+    {
+        stores.filter( store -> store.getType() == StoreType.remote ).forEach( store -> add( (RemoteRepository) store ) );
+
+        logger.info( "Indexed URLs of {} remote repositories", urls.size() );
+        resolveAllAfter = System.currentTimeMillis() + RESOLVED_TTL_MILLIS;
+        built = true;
+    }
+
+    private void add( final RemoteRepository remote )
+    {
+        final UrlInfo info;
+        try
+        {
+            info = new UrlInfo( remote.getUrl() );
+        }
+        catch ( Exception error )
+        {
+            logger.warn( "Invalid repository, store: {}, url: '{}'. Reason: {}", remote.getKey(), remote.getUrl(),
+                         error.getMessage() );
+            return;
+        }
+
+        final StoreKey key = remote.getKey();
+        urls.put( key, info );
+        byUrl.computeIfAbsent( urlKey( info ), k -> ConcurrentHashMap.newKeySet() ).add( key );
+        byHost.computeIfAbsent( info.getHost(), k -> {
+            unresolved.add( k );
+            return ConcurrentHashMap.newKeySet();
+        } ).add( key );
+    }
+
+    private void remove( final StoreKey key )
+    {
+        final UrlInfo info = urls.remove( key );
+        if ( info != null )
+        {
+            removeFrom( byUrl, urlKey( info ), key );
+            removeFrom( byHost, info.getHost(), key );
+            if ( !byHost.containsKey( info.getHost() ) )
+            {
+                unresolved.remove( info.getHost() );
+                indexIp( info.getHost(), null );
+            }
+        }
+    }
+
+    /**
+     * Resolve the hosts indexed since the last IP lookup, or all of them if their resolutions are getting old. Hosts are
+     * resolved outside the lock, so store updates don't wait for DNS.
+     */
+    private void resolveIndexedHosts()
+    {
+        if ( System.currentTimeMillis() >= resolveAllAfter )
+        {
+            synchronized ( this )
+            {
+                final long now = System.currentTimeMillis();
+                if ( now >= resolveAllAfter )
+                {
+                    resolveAllAfter = now + RESOLVED_TTL_MILLIS;
+                    unresolved.addAll( byHost.keySet() );
+                }
+            }
+        }
+
+        if ( unresolved.isEmpty() )
+        {
+            return;
+        }
+
+        for ( final String host : new ArrayList<>( unresolved ) )
+        {
+            if ( !unresolved.remove( host ) )
+            {
+                continue;
+            }
+
+            final String ip = resolve( host );
+            synchronized ( this )
+            {
+                // the host may have been removed meanwhile
+                if ( byHost.containsKey( host ) )
+                {
+                    indexIp( host, ip );
+                }
+            }
+        }
+    }
+
+    /**
+     * Move the host to the given IP in the IP index, or out of it if the IP is null. Must be called while holding this
+     * index's lock.
+     */
+    private void indexIp( final String host, final String ip )
+    {
+        final String previous = ip == null ? ipOfHost.remove( host ) : ipOfHost.put( host, ip );
+        if ( previous != null && !previous.equals( ip ) )
+        {
+            byIp.computeIfPresent( previous, ( k, hosts ) -> {
+                hosts.remove( host );
+                return hosts.isEmpty() ? null : hosts;
+            } );
+        }
+
+        if ( ip != null )
+        {
+            byIp.computeIfAbsent( ip, k -> ConcurrentHashMap.newKeySet() ).add( host );
+        }
+    }
+
+    /**
+     * @return the IP of the host, or null if it can't be resolved
+     */
+    private String resolve( final String host )
+    {
+        try
+        {
+            return resolver.resolve( host );
+        }
+        catch ( UnknownHostException e )
+        {
+            logger.debug( "Cannot resolve ip of host: {}. Reason: {}", host, e.getMessage() );
+            return null;
+        }
+    }
+
+    private void removeFrom( final Map<String, Set<StoreKey>> index, final String indexKey, final StoreKey key )
+    {
+        index.computeIfPresent( indexKey, ( k, keys ) -> {
+            keys.remove( key );
+            return keys.isEmpty() ? null : keys;
+        } );
+    }
+
+    private String urlKey( final UrlInfo info )
+    {
+        return info.getProtocol() + ":" + info.getUrlWithNoSchemeAndLastSlash();
+    }
+}
@@ -0,0 +1,176 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.db.common;
+
+import org.commonjava.indy.model.core.ArtifactStore;
+import org.commonjava.indy.model.core.HostedRepository;
+import org.commonjava.indy.model.core.StoreKey;
+import org.commonjava.indy.model.core.StoreType;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class GroupMembershipCacheTest
+{
+    private static final String MAVEN = "maven";
+
+    private final StoreKey group = new StoreKey( MAVEN, StoreType.group, "public" );
+
+    private final StoreKey nested = new StoreKey( MAVEN, StoreType.group, "nested" );
+
+    private final StoreKey other = new StoreKey( MAVEN, StoreType.group, "other" );
+
+    private final HostedRepository member = new HostedRepository( MAVEN, "member" );
+
+    private final HostedRepository otherMember = new HostedRepository( MAVEN, "other-member" );
+
+    private final GroupMembershipCache cache = new GroupMembershipCache();
+
+    @Test
+    public void cachedUntilADependencyChanges()
+            throws Exception
+    {
+        AtomicInteger loads = new AtomicInteger();
+        GroupMembershipCache.MembershipLoader loader = deps -> {
+            loads.incrementAndGet();
+            deps.addAll( Arrays.asList( group, nested, member.getKey() ) );
+            return Collections.singletonList( member );
+        };
+
+        cache.get( group, true, false, true, loader );
+        cache.get( group, true, false, true, loader );
+        assertThat( loads.get(), equalTo( 1 ) );
+
+        cache.invalidate( otherMember.getKey() );
+        cache.get( group, true, false, true, loader );
+        assertThat( loads.get(), equalTo( 1 ) );
+
+        // a nested group is a dependency even though it isn't in the flattened result
+        cache.invalidate( nested );
+        List<ArtifactStore> result = cache.get( group, true, false, true, loader );
+        assertThat( loads.get(), equalTo( 2 ) );
+        assertThat( result, equalTo( Collections.<ArtifactStore>singletonList( member ) ) );
+    }
+
+    @Test
+    public void invalidationOnlyDropsDependents()
+            throws Exception
+    {
+        AtomicInteger groupLoads = new AtomicInteger();
+        AtomicInteger otherLoads = new AtomicInteger();
+        GroupMembershipCache.MembershipLoader groupLoader = deps -> {
+            groupLoads.incrementAndGet();
+            deps.addAll( Arrays.asList( group, member.getKey() ) );
+            return Collections.singletonList( member );
+        };
+        GroupMembershipCache.MembershipLoader otherLoader = deps -> {
+            otherLoads.incrementAndGet();
+            deps.addAll( Arrays.asList( other, otherMember.getKey() ) );
+            return Collections.singletonList( otherMember );
+        };
+
+        cache.get( group, true, false, true, groupLoader );
+        cache.get( other, true, false, true, otherLoader );
+
+        cache.invalidate( member.getKey() );
+        cache.get( group, true, false, true, groupLoader );
+        cache.get( other, true, false, true, otherLoader );
+
+        assertThat( groupLoads.get(), equalTo( 2 ) );
+        assertThat( otherLoads.get(), equalTo( 1 ) );
+    }
+
+    @Test
+    public void queryFlagsAreSeparateEntries()
+            throws Exception
+    {
+        AtomicInteger loads = new AtomicInteger();
+        GroupMembershipCache.MembershipLoader loader = deps -> {
+            loads.incrementAndGet();
+            deps.add( group );
+            return Collections.singletonList( member );
+        };
+
+        cache.get( group, true, false, true, loader );
+        cache.get( group, null, false, true, loader );
+        cache.get( group, true, true, true, loader );
+        cache.get( group, true, false, false, loader );
+
+        assertThat( loads.get(), equalTo( 4 ) );
+    }
+
+    @Test
+    public void notCachedWhenAStoreChangesDuringLoad()
+            throws Exception
+    {
+        AtomicInteger loads = new AtomicInteger();
+        GroupMembershipCache.MembershipLoader loader = deps -> {
+            if ( loads.incrementAndGet() == 1 )
+            {
+                // another thread stores a member while this walk is still reading the old one
+                cache.invalidate( member.getKey() );
+            }
+            deps.addAll( Arrays.asList( group, member.getKey() ) );
+            return Collections.singletonList( member );
+        };
+
+        List<ArtifactStore> first = cache.get( group, true, false, true, loader );
+        assertThat( first, equalTo( Collections.<ArtifactStore>singletonList( member ) ) );
+
+        cache.get( group, true, false, true, loader );
+        cache.get( group, true, false, true, loader );
+        assertThat( loads.get(), equalTo( 2 ) );
+    }
+
+    @Test
+    public void returnedListsAreCopies()
+            throws Exception
+    {
+        GroupMembershipCache.MembershipLoader loader = deps -> {
+            deps.add( group );
+            return Collections.singletonList( member );
+        };
+
+        cache.get( group, true, false, true, loader );
+        cache.get( group, true, false, true, loader ).clear();
+
+        assertThat( cache.get( group, true, false, true, loader ).size(), equalTo( 1 ) );
+    }
+
+    @Test
+    public void clearDropsEverything()
+            throws Exception
+    {
+        AtomicInteger loads = new AtomicInteger();
+        GroupMembershipCache.MembershipLoader loader = deps -> {
+            loads.incrementAndGet();
+            deps.add( group );
+            return Collections.singletonList( member );
+        };
+
+        cache.get( group, true, false, true, loader );
+        cache.clear();
+        cache.get( group, true, false, true, loader );
+
+        assertThat( loads.get(), equalTo( 2 ) );
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.db.common;
+
+import org.commonjava.indy.model.core.ArtifactStore;
+import org.commonjava.indy.model.core.RemoteRepository;
+import org.commonjava.indy.model.core.StoreKey;
+import org.commonjava.indy.util.UrlInfo;
+import org.junit.Test;
+
+import java.net.UnknownHostException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class RemoteUrlIndexTest
+{
+    private static final String MAVEN = "maven";
+
+    private final Map<String, String> ips = new HashMap<>();
+
+    private final AtomicInteger resolved = new AtomicInteger();
+
+    private final RemoteUrlIndex index = new RemoteUrlIndex( host -> {
+        resolved.incrementAndGet();
+        String ip = ips.get( host );
+        if ( ip == null )
+        {
+            throw new UnknownHostException( host );
+        }
+        return ip;
+    } );
+
+    private final RemoteRepository central = new RemoteRepository( MAVEN, "central", "http://repo.example.com/maven2" );
+
+    private final RemoteRepository mirror = new RemoteRepository( MAVEN, "mirror", "http://mirror.example.com/maven2/" );
+
+    private final RemoteRepository other = new RemoteRepository( MAVEN, "other", "http://other.example.com/maven2" );
+
+    @Test
+    public void foundByUrlIgnoringTrailingSlash()
+            throws Exception
+    {
+        build( central, mirror );
+
+        assertThat( index.getByUrl( new UrlInfo( "http://mirror.example.com/maven2" ), null ),
+                    equalTo( Collections.singleton( mirror.getKey() ) ) );
+        assertThat( index.getByUrl( new UrlInfo( "https://mirror.example.com/maven2" ), null ),
+                    equalTo( Collections.<StoreKey>emptySet() ) );
+    }
+
+    @Test
+    public void foundByIpOfAnotherHost()
+            throws Exception
+    {
+        ips.put( "repo.example.com", "10.0.0.1" );
+        ips.put( "mirror.example.com", "10.0.0.1" );
+        ips.put( "other.example.com", "10.0.0.2" );
+        ips.put( "alias.example.com", "10.0.0.1" );
+        build( central, other );
+
+        assertThat( index.getByIp( new UrlInfo( "http://alias.example.com/maven2/" ), null ),
+                    equalTo( Collections.singleton( central.getKey() ) ) );
+        assertThat( index.getByIp( new UrlInfo( "http://alias.example.com:8080/maven2" ), null ),
+                    equalTo( Collections.<StoreKey>emptySet() ) );
+        assertThat( index.getByIp( new UrlInfo( "http://unknown.example.com/maven2" ), null ),
+                    equalTo( Collections.<StoreKey>emptySet() ) );
+    }
+
+    @Test
+    public void indexedHostsOnlyResolvedOnce()
+            throws Exception
+    {
+        ips.put( "repo.example.com", "10.0.0.1" );
+        ips.put( "mirror.example.com", "10.0.0.2" );
+        ips.put( "other.example.com", "10.0.0.3" );
+        build( central, mirror, other );
+
+        index.getByIp( new UrlInfo( "http://repo.example.com/maven2" ), null );
+        assertThat( resolved.get(), equalTo( 3 ) );
+
+        // an indexed host's IP comes from the index, and the other hosts aren't resolved again
+        assertThat( index.getByIp( new UrlInfo( "http://other.example.com/maven2" ), null ),
+                    equalTo( Collections.singleton( other.getKey() ) ) );
+        assertThat( resolved.get(), equalTo( 3 ) );
+    }
+
+    @Test
+    public void updatesMoveHostsBetweenIps()
+            throws Exception
+    {
+        ips.put( "repo.example.com", "10.0.0.1" );
+        ips.put( "mirror.example.com", "10.0.0.2" );
+        build( central );
+
+        assertThat( index.getByIp( new UrlInfo( "http://repo.example.com/maven2" ), null ),
+                    equalTo( Collections.singleton( central.getKey() ) ) );
+
+        RemoteRepository moved = new RemoteRepository( MAVEN, "central", "http://mirror.example.com/maven2" );
+        index.update( moved );
+        assertThat( index.getByIp( new UrlInfo( "http://repo.example.com/maven2" ), null ),
+                    equalTo( Collections.<StoreKey>emptySet() ) );
+        assertThat( index.getByIp( new UrlInfo( "http://mirror.example.com/maven2" ), null ),
+                    equalTo( Collections.singleton( central.getKey() ) ) );
+
+        index.delete( central.getKey() );
+        assertThat( index.getByIp( new UrlInfo( "http://mirror.example.com/maven2" ), null ),
+                    equalTo( Collections.<StoreKey>emptySet() ) );
+    }
+
+    private void build( final ArtifactStore... stores )
+    {
+        index.build( Stream.of( stores ) );
+    }
+}
@@ -128,6 +128,8 @@ public class InfinispanStoreDataManager
         storesByPkg.clear();
         affectedByStores.clear();
         storesByPkg.clear();
+        groupMembershipCache.clear();
+        remoteUrlIndex.clear();
     }
 
     @Override
@@ -98,6 +98,8 @@ public class MemoryStoreDataManager
             throws IndyDataException
     {
         stores.clear();
+        groupMembershipCache.clear();
+        remoteUrlIndex.clear();
     }
 
     @Override
@@ -395,6 +395,33 @@ public class MeasuringStoreQuery<T extends ArtifactStore>
         return result;
     }
 
+    @Override
+    public List<RemoteRepository> getRemoteRepositoryByExactUrl( final String url )
+            throws IndyDataException
+    {
+        AtomicReference<IndyDataException> errorRef = new AtomicReference<>();
+        List<RemoteRepository> result = metricsManager.wrapWithStandardMetrics( ()->{
+            try
+            {
+                return query.getRemoteRepositoryByExactUrl( url );
+            }
+            catch ( IndyDataException e )
+            {
+                errorRef.set( e );
+            }
+
+            return null;
+        }, ()-> "getRemoteRepositoryByExactUrl" );
+
+        IndyDataException error = errorRef.get();
+        if ( error != null )
+        {
+            throw error;
+        }
+
+        return result;
+    }
+
     @Override
     public List<ArtifactStore> getOrderedConcreteStoresInGroup( final String groupName )
             throws IndyDataException
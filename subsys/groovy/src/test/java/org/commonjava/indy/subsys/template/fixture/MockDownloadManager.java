@@ -27,6 +27,7 @@ import org.commonjava.maven.galley.model.TransferOperation;
 import javax.enterprise.inject.Alternative;
 import java.io.InputStream;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Created by gli on 1/5/17.
@@ -216,6 +217,13 @@ public class MockDownloadManager implements DownloadManager
         return null;
     }
 
+    @Override
+    public Stream<Transfer> streamRecursively( StoreKey src, String startPath )
+            throws IndyWorkflowException
+    {
+        return null;
+    }
+
     @Override
     public Transfer getStorageReference( List<ArtifactStore> stores, String path, TransferOperation op )
             throws IndyWorkflowException
@@ -60,6 +60,10 @@ public class IndyKafkaProducer
         }
     };
 
+    protected IndyKafkaProducer()
+    {
+    }
+
     public IndyKafkaProducer( Properties properties )
     {
         this.kafkaProducer = new KafkaProducer<>( properties );